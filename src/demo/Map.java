@@ -35,16 +35,17 @@ import java.util.ArrayList;
 import net.krcko.map.MapNode;
 import net.krcko.map.MovingEntity;
 import net.krcko.map.Path;
-import net.krcko.map.TileMap;
+import net.krcko.map.chunk.CopyOnWriteTileMap;
 import net.krcko.map.AStarPathFinder;
 import net.krcko.math.Point2D;
 
 /**
- * A TileMap implementation class.
+ * A TileMap implementation class. Tiles can be edited while paths are being
+ * searched for, searches use a snapshot of the map.
  *
  * @author Aleksandar Ružičić
  */
-public class Map extends TileMap {
+public class Map extends CopyOnWriteTileMap {
 
     /**
      * A* path finding algorithm using Manhattan Distance heuristic constant
@@ -81,11 +82,6 @@ public class Map extends TileMap {
      */
     public static final int WALL = 3;
 
-    /**
-     * Map data.
-     */
-    private int[][] map = new int[0][0];
-
     /**
      * Controls if diagonal movement is allowed
      */
@@ -94,57 +90,34 @@ public class Map extends TileMap {
     private ArrayList<MapListener> listeners = new ArrayList<>();
 
     /**
-     * {@inheritDoc}
-     */
-    @Override
-    protected boolean canMoveDiagonaly(MovingEntity entity) {
-        return canMoveDiagonaly;
-    }
-
-    /**
-     * {@inheritDoc}
+     * Constructs new empty map.
      */
-    @Override
-    public int getWidthInTiles() {
-        return map.length;
+    public Map() {
+        super(0, 0, DEFAULT_CHUNK_SIZE);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public int getHeightInTiles() {
-        return map[0].length;
+    protected boolean canMoveDiagonaly(MovingEntity entity) {
+        return canMoveDiagonaly;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public boolean canMoveTo(MovingEntity entity, Point2D.Int target) {
-        
-        if (!isValidLocation(target)) {
-            throw new IndexOutOfBoundsException("Tile with coordinates (" + target.x + ", " + target.y + ") is out of the map bounds.");
-        }
-
-        return map[target.x][target.y] != WALL;
+    protected boolean isPassable(MovingEntity entity, int value) {
+        return value != WALL;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public float getCost(MovingEntity entity, Point2D.Int source, Point2D.Int target) {
-
-        if (!isValidLocation(source)) {
-            throw new IndexOutOfBoundsException("Tile with coordinates (" + source.x + ", " + source.y + ") is out of the map bounds.");
-        }
-
-        if (!isValidLocation(target)) {
-            throw new IndexOutOfBoundsException("Tile with coordinates (" + target.x + ", " + target.y + ") is out of the map bounds.");
-        }
-        
-        return map[target.x][target.y] + 0.5f;
+    protected float getTileCost(MovingEntity entity, Point2D.Int source, int sourceValue, Point2D.Int target, int targetValue) {
+        return targetValue + 0.5f;
     }
 
     /**
@@ -161,47 +134,58 @@ public class Map extends TileMap {
         listeners.add(listener);
     }
 
-    /**
-     * Resizes map and resets all tiles to GRASS type.
-     * @param width     the new width of the map
-     * @param height    the new height of the map
-     */
-    public void resize(int width, int height) {
-        map = new int[width][height];
-    }
-
     /**
      * Sets value of the map tile
      * @param x     the X coordinate of the tile
      * @param y     the Y coordinate of the tile
      * @param value the tile value
      */
+    @Override
     public void setTile(int x, int y, int value) {
+        checkTile(value);
+        super.setTile(x, y, value);
+    }
 
-        if (value != GRASS && value != SAND && value != MUD && value != WALL) {
-            throw new IllegalArgumentException("Unknown tile value specified. Expected GRASS, SAND, MUD or WALL.");
-        }
+    /**
+     * Sets all tiles of a rectangle to the same value
+     * @param x         the X coordinate of the first column
+     * @param y         the Y coordinate of the first row
+     * @param width     the number of columns
+     * @param height    the number of rows
+     * @param value     the tile value
+     */
+    @Override
+    public void fill(int x, int y, int width, int height, int value) {
+        checkTile(value);
+        super.fill(x, y, width, height, value);
+    }
+
+    /**
+     * Sets values of all tiles of a rectangle
+     * @param x         the X coordinate of the first column
+     * @param y         the Y coordinate of the first row
+     * @param width     the number of columns
+     * @param height    the number of rows
+     * @param values    the tile values of the rectangle, in row-major order
+     */
+    @Override
+    public void setTiles(int x, int y, int width, int height, int[] values) {
 
-        if (!isValidLocation(x, y)) {
-            throw new IndexOutOfBoundsException("Tile with coordinates (" + x + ", " + y + ") is out of the map bounds.");
+        for (int value: values) {
+            checkTile(value);
         }
 
-        map[x][y] = value;
+        super.setTiles(x, y, width, height, values);
     }
 
     /**
-     * Returns value of the map tile
-     * @param x the X coordinate of the tile
-     * @param y the Y coordinate of the tile
-     * @return  the tile value
+     * Checks that a tile value is one of the known tile types
+     * @param value the tile value
      */
-    public int getTile(int x, int y) {
-
-        if (!isValidLocation(x, y)) {
-            throw new IndexOutOfBoundsException("Tile with coordinates (" + x + ", " + y + ") is out of the map bounds.");
+    private static void checkTile(int value) {
+        if (value != GRASS && value != SAND && value != MUD && value != WALL) {
+            throw new IllegalArgumentException("Unknown tile value specified. Expected GRASS, SAND, MUD or WALL.");
         }
-
-        return map[x][y];
     }
 
     /**
@@ -241,16 +225,19 @@ public class Map extends TileMap {
      */
     public Path<Point2D.Int> findPath(int pathFinderAlgorithm, MovingEntity entity, Point2D.Int source, Point2D.Int target) {
 
+        // search a snapshot, so edits made meanwhile do not affect the search
+        final Snapshot map = snapshot();
+
         switch (pathFinderAlgorithm) {
 
             case A_STAR_MANHATTAN:
-                return new AStarPathFinder<>(this, new Manhattan2D.Int()).findPath(entity, source, target);
+                return new AStarPathFinder<>(map, new Manhattan2D.Int()).findPath(entity, source, target);
 
             case A_STAR_DIAGONAL:
-                return new AStarPathFinder<>(this, new Diagonal2D.Int()).findPath(entity, source, target);
+                return new AStarPathFinder<>(map, new Diagonal2D.Int()).findPath(entity, source, target);
 
                 case A_STAR_EUCLIDEAN:
-                return new AStarPathFinder<>(this, new Euclidean2D.Int()).findPath(entity, source, target);
+                return new AStarPathFinder<>(map, new Euclidean2D.Int()).findPath(entity, source, target);
             
             default:
                 throw new IllegalArgumentException("Unknown algorithm specified. Expected A_STAR_MANHATTAN, A_STAR_DIAGONAL or A_STAR_EUCLIDEAN.");
@@ -0,0 +1,225 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package demo.benchmark;
+
+import demo.Map;
+import demo.Player;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import net.krcko.map.Path;
+import net.krcko.map.multiagent.ConflictBasedSearch;
+import net.krcko.math.Point2D;
+
+/**
+ * Measures <code>ConflictBasedSearch</code> on grids modelled after the
+ * standard multi-agent path finding benchmark maps (empty-8-8, empty-16-16 and
+ * random-32-32-20), with random scenarios at increasing agent counts.
+ * <p>
+ * Each configuration is solved on the calling thread, and each solved
+ * scenario is solved again with a thread pool expanding several high-level
+ * nodes at once. Average times are taken over the solved scenarios only.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class CbsBenchmark {
+
+    /**
+     * The number of scenarios solved per agent count.
+     */
+    private static final int SCENARIOS = 10;
+
+    /**
+     * Runs the benchmark.
+     * @param args  command line arguments, ignored
+     */
+    public static void main(final String[] args) {
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+        try {
+            run("empty-8-8", createMap(8, 8, 0, 1), new int[] {2, 4, 6, 8, 10}, executor);
+            run("empty-16-16", createMap(16, 16, 0, 2), new int[] {4, 8, 12, 16, 20}, executor);
+            run("random-32-32-20", createMap(32, 32, 0.2, 3), new int[] {5, 10, 15, 20, 25}, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Solves scenarios of increasing agent counts on one map and prints the results.
+     * @param name      the name of the map
+     * @param map       the map
+     * @param counts    agent counts to solve
+     * @param executor  the executor used for parallel runs
+     */
+    private static void run(final String name, final Map map, final int[] counts, final ExecutorService executor) {
+
+        final ConflictBasedSearch solver = new ConflictBasedSearch(map);
+
+        solver.setMaxExpansions(20000);
+
+        System.out.println(name);
+        System.out.println("agents  solved  avg ms  par ms  expanded  low-level  cache hits");
+
+        for (int agents: counts) {
+
+            final Random random = new Random(agents * 31 + map.getWidthInTiles());
+
+            int solved = 0;
+            long sequential = 0;
+            long parallel = 0;
+            long expanded = 0;
+            long searches = 0;
+            long hits = 0;
+
+            for (int s = 0; s < SCENARIOS; s++) {
+
+                final List<Player> players = new ArrayList<>();
+                final List<Point2D.Int> sources = new ArrayList<>();
+                final List<Point2D.Int> targets = new ArrayList<>();
+
+                createScenario(map, agents, random, players, sources, targets);
+
+                solver.setExecutor(null);
+
+                long start = System.nanoTime();
+
+                final List<Path<Point2D.Int>> paths = solver.findPaths(players, sources, targets);
+                final long elapsed = System.nanoTime() - start;
+
+                if (paths == null) {
+                    continue;
+                }
+
+                solved++;
+                sequential += elapsed;
+                expanded += solver.getExpandedNodes();
+                searches += solver.getLowLevelSearches();
+                hits += solver.getCacheHits();
+
+                solver.setExecutor(executor);
+
+                start = System.nanoTime();
+                solver.findPaths(players, sources, targets);
+                parallel += System.nanoTime() - start;
+            }
+
+            System.out.println(String.format("%6d  %6d  %6.1f  %6.1f  %8d  %9d  %10d", agents, solved,
+                    solved == 0 ? 0 : sequential / 1e6 / solved, solved == 0 ? 0 : parallel / 1e6 / solved,
+                    expanded, searches, hits));
+        }
+
+        System.out.println();
+    }
+
+    /**
+     * Creates a map with randomly placed walls.
+     * @param width     the width of the map
+     * @param height    the height of the map
+     * @param density   the fraction of wall tiles
+     * @param seed      the random seed
+     * @return the map
+     */
+    private static Map createMap(final int width, final int height, final double density, final long seed) {
+
+        final Map map = new Map();
+        final Random random = new Random(seed);
+
+        map.resize(width, height);
+        map.setCanMoveDiagonaly(false);
+
+        final int[] tiles = new int[width * height];
+
+        for (int i = 0; i < tiles.length; i++) {
+            if (random.nextDouble() < density) {
+                tiles[i] = Map.WALL;
+            }
+        }
+
+        map.setTiles(0, 0, width, height, tiles);
+
+        return map;
+    }
+
+    /**
+     * Creates a scenario of agents with distinct, mutually reachable sources and targets.
+     * @param map       the map
+     * @param agents    the number of agents
+     * @param random    the random generator
+     * @param players   receives the agents
+     * @param sources   receives starting points
+     * @param targets   receives ending points
+     */
+    private static void createScenario(final Map map, final int agents, final Random random, final List<Player> players, final List<Point2D.Int> sources, final List<Point2D.Int> targets) {
+
+        final HashSet<Point2D.Int> usedSources = new HashSet<>();
+        final HashSet<Point2D.Int> usedTargets = new HashSet<>();
+
+        while (players.size() < agents) {
+
+            final Point2D.Int source = randomTile(map, random);
+            final Point2D.Int target = randomTile(map, random);
+            final Player player = new Player(source);
+
+            if (usedSources.contains(source) || usedTargets.contains(target)) {
+                continue;
+            }
+
+            if (!source.equals(target) && map.findPath(player, source, target) == null) {
+                continue;
+            }
+
+            usedSources.add(source);
+            usedTargets.add(target);
+            players.add(player);
+            sources.add(source);
+            targets.add(target);
+        }
+    }
+
+    /**
+     * Returns a random passable tile.
+     * @param map       the map
+     * @param random    the random generator
+     * @return the tile location
+     */
+    private static Point2D.Int randomTile(final Map map, final Random random) {
+
+        while (true) {
+
+            final Point2D.Int location = new Point2D.Int(random.nextInt(map.getWidthInTiles()), random.nextInt(map.getHeightInTiles()));
+
+            if (map.getTile(location.x, location.y) != Map.WALL) {
+                return location;
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package demo.benchmark;
+
+import demo.Map;
+import demo.Player;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import net.krcko.map.Heuristic;
+import net.krcko.map.MovingEntity;
+import net.krcko.map.ParallelAStarPathFinder;
+import net.krcko.map.Path;
+import net.krcko.math.Point2D;
+
+/**
+ * Measures how <code>ParallelAStarPathFinder</code> scales with the number of
+ * workers, on a single query across a large grid with randomly placed walls.
+ * <p>
+ * The single worker run is the baseline. Results are only meaningful when the
+ * machine has at least as many cores as workers.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class ParallelAStarBenchmark {
+
+    /**
+     * The width and the height of the map.
+     */
+    private static final int SIZE = 1500;
+
+    /**
+     * The number of timed runs per worker count.
+     */
+    private static final int RUNS = 3;
+
+    /**
+     * Runs the benchmark.
+     * @param args  command line arguments, optionally the largest number of workers
+     */
+    public static void main(final String[] args) {
+
+        final int maxWorkers = args.length > 0 ? Integer.parseInt(args[0]) : Math.min(16, Runtime.getRuntime().availableProcessors());
+        final Map map = createMap(SIZE, 0.25, 1);
+        final Point2D.Int source = new Point2D.Int(0, 0);
+        final Point2D.Int target = new Point2D.Int(SIZE - 1, SIZE - 1);
+        final Player player = new Player(source);
+
+        // the cheapest tile costs 0.5, so half of the Manhattan distance is admissible
+        final Heuristic<Point2D.Int> heuristic = new Heuristic<Point2D.Int>() {
+
+            @Override
+            public float getHeuristicCost(final net.krcko.map.Map<Point2D.Int> map, final MovingEntity entity, final Point2D.Int source, final Point2D.Int target) {
+                return 0.5f * (Math.abs(source.x - target.x) + Math.abs(source.y - target.y));
+            }
+        };
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, maxWorkers - 1));
+
+        System.out.println(String.format("%dx%d map, %d processors", SIZE, SIZE, Runtime.getRuntime().availableProcessors()));
+        System.out.println("workers    avg ms  speedup  expanded  transferred    cost");
+
+        try {
+
+            double baseline = 0;
+
+            for (int workers = 1; workers <= maxWorkers; workers *= 2) {
+
+                final ParallelAStarPathFinder<Point2D.Int> finder = new ParallelAStarPathFinder<>(map, heuristic, workers == 1 ? null : executor, workers);
+
+                // warm up
+                finder.findPath(player, source, target);
+
+                long elapsed = 0;
+                Path<Point2D.Int> path = null;
+
+                for (int run = 0; run < RUNS; run++) {
+                    final long start = System.nanoTime();
+                    path = finder.findPath(player, source, target);
+                    elapsed += System.nanoTime() - start;
+                }
+
+                final double average = elapsed / 1e6 / RUNS;
+
+                if (workers == 1) {
+                    baseline = average;
+                }
+
+                System.out.println(String.format("%7d  %8.1f  %7.2f  %8d  %11d  %6.1f", workers, average, baseline / average,
+                        finder.getExpandedNodes(), finder.getTransferredNodes(), getCost(map, player, source, path)));
+            }
+
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Creates a map with randomly placed walls and passable corners.
+     * @param size      the width and the height of the map
+     * @param density   the fraction of wall tiles
+     * @param seed      the random seed
+     * @return the map
+     */
+    private static Map createMap(final int size, final double density, final long seed) {
+
+        final Map map = new Map();
+        final Random random = new Random(seed);
+
+        map.resize(size, size);
+        map.setCanMoveDiagonaly(false);
+
+        final int[] tiles = new int[size * size];
+
+        for (int i = 0; i < tiles.length; i++) {
+            if (random.nextDouble() < density) {
+                tiles[i] = Map.WALL;
+            }
+        }
+
+        map.setTiles(0, 0, size, size, tiles);
+
+        map.setTile(0, 0, Map.GRASS);
+        map.setTile(size - 1, size - 1, Map.GRASS);
+
+        return map;
+    }
+
+    /**
+     * Returns the cost of a path.
+     * @param map       the map
+     * @param player    the moving entity
+     * @param source    the starting point
+     * @param path      the path, or <tt>null</tt>
+     * @return the cost of the path, or <tt>-1</tt> if there is no path
+     */
+    private static float getCost(final Map map, final Player player, final Point2D.Int source, final Path<Point2D.Int> path) {
+
+        if (path == null) {
+            return -1;
+        }
+
+        float cost = 0;
+        Point2D.Int previous = source;
+
+        for (int i = 0; i < path.getLength(); i++) {
+            cost += map.getCost(player, previous, path.getStep(i));
+            previous = path.getStep(i);
+        }
+
+        return cost;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,220 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package demo.benchmark;
+
+import demo.Map;
+import demo.Player;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import net.krcko.map.CompactPath;
+import net.krcko.map.Path;
+import net.krcko.map.PathCodec;
+import net.krcko.map.TileMapPathFinder;
+import net.krcko.map.heuristic.Diagonal2D;
+import net.krcko.math.Point2D;
+
+/**
+ * Compares the size and throughput of <code>PathCodec</code> with naive
+ * serialization of paths as two <code>int</code> coordinates per step.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class PathCodecBenchmark {
+
+    /**
+     * The number of times each path set is encoded and decoded.
+     */
+    private static final int ROUNDS = 50;
+
+    /**
+     * Runs the benchmark.
+     * @param args  command line arguments, ignored
+     * @throws IOException if writing to a channel fails
+     */
+    public static void main(final String[] args) throws IOException {
+
+        final Map map = new Map();
+        final Random random = new Random(1);
+
+        map.resize(256, 256);
+
+        for (int i = 0; i < 256 * 256 / 5; i++) {
+            map.setTile(random.nextInt(256), random.nextInt(256), Map.WALL);
+        }
+
+        final TileMapPathFinder finder = new TileMapPathFinder(map, new Diagonal2D.Int());
+        final Player player = new Player();
+        final List<CompactPath> compact = new ArrayList<>();
+        final List<Path<Point2D.Int>> paths = new ArrayList<>();
+        final List<Point2D.Int> sources = new ArrayList<>();
+
+        while (compact.size() < 1000) {
+
+            final Point2D.Int source = new Point2D.Int(random.nextInt(256), random.nextInt(256));
+            final Point2D.Int target = new Point2D.Int(random.nextInt(256), random.nextInt(256));
+            final CompactPath path = map.getTile(source.x, source.y) == Map.WALL ? null : finder.findCompactPath(player, source, target);
+
+            if (path != null) {
+                compact.add(path);
+                paths.add(path.toPath());
+                sources.add(source);
+            }
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(64 << 20);
+
+        long steps = 0;
+
+        for (CompactPath path: compact) {
+            steps += path.getLength();
+        }
+
+        System.out.println(compact.size() + " paths, " + steps + " steps");
+        System.out.println("format   bytes/path  encode ms  decode ms");
+
+        // naive: two ints per point
+        long encode = 0;
+        long decode = 0;
+        int size = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+
+            buffer.clear();
+
+            long start = System.nanoTime();
+
+            for (int i = 0; i < paths.size(); i++) {
+
+                final Path<Point2D.Int> path = paths.get(i);
+
+                buffer.putInt(sources.get(i).x).putInt(sources.get(i).y).putInt(path.getLength());
+
+                for (int s = 0; s < path.getLength(); s++) {
+                    buffer.putInt(path.getStep(s).x).putInt(path.getStep(s).y);
+                }
+            }
+
+            encode += System.nanoTime() - start;
+            size = buffer.position();
+            buffer.flip();
+            start = System.nanoTime();
+
+            for (int i = 0; i < paths.size(); i++) {
+
+                buffer.getInt();
+                buffer.getInt();
+
+                final int length = buffer.getInt();
+                final Path<Point2D.Int> path = new Path<>(length);
+
+                for (int s = 0; s < length; s++) {
+                    path.append(new Point2D.Int(buffer.getInt(), buffer.getInt()));
+                }
+            }
+
+            decode += System.nanoTime() - start;
+        }
+
+        print("naive", size, compact.size(), encode, decode);
+
+        // codec, from and to compact paths
+        encode = 0;
+        decode = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+
+            buffer.clear();
+
+            long start = System.nanoTime();
+
+            for (CompactPath path: compact) {
+                PathCodec.encode(path, buffer);
+            }
+
+            encode += System.nanoTime() - start;
+            size = buffer.position();
+            buffer.flip();
+            start = System.nanoTime();
+
+            for (int i = 0; i < compact.size(); i++) {
+                PathCodec.decode(buffer);
+            }
+
+            decode += System.nanoTime() - start;
+        }
+
+        print("codec", size, compact.size(), encode, decode);
+
+        // codec, from point paths
+        encode = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+
+            buffer.clear();
+
+            final long start = System.nanoTime();
+
+            for (int i = 0; i < paths.size(); i++) {
+                PathCodec.encode(sources.get(i), paths.get(i), buffer);
+            }
+
+            encode += System.nanoTime() - start;
+        }
+
+        print("codec*", buffer.position(), compact.size(), encode, 0);
+
+        // codec, streamed to a channel
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        final WritableByteChannel channel = Channels.newChannel(out);
+        final ByteBuffer staging = ByteBuffer.allocate(4096);
+        final long start = System.nanoTime();
+
+        for (CompactPath path: compact) {
+            PathCodec.write(path, channel, staging);
+        }
+
+        System.out.println(String.format("channel: %d bytes in %.2f ms", out.size(), (System.nanoTime() - start) / 1e6));
+    }
+
+    /**
+     * Prints a result row.
+     * @param name      the name of the format
+     * @param bytes     the total encoded size
+     * @param count     the number of paths
+     * @param encode    the total encoding time in nanoseconds
+     * @param decode    the total decoding time in nanoseconds
+     */
+    private static void print(final String name, final int bytes, final int count, final long encode, final long decode) {
+        System.out.println(String.format("%-7s  %10.1f  %9.2f  %9.2f", name, (double) bytes / count, encode / 1e6 / ROUNDS, decode / 1e6 / ROUNDS));
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package demo.benchmark;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import net.krcko.map.CompactPath;
+import net.krcko.map.GridMap;
+import net.krcko.map.service.PathCallback;
+import net.krcko.map.service.PathClient;
+import net.krcko.map.service.PathServer;
+
+/**
+ * Generates load on a <code>PathServer</code> running on the local host, and
+ * reports the throughput and the latency distribution of requests.
+ * <p>
+ * Each connection is driven by its own thread, which keeps a fixed number of
+ * pipelined requests in flight, sending a new one whenever any of them
+ * completes. The latency of a request is measured from sending it to reading
+ * its response, by the completion callback of the request, so responses
+ * which arrive out of order are not charged for waiting on earlier ones. The
+ * throughput is measured over the whole run, including waiting for the last
+ * responses after the deadline.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class PathServiceLoadGenerator {
+
+    /**
+     * The width and the height of the served map.
+     */
+    private static final int SIZE = 256;
+
+    /**
+     * Runs the load generator.
+     * @param args  optionally the number of connections, the duration in seconds,
+     *              the number of queries per request and the number of requests in flight
+     * @throws Exception if the server or a client fails
+     */
+    public static void main(final String[] args) throws Exception {
+
+        final int connections = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        final int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        final int window = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+
+        final GridMap map = createMap(SIZE, 0.2, 1);
+        final PathServer server = new PathServer(Runtime.getRuntime().availableProcessors());
+
+        server.addMap(0, map);
+        server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+        System.out.println(String.format("%d connections, %d queries per request, %d requests in flight, %d s", connections, batchSize, window, seconds));
+
+        try {
+
+            final Driver[] drivers = new Driver[connections];
+            final Thread[] threads = new Thread[connections];
+            final long started = System.nanoTime();
+            final long deadline = started + seconds * 1000000000L;
+
+            for (int i = 0; i < connections; i++) {
+                drivers[i] = new Driver(new PathClient(server.getLocalAddress()), map, batchSize, window, deadline, i);
+                threads[i] = new Thread(drivers[i], "load-" + i);
+                threads[i].start();
+            }
+
+            long requests = 0;
+            long found = 0;
+            long[] latencies = new long[0];
+
+            for (int i = 0; i < connections; i++) {
+
+                threads[i].join();
+
+                if (drivers[i].error != null) {
+                    throw drivers[i].error;
+                }
+
+                final int offset = latencies.length;
+
+                latencies = Arrays.copyOf(latencies, offset + drivers[i].count);
+                System.arraycopy(drivers[i].latencies, 0, latencies, offset, drivers[i].count);
+                requests += drivers[i].count;
+                found += drivers[i].found;
+            }
+
+            final double elapsed = (System.nanoTime() - started) / 1e9;
+
+            Arrays.sort(latencies);
+
+            System.out.println(String.format("requests    %10d", requests));
+            System.out.println(String.format("queries/s   %10.0f", requests * batchSize / elapsed));
+            System.out.println(String.format("found       %9.1f%%", 100.0 * found / Math.max(1, requests * batchSize)));
+            System.out.println(String.format("p50 ms      %10.3f", percentile(latencies, 0.5)));
+            System.out.println(String.format("p99 ms      %10.3f", percentile(latencies, 0.99)));
+            System.out.println(String.format("p99.9 ms    %10.3f", percentile(latencies, 0.999)));
+            System.out.println(String.format("max ms      %10.3f", percentile(latencies, 1)));
+
+        } finally {
+            server.close();
+        }
+    }
+
+    /**
+     * Returns a percentile of sorted latencies.
+     * @param latencies sorted latencies, in nanoseconds
+     * @param fraction  the percentile, between zero and one
+     * @return the latency in milliseconds
+     */
+    private static double percentile(final long[] latencies, final double fraction) {
+
+        if (latencies.length == 0) {
+            return 0;
+        }
+
+        final int index = (int) Math.ceil(fraction * latencies.length) - 1;
+
+        return latencies[Math.max(0, Math.min(latencies.length - 1, index))] / 1e6;
+    }
+
+    /**
+     * Creates a map with randomly placed walls.
+     * @param size      the width and the height of the map
+     * @param density   the fraction of blocked tiles
+     * @param seed      the random seed
+     * @return the map
+     */
+    private static GridMap createMap(final int size, final double density, final long seed) {
+
+        final GridMap map = new GridMap(size, size, true);
+        final Random random = new Random(seed);
+
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (random.nextDouble() < density) {
+                    map.setBlocked(x, y, true);
+                }
+            }
+        }
+
+        return map;
+    }
+
+    /**
+     * Drives a single connection.
+     */
+    private static final class Driver implements Runnable {
+
+        /**
+         * The client of the connection.
+         */
+        final PathClient client;
+
+        /**
+         * The served map.
+         */
+        final GridMap map;
+
+        /**
+         * The number of queries per request.
+         */
+        final int batchSize;
+
+        /**
+         * The number of requests in flight.
+         */
+        final int window;
+
+        /**
+         * The time to stop sending requests, as given by <code>System.nanoTime</code>.
+         */
+        final long deadline;
+
+        /**
+         * The generator of query endpoints.
+         */
+        final Random random;
+
+        /**
+         * Latencies of completed requests, in nanoseconds.
+         */
+        long[] latencies = new long[1024];
+
+        /**
+         * The number of completed requests.
+         */
+        int count;
+
+        /**
+         * The number of queries which found a path.
+         */
+        long found;
+
+        /**
+         * The error which stopped the driver, or <tt>null</tt>.
+         */
+        volatile Exception error;
+
+        /**
+         * Constructs new driver.
+         * @param client    the client of the connection
+         * @param map       the served map
+         * @param batchSize the number of queries per request
+         * @param window    the number of requests in flight
+         * @param deadline  the time to stop sending requests
+         * @param seed      the random seed
+         */
+        Driver(final PathClient client, final GridMap map, final int batchSize, final int window, final long deadline, final long seed) {
+            this.client = client;
+            this.map = map;
+            this.batchSize = batchSize;
+            this.window = window;
+            this.deadline = deadline;
+            this.random = new Random(seed);
+        }
+
+        /**
+         * Sends requests until the deadline, then waits for the remaining responses.
+         */
+        @Override
+        public void run() {
+
+            final Semaphore slots = new Semaphore(window);
+
+            try {
+
+                while (System.nanoTime() < deadline && error == null) {
+
+                    slots.acquire();
+
+                    final long sent = System.nanoTime();
+
+                    client.submit(0, createQueries(), new PathCallback() {
+
+                        @Override
+                        public void completed(final CompactPath[] paths) {
+                            record(System.nanoTime() - sent, paths);
+                            slots.release();
+                        }
+
+                        @Override
+                        public void failed(final IOException failure) {
+                            error = failure;
+                            slots.release();
+                        }
+                    });
+                }
+
+                slots.acquire(window);
+                client.close();
+
+            } catch (Exception e) {
+                error = e;
+            }
+        }
+
+        /**
+         * Records a completed request. Called by the thread reading responses.
+         * @param latency   the latency of the request, in nanoseconds
+         * @param paths     the found paths
+         */
+        private synchronized void record(final long latency, final CompactPath[] paths) {
+
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+
+            latencies[count++] = latency;
+
+            for (CompactPath path: paths) {
+                if (path != null) {
+                    found++;
+                }
+            }
+        }
+
+        /**
+         * Creates a request of queries between random passable tiles.
+         * @return the coordinates of the queries
+         */
+        private int[] createQueries() {
+
+            final int[] queries = new int[4 * batchSize];
+
+            for (int i = 0; i < queries.length; i += 2) {
+
+                do {
+                    queries[i] = random.nextInt(map.getWidthInTiles());
+                    queries[i + 1] = random.nextInt(map.getHeightInTiles());
+                } while (!map.canMoveTo(null, queries[i], queries[i + 1]));
+            }
+
+            return queries;
+        }
+    }
+}
\ No newline at end of file
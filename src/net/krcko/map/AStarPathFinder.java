@@ -28,8 +28,12 @@ package net.krcko.map;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import net.krcko.map.heuristic.NearestTarget;
 
 /**
  * Implements PathFinder using A* searching algorithm.
@@ -48,6 +52,11 @@ public class AStarPathFinder<T> extends PathFinder<T> {
      */
     private int maxSearchDistance;
 
+    /**
+     * An object used to reject unreachable targets without searching, or <tt>null</tt>.
+     */
+    private Connectivity<T> connectivity;
+
     /**
      * List of nodes not yet fully searched.
      */
@@ -130,28 +139,191 @@ public class AStarPathFinder<T> extends PathFinder<T> {
         this.maxSearchDistance = maxSearchDistance;
     }
 
+    /**
+     * Returns the object used to reject unreachable targets without searching.
+     * @return the connectivity provider, or <tt>null</tt> if none is used
+     */
+    public Connectivity<T> getConnectivity() {
+        return connectivity;
+    }
+
+    /**
+     * Sets the object used to reject unreachable targets without searching.
+     * @param connectivity  the connectivity provider, or <tt>null</tt> to always search
+     */
+    public void setConnectivity(final Connectivity<T> connectivity) {
+        this.connectivity = connectivity;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Path<T> findPath(final MovingEntity entity, final T source, final T target) {
 
+        final MapNode<T> node = search(entity, source, target);
+
+        return node == null ? null : processPath(entity, source, toPath(node, source));
+    }
+
+    /**
+     * Finds path within the map from source point to the nearest of several
+     * targets, by a single search which stops at the first target it settles.
+     * The search is guided by the heuristic cost to the nearest target, as
+     * returned by <code>createNearestHeuristic</code>.
+     * @param entity    entity which is about to move
+     * @param source    starting point on the map
+     * @param targets   the points on the map any of which may end the path
+     * @return  the path, ending at the reached target, which is empty if the source is one of the targets,
+     *          or <tt>null</tt> if no target can be reached
+     */
+    public Path<T> findPathToAny(final MovingEntity entity, final T source, final Collection<T> targets) {
+
+        map.pathFinderStarted(source, null);
+
+        final Set<T> goals = filterTargets(entity, source, targets);
+
+        if (goals == null || goals.isEmpty()) {
+            return goals == null ? new Path<T>() : null;
+        }
+
+        final MapNode<T> node = search(entity, Collections.singleton(source), goals, createNearestHeuristic(goals), null, false);
+
+        return node == null ? null : processPath(entity, source, toPath(node, source));
+    }
+
+    /**
+     * Finds path within the map from source point to the nearest of several
+     * targets, by a single search which starts at all targets and runs
+     * backwards until it settles the source. This variant only needs the
+     * heuristic to the source, so it suits target sets which can't be indexed.
+     * <p>
+     * The map is expected to have symmetric neighbors, that is every point
+     * which can move to a point must be one of its neighbors.
+     * @param entity    entity which is about to move
+     * @param source    starting point on the map
+     * @param targets   the points on the map any of which may end the path
+     * @return  the path, ending at the reached target, which is empty if the source is one of the targets,
+     *          or <tt>null</tt> if no target can be reached
+     */
+    public Path<T> findPathToAnyReverse(final MovingEntity entity, final T source, final Collection<T> targets) {
+
+        map.pathFinderStarted(source, null);
+
+        final Set<T> goals = filterTargets(entity, source, targets);
+
+        if (goals == null || goals.isEmpty()) {
+            return goals == null ? new Path<T>() : null;
+        }
+
+        MapNode<T> node = search(entity, goals, Collections.singleton(source), heuristic, source, true);
+
+        if (node == null) {
+            return null;
+        }
+
+        // parents lead from the source towards the reached target
+        final Path<T> path = new Path<>(node.getDepth());
+
+        for (node = node.getParent(); node != null; node = node.getParent()) {
+            path.append(node.getCoordinate());
+        }
+
+        return processPath(entity, source, path);
+    }
+
+    /**
+     * Returns the heuristic cost provider used by <code>findPathToAny</code>,
+     * which must estimate the cost from a point to the nearest of the targets
+     * and ignore its target argument.
+     * <p>
+     * The default implementation applies the heuristic of this path finder to
+     * every target in turn, subclasses can provide an indexed one.
+     * @param targets   the targets of the search
+     * @return the heuristic cost provider to the nearest target
+     */
+    protected Heuristic<T> createNearestHeuristic(final Collection<T> targets) {
+        return new NearestTarget<>(heuristic, targets);
+    }
+
+    /**
+     * Runs the search from source point to the target.
+     * <p>
+     * The path can be read from the returned node by following its parents
+     * up to the node of the source point.
+     * @param entity    entity which is about to move
+     * @param source    starting point on the map
+     * @param target    ending point on the map
+     * @return  the node of the target point, or <tt>null</tt> if no path can be found
+     */
+    protected MapNode<T> search(final MovingEntity entity, final T source, final T target) {
+
+        map.pathFinderStarted(source, target);
+
         if (!map.canMoveTo(entity, target) || source.equals(target)) {
             return null;
         }
 
-        final MapNode<T> start = new MapNode<>(source, 0, 0);
+        if (connectivity != null && !connectivity.isConnected(entity, source, target)) {
+            return null;
+        }
 
-        openList.add(start);
-        traversed.put(source, start);
+        return search(entity, Collections.singleton(source), Collections.singleton(target), heuristic, target, false);
+    }
+
+    /**
+     * Returns the targets which the entity could reach from the source.
+     * @param entity    entity which is about to move
+     * @param source    starting point on the map
+     * @param targets   the targets to filter
+     * @return the reachable targets, or <tt>null</tt> if the source is one of the targets
+     */
+    private Set<T> filterTargets(final MovingEntity entity, final T source, final Collection<T> targets) {
+
+        final Set<T> goals = new HashSet<>();
+
+        for (T target: targets) {
+
+            if (target.equals(source)) {
+                return null;
+            }
+
+            if (map.canMoveTo(entity, target) && (connectivity == null || connectivity.isConnected(entity, source, target))) {
+                goals.add(target);
+            }
+        }
+
+        return goals;
+    }
+
+    /**
+     * Runs the search from any of the start points until any of the goals is settled.
+     * @param entity    entity which is about to move
+     * @param starts    points the search starts from
+     * @param goals     points which end the search
+     * @param heuristic the heuristic cost provider
+     * @param target    the target passed to the heuristic, forward searches estimate the cost to it
+     *                  and backward ones the cost from it
+     * @param backward  <tt>true</tt> if the search follows moves backwards, from their targets to their sources
+     * @return  the node of the reached goal, or <tt>null</tt> if no goal can be reached
+     */
+    private MapNode<T> search(final MovingEntity entity, final Collection<T> starts, final Set<T> goals, final Heuristic<T> heuristic, final T target, final boolean backward) {
+
+        for (T start: starts) {
+            final MapNode<T> node = new MapNode<>(start, 0, 0);
+            openList.add(node);
+            traversed.put(start, node);
+        }
 
         int searchedDistance = 0;
+        MapNode<T> found = null;
 
         while (searchedDistance < maxSearchDistance && !openList.isEmpty()) {
 
             final MapNode<T> node = openList.get(0);
 
-            if (node.getCoordinate().equals(target)) {
+            if (goals.contains(node.getCoordinate())) {
+                found = node;
                 break;
             }
 
@@ -159,11 +331,12 @@ public class AStarPathFinder<T> extends PathFinder<T> {
 
             for (T neighbour: map.getNeighbors(node.getCoordinate(), entity)) {
 
-                if (!map.canMoveTo(entity, neighbour)) {
+                // a backward search may reach the source even if the entity couldn't move onto it
+                if (!map.canMoveTo(entity, neighbour) && !(backward && goals.contains(neighbour))) {
                     continue;
                 }
 
-                final float cost = node.getCost() + map.getCost(entity, node.getCoordinate(), neighbour);
+                final float cost = node.getCost() + (backward ? map.getCost(entity, neighbour, node.getCoordinate()) : map.getCost(entity, node.getCoordinate(), neighbour));
 
                 if (!traversed.containsKey(neighbour)) {
                     traversed.put(neighbour, new MapNode<>(neighbour, 0, 0));
@@ -179,7 +352,7 @@ public class AStarPathFinder<T> extends PathFinder<T> {
                 if (!openList.contains(neighbourNode) && !closedList.contains(neighbourNode)) {
 
                     neighbourNode.setCost(cost);
-                    neighbourNode.setHeuristic(heuristic.getHeuristicCost(map, entity, neighbour, target));
+                    neighbourNode.setHeuristic(backward ? heuristic.getHeuristicCost(map, entity, target, neighbour) : heuristic.getHeuristicCost(map, entity, neighbour, target));
 
                     searchedDistance = Math.max(searchedDistance, neighbourNode.setParent(node));
 
@@ -191,27 +364,44 @@ public class AStarPathFinder<T> extends PathFinder<T> {
             }
         }
 
+        // when the search gives up, the cheapest goal traversed so far is returned
+        if (found == null) {
+            for (T goal: goals) {
+
+                final MapNode<T> node = traversed.get(goal);
+
+                if (node != null && (found == null || node.getCost() < found.getCost())) {
+                    found = node;
+                }
+            }
+        }
+
         openList.clear();
         closedList.clear();
+        traversed.clear();
 
-        if (!traversed.containsKey(target)) {
-            traversed.clear();
-            return null;
-        }
+        return found;
+    }
 
-        final Path<T> path = new Path<>();
+    /**
+     * Builds the path from the node of its last point.
+     * @param node      the node of the last point
+     * @param source    starting point on the map, which is not included
+     * @return the path
+     */
+    private Path<T> toPath(MapNode<T> node, final T source) {
 
-        MapNode<T> node = traversed.get(target);
+        final Path<T> path = new Path<>(node.getDepth());
 
         do {
 
-            path.prepend(node.getCoordinate());
-            
+            path.append(node.getCoordinate());
+
             node = node.getParent();
 
         } while (!node.getCoordinate().equals(source));
 
-        traversed.clear();
+        path.reverse();
 
         return path;
     }
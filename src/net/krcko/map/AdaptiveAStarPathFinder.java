@@ -0,0 +1,442 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Implements Adaptive A*, which learns a more informed heuristic from
+ * repeated searches towards the same targets.
+ * <p>
+ * After a search reaches its target, the heuristic of every expanded node is
+ * raised to the cost of the found path less the cost of reaching the node.
+ * The learned values are kept in a compact hash table per target and combined
+ * with the heuristic of the path finder, so later searches towards the target
+ * expand fewer nodes. The learned heuristic stays consistent as long as move
+ * costs do not decrease; <code>clear</code> must be called after they do.
+ * <p>
+ * Tables of the least recently searched targets are evicted when the learned
+ * values outgrow the memory budget.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class AdaptiveAStarPathFinder<T> extends IndexedAStarPathFinder<T> {
+
+    /**
+     * The key of empty hash table entries.
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * The heuristic which is improved by learned values.
+     */
+    private IndexedHeuristic baseHeuristic;
+
+    /**
+     * The heuristic combining the base heuristic with learned values.
+     */
+    private final Learned learned = new Learned();
+
+    /**
+     * Tables of learned values by target node, in access order.
+     */
+    private final LinkedHashMap<Integer, Table> tables = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The maximum number of bytes used by learned values.
+     */
+    private final long memoryBudget;
+
+    /**
+     * The target of the last table lookup, or <code>EMPTY</code>.
+     */
+    private int lookupTarget = EMPTY;
+
+    /**
+     * The table of the last looked up target, or <tt>null</tt> if it has none.
+     */
+    private Table lookupTable;
+
+    /**
+     * Nodes expanded by the current search.
+     */
+    private int[] expanded = new int[64];
+
+    /**
+     * The number of nodes expanded by the current search.
+     */
+    private int expandedCount;
+
+    /**
+     * Constructs new path finder with an unlimited memory budget.
+     * @param map       the map object which will be searched for paths
+     * @param graph     the indexed form of the map, often the map itself
+     * @param heuristic the admissible and consistent heuristic to improve
+     */
+    public AdaptiveAStarPathFinder(final Map<T> map, final IndexedGraph<T> graph, final IndexedHeuristic heuristic) {
+        this(map, graph, heuristic, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructs new path finder.
+     * @param map           the map object which will be searched for paths
+     * @param graph         the indexed form of the map, often the map itself
+     * @param heuristic     the admissible and consistent heuristic to improve
+     * @param memoryBudget  the maximum number of bytes used by learned values
+     * @throws IllegalArgumentException if the memory budget is not positive
+     */
+    public AdaptiveAStarPathFinder(final Map<T> map, final IndexedGraph<T> graph, final IndexedHeuristic heuristic, final long memoryBudget) throws IllegalArgumentException {
+
+        super(map, graph, null);
+
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive.");
+        }
+
+        this.baseHeuristic = heuristic;
+        this.memoryBudget = memoryBudget;
+
+        super.setHeuristic(learned);
+    }
+
+    /**
+     * Returns the heuristic which is improved by learned values.
+     * @return the base heuristic
+     */
+    @Override
+    public IndexedHeuristic getHeuristic() {
+        return baseHeuristic;
+    }
+
+    /**
+     * Sets the heuristic which is improved by learned values, discarding all learned values.
+     * @param heuristic the admissible and consistent heuristic to improve
+     */
+    @Override
+    public void setHeuristic(final IndexedHeuristic heuristic) {
+        baseHeuristic = heuristic;
+        clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Learned values are discarded, as they belong to the nodes of the old graph.
+     */
+    @Override
+    public void setMap(final Map<T> map, final IndexedGraph<T> graph) {
+        super.setMap(map, graph);
+        clear();
+    }
+
+    /**
+     * Returns the heuristic combining the base heuristic with learned values,
+     * which can be shared with other path finders of the same graph.
+     * @return the learned heuristic
+     */
+    public Learned getLearnedHeuristic() {
+        return learned;
+    }
+
+    /**
+     * Returns the maximum number of bytes used by learned values.
+     * @return the memory budget
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Returns the number of bytes used by learned values.
+     * @return the memory usage
+     */
+    public long getMemoryUsage() {
+
+        long usage = 0;
+
+        for (Table table: tables.values()) {
+            usage += table.getMemoryUsage();
+        }
+
+        return usage;
+    }
+
+    /**
+     * Returns the number of targets with learned values.
+     * @return the number of tables
+     */
+    public int getTableCount() {
+        return tables.size();
+    }
+
+    /**
+     * Discards values learned for a target.
+     * @param target    the target node
+     */
+    public void forget(final int target) {
+        tables.remove(target);
+        lookupTarget = EMPTY;
+    }
+
+    /**
+     * Discards all learned values. Must be called after move costs decrease.
+     */
+    public void clear() {
+        tables.clear();
+        lookupTarget = EMPTY;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean search(final MovingEntity entity, final int source, final int target) {
+
+        expandedCount = 0;
+
+        if (!super.search(entity, source, target)) {
+            return false;
+        }
+
+        Table table = tables.get(target);
+
+        if (table == null) {
+            table = new Table();
+            tables.put(target, table);
+            lookupTarget = EMPTY;
+        }
+
+        final float pathCost = getCost(target);
+
+        for (int i = 0; i < expandedCount; i++) {
+            table.raise(expanded[i], pathCost - getCost(expanded[i]));
+        }
+
+        evict(table);
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void nodeExpanded(final int node) {
+
+        if (expandedCount == expanded.length) {
+            expanded = Arrays.copyOf(expanded, expandedCount * 2);
+        }
+
+        expanded[expandedCount++] = node;
+    }
+
+    /**
+     * Evicts least recently used tables until learned values fit the memory budget.
+     * @param current   the table of the current search, which is kept
+     */
+    private void evict(final Table current) {
+
+        long usage = getMemoryUsage();
+
+        final Iterator<Table> iterator = tables.values().iterator();
+
+        while (usage > memoryBudget && iterator.hasNext()) {
+
+            final Table table = iterator.next();
+
+            if (table != current) {
+                usage -= table.getMemoryUsage();
+                iterator.remove();
+                lookupTarget = EMPTY;
+            }
+        }
+    }
+
+    /**
+     * The heuristic of the path finder, returning the larger of the base
+     * heuristic and the value learned for the target.
+     */
+    public final class Learned implements IndexedHeuristic, Heuristic<T> {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public float getHeuristicCost(final IndexedGraph<?> graph, final MovingEntity entity, final int node, final int target) {
+
+            final float base = baseHeuristic == null ? 0 : baseHeuristic.getHeuristicCost(graph, entity, node, target);
+
+            // searches look up the same target over and over
+            if (target != lookupTarget) {
+                lookupTable = tables.get(target);
+                lookupTarget = target;
+            }
+
+            return lookupTable == null ? base : Math.max(base, lookupTable.get(node));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public float getHeuristicCost(final Map<T> map, final MovingEntity entity, final T source, final T target) {
+
+            final IndexedGraph<T> graph = getGraph();
+
+            return getHeuristicCost(graph, entity, graph.getNode(source), graph.getNode(target));
+        }
+    }
+
+    /**
+     * Values learned for a single target, stored in an open-addressing hash
+     * table with linear probing.
+     */
+    private static final class Table {
+
+        /**
+         * Node ids, or <code>EMPTY</code>.
+         */
+        int[] keys = newKeys(16);
+
+        /**
+         * Learned values, parallel to keys.
+         */
+        float[] values = new float[16];
+
+        /**
+         * The number of learned values.
+         */
+        int size;
+
+        /**
+         * Returns the value learned for a node.
+         * @param node  the node id
+         * @return the learned value, or zero
+         */
+        float get(final int node) {
+
+            final int mask = keys.length - 1;
+
+            for (int i = hash(node) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == node) {
+                    return values[i];
+                }
+            }
+
+            return 0;
+        }
+
+        /**
+         * Raises the value learned for a node.
+         * @param node  the node id
+         * @param value the new value, ignored if it is lower than the learned one
+         */
+        void raise(final int node, final float value) {
+
+            if (2 * (size + 1) > keys.length) {
+                resize(keys.length * 2);
+            }
+
+            final int mask = keys.length - 1;
+
+            int i = hash(node) & mask;
+
+            for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == node) {
+                    values[i] = Math.max(values[i], value);
+                    return;
+                }
+            }
+
+            keys[i] = node;
+            values[i] = value;
+            size++;
+        }
+
+        /**
+         * Returns the number of bytes used by the table.
+         * @return the memory usage
+         */
+        long getMemoryUsage() {
+            return 8L * keys.length;
+        }
+
+        /**
+         * Rehashes all entries into tables of specified capacity.
+         * @param capacity  the new capacity, a power of two
+         */
+        private void resize(final int capacity) {
+
+            final int[] oldKeys = keys;
+            final float[] oldValues = values;
+
+            keys = newKeys(capacity);
+            values = new float[capacity];
+
+            final int mask = capacity - 1;
+
+            for (int j = 0; j < oldKeys.length; j++) {
+
+                if (oldKeys[j] == EMPTY) {
+                    continue;
+                }
+
+                int i = hash(oldKeys[j]) & mask;
+
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+
+        /**
+         * Allocates an empty key array.
+         * @param capacity  the capacity of the array
+         * @return the key array
+         */
+        private static int[] newKeys(final int capacity) {
+            final int[] keys = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+
+        /**
+         * Returns well-mixed hash of a node id.
+         * @param node  the node id
+         * @return the hash value
+         */
+        private static int hash(final int node) {
+            final int h = node * 0x9e3779b9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,219 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+/**
+ * Annotates each tile of a <code>TileMap</code> with its true clearance: the
+ * size of the largest square of passable tiles whose top-left corner is that
+ * tile.
+ * <p>
+ * With clearance known, checking whether a <code>SizedEntity</code> fits at a
+ * location takes a single comparison instead of testing its whole footprint,
+ * so entities of all sizes can be served by the same map.
+ * <p>
+ * Passability is evaluated for one reference entity, so terrain must be
+ * equally passable for all entities sharing the index. Clearance values are
+ * capped at a maximum size, which also bounds the area recomputed after an
+ * edit: changing a tile only affects tiles up to <code>maxClearance - 1</code>
+ * tiles above and to the left of it. The index registers itself as a
+ * <code>TileMapListener</code> and stays in sync with the map until it is
+ * detached.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class ClearanceIndex implements TileMapListener {
+
+    /**
+     * The largest supported maximum clearance.
+     */
+    public static final int MAX_CLEARANCE = Byte.MAX_VALUE;
+
+    /**
+     * The map which is indexed.
+     */
+    private final TileMap map;
+
+    /**
+     * The entity for which passability is evaluated.
+     */
+    private final MovingEntity entity;
+
+    /**
+     * The largest clearance value stored.
+     */
+    private final int maxClearance;
+
+    /**
+     * The number of tile columns.
+     */
+    private int width;
+
+    /**
+     * The number of tile rows.
+     */
+    private int height;
+
+    /**
+     * The clearance of each tile, in row-major order.
+     */
+    private byte[] clearance;
+
+    /**
+     * Constructs new clearance index for specified map and registers it as a map listener.
+     * @param map           the map to index
+     * @param entity        the entity for which passability is evaluated
+     * @param maxClearance  the largest clearance value stored
+     * @throws IllegalArgumentException if the maximum clearance is not between 1 and <code>MAX_CLEARANCE</code>
+     */
+    public ClearanceIndex(final TileMap map, final MovingEntity entity, final int maxClearance) throws IllegalArgumentException {
+
+        if (maxClearance < 1 || maxClearance > MAX_CLEARANCE) {
+            throw new IllegalArgumentException("Maximum clearance must be between 1 and " + MAX_CLEARANCE + ".");
+        }
+
+        this.map = map;
+        this.entity = entity;
+        this.maxClearance = maxClearance;
+
+        rebuild();
+        map.addTileMapListener(this);
+    }
+
+    /**
+     * Returns the map which is indexed.
+     * @return the indexed map
+     */
+    public TileMap getMap() {
+        return map;
+    }
+
+    /**
+     * Returns the largest clearance value stored.
+     * @return the maximum clearance
+     */
+    public int getMaxClearance() {
+        return maxClearance;
+    }
+
+    /**
+     * Stops keeping this index in sync with the map.
+     */
+    public void detach() {
+        map.removeTileMapListener(this);
+    }
+
+    /**
+     * Returns the clearance of specified tile.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return the clearance of the tile, <tt>0</tt> for blocked tiles and tiles outside the map
+     */
+    public int getClearance(final int x, final int y) {
+
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return 0;
+        }
+
+        return clearance[y * width + x];
+    }
+
+    /**
+     * Returns <tt>true</tt> if a square of specified size fits at the tile.
+     * @param x     the X coordinate of the top-left tile of the square
+     * @param y     the Y coordinate of the top-left tile of the square
+     * @param size  the size of the square
+     * @return <tt>true</tt> if all tiles of the square are passable
+     */
+    public boolean fits(final int x, final int y, final int size) {
+        return getClearance(x, y) >= size;
+    }
+
+    /**
+     * Recomputes clearance of all tiles.
+     */
+    public final void rebuild() {
+
+        width = map.getWidthInTiles();
+        height = map.getHeightInTiles();
+
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Map is too big to be indexed.");
+        }
+
+        clearance = new byte[width * height];
+        update(0, 0, width, height);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void tilesChanged(final TileMap map, final int x, final int y, final int width, final int height) {
+
+        if (this.width != map.getWidthInTiles() || this.height != map.getHeightInTiles()) {
+            rebuild();
+            return;
+        }
+
+        update(x - maxClearance + 1, y - maxClearance + 1, x + width, y + height);
+    }
+
+    /**
+     * Recomputes clearance of tiles within specified rectangle, from the
+     * bottom-right corner up, reading values right of and below the rectangle
+     * from the current annotations.
+     * @param fromX the X coordinate of the first column
+     * @param fromY the Y coordinate of the first row
+     * @param toX   the X coordinate past the last column
+     * @param toY   the Y coordinate past the last row
+     */
+    private void update(final int fromX, final int fromY, final int toX, final int toY) {
+
+        final int x0 = Math.max(fromX, 0);
+        final int y0 = Math.max(fromY, 0);
+        final int x1 = Math.min(toX, width);
+        final int y1 = Math.min(toY, height);
+
+        for (int y = y1 - 1; y >= y0; y--) {
+            for (int x = x1 - 1; x >= x0; x--) {
+
+                final int tile = y * width + x;
+
+                if (!map.canMoveTo(entity, x, y)) {
+                    clearance[tile] = 0;
+                    continue;
+                }
+
+                final int right = x + 1 < width ? clearance[tile + 1] : 0;
+                final int down = y + 1 < height ? clearance[tile + width] : 0;
+                final int diagonal = x + 1 < width && y + 1 < height ? clearance[tile + width + 1] : 0;
+
+                clearance[tile] = (byte) Math.min(maxClearance, 1 + Math.min(right, Math.min(down, diagonal)));
+            }
+        }
+    }
+}
\ No newline at end of file
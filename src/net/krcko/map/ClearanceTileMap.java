@@ -0,0 +1,98 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import net.krcko.math.Point2D;
+
+/**
+ * A <code>TileMap</code> decorator which lets entities of all sizes share one map.
+ * <p>
+ * A <code>SizedEntity</code> larger than one tile can move to a location only
+ * if its whole footprint fits there, which is checked in constant time using
+ * a <code>ClearanceIndex</code> of the wrapped map. Other entities are checked
+ * by the wrapped map directly.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class ClearanceTileMap extends DelegatingTileMap {
+
+    /**
+     * The clearance annotations of the wrapped map.
+     */
+    private final ClearanceIndex index;
+
+    /**
+     * Constructs new map which annotates specified map with clearance values.
+     * @param map           the wrapped map
+     * @param entity        the entity for which passability is evaluated
+     * @param maxSize       the size of the largest entity
+     */
+    public ClearanceTileMap(final TileMap map, final MovingEntity entity, final int maxSize) {
+        super(map);
+        index = new ClearanceIndex(map, entity, maxSize);
+    }
+
+    /**
+     * Returns the clearance annotations of the wrapped map.
+     * @return the clearance index
+     */
+    public ClearanceIndex getClearanceIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the size of specified entity.
+     * @param entity    the entity
+     * @return the size of a <code>SizedEntity</code>, <tt>1</tt> otherwise
+     */
+    protected int getSize(final MovingEntity entity) {
+        return entity instanceof SizedEntity ? ((SizedEntity) entity).getSize() : 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canMoveTo(final MovingEntity entity, final Point2D.Int target) {
+        return canMoveTo(entity, target.x, target.y);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canMoveTo(final MovingEntity entity, final int x, final int y) {
+
+        final int size = getSize(entity);
+
+        if (size <= 1) {
+            return getDelegate().canMoveTo(entity, x, y);
+        }
+
+        return index.fits(x, y, size);
+    }
+}
@@ -0,0 +1,407 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import net.krcko.math.Point2D;
+
+/**
+ * A memory-compact path on a <code>TileMap</code>.
+ * <p>
+ * The path is stored as its starting point and a sequence of 3-bit directions,
+ * 21 directions per <code>long</code>, so a path of <code>n</code> steps takes
+ * about <code>3n / 8</code> bytes instead of an object per step. Each step must
+ * be one of the eight neighbors of the previous one.
+ * <p>
+ * Like <code>Path</code>, the starting point is not one of the steps. Steps
+ * can be traversed without allocation using a <code>Cursor</code>, iterated as
+ * points, or converted to a <code>Path</code> when needed.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class CompactPath implements Iterable<Point2D.Int> {
+
+    /**
+     * X offsets of the directions, counter-clockwise starting with east.
+     */
+    private static final int[] DX = {1, 1, 0, -1, -1, -1, 0, 1};
+
+    /**
+     * Y offsets of the directions, counter-clockwise starting with east.
+     */
+    private static final int[] DY = {0, 1, 1, 1, 0, -1, -1, -1};
+
+    /**
+     * Directions indexed by <code>(dy + 1) * 3 + dx + 1</code>, <tt>-1</tt> for non-neighbors.
+     */
+    private static final int[] DIRECTIONS = {5, 6, 7, 4, -1, 0, 3, 2, 1};
+
+    /**
+     * The number of directions packed in a word.
+     */
+    private static final int PER_WORD = 21;
+
+    /**
+     * The X coordinate of the starting point.
+     */
+    private final int startX;
+
+    /**
+     * The Y coordinate of the starting point.
+     */
+    private final int startY;
+
+    /**
+     * The number of steps.
+     */
+    private final int length;
+
+    /**
+     * Packed directions of the steps.
+     */
+    private final long[] directions;
+
+    /**
+     * Constructs a path of specified length whose directions are all set to east.
+     * Directions are meant to be filled in reverse, from the last step, using <code>setDirection</code>.
+     * @param startX    the X coordinate of the starting point
+     * @param startY    the Y coordinate of the starting point
+     * @param length    the number of steps
+     */
+    protected CompactPath(final int startX, final int startY, final int length) {
+        this.startX = startX;
+        this.startY = startY;
+        this.length = length;
+        this.directions = new long[(length + PER_WORD - 1) / PER_WORD];
+    }
+
+    /**
+     * Constructs compact path containing the steps of specified path.
+     * @param source    the starting point of the path
+     * @param path      the path to copy
+     * @throws IllegalArgumentException if some step is not a neighbor of the previous one
+     */
+    public CompactPath(final Point2D.Int source, final Path<Point2D.Int> path) throws IllegalArgumentException {
+
+        this(source.x, source.y, path.getLength());
+
+        Point2D.Int previous = source;
+
+        for (int i = 0; i < length; i++) {
+
+            final Point2D.Int step = path.getStep(i);
+
+            setDirection(i, getDirection(previous.x, previous.y, step.x, step.y));
+            previous = step;
+        }
+    }
+
+    /**
+     * Builds compact path ending at specified search node, following its parents
+     * back to the starting point. Directions are filled in reverse, so no
+     * intermediate list is built.
+     * @param node      the node of the last step
+     * @param source    the starting point of the path
+     * @return the path from the source to the node
+     * @throws IllegalArgumentException if some step is not a neighbor of the previous one
+     */
+    public static CompactPath fromNode(final MapNode<Point2D.Int> node, final Point2D.Int source) throws IllegalArgumentException {
+
+        int length = 0;
+
+        for (MapNode<Point2D.Int> step = node; !step.getCoordinate().equals(source); step = step.getParent()) {
+            length++;
+        }
+
+        final CompactPath path = new CompactPath(source.x, source.y, length);
+
+        MapNode<Point2D.Int> step = node;
+
+        for (int i = length - 1; i >= 0; i--) {
+
+            final Point2D.Int to = step.getCoordinate();
+            final Point2D.Int from = step.getParent().getCoordinate();
+
+            path.setDirection(i, getDirection(from.x, from.y, to.x, to.y));
+            step = step.getParent();
+        }
+
+        return path;
+    }
+
+    /**
+     * Returns the direction of a move between neighboring tiles.
+     * @param fromX the X coordinate of the first tile
+     * @param fromY the Y coordinate of the first tile
+     * @param toX   the X coordinate of the second tile
+     * @param toY   the Y coordinate of the second tile
+     * @return the direction, between <tt>0</tt> and <tt>7</tt>
+     * @throws IllegalArgumentException if the tiles are not neighbors
+     */
+    public static int getDirection(final int fromX, final int fromY, final int toX, final int toY) throws IllegalArgumentException {
+
+        final int dx = toX - fromX;
+        final int dy = toY - fromY;
+
+        if (dx < -1 || dx > 1 || dy < -1 || dy > 1 || (dx == 0 && dy == 0)) {
+            throw new IllegalArgumentException("Tile (" + toX + ", " + toY + ") is not a neighbor of (" + fromX + ", " + fromY + ").");
+        }
+
+        return DIRECTIONS[(dy + 1) * 3 + dx + 1];
+    }
+
+    /**
+     * Returns the X offset of specified direction.
+     * @param direction the direction
+     * @return the X offset, between <tt>-1</tt> and <tt>1</tt>
+     */
+    public static int getDeltaX(final int direction) {
+        return DX[direction];
+    }
+
+    /**
+     * Returns the Y offset of specified direction.
+     * @param direction the direction
+     * @return the Y offset, between <tt>-1</tt> and <tt>1</tt>
+     */
+    public static int getDeltaY(final int direction) {
+        return DY[direction];
+    }
+
+    /**
+     * Returns the X coordinate of the starting point.
+     * @return the X coordinate of the starting point
+     */
+    public int getStartX() {
+        return startX;
+    }
+
+    /**
+     * Returns the Y coordinate of the starting point.
+     * @return the Y coordinate of the starting point
+     */
+    public int getStartY() {
+        return startY;
+    }
+
+    /**
+     * Returns the number of steps in this path.
+     * @return  the number of steps in this path
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the direction of the step at specified position.
+     * @param index index of the step
+     * @return the direction from the previous step, between <tt>0</tt> and <tt>7</tt>
+     * @throws IndexOutOfBoundsException if the index is out of range (index < 0 || index >= getLength())
+     */
+    public int getDirection(final int index) throws IndexOutOfBoundsException {
+
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length);
+        }
+
+        return (int) (directions[index / PER_WORD] >>> (3 * (index % PER_WORD))) & 7;
+    }
+
+    /**
+     * Sets the direction of the step at specified position.
+     * @param index     index of the step
+     * @param direction the direction from the previous step, between <tt>0</tt> and <tt>7</tt>
+     */
+    protected final void setDirection(final int index, final int direction) {
+
+        final int shift = 3 * (index % PER_WORD);
+
+        directions[index / PER_WORD] = (directions[index / PER_WORD] & ~(7L << shift)) | ((long) direction << shift);
+    }
+
+    /**
+     * Returns the packed directions of this path, 21 directions per word
+     * starting with the least significant bits. The array is not copied.
+     * @return the packed directions
+     */
+    long[] getPackedDirections() {
+        return directions;
+    }
+
+    /**
+     * Returns a cursor positioned before the first step of this path.
+     * @return new cursor
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<Point2D.Int> iterator() {
+
+        final Cursor cursor = cursor();
+
+        return new Iterator<Point2D.Int>() {
+
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public Point2D.Int next() {
+
+                if (!cursor.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                cursor.next();
+
+                return new Point2D.Int(cursor.getX(), cursor.getY());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Converts this path to a <code>Path</code> of points.
+     * @return new path containing the same steps
+     */
+    public Path<Point2D.Int> toPath() {
+
+        final Path<Point2D.Int> path = new Path<>(length);
+
+        for (Point2D.Int step: this) {
+            path.append(step);
+        }
+
+        return path;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * startX + startY) + length) + Arrays.hashCode(directions);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object other) {
+
+        if (!(other instanceof CompactPath)) {
+            return false;
+        }
+
+        final CompactPath path = (CompactPath) other;
+
+        return startX == path.startX && startY == path.startY && length == path.length && Arrays.equals(directions, path.directions);
+    }
+
+    /**
+     * Traverses the steps of a <code>CompactPath</code> without allocating objects.
+     */
+    public final class Cursor {
+
+        /**
+         * The index of the current step, <tt>-1</tt> before the first step.
+         */
+        private int index = -1;
+
+        /**
+         * The X coordinate of the current step.
+         */
+        private int x = startX;
+
+        /**
+         * The Y coordinate of the current step.
+         */
+        private int y = startY;
+
+        /**
+         * Returns <tt>true</tt> if there are more steps.
+         * @return <tt>true</tt> if <code>next</code> can be called
+         */
+        public boolean hasNext() {
+            return index + 1 < length;
+        }
+
+        /**
+         * Moves to the next step.
+         * @throws NoSuchElementException if there are no more steps
+         */
+        public void next() throws NoSuchElementException {
+
+            if (index + 1 >= length) {
+                throw new NoSuchElementException();
+            }
+
+            index++;
+
+            final int direction = (int) (directions[index / PER_WORD] >>> (3 * (index % PER_WORD))) & 7;
+
+            x += DX[direction];
+            y += DY[direction];
+        }
+
+        /**
+         * Returns the index of the current step.
+         * @return the index of the current step, <tt>-1</tt> before the first step
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the X coordinate of the current step, or of the starting point before the first step.
+         * @return the X coordinate
+         */
+        public int getX() {
+            return x;
+        }
+
+        /**
+         * Returns the Y coordinate of the current step, or of the starting point before the first step.
+         * @return the Y coordinate
+         */
+        public int getY() {
+            return y;
+        }
+    }
+}
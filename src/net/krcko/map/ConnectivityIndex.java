@@ -0,0 +1,494 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import net.krcko.math.Point2D;
+
+/**
+ * Labels connected regions of a <code>TileMap</code>, so unreachable targets
+ * can be rejected in (almost) constant time.
+ * <p>
+ * Regions are labelled separately for each movement class, using the first
+ * entity of the class which was queried to evaluate passability. By default
+ * all entities of the same Java class share the movement class, subclasses
+ * can change that by overriding <code>getMovementClass</code>.
+ * <p>
+ * The index registers itself as a <code>TileMapListener</code> and is updated
+ * incrementally: a tile which becomes passable merges neighboring regions
+ * using a union-find structure, and a tile which becomes blocked only marks its
+ * region as possibly split. A split region is relabelled lazily, by a flood fill
+ * of the queried part only, the next time it is queried.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class ConnectivityIndex implements Connectivity<Point2D.Int>, TileMapListener {
+
+    /**
+     * X offsets of neighbor tiles, orthogonal neighbors first.
+     */
+    private static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+
+    /**
+     * Y offsets of neighbor tiles, orthogonal neighbors first.
+     */
+    private static final int[] DY = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    /**
+     * The label of blocked tiles.
+     */
+    private static final int BLOCKED = -1;
+
+    /**
+     * The map which is indexed.
+     */
+    private final TileMap map;
+
+    /**
+     * Region labels of each movement class.
+     */
+    private final HashMap<Object, Regions> regions = new HashMap<>();
+
+    /**
+     * The queue used by flood fills.
+     */
+    private int[] queue = new int[0];
+
+    /**
+     * Constructs new connectivity index for specified map and registers it as a map listener.
+     * @param map   the map to index
+     */
+    public ConnectivityIndex(final TileMap map) {
+        this.map = map;
+        map.addTileMapListener(this);
+    }
+
+    /**
+     * Returns the map which is indexed.
+     * @return the indexed map
+     */
+    public TileMap getMap() {
+        return map;
+    }
+
+    /**
+     * Stops keeping this index in sync with the map.
+     */
+    public void detach() {
+        map.removeTileMapListener(this);
+    }
+
+    /**
+     * Discards labels of all movement classes, they will be rebuilt when next queried.
+     */
+    public void invalidate() {
+        regions.clear();
+    }
+
+    /**
+     * Returns the key of the movement class of specified entity. Entities with
+     * equal keys must have the same passability on every tile.
+     * @param entity    the entity to classify
+     * @return the movement class key
+     */
+    protected Object getMovementClass(final MovingEntity entity) {
+        return entity == null ? null : entity.getClass();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isConnected(final MovingEntity entity, final Point2D.Int source, final Point2D.Int target) {
+
+        if (!map.isValidLocation(source) || !map.isValidLocation(target)) {
+            return false;
+        }
+
+        final Regions r = getRegions(entity);
+        final int width = map.getWidthInTiles();
+        final int targetRegion = r.resolve(target.y * width + target.x);
+
+        if (targetRegion == BLOCKED) {
+            return false;
+        }
+
+        final int sourceTile = source.y * width + source.x;
+
+        if (r.labels[sourceTile] != BLOCKED) {
+            return r.resolve(sourceTile) == r.resolve(target.y * width + target.x);
+        }
+
+        // the search may start on a blocked tile and step out of it
+        for (int i = 0; i < (r.diagonal ? 8 : 4); i++) {
+
+            final int x = source.x + DX[i];
+            final int y = source.y + DY[i];
+
+            if (map.isValidLocation(x, y) && r.labels[y * width + x] != BLOCKED && r.resolve(y * width + x) == r.resolve(target.y * width + target.x)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the number of distinct regions currently known for the movement
+     * class of specified entity. Regions awaiting a lazy split are counted once.
+     * @param entity    the entity whose movement class to inspect
+     * @return the number of regions
+     */
+    public int getRegionCount(final MovingEntity entity) {
+
+        final Regions r = getRegions(entity);
+
+        int count = 0;
+
+        for (int label = 0; label < r.next; label++) {
+            if (r.parent[label] == label && r.size[label] > 0) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void tilesChanged(final TileMap map, final int x, final int y, final int width, final int height) {
+
+        for (Regions r: regions.values()) {
+
+            if (r.width != map.getWidthInTiles() || r.height != map.getHeightInTiles()) {
+                regions.clear();
+                return;
+            }
+
+            final int toX = Math.min(x + width, r.width);
+            final int toY = Math.min(y + height, r.height);
+
+            for (int j = Math.max(y, 0); j < toY; j++) {
+                for (int i = Math.max(x, 0); i < toX; i++) {
+                    r.update(i, j);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns region labels of the movement class of specified entity, building them if necessary.
+     * @param entity    the entity whose movement class to return
+     * @return the region labels
+     */
+    private Regions getRegions(final MovingEntity entity) {
+
+        final Object key = getMovementClass(entity);
+
+        Regions r = regions.get(key);
+
+        if (r == null || r.diagonal != map.canMoveDiagonaly(r.entity) || r.next > 2 * r.labels.length + 1024) {
+            r = new Regions(r == null ? entity : r.entity);
+            regions.put(key, r);
+        }
+
+        return r;
+    }
+
+    /**
+     * Region labels of a single movement class.
+     */
+    private final class Regions {
+
+        /**
+         * The entity used to evaluate passability.
+         */
+        final MovingEntity entity;
+
+        /**
+         * <tt>true</tt> if diagonal movement was allowed when labels were built.
+         */
+        final boolean diagonal;
+
+        /**
+         * The number of tile columns.
+         */
+        final int width;
+
+        /**
+         * The number of tile rows.
+         */
+        final int height;
+
+        /**
+         * The region label of each tile, in row-major order.
+         */
+        final int[] labels;
+
+        /**
+         * The union-find parent of each label.
+         */
+        int[] parent;
+
+        /**
+         * The number of tiles of each region, valid for root labels only.
+         */
+        int[] size;
+
+        /**
+         * <tt>true</tt> for root labels whose region might have been split.
+         */
+        boolean[] dirty;
+
+        /**
+         * The next unused label.
+         */
+        int next;
+
+        /**
+         * Labels all regions of the map.
+         * @param entity    the entity used to evaluate passability
+         */
+        Regions(final MovingEntity entity) {
+
+            this.entity = entity;
+            this.diagonal = map.canMoveDiagonaly(entity);
+            this.width = map.getWidthInTiles();
+            this.height = map.getHeightInTiles();
+
+            if ((long) width * height > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Map is too big to be indexed.");
+            }
+
+            labels = new int[width * height];
+            parent = new int[64];
+            size = new int[64];
+            dirty = new boolean[64];
+
+            for (int y = 0, tile = 0; y < height; y++) {
+                for (int x = 0; x < width; x++, tile++) {
+                    labels[tile] = map.canMoveTo(entity, x, y) ? Integer.MAX_VALUE : BLOCKED;
+                }
+            }
+
+            for (int tile = 0; tile < labels.length; tile++) {
+                if (labels[tile] == Integer.MAX_VALUE) {
+                    flood(tile, newLabel());
+                }
+            }
+        }
+
+        /**
+         * Returns the root label of the region of specified tile, splitting the region first if needed.
+         * @param tile  the index of the tile
+         * @return the root label of the region, or <code>BLOCKED</code>
+         */
+        int resolve(final int tile) {
+
+            if (labels[tile] == BLOCKED) {
+                return BLOCKED;
+            }
+
+            final int root = find(labels[tile]);
+
+            if (!dirty[root]) {
+                return root;
+            }
+
+            final int label = newLabel();
+
+            flood(tile, label);
+
+            size[root] -= size[label];
+
+            if (size[root] <= 0) {
+                dirty[root] = false;
+            }
+
+            return label;
+        }
+
+        /**
+         * Updates the labels after the passability of specified tile might have changed.
+         * @param x the X coordinate of the tile
+         * @param y the Y coordinate of the tile
+         */
+        void update(final int x, final int y) {
+
+            final int tile = y * width + x;
+            final boolean passable = map.canMoveTo(entity, x, y);
+
+            if (passable == (labels[tile] != BLOCKED)) {
+                return;
+            }
+
+            if (!passable) {
+
+                final int root = find(labels[tile]);
+
+                labels[tile] = BLOCKED;
+                size[root]--;
+                dirty[root] = size[root] > 0;
+
+                return;
+            }
+
+            int root = -1;
+
+            for (int i = 0; i < (diagonal ? 8 : 4); i++) {
+
+                final int nx = x + DX[i];
+                final int ny = y + DY[i];
+
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height || labels[ny * width + nx] == BLOCKED) {
+                    continue;
+                }
+
+                root = root < 0 ? find(labels[ny * width + nx]) : union(root, labels[ny * width + nx]);
+            }
+
+            if (root < 0) {
+                root = newLabel();
+            }
+
+            labels[tile] = root;
+            size[root]++;
+        }
+
+        /**
+         * Assigns specified label to all tiles connected to the starting tile.
+         * @param start the index of the starting tile
+         * @param label the label to assign
+         */
+        void flood(final int start, final int label) {
+
+            if (queue.length < labels.length) {
+                queue = new int[labels.length];
+            }
+
+            final int[] q = queue;
+            final int directions = diagonal ? 8 : 4;
+
+            int head = 0;
+            int tail = 0;
+
+            labels[start] = label;
+            q[tail++] = start;
+
+            while (head < tail) {
+
+                final int tile = q[head++];
+                final int x = tile % width;
+                final int y = tile / width;
+
+                for (int i = 0; i < directions; i++) {
+
+                    final int nx = x + DX[i];
+                    final int ny = y + DY[i];
+
+                    if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                        continue;
+                    }
+
+                    final int neighbor = ny * width + nx;
+
+                    if (labels[neighbor] != BLOCKED && labels[neighbor] != label) {
+                        labels[neighbor] = label;
+                        q[tail++] = neighbor;
+                    }
+                }
+            }
+
+            size[label] = tail;
+        }
+
+        /**
+         * Allocates a new root label.
+         * @return the new label
+         */
+        int newLabel() {
+
+            if (next == parent.length) {
+                parent = Arrays.copyOf(parent, next * 2);
+                size = Arrays.copyOf(size, next * 2);
+                dirty = Arrays.copyOf(dirty, next * 2);
+            }
+
+            parent[next] = next;
+            size[next] = 0;
+            dirty[next] = false;
+
+            return next++;
+        }
+
+        /**
+         * Returns the root label of specified label, compressing the path to it.
+         * @param label the label to find the root of
+         * @return the root label
+         */
+        int find(int label) {
+
+            while (parent[label] != label) {
+                parent[label] = parent[parent[label]];
+                label = parent[label];
+            }
+
+            return label;
+        }
+
+        /**
+         * Merges regions of two labels.
+         * @param a the first label
+         * @param b the second label
+         * @return the root label of the merged region
+         */
+        int union(final int a, final int b) {
+
+            int ra = find(a);
+            int rb = find(b);
+
+            if (ra == rb) {
+                return ra;
+            }
+
+            if (size[ra] < size[rb]) {
+                final int t = ra;
+                ra = rb;
+                rb = t;
+            }
+
+            parent[rb] = ra;
+            size[ra] += size[rb];
+            dirty[ra] |= dirty[rb];
+
+            return ra;
+        }
+    }
+}
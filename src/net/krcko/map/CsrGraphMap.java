@@ -0,0 +1,596 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A <code>Map</code> of a general weighted graph, such as a road or a waypoint
+ * network, stored in compressed sparse row form.
+ * <p>
+ * Outgoing edges of node <code>n</code> are the entries
+ * <code>offsets[n]</code> to <code>offsets[n + 1] - 1</code> of the parallel
+ * target and weight arrays, so traversing a node reads two contiguous runs of
+ * primitives and the whole graph takes eight bytes per edge plus four bytes
+ * per node. Nodes may also have planar coordinates, used by heuristics, which
+ * take eight more bytes per node.
+ * <p>
+ * Node ids are the locations of the map. Searching it trough the generic
+ * <code>Map</code> methods boxes them into <code>Integer</code> objects; the
+ * map is also an <code>IndexedGraph</code>, so
+ * <code>IndexedAStarPathFinder.findPath(entity, int, int)</code> searches it
+ * without allocating objects, and callers can walk the edges directly using
+ * <code>getEdgeStart</code>, <code>getEdgeEnd</code>, <code>getEdgeTarget</code>
+ * and <code>getEdgeWeight</code>.
+ * <p>
+ * Graphs can be saved to a binary file and loaded back trough memory-mapped
+ * I/O, which is far faster than rebuilding them from edge lists.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class CsrGraphMap extends Map<Integer> implements IndexedGraph<Integer> {
+
+    /**
+     * The first word of binary graph files, <code>"CSRG"</code> in little-endian order.
+     */
+    private static final int MAGIC = 0x47525343;
+
+    /**
+     * The version of the binary format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The flag of binary graph files which contain node coordinates.
+     */
+    private static final int FLAG_COORDINATES = 1;
+
+    /**
+     * The size of the binary file header, in bytes.
+     */
+    private static final int HEADER_SIZE = 20;
+
+    /**
+     * The largest part of a file mapped at once, in bytes.
+     */
+    private static final int MAX_MAPPING = 1 << 30;
+
+    /**
+     * The position of the first outgoing edge of each node, plus the number of edges.
+     */
+    private final int[] offsets;
+
+    /**
+     * The target node of each edge.
+     */
+    private final int[] targets;
+
+    /**
+     * The weight of each edge.
+     */
+    private final float[] weights;
+
+    /**
+     * The largest number of outgoing edges of a node.
+     */
+    private final int maxDegree;
+
+    /**
+     * X coordinates of nodes, or <tt>null</tt>.
+     */
+    private float[] x;
+
+    /**
+     * Y coordinates of nodes, or <tt>null</tt>.
+     */
+    private float[] y;
+
+    /**
+     * Constructs new map from compressed sparse row arrays. The arrays are not copied.
+     * @param offsets   the position of the first outgoing edge of each node, followed by the number of edges
+     * @param targets   the target node of each edge
+     * @param weights   the weight of each edge
+     * @throws IllegalArgumentException if the arrays are inconsistent
+     */
+    public CsrGraphMap(final int[] offsets, final int[] targets, final float[] weights) throws IllegalArgumentException {
+
+        if (offsets.length == 0 || offsets[0] != 0 || offsets[offsets.length - 1] != targets.length || weights.length != targets.length) {
+            throw new IllegalArgumentException("Offsets must start at zero and end at the number of edges, which must match the number of weights.");
+        }
+
+        final int nodes = offsets.length - 1;
+
+        int degree = 0;
+
+        for (int node = 0; node < nodes; node++) {
+
+            if (offsets[node + 1] < offsets[node]) {
+                throw new IllegalArgumentException("Offsets must not decrease.");
+            }
+
+            degree = Math.max(degree, offsets[node + 1] - offsets[node]);
+        }
+
+        for (int target: targets) {
+            if (target < 0 || target >= nodes) {
+                throw new IllegalArgumentException("Edge target " + target + " is not a node.");
+            }
+        }
+
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.maxDegree = degree;
+    }
+
+    /**
+     * Builds a map from a list of edges.
+     * @param nodeCount     the number of nodes
+     * @param sources       the source node of each edge
+     * @param targets       the target node of each edge
+     * @param weights       the weight of each edge
+     * @param bidirectional <tt>true</tt> to add the reverse of each edge as well
+     * @return the new map
+     * @throws IllegalArgumentException if the arrays differ in length or refer to missing nodes
+     */
+    public static CsrGraphMap fromEdges(final int nodeCount, final int[] sources, final int[] targets, final float[] weights, final boolean bidirectional) throws IllegalArgumentException {
+
+        if (sources.length != targets.length || sources.length != weights.length) {
+            throw new IllegalArgumentException("Edge arrays must be of the same length.");
+        }
+
+        final long total = bidirectional ? 2L * sources.length : sources.length;
+
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many edges: " + total + ".");
+        }
+
+        final int[] offsets = new int[nodeCount + 1];
+
+        for (int i = 0; i < sources.length; i++) {
+
+            if (sources[i] < 0 || sources[i] >= nodeCount || targets[i] < 0 || targets[i] >= nodeCount) {
+                throw new IllegalArgumentException("Edge (" + sources[i] + ", " + targets[i] + ") refers to a missing node.");
+            }
+
+            offsets[sources[i] + 1]++;
+
+            if (bidirectional) {
+                offsets[targets[i] + 1]++;
+            }
+        }
+
+        for (int node = 0; node < nodeCount; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+
+        // counting sort of the edges by source node
+        final int[] fill = new int[nodeCount];
+        final int[] sortedTargets = new int[(int) total];
+        final float[] sortedWeights = new float[(int) total];
+
+        System.arraycopy(offsets, 0, fill, 0, nodeCount);
+
+        for (int i = 0; i < sources.length; i++) {
+
+            int edge = fill[sources[i]]++;
+
+            sortedTargets[edge] = targets[i];
+            sortedWeights[edge] = weights[i];
+
+            if (bidirectional) {
+                edge = fill[targets[i]]++;
+                sortedTargets[edge] = sources[i];
+                sortedWeights[edge] = weights[i];
+            }
+        }
+
+        return new CsrGraphMap(offsets, sortedTargets, sortedWeights);
+    }
+
+    /**
+     * Loads a map from a binary file written by <code>save</code>.
+     * @param file  the file to load
+     * @return the loaded map
+     * @throws IOException if the file cannot be read or is not a valid graph file
+     */
+    public static CsrGraphMap load(final File file) throws IOException {
+
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+
+            final FileChannel channel = input.getChannel();
+
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("File " + file + " is not a graph file.");
+            }
+
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("File " + file + " is not a graph file of a supported version.");
+            }
+
+            final int nodes = header.getInt();
+            final int edges = header.getInt();
+            final int flags = header.getInt();
+            final boolean coordinates = (flags & FLAG_COORDINATES) != 0;
+
+            if (nodes < 0 || edges < 0 || channel.size() != getFileSize(nodes, edges, coordinates)) {
+                throw new IOException("File " + file + " is truncated or corrupted.");
+            }
+
+            final int[] offsets = new int[nodes + 1];
+            final int[] targets = new int[edges];
+            final float[] weights = new float[edges];
+
+            long position = HEADER_SIZE;
+
+            position = read(channel, position, offsets, null);
+            position = read(channel, position, targets, null);
+            position = read(channel, position, null, weights);
+
+            final CsrGraphMap map;
+
+            try {
+                map = new CsrGraphMap(offsets, targets, weights);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("File " + file + " is corrupted: " + e.getMessage(), e);
+            }
+
+            if (coordinates) {
+
+                final float[] x = new float[nodes];
+                final float[] y = new float[nodes];
+
+                position = read(channel, position, null, x);
+                read(channel, position, null, y);
+
+                map.setCoordinates(x, y);
+            }
+
+            return map;
+        }
+    }
+
+    /**
+     * Saves the map to a binary file, which can be loaded by <code>load</code>.
+     * @param file  the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(final File file) throws IOException {
+
+        final boolean coordinates = x != null;
+        final long size = getFileSize(getNodeCount(), targets.length, coordinates);
+
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+
+            final FileChannel channel = output.getChannel();
+
+            output.setLength(size);
+
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            header.putInt(MAGIC).putInt(VERSION).putInt(getNodeCount()).putInt(targets.length).putInt(coordinates ? FLAG_COORDINATES : 0);
+
+            long position = HEADER_SIZE;
+
+            position = write(channel, position, offsets, null);
+            position = write(channel, position, targets, null);
+            position = write(channel, position, null, weights);
+
+            if (coordinates) {
+                position = write(channel, position, null, x);
+                write(channel, position, null, y);
+            }
+        }
+    }
+
+    /**
+     * Sets planar coordinates of the nodes, used by heuristics. The arrays are not copied.
+     * @param x X coordinates of the nodes, or <tt>null</tt> to remove coordinates
+     * @param y Y coordinates of the nodes, or <tt>null</tt> to remove coordinates
+     * @throws IllegalArgumentException if the arrays do not have a coordinate for each node
+     */
+    public void setCoordinates(final float[] x, final float[] y) throws IllegalArgumentException {
+
+        if ((x == null) != (y == null) || (x != null && (x.length != getNodeCount() || y.length != getNodeCount()))) {
+            throw new IllegalArgumentException("Coordinate arrays must have an element for each node.");
+        }
+
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Returns <tt>true</tt> if nodes have planar coordinates.
+     * @return <tt>true</tt> if coordinates are set
+     */
+    public boolean hasCoordinates() {
+        return x != null;
+    }
+
+    /**
+     * Returns the X coordinate of a node.
+     * @param node  the node id
+     * @return the X coordinate
+     * @throws IllegalStateException if coordinates are not set
+     */
+    public float getX(final int node) throws IllegalStateException {
+
+        if (x == null) {
+            throw new IllegalStateException("Graph has no coordinates.");
+        }
+
+        return x[node];
+    }
+
+    /**
+     * Returns the Y coordinate of a node.
+     * @param node  the node id
+     * @return the Y coordinate
+     * @throws IllegalStateException if coordinates are not set
+     */
+    public float getY(final int node) throws IllegalStateException {
+
+        if (y == null) {
+            throw new IllegalStateException("Graph has no coordinates.");
+        }
+
+        return y[node];
+    }
+
+    /**
+     * Returns the number of edges.
+     * @return the number of edges
+     */
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Returns the first outgoing edge of a node.
+     * @param node  the node id
+     * @return the index of the first edge
+     */
+    public int getEdgeStart(final int node) {
+        return offsets[node];
+    }
+
+    /**
+     * Returns the index past the last outgoing edge of a node.
+     * @param node  the node id
+     * @return the index following the last edge
+     */
+    public int getEdgeEnd(final int node) {
+        return offsets[node + 1];
+    }
+
+    /**
+     * Returns the target node of an edge.
+     * @param edge  the edge index
+     * @return the target node id
+     */
+    public int getEdgeTarget(final int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * Returns the weight of an edge.
+     * @param edge  the edge index
+     * @return the weight
+     */
+    public float getEdgeWeight(final int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the map data.
+     * @return the memory usage in bytes
+     */
+    public long getMemoryUsage() {
+        return 4L * offsets.length + 8L * targets.length + (x == null ? 0 : 8L * x.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Integer[] getNeighbors(final Integer location, final MovingEntity entity) {
+
+        final int start = offsets[location];
+        final Integer[] neighbors = new Integer[offsets[location + 1] - start];
+
+        for (int i = 0; i < neighbors.length; i++) {
+            neighbors[i] = targets[start + i];
+        }
+
+        return neighbors;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canMoveTo(final MovingEntity entity, final Integer target) {
+        return target >= 0 && target < offsets.length - 1;
+    }
+
+    /**
+     * Returns the weight of the cheapest edge from source to target.
+     * @param entity    the entity which is about to move
+     * @param source    the starting node
+     * @param target    the ending node
+     * @return the weight of the edge, or positive infinity if the nodes are not connected
+     */
+    @Override
+    public float getCost(final MovingEntity entity, final Integer source, final Integer target) {
+
+        final int to = target;
+
+        float cost = Float.POSITIVE_INFINITY;
+
+        for (int edge = offsets[source]; edge < offsets[source + 1]; edge++) {
+            if (targets[edge] == to && weights[edge] < cost) {
+                cost = weights[edge];
+            }
+        }
+
+        return cost;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNodeCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxDegree() {
+        return maxDegree;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNeighbors(final MovingEntity entity, final int node, final int[] neighbors, final float[] costs) {
+
+        final int start = offsets[node];
+        final int count = offsets[node + 1] - start;
+
+        System.arraycopy(targets, start, neighbors, 0, count);
+        System.arraycopy(weights, start, costs, 0, count);
+
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNode(final Integer location) {
+        return location >= 0 && location < offsets.length - 1 ? location : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Integer getLocation(final int node) {
+        return node;
+    }
+
+    /**
+     * Returns the size of a binary graph file.
+     * @param nodes         the number of nodes
+     * @param edges         the number of edges
+     * @param coordinates   <tt>true</tt> if the file contains node coordinates
+     * @return the file size in bytes
+     */
+    private static long getFileSize(final int nodes, final int edges, final boolean coordinates) {
+        return HEADER_SIZE + 4L * (nodes + 1) + 8L * edges + (coordinates ? 8L * nodes : 0);
+    }
+
+    /**
+     * Reads an array from a file trough memory mapping, one part at a time.
+     * @param channel   the file channel
+     * @param position  the position of the array in the file
+     * @param ints      the array to fill, or <tt>null</tt> if reading floats
+     * @param floats    the array to fill, or <tt>null</tt> if reading integers
+     * @return the position following the array
+     * @throws IOException if an I/O error occurs
+     */
+    private static long read(final FileChannel channel, final long position, final int[] ints, final float[] floats) throws IOException {
+
+        final int length = ints != null ? ints.length : floats.length;
+
+        int done = 0;
+
+        while (done < length) {
+
+            final int count = Math.min(length - done, MAX_MAPPING / 4);
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position + 4L * done, 4L * count);
+
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (ints != null) {
+                buffer.asIntBuffer().get(ints, done, count);
+            } else {
+                buffer.asFloatBuffer().get(floats, done, count);
+            }
+
+            done += count;
+        }
+
+        return position + 4L * length;
+    }
+
+    /**
+     * Writes an array to a file trough memory mapping, one part at a time.
+     * @param channel   the file channel
+     * @param position  the position of the array in the file
+     * @param ints      the array to write, or <tt>null</tt> if writing floats
+     * @param floats    the array to write, or <tt>null</tt> if writing integers
+     * @return the position following the array
+     * @throws IOException if an I/O error occurs
+     */
+    private static long write(final FileChannel channel, final long position, final int[] ints, final float[] floats) throws IOException {
+
+        final int length = ints != null ? ints.length : floats.length;
+
+        int done = 0;
+
+        while (done < length) {
+
+            final int count = Math.min(length - done, MAX_MAPPING / 4);
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position + 4L * done, 4L * count);
+
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (ints != null) {
+                buffer.asIntBuffer().put(ints, done, count);
+            } else {
+                buffer.asFloatBuffer().put(floats, done, count);
+            }
+
+            done += count;
+        }
+
+        return position + 4L * length;
+    }
+}
\ No newline at end of file
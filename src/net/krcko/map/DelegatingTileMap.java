@@ -0,0 +1,196 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import net.krcko.math.Point2D;
+
+/**
+ * A <code>TileMap</code> which forwards all calls to another map.
+ * <p>
+ * This class is meant to be extended by map decorators which change only a
+ * part of the behavior of the wrapped map. Tile changes of the wrapped map are
+ * reported to listeners of the decorator as well; the decorator subscribes to
+ * the wrapped map only once the first listener is registered, so listeners
+ * the decorator itself registers on the wrapped map are notified first. Each
+ * change of the wrapped map is published as a single change of the decorator.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class DelegatingTileMap extends TileMap implements TileMapChangeListener {
+
+    /**
+     * The wrapped map.
+     */
+    private final TileMap map;
+
+    /**
+     * <tt>true</tt> if this map listens to changes of the wrapped map.
+     */
+    private boolean listening;
+
+    /**
+     * Constructs new map which forwards all calls to specified map.
+     * @param map   the wrapped map
+     */
+    public DelegatingTileMap(final TileMap map) {
+        this.map = map;
+    }
+
+    /**
+     * Returns the wrapped map.
+     * @return the wrapped map
+     */
+    public TileMap getDelegate() {
+        return map;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getWidthInTiles() {
+        return map.getWidthInTiles();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getHeightInTiles() {
+        return map.getHeightInTiles();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean canMoveDiagonaly(final MovingEntity entity) {
+        return map.canMoveDiagonaly(entity);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isValidLocation(final int x, final int y) {
+        return map.isValidLocation(x, y);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canMoveTo(final MovingEntity entity, final Point2D.Int target) {
+        return map.canMoveTo(entity, target);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canMoveTo(final MovingEntity entity, final int x, final int y) {
+        return map.canMoveTo(entity, x, y);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getCost(final MovingEntity entity, final Point2D.Int source, final Point2D.Int target) {
+        return map.getCost(entity, source, target);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Point2D.Int[] getNeighbors(final Point2D.Int location, final MovingEntity entity) {
+        return map.getNeighbors(location, entity);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void pathFinderStarted(final Point2D.Int source, final Point2D.Int target) {
+        map.pathFinderStarted(source, target);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void pathFinderTraversed(final MapNode<Point2D.Int> node) {
+        map.pathFinderTraversed(node);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addTileMapListener(final TileMapListener listener) {
+
+        super.addTileMapListener(listener);
+
+        if (!listening) {
+            map.addTileMapListener(this);
+            listening = true;
+        }
+    }
+
+    /**
+     * Reports changes of the wrapped map to listeners of this map.
+     * @param map       the map which has changed
+     * @param x         the X coordinate of the first changed column
+     * @param y         the Y coordinate of the first changed row
+     * @param width     the number of changed columns
+     * @param height    the number of changed rows
+     */
+    @Override
+    public void tilesChanged(final TileMap map, final int x, final int y, final int width, final int height) {
+        fireTilesChanged(x, y, width, height);
+    }
+
+    /**
+     * Reports a change of the wrapped map to listeners of this map as a single change.
+     * @param map       the map which has changed
+     * @param change    the published change
+     */
+    @Override
+    public void tilesChanged(final TileMap map, final TileMapChange change) {
+
+        beginBatch();
+
+        try {
+            for (int i = 0; i < change.getRegionCount(); i++) {
+                fireTilesChanged(change.getX(i), change.getY(i), change.getWidth(i), change.getHeight(i));
+            }
+        } finally {
+            endBatch();
+        }
+    }
+}
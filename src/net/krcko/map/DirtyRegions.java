@@ -0,0 +1,202 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.Arrays;
+
+/**
+ * A set of changed tile rectangles, coalesced while rectangles are added.
+ * <p>
+ * An added rectangle is merged with an existing one whenever their bounding
+ * box is not larger than both rectangles together, so adjacent and overlapping
+ * edits grow a single rectangle. Once the number of rectangles reaches the
+ * limit, a new rectangle is merged with the one whose bounding box grows the
+ * least, trading precision for a bounded size.
+ *
+ * @author Aleksandar Ružičić
+ */
+class DirtyRegions {
+
+    /**
+     * The maximum number of rectangles kept.
+     */
+    static final int MAX_REGIONS = 32;
+
+    /**
+     * X, Y, width and height of each rectangle.
+     */
+    private int[] regions = new int[16];
+
+    /**
+     * The number of rectangles.
+     */
+    private int count;
+
+    /**
+     * Returns <tt>true</tt> if no rectangle was added.
+     * @return <tt>true</tt> if the set is empty
+     */
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Removes all rectangles.
+     */
+    void clear() {
+        count = 0;
+    }
+
+    /**
+     * Adds a changed rectangle. Empty rectangles, which report a change of the
+     * map size to an empty map, are kept only while no other rectangle is known.
+     * @param x         the X coordinate of the first changed column
+     * @param y         the Y coordinate of the first changed row
+     * @param width     the number of changed columns
+     * @param height    the number of changed rows
+     */
+    void add(int x, int y, int width, int height) {
+
+        if (width <= 0 || height <= 0) {
+            if (count == 0) {
+                set(count++, x, y, Math.max(width, 0), Math.max(height, 0));
+            }
+            return;
+        }
+
+        if (count == 1 && (regions[2] == 0 || regions[3] == 0)) {
+            count = 0;
+        }
+
+        boolean merged = true;
+
+        // a merged rectangle may now cover others as well
+        while (merged) {
+
+            merged = false;
+
+            for (int i = 0; i < count; i++) {
+
+                final int k = 4 * i;
+                final int minX = Math.min(x, regions[k]);
+                final int minY = Math.min(y, regions[k + 1]);
+                final int maxX = Math.max(x + width, regions[k] + regions[k + 2]);
+                final int maxY = Math.max(y + height, regions[k + 1] + regions[k + 3]);
+
+                if ((long) (maxX - minX) * (maxY - minY) <= (long) width * height + (long) regions[k + 2] * regions[k + 3]) {
+                    x = minX;
+                    y = minY;
+                    width = maxX - minX;
+                    height = maxY - minY;
+                    remove(i);
+                    merged = true;
+                    break;
+                }
+            }
+        }
+
+        if (count == MAX_REGIONS) {
+
+            int best = 0;
+            long bestGrowth = Long.MAX_VALUE;
+
+            for (int i = 0; i < count; i++) {
+
+                final int k = 4 * i;
+                final long growth = (long) (Math.max(x + width, regions[k] + regions[k + 2]) - Math.min(x, regions[k]))
+                        * (Math.max(y + height, regions[k + 1] + regions[k + 3]) - Math.min(y, regions[k + 1]))
+                        - (long) regions[k + 2] * regions[k + 3];
+
+                if (growth < bestGrowth) {
+                    best = i;
+                    bestGrowth = growth;
+                }
+            }
+
+            final int k = 4 * best;
+            final int minX = Math.min(x, regions[k]);
+            final int minY = Math.min(y, regions[k + 1]);
+
+            width = Math.max(x + width, regions[k] + regions[k + 2]) - minX;
+            height = Math.max(y + height, regions[k + 1] + regions[k + 3]) - minY;
+            remove(best);
+
+            // the grown rectangle may overlap others, which is harmless
+            set(count++, minX, minY, width, height);
+            return;
+        }
+
+        set(count++, x, y, width, height);
+    }
+
+    /**
+     * Adds all rectangles of a change.
+     * @param change    the change to add
+     */
+    void addAll(final TileMapChange change) {
+        for (int i = 0; i < change.getRegionCount(); i++) {
+            add(change.getX(i), change.getY(i), change.getWidth(i), change.getHeight(i));
+        }
+    }
+
+    /**
+     * Returns the rectangles as a flat array.
+     * @return X, Y, width and height of each rectangle
+     */
+    int[] toArray() {
+        return Arrays.copyOf(regions, 4 * count);
+    }
+
+    /**
+     * Stores a rectangle at specified position, growing the storage if necessary.
+     * @param i         the position of the rectangle
+     * @param x         the X coordinate of the rectangle
+     * @param y         the Y coordinate of the rectangle
+     * @param width     the width of the rectangle
+     * @param height    the height of the rectangle
+     */
+    private void set(final int i, final int x, final int y, final int width, final int height) {
+
+        if (4 * i + 4 > regions.length) {
+            regions = Arrays.copyOf(regions, regions.length * 2);
+        }
+
+        regions[4 * i] = x;
+        regions[4 * i + 1] = y;
+        regions[4 * i + 2] = width;
+        regions[4 * i + 3] = height;
+    }
+
+    /**
+     * Removes the rectangle at specified position, moving the last one in its place.
+     * @param i the position of the rectangle
+     */
+    private void remove(final int i) {
+        count--;
+        System.arraycopy(regions, 4 * count, regions, 4 * i, 4);
+    }
+}
\ No newline at end of file
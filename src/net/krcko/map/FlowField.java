@@ -0,0 +1,216 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.Arrays;
+import java.util.Collection;
+import net.krcko.math.Point2D;
+
+/**
+ * A flow field of a <code>TileMap</code>, telling every tile which way leads
+ * to the nearest of a set of targets.
+ * <p>
+ * The field stores, for every tile, the cost of the cheapest path to any of
+ * the targets and the direction of the first step of that path, encoded as by
+ * <code>CompactPath</code>. Any number of entities moving to the same targets
+ * can share one field, each looking up its next step in constant time.
+ * <p>
+ * Fields are created and kept up to date by <code>FlowFieldGenerator</code>.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class FlowField {
+
+    /**
+     * The direction of targets and of tiles which cannot reach any target.
+     */
+    public static final int NONE = -1;
+
+    /**
+     * The number of tile columns.
+     */
+    final int width;
+
+    /**
+     * The number of tile rows.
+     */
+    final int height;
+
+    /**
+     * Tile indices of the targets, in row-major order.
+     */
+    final int[] targets;
+
+    /**
+     * The cost of the cheapest path from each tile to a target, in row-major order.
+     */
+    final float[] costs;
+
+    /**
+     * The direction of the first step from each tile, or <code>NONE</code>, in row-major order.
+     */
+    final byte[] directions;
+
+    /**
+     * Constructs new field with all tiles unreachable.
+     * @param width     the number of tile columns
+     * @param height    the number of tile rows
+     * @param targets   the targets of the field
+     * @throws IndexOutOfBoundsException if a target is out of the map bounds
+     */
+    FlowField(final int width, final int height, final Collection<Point2D.Int> targets) throws IndexOutOfBoundsException {
+
+        this.width = width;
+        this.height = height;
+        this.targets = new int[targets.size()];
+        this.costs = new float[width * height];
+        this.directions = new byte[width * height];
+
+        int i = 0;
+
+        for (Point2D.Int target: targets) {
+
+            if (target.x < 0 || target.x >= width || target.y < 0 || target.y >= height) {
+                throw new IndexOutOfBoundsException("Tile with coordinates (" + target.x + ", " + target.y + ") is out of the map bounds.");
+            }
+
+            this.targets[i++] = target.y * width + target.x;
+        }
+
+        Arrays.fill(costs, Float.POSITIVE_INFINITY);
+        Arrays.fill(directions, (byte) NONE);
+    }
+
+    /**
+     * Returns number of tile columns of the field.
+     * @return number of columns
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns number of tile rows of the field.
+     * @return number of rows
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the targets of the field.
+     * @return new array of the targets
+     */
+    public Point2D.Int[] getTargets() {
+
+        final Point2D.Int[] result = new Point2D.Int[targets.length];
+
+        for (int i = 0; i < targets.length; i++) {
+            result[i] = new Point2D.Int(targets[i] % width, targets[i] / width);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the cost of the cheapest path from a tile to a target.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return the cost, or positive infinity if no target can be reached
+     * @throws IndexOutOfBoundsException if the tile is out of the field bounds
+     */
+    public float getCost(final int x, final int y) throws IndexOutOfBoundsException {
+        return costs[index(x, y)];
+    }
+
+    /**
+     * Returns the direction of the first step from a tile towards the nearest target.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return the direction, as used by <code>CompactPath</code>, or <code>NONE</code>
+     *          if the tile is a target or cannot reach any target
+     * @throws IndexOutOfBoundsException if the tile is out of the field bounds
+     */
+    public int getDirection(final int x, final int y) throws IndexOutOfBoundsException {
+        return directions[index(x, y)];
+    }
+
+    /**
+     * Returns <tt>true</tt> if a target can be reached from a tile.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return <tt>true</tt> if the tile can reach a target
+     * @throws IndexOutOfBoundsException if the tile is out of the field bounds
+     */
+    public boolean isReachable(final int x, final int y) throws IndexOutOfBoundsException {
+        return costs[index(x, y)] != Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Moves a location one step along the field.
+     * @param location  the location to move, updated in place
+     * @return <tt>false</tt> if the location is a target or cannot reach any target
+     * @throws IndexOutOfBoundsException if the location is out of the field bounds
+     */
+    public boolean step(final Point2D.Int location) throws IndexOutOfBoundsException {
+
+        final int direction = directions[index(location.x, location.y)];
+
+        if (direction == NONE) {
+            return false;
+        }
+
+        location.x += CompactPath.getDeltaX(direction);
+        location.y += CompactPath.getDeltaY(direction);
+
+        return true;
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the field data.
+     * @return the memory usage in bytes
+     */
+    public long getMemoryUsage() {
+        return 5L * costs.length + 4L * targets.length;
+    }
+
+    /**
+     * Returns the row-major index of a tile.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return the index of the tile
+     * @throws IndexOutOfBoundsException if the tile is out of the field bounds
+     */
+    private int index(final int x, final int y) throws IndexOutOfBoundsException {
+
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IndexOutOfBoundsException("Tile with coordinates (" + x + ", " + y + ") is out of the map bounds.");
+        }
+
+        return y * width + x;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,211 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.Set;
+import net.krcko.math.Point2D;
+
+/**
+ * Caches flow fields of a <code>FlowFieldGenerator</code> by their targets.
+ * <p>
+ * At most the given number of fields is kept, least recently used fields are
+ * evicted first. The cache registers itself as a <code>TileMapListener</code>
+ * and updates every cached field incrementally when tiles change, so returned
+ * fields always match the map. The map holds on to the cache until
+ * <code>detach</code> is called, so it must be called once the cache is no
+ * longer used, otherwise the cache and all its fields are never collected.
+ * <p>
+ * The cache is safe for use by multiple threads, however fields it returns
+ * are updated in place and must not be read while the map is being changed.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class FlowFieldCache implements TileMapListener {
+
+    /**
+     * The generator of cached fields.
+     */
+    private final FlowFieldGenerator generator;
+
+    /**
+     * The maximum number of cached fields.
+     */
+    private final int capacity;
+
+    /**
+     * Cached fields by their targets, in access order.
+     */
+    private final LinkedHashMap<Set<Point2D.Int>, FlowField> fields = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The number of requests served from the cache.
+     */
+    private long hits;
+
+    /**
+     * The number of requests which generated a field.
+     */
+    private long misses;
+
+    /**
+     * Constructs new cache and registers it as a listener of the generator's map.
+     * The cache must be detached once it is no longer used.
+     * @param generator the generator of cached fields
+     * @param capacity  the maximum number of cached fields
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public FlowFieldCache(final FlowFieldGenerator generator, final int capacity) throws IllegalArgumentException {
+
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+
+        this.generator = generator;
+        this.capacity = capacity;
+
+        generator.getMap().addTileMapListener(this);
+    }
+
+    /**
+     * Returns the generator of cached fields.
+     * @return the generator
+     */
+    public FlowFieldGenerator getGenerator() {
+        return generator;
+    }
+
+    /**
+     * Returns the maximum number of cached fields.
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the field of a single target, generating it if it is not cached.
+     * @param target    the target tile
+     * @return the field
+     * @throws IndexOutOfBoundsException if the target is out of the map bounds
+     * @throws IllegalStateException if a parallel sweep fails or is interrupted
+     */
+    public FlowField get(final Point2D.Int target) throws IndexOutOfBoundsException, IllegalStateException {
+        return get(Collections.singletonList(target));
+    }
+
+    /**
+     * Returns the field of several targets, generating it if it is not cached.
+     * @param targets   the target tiles
+     * @return the field
+     * @throws IndexOutOfBoundsException if a target is out of the map bounds
+     * @throws IllegalStateException if a parallel sweep fails or is interrupted
+     */
+    public synchronized FlowField get(final Collection<Point2D.Int> targets) throws IndexOutOfBoundsException, IllegalStateException {
+
+        final Set<Point2D.Int> key = new HashSet<>();
+
+        for (Point2D.Int target: targets) {
+            key.add(new Point2D.Int(target.x, target.y));
+        }
+
+        FlowField field = fields.get(key);
+
+        if (field != null) {
+            hits++;
+            return field;
+        }
+
+        misses++;
+        field = generator.generate(key);
+
+        if (fields.size() >= capacity) {
+            final Iterator<FlowField> iterator = fields.values().iterator();
+            iterator.next();
+            iterator.remove();
+        }
+
+        fields.put(key, field);
+
+        return field;
+    }
+
+    /**
+     * Returns the number of cached fields.
+     * @return the number of fields
+     */
+    public synchronized int size() {
+        return fields.size();
+    }
+
+    /**
+     * Returns the number of requests served from the cache.
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of requests which generated a field.
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Discards all cached fields.
+     */
+    public synchronized void clear() {
+        fields.clear();
+    }
+
+    /**
+     * Stops keeping cached fields in sync with the map and discards them, releasing
+     * the reference the map holds to the cache.
+     */
+    public synchronized void detach() {
+        generator.getMap().removeTileMapListener(this);
+        fields.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void tilesChanged(final TileMap map, final int x, final int y, final int width, final int height) {
+        for (Entry<Set<Point2D.Int>, FlowField> entry: fields.entrySet()) {
+            entry.setValue(generator.update(entry.getValue(), x, y, width, height));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,837 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import net.krcko.math.Point2D;
+import net.krcko.util.IntPriorityQueue;
+
+/**
+ * Generates flow fields of a <code>TileMap</code> and keeps them up to date
+ * when tiles change.
+ * <p>
+ * A field is generated by a single reverse Dijkstra pass starting at all of
+ * its targets, which integrates the cost of reaching the nearest target into
+ * every tile; the direction of each tile then points to the neighbor on its
+ * cheapest path. Diagonal moves and move costs follow the map, evaluated for
+ * the entity the generator was created for.
+ * <p>
+ * If an executor is set, the map is split into square chunks which are swept
+ * in parallel rounds. Each chunk imports costs across its border, runs the
+ * Dijkstra pass confined to itself, and wakes its neighbors up for the next
+ * round if costs of its border tiles dropped, until no chunk changes. The
+ * result is the same as that of the single pass.
+ * <p>
+ * After an edit, <code>update</code> resets only the tiles whose cheapest
+ * path led trough an edited tile, reseeds them from their neighbors and
+ * propagates the changes outwards, so local edits cost little.
+ * <p>
+ * The generator is not safe for use by multiple threads.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class FlowFieldGenerator {
+
+    /**
+     * The map to generate fields of.
+     */
+    private final TileMap map;
+
+    /**
+     * The entity whose movement rules the fields follow.
+     */
+    private final MovingEntity entity;
+
+    /**
+     * The executor running parallel sweeps, or <tt>null</tt>.
+     */
+    private ExecutorService executor;
+
+    /**
+     * The width and the height of chunks of parallel sweeps.
+     */
+    private int chunkSize = 64;
+
+    /**
+     * The queue of incremental updates, reused between updates.
+     */
+    private IntPriorityQueue queue;
+
+    /**
+     * Constructs new generator.
+     * @param map       the map to generate fields of
+     * @param entity    the entity whose movement rules the fields follow
+     */
+    public FlowFieldGenerator(final TileMap map, final MovingEntity entity) {
+        this.map = map;
+        this.entity = entity;
+    }
+
+    /**
+     * Returns the map to generate fields of.
+     * @return the map
+     */
+    public TileMap getMap() {
+        return map;
+    }
+
+    /**
+     * Returns the entity whose movement rules the fields follow.
+     * @return the entity
+     */
+    public MovingEntity getEntity() {
+        return entity;
+    }
+
+    /**
+     * Returns the executor running parallel sweeps.
+     * @return the executor, or <tt>null</tt> if fields are generated on the calling thread
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor running parallel sweeps. The map must support
+     * concurrent reads if an executor is set.
+     * @param executor  the executor, or <tt>null</tt> to generate fields on the calling thread
+     */
+    public void setExecutor(final ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the width and the height of chunks of parallel sweeps.
+     * @return the chunk size in tiles
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the width and the height of chunks of parallel sweeps.
+     * @param chunkSize the chunk size in tiles
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public void setChunkSize(final int chunkSize) throws IllegalArgumentException {
+
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Generates the field of a single target.
+     * @param target    the target tile
+     * @return the field
+     * @throws IndexOutOfBoundsException if the target is out of the map bounds
+     * @throws IllegalStateException if a parallel sweep fails or is interrupted
+     */
+    public FlowField generate(final Point2D.Int target) throws IndexOutOfBoundsException, IllegalStateException {
+        return generate(Collections.singletonList(target));
+    }
+
+    /**
+     * Generates the field of several targets, leading each tile to the nearest one.
+     * Blocked targets are ignored.
+     * @param targets   the target tiles
+     * @return the field
+     * @throws IndexOutOfBoundsException if a target is out of the map bounds
+     * @throws IllegalStateException if a parallel sweep fails or is interrupted
+     */
+    public FlowField generate(final Collection<Point2D.Int> targets) throws IndexOutOfBoundsException, IllegalStateException {
+
+        final FlowField field = new FlowField(map.getWidthInTiles(), map.getHeightInTiles(), targets);
+
+        for (int target: field.targets) {
+            if (map.canMoveTo(entity, target % field.width, target / field.width)) {
+                field.costs[target] = 0;
+            }
+        }
+
+        if (executor == null) {
+            final Sweep sweep = new Sweep(field, 0, 0, field.width, field.height);
+            sweep.integrate(true);
+            sweep.orient();
+        } else {
+            generateInChunks(field);
+        }
+
+        return field;
+    }
+
+    /**
+     * Updates a field after tiles within a rectangle have changed.
+     * @param field     the field to update
+     * @param x         the X coordinate of the first changed column
+     * @param y         the Y coordinate of the first changed row
+     * @param width     the number of changed columns
+     * @param height    the number of changed rows
+     * @return the updated field, which is a new field if the map was resized
+     * @throws IllegalStateException if a parallel sweep fails or is interrupted
+     */
+    public FlowField update(final FlowField field, final int x, final int y, final int width, final int height) throws IllegalStateException {
+
+        if (field.width != map.getWidthInTiles() || field.height != map.getHeightInTiles()) {
+            return generate(Arrays.asList(field.getTargets()));
+        }
+
+        final int fromX = Math.max(x, 0);
+        final int fromY = Math.max(y, 0);
+        final int toX = Math.min(x + width, field.width);
+        final int toY = Math.min(y + height, field.height);
+
+        if (fromX >= toX || fromY >= toY) {
+            return field;
+        }
+
+        final Sweep sweep = new Sweep(field, 0, 0, field.width, field.height);
+        final int[] affected = sweep.collectAffected(fromX, fromY, toX, toY);
+
+        sweep.reseed(affected);
+        sweep.integrate(false);
+        sweep.orientTouched();
+
+        return field;
+    }
+
+    /**
+     * Generates a field by parallel rounds of chunk sweeps.
+     * @param field the field with its targets seeded
+     * @throws IllegalStateException if a sweep fails or is interrupted
+     */
+    private void generateInChunks(final FlowField field) throws IllegalStateException {
+
+        final int columns = (field.width + chunkSize - 1) / chunkSize;
+        final int rows = (field.height + chunkSize - 1) / chunkSize;
+
+        boolean[] active = new boolean[columns * rows];
+
+        for (int target: field.targets) {
+            if (field.costs[target] == 0) {
+                active[(target / field.width / chunkSize) * columns + (target % field.width) / chunkSize] = true;
+            }
+        }
+
+        boolean initial = true;
+
+        while (true) {
+
+            final List<Callable<Boolean>> tasks = new ArrayList<>();
+            final List<Integer> chunks = new ArrayList<>();
+
+            for (int chunk = 0; chunk < active.length; chunk++) {
+                if (active[chunk]) {
+                    tasks.add(createSweepTask(field, chunk, columns, initial));
+                    chunks.add(chunk);
+                }
+            }
+
+            if (tasks.isEmpty()) {
+                break;
+            }
+
+            final List<Boolean> results = invokeAll(tasks);
+            final boolean[] next = new boolean[active.length];
+
+            for (int i = 0; i < results.size(); i++) {
+
+                if (!results.get(i)) {
+                    continue;
+                }
+
+                final int column = chunks.get(i) % columns;
+                final int row = chunks.get(i) / columns;
+
+                // a chunk whose border changed wakes up its neighbors
+                for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+                    for (int c = Math.max(column - 1, 0); c <= Math.min(column + 1, columns - 1); c++) {
+                        if (r != row || c != column) {
+                            next[r * columns + c] = true;
+                        }
+                    }
+                }
+            }
+
+            active = next;
+            initial = false;
+        }
+
+        final List<Callable<Boolean>> tasks = new ArrayList<>();
+
+        for (int chunk = 0; chunk < columns * rows; chunk++) {
+
+            final Sweep sweep = createSweep(field, chunk, columns);
+
+            tasks.add(new Callable<Boolean>() {
+
+                @Override
+                public Boolean call() {
+                    sweep.orient();
+                    return true;
+                }
+            });
+        }
+
+        invokeAll(tasks);
+    }
+
+    /**
+     * Creates a task sweeping a single chunk.
+     * @param field     the field to generate
+     * @param chunk     the index of the chunk
+     * @param columns   the number of chunk columns
+     * @param initial   <tt>true</tt> in the first round
+     * @return the task, returning <tt>true</tt> if costs of border tiles changed
+     */
+    private Callable<Boolean> createSweepTask(final FlowField field, final int chunk, final int columns, final boolean initial) {
+
+        final Sweep sweep = createSweep(field, chunk, columns);
+
+        return new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+
+                if (!initial) {
+                    sweep.importBorder();
+                }
+
+                return sweep.integrate(initial);
+            }
+        };
+    }
+
+    /**
+     * Creates a sweep of a single chunk.
+     * @param field     the field to generate
+     * @param chunk     the index of the chunk
+     * @param columns   the number of chunk columns
+     * @return the sweep
+     */
+    private Sweep createSweep(final FlowField field, final int chunk, final int columns) {
+
+        final int x0 = (chunk % columns) * chunkSize;
+        final int y0 = (chunk / columns) * chunkSize;
+
+        return new Sweep(field, x0, y0, Math.min(x0 + chunkSize, field.width), Math.min(y0 + chunkSize, field.height));
+    }
+
+    /**
+     * Runs tasks on the executor and waits for all of them.
+     * @param tasks the tasks to run
+     * @return the results of the tasks, in order
+     * @throws IllegalStateException if a task fails or the thread is interrupted
+     */
+    private List<Boolean> invokeAll(final List<Callable<Boolean>> tasks) throws IllegalStateException {
+
+        try {
+
+            final List<Boolean> results = new ArrayList<>(tasks.size());
+
+            for (Future<Boolean> future: executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+
+            return results;
+
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A Dijkstra pass over a rectangular region of a field.
+     */
+    private final class Sweep {
+
+        /**
+         * The field being generated.
+         */
+        final FlowField field;
+
+        /**
+         * The first column of the region.
+         */
+        final int x0;
+
+        /**
+         * The first row of the region.
+         */
+        final int y0;
+
+        /**
+         * The column following the region.
+         */
+        final int x1;
+
+        /**
+         * The row following the region.
+         */
+        final int y1;
+
+        /**
+         * <tt>true</tt> if diagonal moves are allowed.
+         */
+        final boolean diagonal;
+
+        /**
+         * Queued tiles, by index within the region.
+         */
+        IntPriorityQueue open;
+
+        /**
+         * The reused source point of cost queries.
+         */
+        final Point2D.Int from = new Point2D.Int();
+
+        /**
+         * The reused target point of cost queries.
+         */
+        final Point2D.Int to = new Point2D.Int();
+
+        /**
+         * <tt>true</tt> once a cost of a border tile of the region changed.
+         */
+        boolean borderChanged;
+
+        /**
+         * The first column of tiles whose cost changed.
+         */
+        int touchedX0 = Integer.MAX_VALUE;
+
+        /**
+         * The first row of tiles whose cost changed.
+         */
+        int touchedY0 = Integer.MAX_VALUE;
+
+        /**
+         * The last column of tiles whose cost changed.
+         */
+        int touchedX1 = Integer.MIN_VALUE;
+
+        /**
+         * The last row of tiles whose cost changed.
+         */
+        int touchedY1 = Integer.MIN_VALUE;
+
+        /**
+         * Constructs new sweep.
+         * @param field the field being generated
+         * @param x0    the first column of the region
+         * @param y0    the first row of the region
+         * @param x1    the column following the region
+         * @param y1    the row following the region
+         */
+        Sweep(final FlowField field, final int x0, final int y0, final int x1, final int y1) {
+            this.field = field;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.diagonal = map.canMoveDiagonaly(entity);
+        }
+
+        /**
+         * Returns the queue, creating it when first needed.
+         * @return the queue
+         */
+        IntPriorityQueue getQueue() {
+
+            if (open == null) {
+
+                final int capacity = (x1 - x0) * (y1 - y0);
+
+                // the whole-map queue is kept for later updates
+                if (x0 == 0 && y0 == 0 && x1 == field.width && y1 == field.height) {
+
+                    if (queue == null || queue.getCapacity() != capacity) {
+                        queue = new IntPriorityQueue(capacity);
+                    }
+
+                    open = queue;
+                    open.clear();
+
+                } else {
+                    open = new IntPriorityQueue(capacity);
+                }
+            }
+
+            return open;
+        }
+
+        /**
+         * Improves costs of border tiles trough their neighbors outside the region, queueing improved tiles.
+         */
+        void importBorder() {
+
+            for (int y = y0; y < y1; y++) {
+                for (int x = x0; x < x1; x++) {
+
+                    if (x != x0 && x != x1 - 1 && y != y0 && y != y1 - 1) {
+                        x = x1 - 2;
+                        continue;
+                    }
+
+                    final int tile = y * field.width + x;
+
+                    if (!map.canMoveTo(entity, x, y)) {
+                        continue;
+                    }
+
+                    float best = field.costs[tile];
+
+                    for (int direction = 0; direction < 8; direction += diagonal ? 1 : 2) {
+
+                        final int nx = x + CompactPath.getDeltaX(direction);
+                        final int ny = y + CompactPath.getDeltaY(direction);
+
+                        if (contains(nx, ny) || !map.isValidLocation(nx, ny)) {
+                            continue;
+                        }
+
+                        final float cost = field.costs[ny * field.width + nx];
+
+                        if (cost != Float.POSITIVE_INFINITY && map.canMoveTo(entity, nx, ny)) {
+                            best = Math.min(best, cost + getMoveCost(x, y, nx, ny));
+                        }
+                    }
+
+                    if (best < field.costs[tile]) {
+                        setCost(x, y, best);
+                        getQueue().offer(local(x, y), best);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Runs the Dijkstra pass confined to the region.
+         * @param seedFinite    <tt>true</tt> to queue all tiles which already have a cost
+         * @return <tt>true</tt> if a cost of a border tile changed
+         */
+        boolean integrate(final boolean seedFinite) {
+
+            final IntPriorityQueue q = getQueue();
+
+            if (seedFinite) {
+                for (int y = y0; y < y1; y++) {
+                    for (int x = x0; x < x1; x++) {
+
+                        final float cost = field.costs[y * field.width + x];
+
+                        if (cost != Float.POSITIVE_INFINITY) {
+                            q.offer(local(x, y), cost);
+                            touch(x, y);
+                        }
+                    }
+                }
+            }
+
+            final int regionWidth = x1 - x0;
+
+            while (!q.isEmpty()) {
+
+                final int id = q.poll();
+                final int x = x0 + id % regionWidth;
+                final int y = y0 + id / regionWidth;
+                final float cost = field.costs[y * field.width + x];
+
+                // relax the neighbors which could step onto this tile
+                for (int direction = 0; direction < 8; direction += diagonal ? 1 : 2) {
+
+                    final int nx = x + CompactPath.getDeltaX(direction);
+                    final int ny = y + CompactPath.getDeltaY(direction);
+
+                    if (!contains(nx, ny) || !map.canMoveTo(entity, nx, ny)) {
+                        continue;
+                    }
+
+                    final float candidate = cost + getMoveCost(nx, ny, x, y);
+
+                    if (candidate < field.costs[ny * field.width + nx]) {
+                        setCost(nx, ny, candidate);
+                        q.offer(local(nx, ny), candidate);
+                    }
+                }
+            }
+
+            return borderChanged;
+        }
+
+        /**
+         * Collects tiles of a rectangle and all tiles whose cheapest path leads trough them,
+         * and resets their costs and directions.
+         * @param fromX the first column of the rectangle
+         * @param fromY the first row of the rectangle
+         * @param toX   the column following the rectangle
+         * @param toY   the row following the rectangle
+         * @return the indices of the collected tiles
+         */
+        int[] collectAffected(final int fromX, final int fromY, final int toX, final int toY) {
+
+            final BitSet marked = new BitSet(field.costs.length);
+
+            int[] tiles = new int[(toX - fromX) * (toY - fromY)];
+            int count = 0;
+
+            for (int y = fromY; y < toY; y++) {
+                for (int x = fromX; x < toX; x++) {
+                    marked.set(y * field.width + x);
+                    tiles[count++] = y * field.width + x;
+                }
+            }
+
+            // walk the tree of cheapest paths backwards, from each tile to the tiles stepping onto it
+            for (int i = 0; i < count; i++) {
+
+                final int x = tiles[i] % field.width;
+                final int y = tiles[i] / field.width;
+
+                for (int direction = 0; direction < 8; direction++) {
+
+                    final int nx = x + CompactPath.getDeltaX(direction);
+                    final int ny = y + CompactPath.getDeltaY(direction);
+
+                    if (!map.isValidLocation(nx, ny)) {
+                        continue;
+                    }
+
+                    final int neighbor = ny * field.width + nx;
+
+                    // the neighbor steps onto this tile if its direction is the opposite one
+                    if (!marked.get(neighbor) && field.directions[neighbor] == ((direction + 4) & 7)) {
+
+                        if (count == tiles.length) {
+                            tiles = Arrays.copyOf(tiles, count * 2);
+                        }
+
+                        marked.set(neighbor);
+                        tiles[count++] = neighbor;
+                    }
+                }
+            }
+
+            for (int i = 0; i < count; i++) {
+                field.costs[tiles[i]] = Float.POSITIVE_INFINITY;
+                field.directions[tiles[i]] = (byte) FlowField.NONE;
+                touch(tiles[i] % field.width, tiles[i] / field.width);
+            }
+
+            return Arrays.copyOf(tiles, count);
+        }
+
+        /**
+         * Gives reset tiles the costs offered by their neighbors, or zero to targets, and queues them.
+         * @param tiles the indices of the reset tiles
+         */
+        void reseed(final int[] tiles) {
+
+            final IntPriorityQueue q = getQueue();
+
+            for (int target: field.targets) {
+                if (field.costs[target] == Float.POSITIVE_INFINITY && map.canMoveTo(entity, target % field.width, target / field.width)) {
+                    setCost(target % field.width, target / field.width, 0);
+                    q.offer(target, 0);
+                }
+            }
+
+            for (int tile: tiles) {
+
+                final int x = tile % field.width;
+                final int y = tile / field.width;
+
+                if (field.costs[tile] == 0 || !map.canMoveTo(entity, x, y)) {
+                    continue;
+                }
+
+                float best = Float.POSITIVE_INFINITY;
+
+                for (int direction = 0; direction < 8; direction += diagonal ? 1 : 2) {
+
+                    final int nx = x + CompactPath.getDeltaX(direction);
+                    final int ny = y + CompactPath.getDeltaY(direction);
+
+                    if (!map.isValidLocation(nx, ny)) {
+                        continue;
+                    }
+
+                    final float cost = field.costs[ny * field.width + nx];
+
+                    if (cost != Float.POSITIVE_INFINITY && map.canMoveTo(entity, nx, ny)) {
+                        best = Math.min(best, cost + getMoveCost(x, y, nx, ny));
+                    }
+                }
+
+                if (best != Float.POSITIVE_INFINITY) {
+                    setCost(x, y, best);
+                    q.offer(tile, best);
+                }
+            }
+        }
+
+        /**
+         * Points every tile of the region to the neighbor on its cheapest path.
+         */
+        void orient() {
+            orient(x0, y0, x1, y1);
+        }
+
+        /**
+         * Points the tiles whose costs changed, and their neighbors, to the neighbors on their cheapest paths.
+         */
+        void orientTouched() {
+            if (touchedX0 <= touchedX1) {
+                orient(Math.max(touchedX0 - 1, x0), Math.max(touchedY0 - 1, y0), Math.min(touchedX1 + 2, x1), Math.min(touchedY1 + 2, y1));
+            }
+        }
+
+        /**
+         * Points every tile of a rectangle to the neighbor on its cheapest path.
+         * @param fromX the first column of the rectangle
+         * @param fromY the first row of the rectangle
+         * @param toX   the column following the rectangle
+         * @param toY   the row following the rectangle
+         */
+        void orient(final int fromX, final int fromY, final int toX, final int toY) {
+
+            for (int y = fromY; y < toY; y++) {
+                for (int x = fromX; x < toX; x++) {
+
+                    final int tile = y * field.width + x;
+                    final float cost = field.costs[tile];
+
+                    int best = FlowField.NONE;
+
+                    if (cost != 0 && cost != Float.POSITIVE_INFINITY) {
+
+                        float bestCost = Float.POSITIVE_INFINITY;
+
+                        for (int direction = 0; direction < 8; direction += diagonal ? 1 : 2) {
+
+                            final int nx = x + CompactPath.getDeltaX(direction);
+                            final int ny = y + CompactPath.getDeltaY(direction);
+
+                            if (!map.isValidLocation(nx, ny)) {
+                                continue;
+                            }
+
+                            final float next = field.costs[ny * field.width + nx];
+
+                            if (next < cost && map.canMoveTo(entity, nx, ny)) {
+
+                                final float candidate = next + getMoveCost(x, y, nx, ny);
+
+                                if (candidate < bestCost) {
+                                    bestCost = candidate;
+                                    best = direction;
+                                }
+                            }
+                        }
+                    }
+
+                    field.directions[tile] = (byte) best;
+                }
+            }
+        }
+
+        /**
+         * Returns <tt>true</tt> if a tile is within the region.
+         * @param x the X coordinate of the tile
+         * @param y the Y coordinate of the tile
+         * @return <tt>true</tt> if the tile is within the region
+         */
+        boolean contains(final int x, final int y) {
+            return x >= x0 && x < x1 && y >= y0 && y < y1;
+        }
+
+        /**
+         * Returns the index of a tile within the region.
+         * @param x the X coordinate of the tile
+         * @param y the Y coordinate of the tile
+         * @return the index within the region
+         */
+        int local(final int x, final int y) {
+            return (y - y0) * (x1 - x0) + (x - x0);
+        }
+
+        /**
+         * Stores a new cost of a tile, noting changes of border tiles and the touched rectangle.
+         * @param x     the X coordinate of the tile
+         * @param y     the Y coordinate of the tile
+         * @param cost  the new cost
+         */
+        void setCost(final int x, final int y, final float cost) {
+            field.costs[y * field.width + x] = cost;
+            touch(x, y);
+        }
+
+        /**
+         * Notes a change of a tile.
+         * @param x the X coordinate of the tile
+         * @param y the Y coordinate of the tile
+         */
+        void touch(final int x, final int y) {
+
+            if (x == x0 || x == x1 - 1 || y == y0 || y == y1 - 1) {
+                borderChanged = true;
+            }
+
+            touchedX0 = Math.min(touchedX0, x);
+            touchedY0 = Math.min(touchedY0, y);
+            touchedX1 = Math.max(touchedX1, x);
+            touchedY1 = Math.max(touchedY1, y);
+        }
+
+        /**
+         * Returns the cost of moving between two neighboring tiles.
+         * @param fx    the X coordinate of the source tile
+         * @param fy    the Y coordinate of the source tile
+         * @param tx    the X coordinate of the target tile
+         * @param ty    the Y coordinate of the target tile
+         * @return the cost of the move
+         */
+        float getMoveCost(final int fx, final int fy, final int tx, final int ty) {
+            from.x = fx;
+            from.y = fy;
+            to.x = tx;
+            to.y = ty;
+            return map.getCost(entity, from, to);
+        }
+    }
+}
\ No newline at end of file
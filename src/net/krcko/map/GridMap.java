@@ -0,0 +1,249 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import net.krcko.math.Point2D;
+
+/**
+ * A <code>TileMap</code> of passable and blocked tiles of uniform cost, as
+ * used by grid path finding benchmarks.
+ * <p>
+ * Passability is stored as one bit per tile. Orthogonal moves cost <tt>1</tt>
+ * and diagonal moves, if allowed, cost <tt>sqrt(2)</tt>. Maps can be read
+ * from the text format of the Moving AI Lab benchmark sets, in which
+ * <code>.</code>, <code>G</code> and <code>S</code> are passable tiles and all
+ * other characters are obstacles.
+ * <p>
+ * Reading the map from several threads at once is safe, as long as no thread
+ * edits it at the same time.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class GridMap extends TileMap {
+
+    /**
+     * The cost of a diagonal move.
+     */
+    private static final float DIAGONAL_COST = (float) Math.sqrt(2);
+
+    /**
+     * The number of tile columns.
+     */
+    private final int width;
+
+    /**
+     * The number of tile rows.
+     */
+    private final int height;
+
+    /**
+     * The number of words of a row of tiles.
+     */
+    private final int rowWords;
+
+    /**
+     * <tt>true</tt> if diagonal moves are allowed.
+     */
+    private final boolean diagonal;
+
+    /**
+     * Bits of blocked tiles, one row after another.
+     */
+    private final long[] blocked;
+
+    /**
+     * Constructs new map with all tiles passable.
+     * @param width     the number of tile columns
+     * @param height    the number of tile rows
+     * @param diagonal  <tt>true</tt> to allow diagonal moves
+     * @throws IllegalArgumentException if the size is not positive or too large
+     */
+    public GridMap(final int width, final int height, final boolean diagonal) throws IllegalArgumentException {
+
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid map size: " + width + "x" + height + ".");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.diagonal = diagonal;
+        this.rowWords = (width + 63) >>> 6;
+        this.blocked = new long[rowWords * height];
+    }
+
+    /**
+     * Reads a map in the Moving AI Lab text format.
+     * @param file      the file to read
+     * @param diagonal  <tt>true</tt> to allow diagonal moves
+     * @return the map
+     * @throws IOException if the file cannot be read or is not a valid map
+     */
+    public static GridMap load(final File file, final boolean diagonal) throws IOException {
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.US_ASCII)) {
+
+            int width = -1;
+            int height = -1;
+            String line;
+
+            while ((line = reader.readLine()) != null && !line.trim().equals("map")) {
+
+                final String[] fields = line.trim().split("\\s+");
+
+                if (fields.length == 2 && fields[0].equals("width")) {
+                    width = Integer.parseInt(fields[1]);
+                } else if (fields.length == 2 && fields[0].equals("height")) {
+                    height = Integer.parseInt(fields[1]);
+                }
+            }
+
+            if (line == null || width <= 0 || height <= 0) {
+                throw new IOException("File " + file + " is not a valid map: missing header.");
+            }
+
+            final GridMap map = new GridMap(width, height, diagonal);
+
+            for (int y = 0; y < height; y++) {
+
+                line = reader.readLine();
+
+                if (line == null || line.length() < width) {
+                    throw new IOException("File " + file + " is not a valid map: row " + y + " is too short.");
+                }
+
+                for (int x = 0; x < width; x++) {
+
+                    final char tile = line.charAt(x);
+
+                    if (tile != '.' && tile != 'G' && tile != 'S') {
+                        map.blocked[y * map.rowWords + (x >>> 6)] |= 1L << x;
+                    }
+                }
+            }
+
+            return map;
+
+        } catch (NumberFormatException e) {
+            throw new IOException("File " + file + " is not a valid map: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getWidthInTiles() {
+        return width;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getHeightInTiles() {
+        return height;
+    }
+
+    /**
+     * Returns <tt>true</tt> if diagonal moves are allowed.
+     * @return <tt>true</tt> if diagonal moves are allowed
+     */
+    public boolean isDiagonal() {
+        return diagonal;
+    }
+
+    /**
+     * Returns <tt>true</tt> if specified tile is blocked.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return <tt>true</tt> if the tile is blocked
+     * @throws IndexOutOfBoundsException if the tile is out of the map bounds
+     */
+    public boolean isBlocked(final int x, final int y) throws IndexOutOfBoundsException {
+
+        if (!isValidLocation(x, y)) {
+            throw new IndexOutOfBoundsException("Tile with coordinates (" + x + ", " + y + ") is out of the map bounds.");
+        }
+
+        return (blocked[y * rowWords + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Blocks or unblocks specified tile.
+     * @param x         the X coordinate of the tile
+     * @param y         the Y coordinate of the tile
+     * @param blocked   <tt>true</tt> to block the tile
+     * @throws IndexOutOfBoundsException if the tile is out of the map bounds
+     */
+    public void setBlocked(final int x, final int y, final boolean blocked) throws IndexOutOfBoundsException {
+
+        if (isBlocked(x, y) == blocked) {
+            return;
+        }
+
+        this.blocked[y * rowWords + (x >>> 6)] ^= 1L << x;
+
+        fireTilesChanged(x, y, 1, 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean canMoveDiagonaly(final MovingEntity entity) {
+        return diagonal;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canMoveTo(final MovingEntity entity, final Point2D.Int target) {
+        return canMoveTo(entity, target.x, target.y);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canMoveTo(final MovingEntity entity, final int x, final int y) {
+        return isValidLocation(x, y) && (blocked[y * rowWords + (x >>> 6)] & (1L << x)) == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getCost(final MovingEntity entity, final Point2D.Int source, final Point2D.Int target) {
+        return source.x != target.x && source.y != target.y ? DIAGONAL_COST : 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,293 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.ArrayList;
+import net.krcko.math.Point2D;
+
+/**
+ * A hexagonal-tile based <code>Map</code>, addressed by axial coordinates.
+ * <p>
+ * A location <code>(q, r)</code> is stored in a <code>Point2D.Int</code> as
+ * <code>x = q</code> and <code>y = r</code>; the third cube coordinate is
+ * implied as <code>s = -q - r</code>. The map covers the parallelogram of
+ * tiles with <code>0 &lt;= q &lt; width</code> and <code>0 &lt;= r &lt; height</code>,
+ * stored in a flat array of tile values in row-major order.
+ * <p>
+ * Besides the generic <code>Map</code> interface, the map is an
+ * <code>IndexedGraph</code> whose node ids are the array indices, so it can be
+ * searched by <code>IndexedAStarPathFinder</code> without allocating objects.
+ * Subclasses define the meaning of tile values.
+ *
+ * @author Aleksandar Ružičić
+ */
+public abstract class HexMap extends Map<Point2D.Int> implements IndexedGraph<Point2D.Int> {
+
+    /**
+     * Q offsets of the six neighbors.
+     */
+    private static final int[] DQ = {1, 1, 0, -1, -1, 0};
+
+    /**
+     * R offsets of the six neighbors.
+     */
+    private static final int[] DR = {0, -1, -1, 0, 1, 1};
+
+    /**
+     * The number of tile columns.
+     */
+    private final int width;
+
+    /**
+     * The number of tile rows.
+     */
+    private final int height;
+
+    /**
+     * Tile values, in row-major order.
+     */
+    private final int[] tiles;
+
+    /**
+     * Array index offsets of the six neighbors.
+     */
+    private final int[] offsets;
+
+    /**
+     * Constructs new map with all tiles set to zero.
+     * @param width     the number of tile columns
+     * @param height    the number of tile rows
+     * @throws IllegalArgumentException if the size is negative or too large
+     */
+    public HexMap(final int width, final int height) throws IllegalArgumentException {
+
+        if (width < 0 || height < 0 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid map size: " + width + "x" + height + ".");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.tiles = new int[width * height];
+        this.offsets = new int[DQ.length];
+
+        for (int i = 0; i < DQ.length; i++) {
+            offsets[i] = DR[i] * width + DQ[i];
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if the entity can move onto a tile of specified value.
+     * @param entity    the entity to be moved
+     * @param tile      the tile value
+     * @return <tt>true</tt> if the tile is passable for the entity
+     */
+    protected abstract boolean isPassable(final MovingEntity entity, final int tile);
+
+    /**
+     * Returns the cost of moving the entity onto a tile of specified value.
+     * @param entity    the entity to be moved
+     * @param tile      the tile value
+     * @return the relative cost of entering the tile
+     */
+    protected abstract float getTileCost(final MovingEntity entity, final int tile);
+
+    /**
+     * Returns the distance between two hexes, in steps.
+     * @param q1    the Q coordinate of the first hex
+     * @param r1    the R coordinate of the first hex
+     * @param q2    the Q coordinate of the second hex
+     * @param r2    the R coordinate of the second hex
+     * @return the number of steps between the hexes
+     */
+    public static int distance(final int q1, final int r1, final int q2, final int r2) {
+
+        final int dq = q1 - q2;
+        final int dr = r1 - r2;
+
+        return (Math.abs(dq) + Math.abs(dr) + Math.abs(dq + dr)) / 2;
+    }
+
+    /**
+     * Returns number of tile columns in the map.
+     * @return number of columns
+     */
+    public int getWidthInTiles() {
+        return width;
+    }
+
+    /**
+     * Returns number of tile rows in the map.
+     * @return number of rows
+     */
+    public int getHeightInTiles() {
+        return height;
+    }
+
+    /**
+     * Returns <tt>true</tt> if specified location is within the map bounds.
+     * @param q the Q coordinate of the map location
+     * @param r the R coordinate of the map location
+     * @return  <tt>true</tt> if location is within the map bounds
+     */
+    public boolean isValidLocation(final int q, final int r) {
+        return q >= 0 && q < width && r >= 0 && r < height;
+    }
+
+    /**
+     * Returns the value of a tile.
+     * @param q the Q coordinate of the tile
+     * @param r the R coordinate of the tile
+     * @return the tile value
+     * @throws IndexOutOfBoundsException if the tile is out of the map bounds
+     */
+    public int getTile(final int q, final int r) throws IndexOutOfBoundsException {
+
+        if (!isValidLocation(q, r)) {
+            throw new IndexOutOfBoundsException("Tile with coordinates (" + q + ", " + r + ") is out of the map bounds.");
+        }
+
+        return tiles[r * width + q];
+    }
+
+    /**
+     * Sets the value of a tile.
+     * @param q     the Q coordinate of the tile
+     * @param r     the R coordinate of the tile
+     * @param value the tile value
+     * @throws IndexOutOfBoundsException if the tile is out of the map bounds
+     */
+    public void setTile(final int q, final int r, final int value) throws IndexOutOfBoundsException {
+
+        if (!isValidLocation(q, r)) {
+            throw new IndexOutOfBoundsException("Tile with coordinates (" + q + ", " + r + ") is out of the map bounds.");
+        }
+
+        tiles[r * width + q] = value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Point2D.Int[] getNeighbors(final Point2D.Int location, final MovingEntity entity) {
+
+        final ArrayList<Point2D.Int> neighbors = new ArrayList<>(DQ.length);
+
+        for (int i = 0; i < DQ.length; i++) {
+            if (isValidLocation(location.x + DQ[i], location.y + DR[i])) {
+                neighbors.add(new Point2D.Int(location.x + DQ[i], location.y + DR[i]));
+            }
+        }
+
+        return neighbors.toArray(new Point2D.Int[neighbors.size()]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canMoveTo(final MovingEntity entity, final Point2D.Int target) {
+        return isValidLocation(target.x, target.y) && isPassable(entity, tiles[target.y * width + target.x]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getCost(final MovingEntity entity, final Point2D.Int source, final Point2D.Int target) {
+
+        if (!isValidLocation(target.x, target.y)) {
+            throw new IndexOutOfBoundsException("Tile with coordinates (" + target.x + ", " + target.y + ") is out of the map bounds.");
+        }
+
+        return getTileCost(entity, tiles[target.y * width + target.x]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNodeCount() {
+        return tiles.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxDegree() {
+        return DQ.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNeighbors(final MovingEntity entity, final int node, final int[] neighbors, final float[] costs) {
+
+        final int q = node % width;
+        final int r = node / width;
+        // interior tiles skip the bounds checks
+        final boolean interior = q > 0 && q < width - 1 && r > 0 && r < height - 1;
+
+        int count = 0;
+
+        for (int i = 0; i < DQ.length; i++) {
+
+            if (!interior && !isValidLocation(q + DQ[i], r + DR[i])) {
+                continue;
+            }
+
+            final int neighbor = node + offsets[i];
+            final int tile = tiles[neighbor];
+
+            if (isPassable(entity, tile)) {
+                neighbors[count] = neighbor;
+                costs[count] = getTileCost(entity, tile);
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNode(final Point2D.Int location) {
+        return isValidLocation(location.x, location.y) ? location.y * width + location.x : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Point2D.Int getLocation(final int node) {
+        return new Point2D.Int(node % width, node / width);
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.Arrays;
+import net.krcko.util.IntPriorityQueue;
+
+/**
+ * Implements A* searching algorithm over an <code>IndexedGraph</code>.
+ * <p>
+ * All search state is kept in primitive arrays indexed by node id, allocated
+ * once for the size of the graph and reused by subsequent searches. Arrays are
+ * not cleared between searches; each node is stamped with the id of the search
+ * which last touched it instead, so starting a search costs nothing no matter
+ * how large the graph is.
+ * <p>
+ * A path finder must not be used by several threads at once.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class IndexedAStarPathFinder<T> extends PathFinder<T> {
+
+    /**
+     * The graph which is searched.
+     */
+    private IndexedGraph<T> graph;
+
+    /**
+     * A heuristic cost provider object.
+     */
+    private IndexedHeuristic heuristic;
+
+    /**
+     * The maximum number of nodes to expand before giving up.
+     */
+    private int maxExpansions = Integer.MAX_VALUE;
+
+    /**
+     * The number of nodes expanded by the last search.
+     */
+    private int expandedNodes;
+
+    /**
+     * The id of the current search.
+     */
+    private int searchId;
+
+    /**
+     * The id of the search which last reached each node.
+     */
+    private int[] stamps = new int[0];
+
+    /**
+     * The path cost of each node.
+     */
+    private float[] costs = new float[0];
+
+    /**
+     * The node which lead to each node.
+     */
+    private int[] parents = new int[0];
+
+    /**
+     * Nodes not yet fully searched.
+     */
+    private IntPriorityQueue open = new IntPriorityQueue(0);
+
+    /**
+     * Receives neighbors of the expanded node.
+     */
+    private int[] neighborBuffer = new int[0];
+
+    /**
+     * Receives move costs of the expanded node.
+     */
+    private float[] costBuffer = new float[0];
+
+    /**
+     * Constructs new path finder for specified map.
+     * @param map       the map object which will be searched for paths
+     * @param graph     the indexed form of the map, often the map itself
+     * @param heuristic the object providing search heuristic method
+     */
+    public IndexedAStarPathFinder(final Map<T> map, final IndexedGraph<T> graph, final IndexedHeuristic heuristic) {
+        super(map);
+        this.graph = graph;
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Returns the graph which is searched.
+     * @return the indexed form of the map
+     */
+    public IndexedGraph<T> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Sets the map object which will be searched for paths, together with its indexed form.
+     * @param map   the map object used for searching
+     * @param graph the indexed form of the map
+     */
+    public void setMap(final Map<T> map, final IndexedGraph<T> graph) {
+        setMap(map);
+        this.graph = graph;
+    }
+
+    /**
+     * Returns heuristic provider.
+     * @return  object providing search heuristic method
+     */
+    public IndexedHeuristic getHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * Sets heuristic provider.
+     * @param heuristic object providing search heuristic method
+     */
+    public void setHeuristic(final IndexedHeuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Returns the maximum number of nodes to expand before giving up.
+     * @return the maximum number of expansions
+     */
+    public int getMaxExpansions() {
+        return maxExpansions;
+    }
+
+    /**
+     * Sets the maximum number of nodes to expand before giving up.
+     * @param maxExpansions the maximum number of expansions
+     */
+    public void setMaxExpansions(final int maxExpansions) {
+        this.maxExpansions = maxExpansions;
+    }
+
+    /**
+     * Returns the number of nodes expanded by the last search.
+     * @return the number of expanded nodes
+     */
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Path<T> findPath(final MovingEntity entity, final T source, final T target) {
+
+        map.pathFinderStarted(source, target);
+
+        if (!map.canMoveTo(entity, target) || source.equals(target)) {
+            return null;
+        }
+
+        final int[] nodes = findPath(entity, graph.getNode(source), graph.getNode(target));
+
+        if (nodes == null) {
+            return null;
+        }
+
+        final Path<T> path = new Path<>(nodes.length);
+
+        for (int node: nodes) {
+            path.append(graph.getLocation(node));
+        }
+
+        return processPath(entity, source, path);
+    }
+
+    /**
+     * Finds path between two nodes of the graph.
+     * @param entity    entity which is about to move
+     * @param source    starting node
+     * @param target    ending node
+     * @return  ids of the nodes of the path, without the starting node, or <tt>null</tt> if no path can be found
+     */
+    public int[] findPath(final MovingEntity entity, final int source, final int target) {
+
+        if (source < 0 || target < 0 || source == target || !search(entity, source, target)) {
+            return null;
+        }
+
+        int length = 0;
+
+        for (int node = target; node != source; node = parents[node]) {
+            length++;
+        }
+
+        final int[] nodes = new int[length];
+
+        for (int node = target, i = length - 1; i >= 0; node = parents[node], i--) {
+            nodes[i] = node;
+        }
+
+        return nodes;
+    }
+
+    /**
+     * Returns the path cost of a node reached by the last search.
+     * @param node  the node id
+     * @return the path cost, or positive infinity if the node was not reached
+     */
+    public float getCost(final int node) {
+        return stamps[node] == searchId ? costs[node] : Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Runs the search between two nodes of the graph.
+     * @param entity    entity which is about to move
+     * @param source    starting node
+     * @param target    ending node
+     * @return <tt>true</tt> if the target was reached
+     */
+    protected boolean search(final MovingEntity entity, final int source, final int target) {
+
+        prepare();
+
+        final int[] neighbors = neighborBuffer;
+        final float[] moveCosts = costBuffer;
+
+        stamps[source] = searchId;
+        costs[source] = 0;
+        parents[source] = -1;
+        open.offer(source, heuristic.getHeuristicCost(graph, entity, source, target));
+
+        while (!open.isEmpty()) {
+
+            final int node = open.poll();
+
+            if (node == target) {
+                return true;
+            }
+
+            if (expandedNodes++ >= maxExpansions) {
+                return false;
+            }
+
+            nodeExpanded(node);
+
+            final int count = graph.getNeighbors(entity, node, neighbors, moveCosts);
+
+            for (int i = 0; i < count; i++) {
+
+                final int neighbor = neighbors[i];
+                final float cost = costs[node] + moveCosts[i];
+
+                if (stamps[neighbor] != searchId || cost < costs[neighbor]) {
+                    stamps[neighbor] = searchId;
+                    costs[neighbor] = cost;
+                    parents[neighbor] = node;
+                    open.offer(neighbor, cost + heuristic.getHeuristicCost(graph, entity, neighbor, target));
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Called by <code>search</code> when a node is about to be expanded, its
+     * cost being the one of <code>getCost</code>. The default implementation
+     * does nothing, subclasses can use it to learn from searches.
+     * @param node  the node id
+     */
+    protected void nodeExpanded(final int node) {
+    }
+
+    /**
+     * Prepares search state for a new search, growing the arrays if the graph has grown.
+     */
+    private void prepare() {
+
+        final int nodes = graph.getNodeCount();
+
+        if (stamps.length < nodes) {
+            stamps = new int[nodes];
+            costs = new float[nodes];
+            parents = new int[nodes];
+            open = new IntPriorityQueue(nodes);
+            searchId = 0;
+        }
+
+        if (neighborBuffer.length < graph.getMaxDegree()) {
+            neighborBuffer = new int[graph.getMaxDegree()];
+            costBuffer = new float[graph.getMaxDegree()];
+        }
+
+        if (++searchId == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            searchId = 1;
+        }
+
+        open.clear();
+        expandedNodes = 0;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+/**
+ * Defines a map whose locations are numbered densely from zero, so it can be
+ * searched by <code>IndexedAStarPathFinder</code> using primitive arrays
+ * instead of node objects and hash maps.
+ *
+ * @author Aleksandar Ružičić
+ */
+public interface IndexedGraph<T> {
+
+    /**
+     * Returns the number of nodes of the graph.
+     * @return the number of nodes, node ids are between <tt>0</tt> and this value
+     */
+    public int getNodeCount();
+
+    /**
+     * Returns the largest number of neighbors of any node.
+     * @return the maximum node degree
+     */
+    public int getMaxDegree();
+
+    /**
+     * Returns neighbors of a node to which the entity can move, with the cost of each move.
+     * @param entity    the entity which is about to move
+     * @param node      the node whose neighbors to return
+     * @param neighbors receives the ids of the neighbors, must hold at least <code>getMaxDegree()</code> elements
+     * @param costs     receives the cost of moving to each neighbor, must hold at least <code>getMaxDegree()</code> elements
+     * @return the number of neighbors written
+     */
+    public int getNeighbors(final MovingEntity entity, final int node, final int[] neighbors, final float[] costs);
+
+    /**
+     * Returns the id of the node at specified location.
+     * @param location  the location on the map
+     * @return the node id, or <tt>-1</tt> if the location is not a node of the graph
+     */
+    public int getNode(final T location);
+
+    /**
+     * Returns the location of specified node.
+     * @param node  the node id
+     * @return the location on the map
+     */
+    public T getLocation(final int node);
+}
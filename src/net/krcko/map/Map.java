@@ -58,6 +58,15 @@ public abstract class Map<T> {
      */
     public abstract float getCost(final MovingEntity entity, final T source, final T target);
 
+    /**
+     * Called by <code>PathFinder</code> when a new search is about to start.
+     * Maps which keep per-search statistics can reset them here.
+     * @param source    the starting point on the map
+     * @param target    the ending point on the map, or <tt>null</tt> if the search has several targets
+     */
+    public void pathFinderStarted(final T source, final T target) {
+    }
+
     /**
      * Called by <code>PathFinder</code> when specified point on the map is traversed.
      * This can be useful for testing and debugging purposes.
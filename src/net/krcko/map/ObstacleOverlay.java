@@ -0,0 +1,429 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.Arrays;
+import net.krcko.math.Point2D;
+
+/**
+ * A <code>TileMap</code> which adds dynamic obstacles, such as moving units
+ * or closed doors, on top of a static map without changing it.
+ * <p>
+ * Obstacles are kept in a sparse open-addressing hash table of tile
+ * coordinates, so adding, moving and removing one costs (almost) constant time
+ * and a map without obstacles costs a single check per tile. Each obstacle has
+ * an owner, and entities can ignore obstacles: by default an entity ignores
+ * obstacles it owns itself, subclasses can change that by overriding
+ * <code>ignores</code>.
+ * <p>
+ * Obstacle changes are reported to listeners of the overlay only, the wrapped
+ * map does not change, so indices built on the wrapped map (such as
+ * <code>ConnectivityIndex</code> or <code>ClearanceIndex</code>) stay valid.
+ * Obstacles only ever block tiles, so such indices remain safe to use for the
+ * overlay as an optimistic approximation.
+ * <p>
+ * The overlay is not synchronized, obstacles should not be changed while a
+ * search on the overlay is in progress.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class ObstacleOverlay extends DelegatingTileMap {
+
+    /**
+     * The key of empty hash table entries.
+     */
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    /**
+     * Packed tile coordinates of obstacles, or <code>EMPTY</code>.
+     */
+    private long[] keys = newKeys(16);
+
+    /**
+     * Owners of obstacles, parallel to keys.
+     */
+    private Object[] owners = new Object[16];
+
+    /**
+     * The number of obstacles.
+     */
+    private int size;
+
+    /**
+     * Constructs new overlay without obstacles.
+     * @param map   the static map
+     */
+    public ObstacleOverlay(final TileMap map) {
+        super(map);
+    }
+
+    /**
+     * Returns <tt>true</tt> if the entity ignores obstacles of specified owner.
+     * The default implementation ignores only obstacles owned by the entity itself.
+     * @param entity    the entity which is about to move, might be <tt>null</tt>
+     * @param owner     the owner of the obstacle, might be <tt>null</tt>
+     * @return <tt>true</tt> if the obstacle does not block the entity
+     */
+    protected boolean ignores(final MovingEntity entity, final Object owner) {
+        return entity != null && entity == owner;
+    }
+
+    /**
+     * Returns the number of obstacles.
+     * @return the number of blocked tiles
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Places an obstacle on a tile, replacing the obstacle already there.
+     * @param x     the X coordinate of the tile
+     * @param y     the Y coordinate of the tile
+     * @param owner the owner of the obstacle, might be <tt>null</tt>
+     * @return the owner of the replaced obstacle, or <tt>null</tt>
+     * @throws IndexOutOfBoundsException if the tile is out of the map bounds
+     */
+    public Object add(final int x, final int y, final Object owner) throws IndexOutOfBoundsException {
+
+        if (!isValidLocation(x, y)) {
+            throw new IndexOutOfBoundsException("Tile with coordinates (" + x + ", " + y + ") is out of the map bounds.");
+        }
+
+        if (2 * (size + 1) > keys.length) {
+            resize(keys.length * 2);
+        }
+
+        final long key = key(x, y);
+        final int mask = keys.length - 1;
+
+        int i = hash(key) & mask;
+
+        for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+
+                final Object previous = owners[i];
+
+                owners[i] = owner;
+
+                if (previous != owner) {
+                    fireTilesChanged(x, y, 1, 1);
+                }
+
+                return previous;
+            }
+        }
+
+        keys[i] = key;
+        owners[i] = owner;
+        size++;
+
+        fireTilesChanged(x, y, 1, 1);
+
+        return null;
+    }
+
+    /**
+     * Removes the obstacle from a tile.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return <tt>true</tt> if there was an obstacle on the tile
+     */
+    public boolean remove(final int x, final int y) {
+
+        final int i = find(x, y);
+
+        if (i < 0) {
+            return false;
+        }
+
+        delete(i);
+        fireTilesChanged(x, y, 1, 1);
+
+        return true;
+    }
+
+    /**
+     * Moves an obstacle from one tile to another, reporting both tiles as a single change.
+     * @param fromX the X coordinate of the tile the obstacle is on
+     * @param fromY the Y coordinate of the tile the obstacle is on
+     * @param toX   the X coordinate of the tile to move the obstacle to
+     * @param toY   the Y coordinate of the tile to move the obstacle to
+     * @return <tt>true</tt> if there was an obstacle to move
+     * @throws IndexOutOfBoundsException if the target tile is out of the map bounds
+     */
+    public boolean move(final int fromX, final int fromY, final int toX, final int toY) throws IndexOutOfBoundsException {
+
+        if (!isValidLocation(toX, toY)) {
+            throw new IndexOutOfBoundsException("Tile with coordinates (" + toX + ", " + toY + ") is out of the map bounds.");
+        }
+
+        final int i = find(fromX, fromY);
+
+        if (i < 0) {
+            return false;
+        }
+
+        final Object owner = owners[i];
+
+        beginBatch();
+
+        try {
+            remove(fromX, fromY);
+            add(toX, toY, owner);
+        } finally {
+            endBatch();
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes all obstacles of specified owner.
+     * @param owner the owner of obstacles to remove, might be <tt>null</tt>
+     * @return the number of removed obstacles
+     */
+    public int removeAll(final Object owner) {
+
+        int removed = 0;
+
+        beginBatch();
+
+        try {
+
+            int i = 0;
+
+            while (i < keys.length) {
+                if (keys[i] != EMPTY && owners[i] == owner) {
+                    fireTilesChanged((int) (keys[i] >> 32), (int) keys[i], 1, 1);
+                    delete(i);
+                    removed++;
+                } else {
+                    i++;
+                }
+            }
+
+        } finally {
+            endBatch();
+        }
+
+        return removed;
+    }
+
+    /**
+     * Removes all obstacles.
+     */
+    public void clear() {
+
+        if (size == 0) {
+            return;
+        }
+
+        beginBatch();
+
+        try {
+
+            for (long key: keys) {
+                if (key != EMPTY) {
+                    fireTilesChanged((int) (key >> 32), (int) key, 1, 1);
+                }
+            }
+
+            Arrays.fill(keys, EMPTY);
+            Arrays.fill(owners, null);
+            size = 0;
+
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if there is an obstacle on a tile.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return <tt>true</tt> if the tile is occupied by an obstacle
+     */
+    public boolean contains(final int x, final int y) {
+        return size > 0 && find(x, y) >= 0;
+    }
+
+    /**
+     * Returns the owner of the obstacle on a tile.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return the owner of the obstacle, or <tt>null</tt> if there is none or it has no owner
+     */
+    public Object getOwner(final int x, final int y) {
+        final int i = size == 0 ? -1 : find(x, y);
+        return i < 0 ? null : owners[i];
+    }
+
+    /**
+     * Returns <tt>true</tt> if an obstacle blocks the entity on a tile, regardless of the static map.
+     * @param entity    the entity which is about to move
+     * @param x         the X coordinate of the tile
+     * @param y         the Y coordinate of the tile
+     * @return <tt>true</tt> if the tile is blocked by an obstacle the entity does not ignore
+     */
+    public boolean isBlocked(final MovingEntity entity, final int x, final int y) {
+
+        if (size == 0) {
+            return false;
+        }
+
+        final int i = find(x, y);
+
+        return i >= 0 && !ignores(entity, owners[i]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canMoveTo(final MovingEntity entity, final Point2D.Int target) {
+        return !isBlocked(entity, target.x, target.y) && super.canMoveTo(entity, target);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canMoveTo(final MovingEntity entity, final int x, final int y) {
+        return !isBlocked(entity, x, y) && super.canMoveTo(entity, x, y);
+    }
+
+    /**
+     * Returns the position of the obstacle on a tile.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return the position in the hash table, or -1
+     */
+    private int find(final int x, final int y) {
+
+        final long key = key(x, y);
+        final int mask = keys.length - 1;
+
+        for (int i = hash(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Deletes the entry at specified position, shifting back entries of its probe sequence.
+     * @param position  the position of the entry
+     */
+    private void delete(final int position) {
+
+        final int mask = keys.length - 1;
+
+        int hole = position;
+        int i = (position + 1) & mask;
+
+        for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+
+            final int home = hash(keys[i]) & mask;
+
+            // move the entry into the hole unless its home lies cyclically within (hole, i]
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                owners[hole] = owners[i];
+                hole = i;
+            }
+        }
+
+        keys[hole] = EMPTY;
+        owners[hole] = null;
+        size--;
+    }
+
+    /**
+     * Rehashes all entries into tables of specified capacity.
+     * @param capacity  the new capacity, a power of two
+     */
+    private void resize(final int capacity) {
+
+        final long[] oldKeys = keys;
+        final Object[] oldOwners = owners;
+
+        keys = newKeys(capacity);
+        owners = new Object[capacity];
+
+        final int mask = capacity - 1;
+
+        for (int j = 0; j < oldKeys.length; j++) {
+
+            if (oldKeys[j] == EMPTY) {
+                continue;
+            }
+
+            int i = hash(oldKeys[j]) & mask;
+
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+
+            keys[i] = oldKeys[j];
+            owners[i] = oldOwners[j];
+        }
+    }
+
+    /**
+     * Allocates an empty key array.
+     * @param capacity  the capacity of the array
+     * @return the key array
+     */
+    private static long[] newKeys(final int capacity) {
+        final long[] keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+
+    /**
+     * Packs tile coordinates into a hash key.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return the packed key
+     */
+    private static long key(final int x, final int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    /**
+     * Returns well-mixed hash of the packed tile coordinates.
+     * @param key   the packed tile coordinates
+     * @return the hash value
+     */
+    private static int hash(final long key) {
+        final long h = key * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,685 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import net.krcko.util.MpscQueue;
+
+/**
+ * Implements PathFinder using Hash Distributed A* (HDA*), which spreads a
+ * single search over several worker threads.
+ * <p>
+ * Each location is owned by one worker, chosen by the hash of the location.
+ * A worker keeps its own open list and best known costs of the locations it
+ * owns; when it reaches a location owned by another worker, it sends the node
+ * to the owner trough a lock-free queue. The first path to the target becomes
+ * the incumbent solution, and the search goes on until no worker has a node
+ * which could lead to a cheaper path, so the path is optimal whenever the
+ * heuristic is admissible.
+ * <p>
+ * The search ends when a single counter of busy workers and nodes in flight
+ * drops to zero. A worker counts itself while it has nodes worth expanding,
+ * every sent node is counted until the owner takes it over, and a worker which
+ * was idle takes over the count of the node it received, so the counter can
+ * never drop to zero while some work remains.
+ * <p>
+ * The calling thread runs the first worker, and the other workers run on the
+ * executor, which must be able to run all of them at the same time. The map
+ * and the heuristic must support concurrent use, and the map does not get
+ * <code>pathFinderTraversed</code> notifications.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class ParallelAStarPathFinder<T> extends PathFinder<T> {
+
+    /**
+     * A heuristic cost provider object.
+     */
+    private Heuristic<T> heuristic;
+
+    /**
+     * The executor running all workers but the first, or <tt>null</tt>.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The number of workers.
+     */
+    private final int workers;
+
+    /**
+     * The maximum number of nodes expanded by a search.
+     */
+    private int maxExpansions = Integer.MAX_VALUE;
+
+    /**
+     * The number of nodes expanded by the last search.
+     */
+    private int expandedNodes;
+
+    /**
+     * The number of nodes sent between workers by the last search.
+     */
+    private long transferredNodes;
+
+    /**
+     * Constructs new path finder searching on the calling thread only.
+     * @param map       the map object which will be searched for paths
+     * @param heuristic the object providing search heuristic method
+     */
+    public ParallelAStarPathFinder(final Map<T> map, final Heuristic<T> heuristic) {
+        this(map, heuristic, null, 1);
+    }
+
+    /**
+     * Constructs new path finder.
+     * @param map       the map object which will be searched for paths
+     * @param heuristic the object providing search heuristic method
+     * @param executor  the executor running all workers but the first, able to run <code>workers - 1</code> tasks at once
+     * @param workers   the number of workers
+     * @throws IllegalArgumentException if there are no workers, or several workers but no executor
+     */
+    public ParallelAStarPathFinder(final Map<T> map, final Heuristic<T> heuristic, final ExecutorService executor, final int workers) throws IllegalArgumentException {
+
+        super(map);
+
+        if (workers < 1 || (workers > 1 && executor == null)) {
+            throw new IllegalArgumentException("At least one worker is required, and an executor is required for more.");
+        }
+
+        this.heuristic = heuristic;
+        this.executor = executor;
+        this.workers = workers;
+    }
+
+    /**
+     * Returns the heuristic cost provider object.
+     * @return the heuristic
+     */
+    public Heuristic<T> getHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * Sets the heuristic cost provider object.
+     * @param heuristic the heuristic
+     */
+    public void setHeuristic(final Heuristic<T> heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Returns the number of workers.
+     * @return the number of workers
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Returns the maximum number of nodes expanded by a search.
+     * @return the maximum number of expanded nodes
+     */
+    public int getMaxExpansions() {
+        return maxExpansions;
+    }
+
+    /**
+     * Sets the maximum number of nodes expanded by a search, by all workers together.
+     * <p>
+     * If the budget runs out after a worker already reached the target, the
+     * cheapest path found so far is returned. It is a valid path, but it is not
+     * proven to be the shortest one.
+     * @param maxExpansions the maximum number of expanded nodes
+     */
+    public void setMaxExpansions(final int maxExpansions) {
+        this.maxExpansions = maxExpansions;
+    }
+
+    /**
+     * Returns the number of nodes expanded by the last search.
+     * @return the number of expanded nodes
+     */
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * Returns the number of nodes sent between workers by the last search.
+     * @return the number of transferred nodes
+     */
+    public long getTransferredNodes() {
+        return transferredNodes;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * An unchecked exception thrown by the map or the heuristic on any worker
+     * aborts the search and is rethrown to the caller.
+     * @throws IllegalStateException if the search is interrupted
+     */
+    @Override
+    public Path<T> findPath(final MovingEntity entity, final T source, final T target) throws IllegalStateException {
+
+        map.pathFinderStarted(source, target);
+
+        if (!map.canMoveTo(entity, target) || source.equals(target)) {
+            return null;
+        }
+
+        final Search search = new Search(entity, target);
+
+        SearchNode<T> node = search.run(source);
+
+        expandedNodes = search.expanded.get();
+        transferredNodes = 0;
+
+        for (Search.Worker worker: search.team) {
+            transferredNodes += worker.transferred;
+        }
+
+        if (node == null) {
+            return null;
+        }
+
+        final Path<T> path = new Path<>(node.depth);
+
+        for (; node.parent != null; node = node.parent) {
+            path.append(node.coordinate);
+        }
+
+        path.reverse();
+
+        return processPath(entity, source, path);
+    }
+
+    /**
+     * Returns well-mixed hash of a location.
+     * @param location  the location to hash
+     * @return the hash value
+     */
+    private static int hash(final Object location) {
+
+        int h = location.hashCode();
+
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+
+        return h & Integer.MAX_VALUE;
+    }
+
+    /**
+     * State shared by the workers of a single search.
+     */
+    private final class Search {
+
+        /**
+         * The entity which is about to move.
+         */
+        final MovingEntity entity;
+
+        /**
+         * The ending point.
+         */
+        final T target;
+
+        /**
+         * The workers of the search.
+         */
+        final List<Worker> team;
+
+        /**
+         * The number of workers with nodes worth expanding plus the number of nodes in flight.
+         */
+        final AtomicLong work = new AtomicLong();
+
+        /**
+         * The bits of the cost of the incumbent solution.
+         */
+        final AtomicInteger incumbentCost = new AtomicInteger(Float.floatToIntBits(Float.POSITIVE_INFINITY));
+
+        /**
+         * The node of the target on the incumbent solution, or <tt>null</tt>.
+         */
+        final AtomicReference<SearchNode<T>> incumbent = new AtomicReference<>();
+
+        /**
+         * The number of expanded nodes.
+         */
+        final AtomicInteger expanded = new AtomicInteger();
+
+        /**
+         * <tt>true</tt> once the search is abandoned.
+         */
+        volatile boolean aborted;
+
+        /**
+         * Constructs new search.
+         * @param entity    the entity which is about to move
+         * @param target    the ending point
+         */
+        Search(final MovingEntity entity, final T target) {
+
+            this.entity = entity;
+            this.target = target;
+            this.team = new ArrayList<>(workers);
+
+            for (int i = 0; i < workers; i++) {
+                team.add(new Worker(i));
+            }
+        }
+
+        /**
+         * Runs the search.
+         * @param source    the starting point
+         * @return the node of the target on the cheapest path, or on the cheapest path found
+         *          before the expansion budget ran out, or <tt>null</tt> if no path was found
+         * @throws IllegalStateException if the search is interrupted, or a worker fails with a checked exception
+         */
+        SearchNode<T> run(final T source) throws IllegalStateException {
+
+            work.set(1);
+            team.get(hash(source) % team.size()).inbox.offer(new SearchNode<T>(source, null, 0, heuristic.getHeuristicCost(map, entity, source, target)));
+
+            final List<Future<Void>> futures = new ArrayList<>(team.size() - 1);
+
+            Throwable failure = null;
+            boolean interrupted = false;
+
+            try {
+
+                for (int i = 1; i < team.size(); i++) {
+                    futures.add(executor.submit(team.get(i)));
+                }
+
+                team.get(0).call();
+
+            } catch (RuntimeException | Error e) {
+                aborted = true;
+                failure = e;
+            }
+
+            // wait for all workers, so none of them outlives the search
+            for (Future<Void> future: futures) {
+                while (true) {
+                    try {
+                        future.get();
+                        break;
+                    } catch (ExecutionException e) {
+                        aborted = true;
+                        failure = failure == null ? e.getCause() : failure;
+                        break;
+                    } catch (InterruptedException e) {
+                        aborted = true;
+                        interrupted = true;
+                        failure = failure == null ? e : failure;
+                    }
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+
+            if (failure != null) {
+                throw new IllegalStateException(failure);
+            }
+
+            // without a failure only the expansion budget aborts, and a path found by then is still valid
+            return incumbent.get();
+        }
+
+        /**
+         * Returns the cost of the incumbent solution.
+         * @return the cost, or positive infinity if no path was found yet
+         */
+        float getIncumbentCost() {
+            return Float.intBitsToFloat(incumbentCost.get());
+        }
+
+        /**
+         * Makes a node of the target the incumbent solution if its path is cheaper.
+         * @param node  the node of the target
+         */
+        void offerSolution(final SearchNode<T> node) {
+
+            while (true) {
+
+                final int bits = incumbentCost.get();
+
+                // costs are never negative, so their bits order like the costs themselves
+                if (Float.floatToIntBits(node.cost) >= bits) {
+                    return;
+                }
+
+                if (incumbentCost.compareAndSet(bits, Float.floatToIntBits(node.cost))) {
+                    incumbent.set(node);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * A worker expanding the locations of a single hash partition.
+         */
+        final class Worker implements Callable<Void> {
+
+            /**
+             * The index of this worker.
+             */
+            final int index;
+
+            /**
+             * Nodes sent to this worker by others.
+             */
+            final MpscQueue<SearchNode<T>> inbox = new MpscQueue<>();
+
+            /**
+             * Nodes not yet expanded.
+             */
+            final PriorityQueue<SearchNode<T>> open = new PriorityQueue<>();
+
+            /**
+             * The best known node of each owned location.
+             */
+            final HashMap<T, SearchNode<T>> best = new HashMap<>();
+
+            /**
+             * Nodes to be sent to other workers by the current expansion.
+             */
+            final ArrayList<SearchNode<T>> outgoing = new ArrayList<>();
+
+            /**
+             * Owners of the outgoing nodes.
+             */
+            final ArrayList<Worker> recipients = new ArrayList<>();
+
+            /**
+             * <tt>true</tt> while this worker counts itself as busy.
+             */
+            boolean busy;
+
+            /**
+             * The number of nodes sent to other workers.
+             */
+            long transferred;
+
+            /**
+             * Constructs new worker.
+             * @param index the index of the worker
+             */
+            Worker(final int index) {
+                this.index = index;
+            }
+
+            /**
+             * Runs the worker until the search ends. A failure of the worker
+             * aborts the whole search, so other workers don't wait for it forever.
+             * @return nothing
+             */
+            @Override
+            public Void call() {
+
+                try {
+                    work();
+                } catch (RuntimeException | Error e) {
+                    aborted = true;
+                    throw e;
+                }
+
+                return null;
+            }
+
+            /**
+             * Expands nodes until the search ends.
+             */
+            void work() {
+
+                while (!aborted) {
+
+                    SearchNode<T> received;
+                    long count = 0;
+
+                    while ((received = inbox.poll()) != null) {
+                        add(received);
+                        count++;
+                    }
+
+                    if (count > 0) {
+
+                        // an idle worker takes over the count of one received node
+                        if (!busy) {
+                            busy = true;
+                            count--;
+                        }
+
+                        if (count > 0) {
+                            work.addAndGet(-count);
+                        }
+                    }
+
+                    if (busy) {
+
+                        final SearchNode<T> node = next();
+
+                        if (node != null) {
+                            expand(node);
+                        } else {
+                            busy = false;
+                            work.decrementAndGet();
+                        }
+
+                    } else if (work.get() == 0) {
+                        break;
+                    } else {
+                        Thread.yield();
+                    }
+                }
+            }
+
+            /**
+             * Adds a node to the open list, unless it is no better than a known node of its location.
+             * @param node  the node to add
+             */
+            void add(final SearchNode<T> node) {
+
+                if (node.total >= getIncumbentCost()) {
+                    return;
+                }
+
+                final SearchNode<T> known = best.get(node.coordinate);
+
+                if (known == null || node.cost < known.cost) {
+                    best.put(node.coordinate, node);
+                    open.add(node);
+                }
+            }
+
+            /**
+             * Removes the next node worth expanding from the open list.
+             * @return the next node, or <tt>null</tt> if no node could lead to a better solution
+             */
+            SearchNode<T> next() {
+
+                final float bound = getIncumbentCost();
+
+                SearchNode<T> node;
+
+                while ((node = open.poll()) != null) {
+
+                    if (node.total >= bound) {
+                        open.clear();
+                        return null;
+                    }
+
+                    // skip nodes superseded by a cheaper path to their location
+                    if (best.get(node.coordinate) == node) {
+                        return node;
+                    }
+                }
+
+                return null;
+            }
+
+            /**
+             * Expands a node, adding its neighbors to the open lists of their owners.
+             * @param node  the node to expand
+             */
+            void expand(final SearchNode<T> node) {
+
+                if (expanded.incrementAndGet() > maxExpansions) {
+                    aborted = true;
+                    return;
+                }
+
+                if (node.coordinate.equals(target)) {
+                    offerSolution(node);
+                    return;
+                }
+
+                for (T neighbour: map.getNeighbors(node.coordinate, entity)) {
+
+                    if (!map.canMoveTo(entity, neighbour)) {
+                        continue;
+                    }
+
+                    final float cost = node.cost + map.getCost(entity, node.coordinate, neighbour);
+                    final float total = cost + heuristic.getHeuristicCost(map, entity, neighbour, target);
+
+                    if (total >= getIncumbentCost()) {
+                        continue;
+                    }
+
+                    final SearchNode<T> child = new SearchNode<>(neighbour, node, cost, total);
+                    final int owner = hash(neighbour) % team.size();
+
+                    if (owner == index) {
+                        add(child);
+                    } else {
+                        outgoing.add(child);
+                        recipients.add(team.get(owner));
+                    }
+                }
+
+                if (!outgoing.isEmpty()) {
+
+                    // count the nodes before any of them can be received
+                    work.addAndGet(outgoing.size());
+                    transferred += outgoing.size();
+
+                    for (int i = 0; i < outgoing.size(); i++) {
+                        recipients.get(i).inbox.offer(outgoing.get(i));
+                    }
+
+                    outgoing.clear();
+                    recipients.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * An immutable node of the search, safely shared between workers.
+     */
+    private static final class SearchNode<T> implements Comparable<SearchNode<T>> {
+
+        /**
+         * The location of the node.
+         */
+        final T coordinate;
+
+        /**
+         * The node this one was reached from, or <tt>null</tt> for the starting node.
+         */
+        final SearchNode<T> parent;
+
+        /**
+         * The cost of the path to this node.
+         */
+        final float cost;
+
+        /**
+         * The cost of the path plus the heuristic cost to the target.
+         */
+        final float total;
+
+        /**
+         * The number of steps from the starting node.
+         */
+        final int depth;
+
+        /**
+         * Constructs new node.
+         * @param coordinate    the location of the node
+         * @param parent        the node this one was reached from, or <tt>null</tt>
+         * @param cost          the cost of the path to this node
+         * @param total         the cost of the path plus the heuristic cost
+         */
+        SearchNode(final T coordinate, final SearchNode<T> parent, final float cost, final float total) {
+            this.coordinate = coordinate;
+            this.parent = parent;
+            this.cost = cost;
+            this.total = total;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
+
+        /**
+         * Orders nodes by total cost, preferring deeper nodes on ties.
+         * @param other the node to compare to
+         * @return the comparison result
+         */
+        @Override
+        public int compareTo(final SearchNode<T> other) {
+
+            final int result = Float.compare(total, other.total);
+
+            return result != 0 ? result : Float.compare(other.cost, cost);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,576 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+/**
+ * A bit-packed passability layer of a <code>TileMap</code>, storing 64 tiles
+ * per <code>long</code>.
+ * <p>
+ * Blocked tiles are stored twice, once in row-major and once in column-major
+ * order, so both horizontal and vertical scans can test 64 tiles at once.
+ * Passability is evaluated for one entity (which represents its movement
+ * class) using <code>TileMap.canMoveTo</code>. The bitboard registers itself
+ * as a <code>TileMapListener</code> and stays in sync with tile edits until it
+ * is detached from the map.
+ * <p>
+ * Bits past the map edge are marked as blocked, so scans stop at the map
+ * boundary without additional bounds checks.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class PassabilityBitboard implements TileMapListener {
+
+    /**
+     * The map this bitboard represents.
+     */
+    private final TileMap map;
+
+    /**
+     * The entity for which passability is evaluated.
+     */
+    private final MovingEntity entity;
+
+    /**
+     * The number of tile columns.
+     */
+    private int width;
+
+    /**
+     * The number of tile rows.
+     */
+    private int height;
+
+    /**
+     * The number of words in a single row.
+     */
+    private int rowWords;
+
+    /**
+     * The number of words in a single column.
+     */
+    private int columnWords;
+
+    /**
+     * Blocked tiles in row-major order.
+     */
+    private long[] rows;
+
+    /**
+     * Blocked tiles in column-major order.
+     */
+    private long[] columns;
+
+    /**
+     * Constructs new bitboard for specified map and registers it as a map listener.
+     * @param map       the map to represent
+     * @param entity    the entity for which passability is evaluated
+     * @throws IllegalArgumentException if the map is too big to be represented
+     */
+    public PassabilityBitboard(final TileMap map, final MovingEntity entity) throws IllegalArgumentException {
+        this.map = map;
+        this.entity = entity;
+        rebuild();
+        map.addTileMapListener(this);
+    }
+
+    /**
+     * Returns the map this bitboard represents.
+     * @return the represented map
+     */
+    public TileMap getMap() {
+        return map;
+    }
+
+    /**
+     * Returns the entity for which passability is evaluated.
+     * @return the entity representing the movement class
+     */
+    public MovingEntity getEntity() {
+        return entity;
+    }
+
+    /**
+     * Returns the number of tile columns.
+     * @return number of columns
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of tile rows.
+     * @return number of rows
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the number of <code>long</code> words in a single row.
+     * @return number of words per row
+     */
+    public int getRowWords() {
+        return rowWords;
+    }
+
+    /**
+     * Returns the number of bytes used by the bit-packed tile data.
+     * @return the memory usage in bytes
+     */
+    public long getMemoryUsage() {
+        return 8L * (rows.length + columns.length);
+    }
+
+    /**
+     * Stops keeping this bitboard in sync with the map.
+     */
+    public void detach() {
+        map.removeTileMapListener(this);
+    }
+
+    /**
+     * Rebuilds the whole bitboard from the map.
+     * @throws IllegalArgumentException if the map is too big to be represented
+     */
+    public final void rebuild() throws IllegalArgumentException {
+
+        width = map.getWidthInTiles();
+        height = map.getHeightInTiles();
+        rowWords = (width + 63) >>> 6;
+        columnWords = (height + 63) >>> 6;
+
+        if ((long) rowWords * height > Integer.MAX_VALUE || (long) columnWords * width > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Map is too big to be represented by a bitboard.");
+        }
+
+        rows = new long[rowWords * height];
+        columns = new long[columnWords * width];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (!map.canMoveTo(entity, x, y)) {
+                    setBlocked(x, y, true);
+                }
+            }
+        }
+
+        final long rowPadding = width % 64 == 0 ? 0 : -1L << (width % 64);
+        final long columnPadding = height % 64 == 0 ? 0 : -1L << (height % 64);
+
+        for (int y = 0; y < height; y++) {
+            rows[y * rowWords + rowWords - 1] |= rowPadding;
+        }
+
+        for (int x = 0; x < width; x++) {
+            columns[x * columnWords + columnWords - 1] |= columnPadding;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void tilesChanged(final TileMap map, final int x, final int y, final int width, final int height) {
+
+        if (map.getWidthInTiles() != this.width || map.getHeightInTiles() != this.height) {
+            rebuild();
+            return;
+        }
+
+        final int toX = Math.min(x + width, this.width);
+        final int toY = Math.min(y + height, this.height);
+
+        for (int j = Math.max(y, 0); j < toY; j++) {
+            for (int i = Math.max(x, 0); i < toX; i++) {
+                setBlocked(i, j, !map.canMoveTo(entity, i, j));
+            }
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if specified tile is blocked or out of the map bounds.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return <tt>true</tt> if the tile is blocked
+     */
+    public boolean isBlocked(final int x, final int y) {
+
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return true;
+        }
+
+        return (rows[y * rowWords + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Returns the X coordinate of the first blocked tile in the row at or after
+     * the specified column. A row out of the map bounds is entirely blocked.
+     * @param x the X coordinate to start scanning at
+     * @param y the Y coordinate of the row
+     * @return the X coordinate of the next obstacle, or the map width if there is none
+     */
+    public int nextObstacleInRow(final int x, final int y) {
+
+        if (y < 0 || y >= height) {
+            return Math.min(Math.max(x, 0), width);
+        }
+
+        return nextBit(rows, y * rowWords, rowWords, Math.max(x, 0), width);
+    }
+
+    /**
+     * Returns the X coordinate of the last blocked tile in the row at or before
+     * the specified column. A row out of the map bounds is entirely blocked.
+     * @param x the X coordinate to start scanning at
+     * @param y the Y coordinate of the row
+     * @return the X coordinate of the previous obstacle, or <tt>-1</tt> if there is none
+     */
+    public int previousObstacleInRow(final int x, final int y) {
+
+        if (y < 0 || y >= height) {
+            return Math.max(Math.min(x, width - 1), -1);
+        }
+
+        return previousBit(rows, y * rowWords, Math.min(x, width - 1));
+    }
+
+    /**
+     * Returns the Y coordinate of the first blocked tile in the column at or
+     * after the specified row. A column out of the map bounds is entirely blocked.
+     * @param x the X coordinate of the column
+     * @param y the Y coordinate to start scanning at
+     * @return the Y coordinate of the next obstacle, or the map height if there is none
+     */
+    public int nextObstacleInColumn(final int x, final int y) {
+
+        if (x < 0 || x >= width) {
+            return Math.min(Math.max(y, 0), height);
+        }
+
+        return nextBit(columns, x * columnWords, columnWords, Math.max(y, 0), height);
+    }
+
+    /**
+     * Returns the Y coordinate of the last blocked tile in the column at or
+     * before the specified row. A column out of the map bounds is entirely blocked.
+     * @param x the X coordinate of the column
+     * @param y the Y coordinate to start scanning at
+     * @return the Y coordinate of the previous obstacle, or <tt>-1</tt> if there is none
+     */
+    public int previousObstacleInColumn(final int x, final int y) {
+
+        if (x < 0 || x >= width) {
+            return Math.max(Math.min(y, height - 1), -1);
+        }
+
+        return previousBit(columns, x * columnWords, Math.min(y, height - 1));
+    }
+
+    /**
+     * Returns <tt>true</tt> if the straight line between the centers of two
+     * tiles crosses only passable tiles.
+     * <p>
+     * The line is traced conservatively: every tile it touches must be passable,
+     * and if it passes exactly trough a corner both tiles sharing that corner
+     * must be passable as well.
+     * @param x0    the X coordinate of the first tile
+     * @param y0    the Y coordinate of the first tile
+     * @param x1    the X coordinate of the second tile
+     * @param y1    the Y coordinate of the second tile
+     * @return <tt>true</tt> if there is a line of sight between the tiles
+     */
+    public boolean hasLineOfSight(final int x0, final int y0, final int x1, final int y1) {
+
+        if (isBlocked(x0, y0) || isBlocked(x1, y1)) {
+            return false;
+        }
+
+        if (y0 == y1) {
+            return nextObstacleInRow(Math.min(x0, x1), y0) > Math.max(x0, x1);
+        }
+
+        if (x0 == x1) {
+            return nextObstacleInColumn(x0, Math.min(y0, y1)) > Math.max(y0, y1);
+        }
+
+        final int dx = Math.abs(x1 - x0);
+        final int dy = Math.abs(y1 - y0);
+        final int sx = x1 > x0 ? 1 : -1;
+        final int sy = y1 > y0 ? 1 : -1;
+
+        int x = x0;
+        int y = y0;
+        long error = (long) dx - dy;
+
+        for (int n = dx + dy; n > 0; n--) {
+
+            if (error > 0) {
+                x += sx;
+                error -= 2L * dy;
+            } else if (error < 0) {
+                y += sy;
+                error += 2L * dx;
+            } else {
+
+                if (isBlocked(x + sx, y) || isBlocked(x, y + sy)) {
+                    return false;
+                }
+
+                x += sx;
+                y += sy;
+                error += 2L * dx - 2L * dy;
+                n--;
+            }
+
+            if (isBlocked(x, y)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns all tiles reachable from the specified tile.
+     * <p>
+     * The fill runs word by word: passable runs of a row are saturated using
+     * carry propagation of a multi-word addition, and rows above and below are
+     * seeded with 64 tiles at once. Diagonal steps are followed if the map allows
+     * diagonal movement for the entity.
+     * @param x the X coordinate of the starting tile
+     * @param y the Y coordinate of the starting tile
+     * @return the reachable tiles, as a row-major bitset with <code>getRowWords()</code> words per row
+     */
+    public long[] floodFill(final int x, final int y) {
+
+        final long[] reached = new long[rows.length];
+
+        if (isBlocked(x, y)) {
+            return reached;
+        }
+
+        final boolean diagonal = map.canMoveDiagonaly(entity);
+        final int[] queue = new int[height];
+        final boolean[] queued = new boolean[height];
+
+        int head = 0;
+        int size = 1;
+
+        reached[y * rowWords + (x >>> 6)] |= 1L << x;
+        queue[0] = y;
+        queued[y] = true;
+
+        while (size > 0) {
+
+            final int row = queue[head];
+
+            head = (head + 1) % height;
+            size--;
+            queued[row] = false;
+
+            fillRow(reached, row * rowWords);
+
+            for (int next = row - 1; next <= row + 1; next += 2) {
+                if (next >= 0 && next < height && spread(reached, row * rowWords, next * rowWords, diagonal) && !queued[next]) {
+                    queue[(head + size) % height] = next;
+                    queued[next] = true;
+                    size++;
+                }
+            }
+        }
+
+        return reached;
+    }
+
+    /**
+     * Returns <tt>true</tt> if there is a path between two tiles.
+     * @param x0    the X coordinate of the first tile
+     * @param y0    the Y coordinate of the first tile
+     * @param x1    the X coordinate of the second tile
+     * @param y1    the Y coordinate of the second tile
+     * @return <tt>true</tt> if the second tile is reachable from the first one
+     */
+    public boolean isReachable(final int x0, final int y0, final int x1, final int y1) {
+
+        if (isBlocked(x1, y1)) {
+            return false;
+        }
+
+        return (floodFill(x0, y0)[y1 * rowWords + (x1 >>> 6)] & (1L << x1)) != 0;
+    }
+
+    /**
+     * Marks specified tile as blocked or passable.
+     * @param x         the X coordinate of the tile
+     * @param y         the Y coordinate of the tile
+     * @param blocked   <tt>true</tt> if the tile is blocked
+     */
+    private void setBlocked(final int x, final int y, final boolean blocked) {
+        if (blocked) {
+            rows[y * rowWords + (x >>> 6)] |= 1L << x;
+            columns[x * columnWords + (y >>> 6)] |= 1L << y;
+        } else {
+            rows[y * rowWords + (x >>> 6)] &= ~(1L << x);
+            columns[x * columnWords + (y >>> 6)] &= ~(1L << y);
+        }
+    }
+
+    /**
+     * Saturates reached tiles of a row within the passable runs they belong to.
+     * @param reached   the reached tiles
+     * @param offset    the index of the first word of the row
+     */
+    private void fillRow(final long[] reached, final int offset) {
+
+        long carry = 0;
+
+        for (int i = 0; i < rowWords; i++) {
+
+            final long passable = ~rows[offset + i];
+            final long seed = reached[offset + i];
+            final long sum = passable + seed;
+            final long total = sum + carry;
+
+            final long overflow = ((passable & seed) | ((passable | seed) & ~sum)) >>> 63;
+
+            carry = overflow | (carry != 0 && total == 0 ? 1 : 0);
+            reached[offset + i] = ((total ^ passable) & passable) | seed;
+        }
+
+        carry = 0;
+
+        for (int i = rowWords - 1; i >= 0; i--) {
+
+            final long passable = Long.reverse(~rows[offset + i]);
+            final long seed = Long.reverse(reached[offset + i]);
+            final long sum = passable + seed;
+            final long total = sum + carry;
+
+            final long overflow = ((passable & seed) | ((passable | seed) & ~sum)) >>> 63;
+
+            carry = overflow | (carry != 0 && total == 0 ? 1 : 0);
+            reached[offset + i] |= Long.reverse(((total ^ passable) & passable) | seed);
+        }
+    }
+
+    /**
+     * Spreads reached tiles of one row into passable tiles of the adjacent row.
+     * @param reached   the reached tiles
+     * @param from      the index of the first word of the reached row
+     * @param to        the index of the first word of the adjacent row
+     * @param diagonal  <tt>true</tt> if diagonal steps are allowed
+     * @return <tt>true</tt> if any new tile was reached
+     */
+    private boolean spread(final long[] reached, final int from, final int to, final boolean diagonal) {
+
+        boolean changed = false;
+
+        for (int i = 0; i < rowWords; i++) {
+
+            long seed = reached[from + i];
+
+            if (diagonal) {
+                seed |= (seed << 1) | (seed >>> 1);
+
+                if (i > 0) {
+                    seed |= reached[from + i - 1] >>> 63;
+                }
+
+                if (i < rowWords - 1) {
+                    seed |= reached[from + i + 1] << 63;
+                }
+            }
+
+            final long added = seed & ~rows[to + i] & ~reached[to + i];
+
+            if (added != 0) {
+                reached[to + i] |= added;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Returns the index of the first set bit at or after the specified index.
+     * @param words     the bit words
+     * @param offset    the index of the first word of the scanned line
+     * @param count     the number of words in the scanned line
+     * @param index     the bit index to start scanning at
+     * @param limit     the number of valid bits in the scanned line
+     * @return the index of the next set bit, or <code>limit</code> if there is none
+     */
+    private static int nextBit(final long[] words, final int offset, final int count, final int index, final int limit) {
+
+        if (index >= limit) {
+            return limit;
+        }
+
+        int i = index >>> 6;
+        long word = words[offset + i] & (-1L << index);
+
+        while (word == 0) {
+
+            if (++i == count) {
+                return limit;
+            }
+
+            word = words[offset + i];
+        }
+
+        return Math.min(limit, (i << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    /**
+     * Returns the index of the last set bit at or before the specified index.
+     * @param words     the bit words
+     * @param offset    the index of the first word of the scanned line
+     * @param index     the bit index to start scanning at
+     * @return the index of the previous set bit, or <tt>-1</tt> if there is none
+     */
+    private static int previousBit(final long[] words, final int offset, final int index) {
+
+        if (index < 0) {
+            return -1;
+        }
+
+        int i = index >>> 6;
+        long word = words[offset + i] & (-1L >>> (63 - (index & 63)));
+
+        while (word == 0) {
+
+            if (--i < 0) {
+                return -1;
+            }
+
+            word = words[offset + i];
+        }
+
+        return (i << 6) + 63 - Long.numberOfLeadingZeros(word);
+    }
+}
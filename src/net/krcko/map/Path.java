@@ -27,6 +27,7 @@
 package net.krcko.map;
 
 import java.util.ArrayList;
+import java.util.Collections;
 
 /**
  * Path - represents list of steps required to travel from starting point on the
@@ -98,6 +99,13 @@ public class Path<T> {
         list.add(0, step);
     }
 
+    /**
+     * Reverses the order of steps in this path.
+     */
+    public void reverse() {
+        Collections.reverse(list);
+    }
+
     /**
      * Returns <tt>true</tt> if this path contains the specified step.
      * @param step  step whose presence in this path is to be tested
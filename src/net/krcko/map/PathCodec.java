@@ -0,0 +1,440 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import net.krcko.math.Point2D;
+
+/**
+ * Encodes tile paths into a compact binary format, for sending over the
+ * network and storing in files.
+ * <p>
+ * A path is encoded as the starting point, the number of steps and a sequence
+ * of direction runs, all as variable-length integers of seven bits per byte.
+ * Coordinates are zigzag-encoded, so small negative values stay short, and
+ * each run packs a direction into the low three bits and the number of
+ * repeated steps above them; a straight segment of up to 16 steps takes a
+ * single byte.
+ * <p>
+ * Paths are written directly to a <code>ByteBuffer</code> or a
+ * <code>WritableByteChannel</code> and decoded straight into a
+ * <code>CompactPath</code>, without intermediate objects.
+ *
+ * @author Aleksandar Ružičić
+ */
+public final class PathCodec {
+
+    /**
+     * The longest encoding of a variable-length integer.
+     */
+    private static final int MAX_VARINT_SIZE = 5;
+
+    /**
+     * The longest run of steps encoded by a single integer.
+     */
+    private static final int MAX_RUN = 1 << 28;
+
+    /**
+     * The number of directions packed in a word of <code>CompactPath</code>.
+     */
+    private static final int DIRECTIONS_PER_WORD = 21;
+
+    /**
+     * Prevents instantiation.
+     */
+    private PathCodec() {
+    }
+
+    /**
+     * Returns the number of bytes needed to encode a path.
+     * @param path  the path to encode
+     * @return the encoded size in bytes
+     */
+    public static int getEncodedSize(final CompactPath path) {
+        return varintSize(zigzag(path.getStartX())) + varintSize(zigzag(path.getStartY())) + varintSize(path.getLength()) + encodeRuns(path, null);
+    }
+
+    /**
+     * Encodes a path into a buffer.
+     * @param path      the path to encode
+     * @param buffer    the buffer to write to
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public static void encode(final CompactPath path, final ByteBuffer buffer) {
+
+        writeVarint(buffer, zigzag(path.getStartX()));
+        writeVarint(buffer, zigzag(path.getStartY()));
+        writeVarint(buffer, path.getLength());
+
+        encodeRuns(path, buffer);
+    }
+
+    /**
+     * Encodes a path of neighboring tiles into a buffer, producing the same
+     * bytes as encoding its compact form.
+     * @param source    the starting point of the path
+     * @param path      the path to encode
+     * @param buffer    the buffer to write to
+     * @throws IllegalArgumentException if some step is not a neighbor of the previous one
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public static void encode(final Point2D.Int source, final Path<Point2D.Int> path, final ByteBuffer buffer) throws IllegalArgumentException {
+
+        writeVarint(buffer, zigzag(source.x));
+        writeVarint(buffer, zigzag(source.y));
+        writeVarint(buffer, path.getLength());
+
+        Point2D.Int previous = source;
+        int direction = -1;
+        int run = 0;
+
+        for (int i = 0; i < path.getLength(); i++) {
+
+            final Point2D.Int step = path.getStep(i);
+            final int next = CompactPath.getDirection(previous.x, previous.y, step.x, step.y);
+
+            if (run > 0 && (next != direction || run == MAX_RUN)) {
+                writeVarint(buffer, ((run - 1) << 3) | direction);
+                run = 0;
+            }
+
+            direction = next;
+            previous = step;
+            run++;
+        }
+
+        if (run > 0) {
+            writeVarint(buffer, ((run - 1) << 3) | direction);
+        }
+    }
+
+    /**
+     * Encodes a path into a channel, using specified buffer for staging. The
+     * buffer must be in write mode and is left empty.
+     * @param path      the path to encode
+     * @param channel   the channel to write to
+     * @param buffer    the staging buffer, at least 16 bytes large
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if the buffer is too small
+     */
+    public static void write(final CompactPath path, final WritableByteChannel channel, final ByteBuffer buffer) throws IOException, IllegalArgumentException {
+
+        if (buffer.capacity() < 3 * MAX_VARINT_SIZE + 1) {
+            throw new IllegalArgumentException("Staging buffer must hold at least " + (3 * MAX_VARINT_SIZE + 1) + " bytes.");
+        }
+
+        ensureRemaining(channel, buffer, 3 * MAX_VARINT_SIZE);
+
+        writeVarint(buffer, zigzag(path.getStartX()));
+        writeVarint(buffer, zigzag(path.getStartY()));
+        writeVarint(buffer, path.getLength());
+
+        encodeRuns(path, buffer, channel);
+
+        // flush whatever is left in the buffer
+        ensureRemaining(channel, buffer, buffer.capacity());
+    }
+
+    /**
+     * Decodes a path from a buffer, advancing its position past the encoded path.
+     * @param buffer    the buffer to read from
+     * @return the decoded path
+     * @throws IllegalArgumentException if the data is not a valid encoded path
+     * @throws java.nio.BufferUnderflowException if the buffer ends before the path
+     */
+    public static CompactPath decode(final ByteBuffer buffer) throws IllegalArgumentException {
+        return decode(buffer, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes a path of limited length from a buffer, advancing its position
+     * past the encoded path. The encoded runs are checked before the path is
+     * allocated, so invalid data never causes a large allocation.
+     * @param buffer    the buffer to read from
+     * @param maxLength the largest accepted number of steps
+     * @return the decoded path
+     * @throws IllegalArgumentException if the data is not a valid encoded path or the path is too long
+     * @throws java.nio.BufferUnderflowException if the buffer ends before the path
+     */
+    public static CompactPath decode(final ByteBuffer buffer, final int maxLength) throws IllegalArgumentException {
+
+        final int startX = unzigzag(readVarint(buffer));
+        final int startY = unzigzag(readVarint(buffer));
+        final int length = readVarint(buffer);
+
+        if (length < 0 || length > maxLength) {
+            throw new IllegalArgumentException("Invalid path length: " + length + ".");
+        }
+
+        checkRuns(buffer.duplicate(), length);
+
+        final CompactPath path = new CompactPath(startX, startY, length);
+        final long[] words = path.getPackedDirections();
+
+        long word = 0;
+        int slot = 0;
+        int index = 0;
+
+        for (int i = 0; i < length; ) {
+
+            final int value = readVarint(buffer);
+            final long direction = value & 7;
+            final int run = (value >>> 3) + 1;
+
+            if (run > length - i) {
+                throw new IllegalArgumentException("Direction run exceeds the path length.");
+            }
+
+            for (int end = i + run; i < end; i++) {
+
+                word |= direction << (3 * slot);
+
+                if (++slot == DIRECTIONS_PER_WORD) {
+                    words[index++] = word;
+                    word = 0;
+                    slot = 0;
+                }
+            }
+        }
+
+        if (slot > 0) {
+            words[index] = word;
+        }
+
+        return path;
+    }
+
+    /**
+     * Checks that the buffer holds direction runs of exactly the path length.
+     * @param buffer    the buffer positioned at the first run, which is consumed
+     * @param length    the number of steps of the path
+     * @throws IllegalArgumentException if a run exceeds the path length
+     * @throws java.nio.BufferUnderflowException if the buffer ends before the runs do
+     */
+    private static void checkRuns(final ByteBuffer buffer, final int length) throws IllegalArgumentException {
+
+        // no encoded byte carries more than MAX_RUN steps, so fail fast on lengths the buffer cannot hold
+        if (length > (long) buffer.remaining() * MAX_RUN) {
+            throw new BufferUnderflowException();
+        }
+
+        for (int i = 0; i < length; ) {
+
+            final int run = (readVarint(buffer) >>> 3) + 1;
+
+            if (run > length - i) {
+                throw new IllegalArgumentException("Direction run exceeds the path length.");
+            }
+
+            i += run;
+        }
+    }
+
+    /**
+     * Encodes the direction runs of a path, scanning its packed directions word by word.
+     * @param path      the path to encode
+     * @param buffer    the buffer to write to, or <tt>null</tt> to only count the bytes
+     * @param channel   the channel to flush the buffer to when it fills up, or <tt>null</tt>
+     * @return the number of bytes of the encoded runs
+     * @throws IOException if an I/O error occurs
+     */
+    private static int encodeRuns(final CompactPath path, final ByteBuffer buffer, final WritableByteChannel channel) throws IOException {
+
+        final long[] words = path.getPackedDirections();
+        final int length = path.getLength();
+
+        int size = 0;
+        int direction = -1;
+        int run = 0;
+
+        for (int i = 0, index = 0; i < length; index++) {
+
+            long word = words[index];
+
+            for (int slot = 0; slot < DIRECTIONS_PER_WORD && i < length; slot++, i++, word >>>= 3) {
+
+                final int next = (int) word & 7;
+
+                if (run > 0 && (next != direction || run == MAX_RUN)) {
+                    size += writeRun(buffer, channel, direction, run);
+                    run = 0;
+                }
+
+                direction = next;
+                run++;
+            }
+        }
+
+        if (run > 0) {
+            size += writeRun(buffer, channel, direction, run);
+        }
+
+        return size;
+    }
+
+    /**
+     * Encodes the direction runs of a path into a buffer.
+     * @param path      the path to encode
+     * @param buffer    the buffer to write to, or <tt>null</tt> to only count the bytes
+     * @return the number of bytes of the encoded runs
+     */
+    private static int encodeRuns(final CompactPath path, final ByteBuffer buffer) {
+
+        try {
+            return encodeRuns(path, buffer, null);
+        } catch (IOException ex) {
+            // nothing is written to a channel
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Encodes a single direction run.
+     * @param buffer    the buffer to write to, or <tt>null</tt> to only count the bytes
+     * @param channel   the channel to flush the buffer to when it fills up, or <tt>null</tt>
+     * @param direction the direction of the run
+     * @param run       the number of steps of the run
+     * @return the number of bytes of the encoded run
+     * @throws IOException if an I/O error occurs
+     */
+    private static int writeRun(final ByteBuffer buffer, final WritableByteChannel channel, final int direction, final int run) throws IOException {
+
+        final int value = ((run - 1) << 3) | direction;
+
+        if (buffer == null) {
+            return varintSize(value);
+        }
+
+        if (channel != null) {
+            ensureRemaining(channel, buffer, MAX_VARINT_SIZE);
+        }
+
+        final int position = buffer.position();
+
+        writeVarint(buffer, value);
+
+        return buffer.position() - position;
+    }
+
+    /**
+     * Writes buffered bytes to the channel until the buffer has specified room left.
+     * @param channel   the channel to write to
+     * @param buffer    the staging buffer
+     * @param required  the number of bytes which must fit into the buffer
+     * @throws IOException if an I/O error occurs
+     */
+    private static void ensureRemaining(final WritableByteChannel channel, final ByteBuffer buffer, final int required) throws IOException {
+
+        if (buffer.remaining() >= required) {
+            return;
+        }
+
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    /**
+     * Writes an unsigned variable-length integer.
+     * @param buffer    the buffer to write to
+     * @param value     the value, treated as unsigned
+     */
+    private static void writeVarint(final ByteBuffer buffer, int value) {
+
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads an unsigned variable-length integer.
+     * @param buffer    the buffer to read from
+     * @return the value
+     * @throws IllegalArgumentException if the integer is longer than five bytes
+     */
+    private static int readVarint(final ByteBuffer buffer) throws IllegalArgumentException {
+
+        int value = 0;
+
+        for (int shift = 0; shift < 7 * MAX_VARINT_SIZE; shift += 7) {
+
+            final byte b = buffer.get();
+
+            value |= (b & 0x7f) << shift;
+
+            if (b >= 0) {
+                return value;
+            }
+        }
+
+        throw new IllegalArgumentException("Malformed variable-length integer.");
+    }
+
+    /**
+     * Returns the encoded size of an unsigned variable-length integer.
+     * @param value the value, treated as unsigned
+     * @return the size in bytes
+     */
+    private static int varintSize(final int value) {
+
+        int size = 1;
+
+        for (int v = value >>> 7; v != 0; v >>>= 7) {
+            size++;
+        }
+
+        return size;
+    }
+
+    /**
+     * Maps signed integers to unsigned ones, so values close to zero encode short.
+     * @param value the signed value
+     * @return the zigzag-encoded value
+     */
+    private static int zigzag(final int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Reverses zigzag encoding.
+     * @param value the zigzag-encoded value
+     * @return the signed value
+     */
+    private static int unzigzag(final int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
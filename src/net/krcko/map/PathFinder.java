@@ -26,6 +26,10 @@
  */
 package net.krcko.map;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
 /**
  * PathFinder object - used to find paths on the map.
  *
@@ -38,6 +42,11 @@ public abstract class PathFinder<T> {
      */
     protected Map<T> map;
 
+    /**
+     * The post-processing stage applied to found paths, or <tt>null</tt>.
+     */
+    private PathProcessor<T> pathProcessor;
+
     /**
      * Constructs new path finder for specified map.
      * @param map   the map object which will be searched for paths
@@ -55,6 +64,88 @@ public abstract class PathFinder<T> {
      */
     public abstract Path<T> findPath(final MovingEntity entity, final T source, final T target);
 
+    /**
+     * Finds all points the entity can reach from the source point within a
+     * cost budget, by a single Dijkstra flood which stops at the budget.
+     * Paths to the reached points are built when requested from the returned area.
+     * @param entity    entity which is about to move
+     * @param source    starting point on the map
+     * @param maxCost   the maximum cost of reached points
+     * @return the reachable area, which contains at least the source point
+     * @throws IllegalArgumentException if the budget is negative or not finite
+     */
+    @SuppressWarnings("unchecked")
+    public ReachableArea<T> reachable(final MovingEntity entity, final T source, final float maxCost) throws IllegalArgumentException {
+
+        if (!(maxCost >= 0) || maxCost == Float.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException("Maximum cost must be finite and non-negative.");
+        }
+
+        final HashMap<T, Integer> indices = new HashMap<>();
+
+        // entries pack the bits of the cost above the index, non-negative floats order as their bits
+        final PriorityQueue<Long> open = new PriorityQueue<>();
+
+        Object[] points = new Object[16];
+        float[] costs = new float[16];
+        int[] parents = new int[16];
+        int size = 1;
+
+        points[0] = source;
+        parents[0] = -1;
+        indices.put(source, 0);
+        open.add(0L);
+
+        while (!open.isEmpty()) {
+
+            final long entry = open.poll();
+            final int index = (int) entry;
+
+            if (Float.intBitsToFloat((int) (entry >>> 32)) > costs[index]) {
+                continue;
+            }
+
+            final T point = (T) points[index];
+
+            for (T neighbor: map.getNeighbors(point, entity)) {
+
+                if (!map.canMoveTo(entity, neighbor)) {
+                    continue;
+                }
+
+                final float cost = costs[index] + map.getCost(entity, point, neighbor);
+
+                if (cost > maxCost) {
+                    continue;
+                }
+
+                Integer next = indices.get(neighbor);
+
+                if (next == null) {
+
+                    if (size == points.length) {
+                        points = Arrays.copyOf(points, size * 2);
+                        costs = Arrays.copyOf(costs, size * 2);
+                        parents = Arrays.copyOf(parents, size * 2);
+                    }
+
+                    next = size++;
+                    points[next] = neighbor;
+                    costs[next] = Float.POSITIVE_INFINITY;
+                    indices.put(neighbor, next);
+                }
+
+                if (cost < costs[next]) {
+                    costs[next] = cost;
+                    parents[next] = index;
+                    open.add(((long) Float.floatToIntBits(cost) << 32) | next);
+                }
+            }
+        }
+
+        return new ReachableArea.Points<>(source, maxCost, indices, Arrays.copyOf(points, size), Arrays.copyOf(costs, size), Arrays.copyOf(parents, size));
+    }
+
     /**
      * Returns the map object which will be searched for paths.
      * @return  Map object used for searching
@@ -70,4 +161,32 @@ public abstract class PathFinder<T> {
     public void setMap(final Map<T> map) {
         this.map = map;
     }
+
+    /**
+     * Returns the post-processing stage applied to found paths.
+     * @return the path processor, or <tt>null</tt> if paths are returned as found
+     */
+    public PathProcessor<T> getPathProcessor() {
+        return pathProcessor;
+    }
+
+    /**
+     * Sets the post-processing stage applied to found paths.
+     * @param pathProcessor the path processor, or <tt>null</tt> to return paths as found
+     */
+    public void setPathProcessor(final PathProcessor<T> pathProcessor) {
+        this.pathProcessor = pathProcessor;
+    }
+
+    /**
+     * Applies the post-processing stage to a found path. Subclasses should
+     * pass each path trough this method before returning it.
+     * @param entity    entity which is about to move
+     * @param source    starting point on the map
+     * @param path      the found path, or <tt>null</tt>
+     * @return the processed path, or <tt>null</tt> if no path was found
+     */
+    protected Path<T> processPath(final MovingEntity entity, final T source, final Path<T> path) {
+        return path == null || pathProcessor == null ? path : pathProcessor.process(map, entity, source, path);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+/**
+ * Defines a post-processing stage applied to paths found by <code>PathFinder</code>.
+ * <p>
+ * Implementations should not keep per-path state, so a single processor can
+ * be shared by several path finders and used from several threads at once.
+ *
+ * @author Aleksandar Ružičić
+ */
+public interface PathProcessor<T> {
+
+    /**
+     * Processes a path found on the map.
+     * @param map       the map the path was found on
+     * @param entity    the entity which is about to move
+     * @param source    the starting point of the path, which is not one of its steps
+     * @param path      the path to process
+     * @return the processed path, which can be the same object as the input path
+     */
+    public Path<T> process(final Map<T> map, final MovingEntity entity, final T source, final Path<T> path);
+}
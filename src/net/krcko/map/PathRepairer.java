@@ -0,0 +1,249 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.HashMap;
+
+/**
+ * Repairs a previously found path after some of its steps became blocked,
+ * replacing only the blocked part instead of searching for the whole path again.
+ * <p>
+ * For each blocked step a local A* search runs from the step before it to
+ * the nearest of the following steps which are still passable, within a
+ * window of <code>lookahead</code> steps, and the detour it finds replaces
+ * the skipped steps. The local search gives up once its paths grow longer
+ * than <code>maxDetour</code> steps, in which case the path is planned again
+ * from scratch by the full path finder.
+ * <p>
+ * Consecutive steps of the repaired path are expected to be neighbors on the
+ * map, so paths should be repaired before post-processing which removes steps.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class PathRepairer<T> {
+
+    /**
+     * The default number of steps after a blocked step the detour may rejoin the path at.
+     */
+    public static final int DEFAULT_LOOKAHEAD = 16;
+
+    /**
+     * The path finder used to plan paths from scratch.
+     */
+    private final PathFinder<T> planner;
+
+    /**
+     * The path finder used for local searches.
+     */
+    private final AStarPathFinder<T> local;
+
+    /**
+     * The number of steps after a blocked step the detour may rejoin the path at.
+     */
+    private int lookahead = DEFAULT_LOOKAHEAD;
+
+    /**
+     * The number of paths repaired by local searches.
+     */
+    private int repairs;
+
+    /**
+     * The number of paths planned again from scratch.
+     */
+    private int replans;
+
+    /**
+     * Constructs new path repairer.
+     * @param planner   the path finder used to plan paths from scratch, which also provides the map
+     * @param heuristic the heuristic cost provider for local searches
+     * @param maxDetour the maximum number of steps of a detour found by a local search
+     * @throws IllegalArgumentException if the maximum detour length is not positive
+     */
+    public PathRepairer(final PathFinder<T> planner, final Heuristic<T> heuristic, final int maxDetour) throws IllegalArgumentException {
+
+        if (maxDetour <= 0) {
+            throw new IllegalArgumentException("Maximum detour length must be positive.");
+        }
+
+        this.planner = planner;
+        this.local = new AStarPathFinder<>(planner.getMap(), heuristic, maxDetour);
+    }
+
+    /**
+     * Returns the path finder used to plan paths from scratch.
+     * @return the full path finder
+     */
+    public PathFinder<T> getPlanner() {
+        return planner;
+    }
+
+    /**
+     * Returns the maximum number of steps of a detour found by a local search.
+     * @return the maximum detour length
+     */
+    public int getMaxDetour() {
+        return local.getMaxSearchDistance();
+    }
+
+    /**
+     * Sets the maximum number of steps of a detour found by a local search.
+     * @param maxDetour the maximum detour length
+     * @throws IllegalArgumentException if the maximum detour length is not positive
+     */
+    public void setMaxDetour(final int maxDetour) throws IllegalArgumentException {
+
+        if (maxDetour <= 0) {
+            throw new IllegalArgumentException("Maximum detour length must be positive.");
+        }
+
+        local.setMaxSearchDistance(maxDetour);
+    }
+
+    /**
+     * Returns the number of steps after a blocked step the detour may rejoin the path at.
+     * @return the lookahead
+     */
+    public int getLookahead() {
+        return lookahead;
+    }
+
+    /**
+     * Sets the number of steps after a blocked step the detour may rejoin the path at.
+     * @param lookahead the lookahead
+     * @throws IllegalArgumentException if the lookahead is not positive
+     */
+    public void setLookahead(final int lookahead) throws IllegalArgumentException {
+
+        if (lookahead <= 0) {
+            throw new IllegalArgumentException("Lookahead must be positive.");
+        }
+
+        this.lookahead = lookahead;
+    }
+
+    /**
+     * Returns the number of paths repaired by local searches.
+     * @return the number of local repairs
+     */
+    public int getRepairCount() {
+        return repairs;
+    }
+
+    /**
+     * Returns the number of paths which had to be planned again from scratch.
+     * @return the number of full replans
+     */
+    public int getReplanCount() {
+        return replans;
+    }
+
+    /**
+     * Returns the index of the first step the entity can't move to.
+     * @param entity    entity which follows the path
+     * @param path      the path to check
+     * @param from      the index of the first step to check
+     * @return the index of the first blocked step, or -1 if no step is blocked
+     */
+    public int findBlockedStep(final MovingEntity entity, final Path<T> path, final int from) {
+
+        final Map<T> map = planner.getMap();
+
+        for (int i = from; i < path.getLength(); i++) {
+            if (!map.canMoveTo(entity, path.getStep(i))) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Repairs the path around its blocked steps.
+     * @param entity    entity which follows the path
+     * @param source    the point the path starts from, not included in the path
+     * @param path      the path to repair, which is not changed
+     * @return the same path if no step is blocked, the repaired path, or the path
+     *          planned from scratch, which is <tt>null</tt> if the end of the path
+     *          can't be reached anymore
+     */
+    public Path<T> repair(final MovingEntity entity, final T source, final Path<T> path) {
+
+        int blocked = findBlockedStep(entity, path, 0);
+
+        if (blocked < 0) {
+            return path;
+        }
+
+        final Map<T> map = planner.getMap();
+        final int length = path.getLength();
+        final Path<T> repaired = new Path<>(length + lookahead);
+        final HashMap<T, Integer> targets = new HashMap<>();
+
+        local.setMap(map);
+
+        int next = 0;
+
+        while (blocked >= 0) {
+
+            for (int i = next; i < blocked; i++) {
+                repaired.append(path.getStep(i));
+            }
+
+            targets.clear();
+
+            // the first occurrence of a step decides where the path is rejoined
+            for (int i = Math.min(blocked + lookahead, length - 1); i > blocked; i--) {
+                if (map.canMoveTo(entity, path.getStep(i))) {
+                    targets.put(path.getStep(i), i);
+                }
+            }
+
+            final T from = repaired.getLength() == 0 ? source : repaired.getStep(repaired.getLength() - 1);
+            final Path<T> detour = targets.isEmpty() ? null : local.findPathToAny(entity, from, targets.keySet());
+
+            if (detour == null || detour.getLength() == 0) {
+                replans++;
+                return planner.findPath(entity, source, path.getStep(length - 1));
+            }
+
+            for (int i = 0; i < detour.getLength(); i++) {
+                repaired.append(detour.getStep(i));
+            }
+
+            next = targets.get(detour.getStep(detour.getLength() - 1)) + 1;
+            blocked = findBlockedStep(entity, path, next);
+        }
+
+        for (int i = next; i < length; i++) {
+            repaired.append(path.getStep(i));
+        }
+
+        repairs++;
+
+        return repaired;
+    }
+}
\ No newline at end of file
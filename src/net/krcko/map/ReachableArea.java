@@ -0,0 +1,357 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import net.krcko.math.Point2D;
+
+/**
+ * The area an entity can reach from a source point within a cost budget, as
+ * found by <code>PathFinder.reachable</code>.
+ * <p>
+ * The area stores the cost and the cheapest predecessor of every reached
+ * point, paths to reached points are only built when requested.
+ *
+ * @author Aleksandar Ružičić
+ */
+public abstract class ReachableArea<T> {
+
+    /**
+     * The point the area was flooded from.
+     */
+    private final T source;
+
+    /**
+     * The cost budget of the area.
+     */
+    private final float maxCost;
+
+    /**
+     * Constructs new area.
+     * @param source    the point the area was flooded from
+     * @param maxCost   the cost budget of the area
+     */
+    ReachableArea(final T source, final float maxCost) {
+        this.source = source;
+        this.maxCost = maxCost;
+    }
+
+    /**
+     * Returns the point the area was flooded from.
+     * @return the source point
+     */
+    public T getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the cost budget of the area.
+     * @return the maximum cost of reached points
+     */
+    public float getMaxCost() {
+        return maxCost;
+    }
+
+    /**
+     * Returns the number of reached points, including the source.
+     * @return the size of the area
+     */
+    public abstract int size();
+
+    /**
+     * Returns the cost of the cheapest path from the source to a point.
+     * @param point the point to check
+     * @return the cost, or positive infinity if the point was not reached
+     */
+    public abstract float getCost(final T point);
+
+    /**
+     * Returns all reached points, including the source.
+     * @return the reached points
+     */
+    public abstract List<T> getReached();
+
+    /**
+     * Returns <tt>true</tt> if a point can be reached within the budget.
+     * @param point the point to check
+     * @return <tt>true</tt> if the point was reached
+     */
+    public boolean isReachable(final T point) {
+        return getCost(point) != Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the cheapest path from the source to a reached point. As with
+     * <code>PathFinder.findPath</code>, the path does not contain the source.
+     * @param target    the reached point
+     * @return the path, which is empty for the source, or <tt>null</tt> if the point was not reached
+     */
+    public abstract Path<T> getPath(final T target);
+
+    /**
+     * An area of any map, storing reached points in flat arrays indexed by the
+     * order in which they were reached.
+     */
+    static final class Points<T> extends ReachableArea<T> {
+
+        /**
+         * The index of each reached point.
+         */
+        private final HashMap<T, Integer> indices;
+
+        /**
+         * Reached points, by index.
+         */
+        private final Object[] points;
+
+        /**
+         * The cost of each reached point, by index.
+         */
+        private final float[] costs;
+
+        /**
+         * The index of the predecessor of each reached point, or <tt>-1</tt>.
+         */
+        private final int[] parents;
+
+        /**
+         * Constructs new area.
+         * @param source    the point the area was flooded from
+         * @param maxCost   the cost budget of the area
+         * @param indices   the index of each reached point
+         * @param points    reached points, by index
+         * @param costs     the cost of each reached point
+         * @param parents   the index of the predecessor of each reached point
+         */
+        Points(final T source, final float maxCost, final HashMap<T, Integer> indices, final Object[] points, final float[] costs, final int[] parents) {
+            super(source, maxCost);
+            this.indices = indices;
+            this.points = points;
+            this.costs = costs;
+            this.parents = parents;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return points.length;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public float getCost(final T point) {
+            final Integer index = indices.get(point);
+            return index == null ? Float.POSITIVE_INFINITY : costs[index];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<T> getReached() {
+            return (List<T>) Arrays.asList(Arrays.copyOf(points, points.length));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public Path<T> getPath(final T target) {
+
+            final Integer index = indices.get(target);
+
+            if (index == null) {
+                return null;
+            }
+
+            final Path<T> path = new Path<>();
+
+            for (int i = index; parents[i] >= 0; i = parents[i]) {
+                path.append((T) points[i]);
+            }
+
+            path.reverse();
+
+            return path;
+        }
+    }
+
+    /**
+     * An area of a <code>TileMap</code>, storing costs and directions towards
+     * predecessors in primitive arrays covering the bounding box of reached tiles.
+     */
+    static final class Tiles extends ReachableArea<Point2D.Int> {
+
+        /**
+         * The first column of the bounding box.
+         */
+        private final int x0;
+
+        /**
+         * The first row of the bounding box.
+         */
+        private final int y0;
+
+        /**
+         * The number of columns of the bounding box.
+         */
+        private final int width;
+
+        /**
+         * The number of rows of the bounding box.
+         */
+        private final int height;
+
+        /**
+         * The cost of each tile of the bounding box, in row-major order.
+         */
+        private final float[] costs;
+
+        /**
+         * The direction from each tile to its predecessor, or <code>FlowField.NONE</code>.
+         */
+        private final byte[] directions;
+
+        /**
+         * The number of reached tiles.
+         */
+        private final int size;
+
+        /**
+         * Constructs new area.
+         * @param source        the tile the area was flooded from
+         * @param maxCost       the cost budget of the area
+         * @param x0            the first column of the bounding box
+         * @param y0            the first row of the bounding box
+         * @param width         the number of columns of the bounding box
+         * @param height        the number of rows of the bounding box
+         * @param costs         the cost of each tile of the bounding box
+         * @param directions    the direction from each tile to its predecessor
+         * @param size          the number of reached tiles
+         */
+        Tiles(final Point2D.Int source, final float maxCost, final int x0, final int y0, final int width, final int height, final float[] costs, final byte[] directions, final int size) {
+            super(source, maxCost);
+            this.x0 = x0;
+            this.y0 = y0;
+            this.width = width;
+            this.height = height;
+            this.costs = costs;
+            this.directions = directions;
+            this.size = size;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public float getCost(final Point2D.Int point) {
+            return getCost(point.x, point.y);
+        }
+
+        /**
+         * Returns the cost of the cheapest path from the source to a tile.
+         * @param x the X coordinate of the tile
+         * @param y the Y coordinate of the tile
+         * @return the cost, or positive infinity if the tile was not reached
+         */
+        public float getCost(final int x, final int y) {
+            return contains(x, y) ? costs[(y - y0) * width + (x - x0)] : Float.POSITIVE_INFINITY;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<Point2D.Int> getReached() {
+
+            final List<Point2D.Int> reached = new ArrayList<>(size);
+
+            for (int y = 0, i = 0; y < height; y++) {
+                for (int x = 0; x < width; x++, i++) {
+                    if (costs[i] != Float.POSITIVE_INFINITY) {
+                        reached.add(new Point2D.Int(x0 + x, y0 + y));
+                    }
+                }
+            }
+
+            return reached;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Path<Point2D.Int> getPath(final Point2D.Int target) {
+
+            if (getCost(target) == Float.POSITIVE_INFINITY) {
+                return null;
+            }
+
+            final Path<Point2D.Int> path = new Path<>();
+
+            int x = target.x;
+            int y = target.y;
+
+            for (int direction = directions[(y - y0) * width + (x - x0)]; direction != FlowField.NONE; direction = directions[(y - y0) * width + (x - x0)]) {
+                path.append(new Point2D.Int(x, y));
+                x += CompactPath.getDeltaX(direction);
+                y += CompactPath.getDeltaY(direction);
+            }
+
+            path.reverse();
+
+            return path;
+        }
+
+        /**
+         * Returns <tt>true</tt> if a tile is within the bounding box.
+         * @param x the X coordinate of the tile
+         * @param y the Y coordinate of the tile
+         * @return <tt>true</tt> if the tile is within the bounding box
+         */
+        private boolean contains(final int x, final int y) {
+            return x >= x0 && x < x0 + width && y >= y0 && y < y0 + height;
+        }
+    }
+}
\ No newline at end of file
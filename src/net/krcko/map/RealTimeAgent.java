@@ -0,0 +1,115 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import net.krcko.util.ObjectFloatMap;
+
+/**
+ * The state of an agent moved by <code>RealTimeSearch</code>: its entity, its
+ * current target and the heuristic values it has learned on the way there.
+ * <p>
+ * Learned values are stored in a compact primitive hash map, holding only
+ * the points the agent has looked ahead from, and are discarded when the
+ * agent gets a new target.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class RealTimeAgent<T> {
+
+    /**
+     * The entity which is moved.
+     */
+    private final MovingEntity entity;
+
+    /**
+     * Learned heuristic values to the target.
+     */
+    final ObjectFloatMap<T> learned = new ObjectFloatMap<>();
+
+    /**
+     * The target the values were learned for, or <tt>null</tt>.
+     */
+    private T target;
+
+    /**
+     * Constructs new agent.
+     * @param entity    the entity which is moved
+     */
+    public RealTimeAgent(final MovingEntity entity) {
+        this.entity = entity;
+    }
+
+    /**
+     * Returns the entity which is moved.
+     * @return the entity
+     */
+    public MovingEntity getEntity() {
+        return entity;
+    }
+
+    /**
+     * Returns the target the agent has learned values for.
+     * @return the target, or <tt>null</tt> if the agent has not moved yet
+     */
+    public T getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns the number of points with learned values.
+     * @return the number of learned values
+     */
+    public int getLearnedCount() {
+        return learned.size();
+    }
+
+    /**
+     * Returns the approximate number of bytes used by learned values.
+     * @return the memory usage
+     */
+    public long getMemoryUsage() {
+        return learned.getMemoryUsage();
+    }
+
+    /**
+     * Discards all learned values, which must be done after move costs decrease.
+     */
+    public void reset() {
+        learned.clear();
+    }
+
+    /**
+     * Sets the target of the agent, discarding values learned for another target.
+     * @param target    the new target
+     */
+    void setTarget(final T target) {
+        if (!target.equals(this.target)) {
+            learned.clear();
+            this.target = target;
+        }
+    }
+}
\ No newline at end of file
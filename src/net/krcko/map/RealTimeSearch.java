@@ -0,0 +1,292 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * Moves agents one step at a time using Real-Time Adaptive A* (RTAA*), for
+ * entities which must commit to a move in bounded time regardless of the
+ * size of the map.
+ * <p>
+ * Each step runs an A* search from the agent which expands at most the
+ * lookahead number of points, raises the heuristic value of every expanded
+ * point to the f-value of the best point left open less its cost, and moves
+ * the agent towards that point. The learned values keep the agent from
+ * getting stuck in dead ends and it reaches a reachable target in a finite
+ * number of steps, as long as the heuristic is admissible and consistent.
+ * An unreachable target is only detected once a single step can expand all
+ * points reachable from the agent, otherwise the agent keeps wandering.
+ * <p>
+ * Search state is reused between steps, so a search must not be used by
+ * several threads at once; agents can be moved by any search of the same map.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class RealTimeSearch<T> {
+
+    /**
+     * The map which is searched.
+     */
+    private final Map<T> map;
+
+    /**
+     * The heuristic providing initial values.
+     */
+    private final Heuristic<T> heuristic;
+
+    /**
+     * The maximum number of points expanded by a step.
+     */
+    private int lookahead;
+
+    /**
+     * Points reached by the current step.
+     */
+    private final HashMap<T, Node<T>> nodes = new HashMap<>();
+
+    /**
+     * Nodes not yet expanded, possibly holding stale entries.
+     */
+    private final PriorityQueue<Node<T>> open = new PriorityQueue<>();
+
+    /**
+     * Nodes expanded by the current step.
+     */
+    private final ArrayList<Node<T>> closed = new ArrayList<>();
+
+    /**
+     * Constructs new search.
+     * @param map       the map which is searched
+     * @param heuristic the admissible and consistent heuristic providing initial values
+     * @param lookahead the maximum number of points expanded by a step
+     * @throws IllegalArgumentException if the lookahead is not positive
+     */
+    public RealTimeSearch(final Map<T> map, final Heuristic<T> heuristic, final int lookahead) throws IllegalArgumentException {
+        this.map = map;
+        this.heuristic = heuristic;
+        setLookahead(lookahead);
+    }
+
+    /**
+     * Returns the map which is searched.
+     * @return the map
+     */
+    public Map<T> getMap() {
+        return map;
+    }
+
+    /**
+     * Returns the maximum number of points expanded by a step.
+     * @return the lookahead
+     */
+    public int getLookahead() {
+        return lookahead;
+    }
+
+    /**
+     * Sets the maximum number of points expanded by a step.
+     * @param lookahead the lookahead
+     * @throws IllegalArgumentException if the lookahead is not positive
+     */
+    public void setLookahead(final int lookahead) throws IllegalArgumentException {
+
+        if (lookahead <= 0) {
+            throw new IllegalArgumentException("Lookahead must be positive.");
+        }
+
+        this.lookahead = lookahead;
+    }
+
+    /**
+     * Returns the next step of an agent towards the target, updating the values it has learned.
+     * @param agent     the agent to move
+     * @param current   the current location of the agent
+     * @param target    the target of the agent
+     * @return the neighbor of the current location to move to, or <tt>null</tt> if the agent
+     *          is at the target or a step has exhausted all points reachable from it
+     */
+    public T nextStep(final RealTimeAgent<T> agent, final T current, final T target) {
+
+        if (current.equals(target)) {
+            return null;
+        }
+
+        agent.setTarget(target);
+
+        final MovingEntity entity = agent.getEntity();
+
+        try {
+
+            final Node<T> start = new Node<>(current, null, 0, getValue(agent, current));
+
+            nodes.put(current, start);
+            open.add(start);
+
+            Node<T> best;
+
+            while ((best = peek()) != null && !best.location.equals(target) && closed.size() < lookahead) {
+
+                open.poll();
+                best.closed = true;
+                closed.add(best);
+
+                for (T neighbor: map.getNeighbors(best.location, entity)) {
+
+                    if (!map.canMoveTo(entity, neighbor)) {
+                        continue;
+                    }
+
+                    final float cost = best.cost + map.getCost(entity, best.location, neighbor);
+                    final Node<T> node = nodes.get(neighbor);
+
+                    if (node == null) {
+                        final Node<T> created = new Node<>(neighbor, best, cost, cost + getValue(agent, neighbor));
+                        nodes.put(neighbor, created);
+                        open.add(created);
+                    } else if (!node.closed && cost < node.cost) {
+                        // the old entry stays queued and is skipped as stale
+                        final Node<T> improved = new Node<>(neighbor, best, cost, cost + node.score - node.cost);
+                        nodes.put(neighbor, improved);
+                        open.add(improved);
+                    }
+                }
+            }
+
+            // nothing reachable is left, the expanded points can't lead to the target
+            final float score = best == null ? Float.POSITIVE_INFINITY : best.score;
+
+            for (Node<T> node: closed) {
+                agent.learned.put(node.location, score - node.cost);
+            }
+
+            if (best == null || best == start || score == Float.POSITIVE_INFINITY) {
+                return null;
+            }
+
+            Node<T> step = best;
+
+            while (step.parent != start) {
+                step = step.parent;
+            }
+
+            return step.location;
+
+        } finally {
+            nodes.clear();
+            open.clear();
+            closed.clear();
+        }
+    }
+
+    /**
+     * Returns the first node of the open list which is not stale.
+     * @return the best open node, or <tt>null</tt> if there is none
+     */
+    private Node<T> peek() {
+
+        Node<T> node;
+
+        while ((node = open.peek()) != null && nodes.get(node.location) != node) {
+            open.poll();
+        }
+
+        return node;
+    }
+
+    /**
+     * Returns the heuristic value of a point, learned or initial.
+     * @param agent     the agent moving to the target
+     * @param location  the point on the map
+     * @return the heuristic value
+     */
+    private float getValue(final RealTimeAgent<T> agent, final T location) {
+
+        final float value = agent.learned.get(location, Float.NaN);
+
+        return value == value ? value : heuristic.getHeuristicCost(map, agent.getEntity(), location, agent.getTarget());
+    }
+
+    /**
+     * A point reached by a step.
+     */
+    private static final class Node<T> implements Comparable<Node<T>> {
+
+        /**
+         * The point on the map.
+         */
+        final T location;
+
+        /**
+         * The node this node was reached from, or <tt>null</tt>.
+         */
+        final Node<T> parent;
+
+        /**
+         * The cost of reaching the point from the agent.
+         */
+        final float cost;
+
+        /**
+         * The cost plus the heuristic value of the point.
+         */
+        final float score;
+
+        /**
+         * <tt>true</tt> once the point is expanded.
+         */
+        boolean closed;
+
+        /**
+         * Constructs new node.
+         * @param location  the point on the map
+         * @param parent    the node this node was reached from
+         * @param cost      the cost of reaching the point
+         * @param score     the cost plus the heuristic value of the point
+         */
+        Node(final T location, final Node<T> parent, final float cost, final float score) {
+            this.location = location;
+            this.parent = parent;
+            this.cost = cost;
+            this.score = score;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int compareTo(final Node<T> other) {
+
+            final int result = Float.compare(score, other.score);
+
+            // prefer deeper nodes among equal scores
+            return result != 0 ? result : Float.compare(other.cost, cost);
+        }
+    }
+}
\ No newline at end of file
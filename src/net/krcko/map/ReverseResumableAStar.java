@@ -0,0 +1,312 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.Arrays;
+import net.krcko.math.Point2D;
+import net.krcko.util.IntPriorityQueue;
+
+/**
+ * An exact distance oracle to a fixed target tile, implemented as a Reverse
+ * Resumable A* search.
+ * <p>
+ * The search runs backwards from the target towards the tile of the first
+ * query, guided by the heuristic cost from that tile. It keeps its open list
+ * between queries and is only resumed until the queried tile is closed, so
+ * every tile is expanded at most once over the lifetime of the oracle. Costs
+ * of closed tiles are exact and memoised in a primitive array, as long as the
+ * guiding heuristic is consistent.
+ * <p>
+ * The oracle is a perfect <code>Heuristic</code> for searches towards its
+ * target, with which <code>AStarPathFinder</code> expands only tiles on an
+ * optimal path. The target passed to <code>getHeuristicCost</code> is ignored.
+ * <p>
+ * The oracle registers itself as a <code>TileMapListener</code> and restarts
+ * its search when tiles change. The map holds on to the oracle until
+ * <code>detach</code> is called, so it must be called once the oracle is no
+ * longer used, otherwise the oracle and its search state are never collected.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class ReverseResumableAStar implements Heuristic<Point2D.Int>, TileMapListener {
+
+    /**
+     * The map to search.
+     */
+    private final TileMap map;
+
+    /**
+     * The entity whose movement rules the search follows.
+     */
+    private final MovingEntity entity;
+
+    /**
+     * The target tile of all distances.
+     */
+    private final Point2D.Int target;
+
+    /**
+     * The heuristic guiding the search, or <tt>null</tt> to search by cost only.
+     */
+    private final Heuristic<Point2D.Int> heuristic;
+
+    /**
+     * The cost of the cheapest path from each tile to the target, as far as it is known.
+     */
+    private float[] costs;
+
+    /**
+     * <tt>true</tt> for tiles whose cost is exact.
+     */
+    private boolean[] closed;
+
+    /**
+     * Tiles waiting to be expanded.
+     */
+    private IntPriorityQueue open;
+
+    /**
+     * The tile the search is guided towards, or <tt>null</tt> before the first query.
+     */
+    private Point2D.Int origin;
+
+    /**
+     * The number of tiles expanded since the search started.
+     */
+    private int expandedNodes;
+
+    /**
+     * The reused source point of cost queries.
+     */
+    private final Point2D.Int from = new Point2D.Int();
+
+    /**
+     * The reused target point of cost queries.
+     */
+    private final Point2D.Int to = new Point2D.Int();
+
+    /**
+     * Constructs new oracle and registers it as a map listener. The oracle
+     * must be detached once it is no longer used.
+     * @param map       the map to search
+     * @param entity    the entity whose movement rules the search follows
+     * @param target    the target tile of all distances
+     * @param heuristic the consistent heuristic guiding the search, or <tt>null</tt> to search by cost only
+     * @throws IndexOutOfBoundsException if the target is out of the map bounds
+     */
+    public ReverseResumableAStar(final TileMap map, final MovingEntity entity, final Point2D.Int target, final Heuristic<Point2D.Int> heuristic) throws IndexOutOfBoundsException {
+
+        if (!map.isValidLocation(target)) {
+            throw new IndexOutOfBoundsException("Tile with coordinates (" + target.x + ", " + target.y + ") is out of the map bounds.");
+        }
+
+        this.map = map;
+        this.entity = entity;
+        this.target = new Point2D.Int(target.x, target.y);
+        this.heuristic = heuristic;
+
+        map.addTileMapListener(this);
+    }
+
+    /**
+     * Returns the target tile of all distances.
+     * @return the target tile
+     */
+    public Point2D.Int getTarget() {
+        return new Point2D.Int(target.x, target.y);
+    }
+
+    /**
+     * Returns the number of tiles expanded since the search started.
+     * @return the number of expanded tiles
+     */
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * Stops following changes of the map, releasing the reference the map holds to the oracle.
+     * The oracle keeps answering from the state it has.
+     */
+    public void detach() {
+        map.removeTileMapListener(this);
+    }
+
+    /**
+     * Discards the state of the search, it will be started again by the next query.
+     */
+    public void reset() {
+        costs = null;
+        closed = null;
+        open = null;
+        origin = null;
+        expandedNodes = 0;
+    }
+
+    /**
+     * Returns the cost of the cheapest path from a tile to the target.
+     * @param tile  the tile to check
+     * @return the cost, or positive infinity if the target can't be reached
+     */
+    public float distanceTo(final Point2D.Int tile) {
+        return distanceTo(tile.x, tile.y);
+    }
+
+    /**
+     * Returns the cost of the cheapest path from a tile to the target.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return the cost, or positive infinity if the target can't be reached or the tile is out of the map bounds
+     */
+    public float distanceTo(final int x, final int y) {
+
+        if (!map.isValidLocation(x, y)) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        if (costs == null || costs.length != map.getWidthInTiles() * map.getHeightInTiles()) {
+            start(x, y);
+        }
+
+        final int tile = y * map.getWidthInTiles() + x;
+
+        if (!closed[tile]) {
+            resume(tile);
+        }
+
+        return closed[tile] ? costs[tile] : Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getHeuristicCost(final Map<Point2D.Int> map, final MovingEntity entity, final Point2D.Int source, final Point2D.Int target) {
+        return distanceTo(source.x, source.y);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void tilesChanged(final TileMap map, final int x, final int y, final int width, final int height) {
+        reset();
+    }
+
+    /**
+     * Starts the search from the target, guided towards a tile.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     */
+    private void start(final int x, final int y) {
+
+        final int width = map.getWidthInTiles();
+        final int tiles = width * map.getHeightInTiles();
+
+        costs = new float[tiles];
+        closed = new boolean[tiles];
+        open = new IntPriorityQueue(tiles);
+        origin = new Point2D.Int(x, y);
+        expandedNodes = 0;
+
+        Arrays.fill(costs, Float.POSITIVE_INFINITY);
+
+        costs[target.y * width + target.x] = 0;
+        open.offer(target.y * width + target.x, estimate(target.x, target.y));
+    }
+
+    /**
+     * Expands tiles until a tile is closed or the search is exhausted.
+     * @param goal  the index of the tile
+     */
+    private void resume(final int goal) {
+
+        final int width = map.getWidthInTiles();
+        final boolean diagonal = map.canMoveDiagonaly(entity);
+
+        while (!closed[goal] && !open.isEmpty()) {
+
+            final int tile = open.poll();
+            final int x = tile % width;
+            final int y = tile / width;
+
+            closed[tile] = true;
+            expandedNodes++;
+
+            // no move can enter a blocked tile, though searches may start on one
+            if (!map.canMoveTo(entity, x, y)) {
+                continue;
+            }
+
+            for (int direction = 0; direction < 8; direction += diagonal ? 1 : 2) {
+
+                final int nx = x + CompactPath.getDeltaX(direction);
+                final int ny = y + CompactPath.getDeltaY(direction);
+
+                if (!map.isValidLocation(nx, ny)) {
+                    continue;
+                }
+
+                final int neighbor = ny * width + nx;
+
+                if (closed[neighbor]) {
+                    continue;
+                }
+
+                from.x = nx;
+                from.y = ny;
+                to.x = x;
+                to.y = y;
+
+                final float cost = costs[tile] + map.getCost(entity, from, to);
+
+                if (cost < costs[neighbor]) {
+                    costs[neighbor] = cost;
+                    open.offer(neighbor, cost + estimate(nx, ny));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the heuristic cost of reaching a tile from the origin of the search.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return the heuristic cost
+     */
+    private float estimate(final int x, final int y) {
+
+        if (heuristic == null) {
+            return 0;
+        }
+
+        to.x = x;
+        to.y = y;
+
+        return heuristic.getHeuristicCost(map, entity, origin, to);
+    }
+}
\ No newline at end of file
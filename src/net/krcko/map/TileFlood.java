@@ -0,0 +1,224 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.Arrays;
+import net.krcko.math.Point2D;
+import net.krcko.util.IntBucketQueue;
+
+/**
+ * A bounded Dijkstra flood of a <code>TileMap</code>, using a bucket queue and
+ * primitive arrays which are reused between floods of the same map size.
+ *
+ * @author Aleksandar Ružičić
+ */
+final class TileFlood {
+
+    /**
+     * The maximum number of buckets of a flood.
+     */
+    private static final int MAX_BUCKETS = 1 << 16;
+
+    /**
+     * The cost of each tile, positive infinity for tiles not reached.
+     */
+    private float[] costs = new float[0];
+
+    /**
+     * The direction from each reached tile to its predecessor.
+     */
+    private byte[] directions = new byte[0];
+
+    /**
+     * Indices of reached tiles.
+     */
+    private int[] reached = new int[16];
+
+    /**
+     * The queue of tiles to expand.
+     */
+    private IntBucketQueue queue;
+
+    /**
+     * The reused source point of cost queries.
+     */
+    private final Point2D.Int from = new Point2D.Int();
+
+    /**
+     * The reused target point of cost queries.
+     */
+    private final Point2D.Int to = new Point2D.Int();
+
+    /**
+     * Finds all tiles the entity can reach from the source tile within a cost budget.
+     * @param map       the map to flood
+     * @param entity    entity which is about to move
+     * @param source    starting tile
+     * @param maxCost   the maximum cost of reached tiles
+     * @return the reachable area
+     * @throws IndexOutOfBoundsException if the source is out of the map bounds
+     */
+    ReachableArea<Point2D.Int> flood(final TileMap map, final MovingEntity entity, final Point2D.Int source, final float maxCost) throws IndexOutOfBoundsException {
+
+        if (!map.isValidLocation(source)) {
+            throw new IndexOutOfBoundsException("Tile with coordinates (" + source.x + ", " + source.y + ") is out of the map bounds.");
+        }
+
+        final int width = map.getWidthInTiles();
+        final int tiles = width * map.getHeightInTiles();
+
+        if (costs.length != tiles) {
+            costs = new float[tiles];
+            directions = new byte[tiles];
+            queue = null;
+            Arrays.fill(costs, Float.POSITIVE_INFINITY);
+        }
+
+        final boolean diagonal = map.canMoveDiagonaly(entity);
+
+        // buckets as wide as the cheapest move out of the source make the flood exact in most maps
+        float bucketWidth = Float.POSITIVE_INFINITY;
+
+        for (int direction = 0; direction < 8; direction += diagonal ? 1 : 2) {
+
+            final int x = source.x + CompactPath.getDeltaX(direction);
+            final int y = source.y + CompactPath.getDeltaY(direction);
+
+            if (map.isValidLocation(x, y) && map.canMoveTo(entity, x, y)) {
+                bucketWidth = Math.min(bucketWidth, getMoveCost(map, entity, source.x, source.y, x, y));
+            }
+        }
+
+        bucketWidth = Math.max(bucketWidth == Float.POSITIVE_INFINITY ? 0 : bucketWidth, maxCost / MAX_BUCKETS);
+
+        if (!(bucketWidth > 0)) {
+            bucketWidth = 1;
+        }
+
+        final int bucketCount = (int) Math.min(maxCost / bucketWidth + 2, MAX_BUCKETS + 2);
+
+        if (queue == null) {
+            queue = new IntBucketQueue(tiles, bucketWidth, bucketCount);
+        } else {
+            queue.reset(bucketWidth, bucketCount);
+        }
+
+        final int start = source.y * width + source.x;
+
+        int count = 0;
+        int minX = source.x;
+        int minY = source.y;
+        int maxX = source.x;
+        int maxY = source.y;
+
+        costs[start] = 0;
+        directions[start] = (byte) FlowField.NONE;
+        reached[count++] = start;
+        queue.offer(start, 0);
+
+        while (!queue.isEmpty()) {
+
+            final int tile = queue.poll();
+            final int x = tile % width;
+            final int y = tile / width;
+            final float cost = costs[tile];
+
+            for (int direction = 0; direction < 8; direction += diagonal ? 1 : 2) {
+
+                final int nx = x + CompactPath.getDeltaX(direction);
+                final int ny = y + CompactPath.getDeltaY(direction);
+
+                if (!map.isValidLocation(nx, ny) || !map.canMoveTo(entity, nx, ny)) {
+                    continue;
+                }
+
+                final float candidate = cost + getMoveCost(map, entity, x, y, nx, ny);
+                final int neighbor = ny * width + nx;
+
+                if (candidate > maxCost || candidate >= costs[neighbor]) {
+                    continue;
+                }
+
+                if (costs[neighbor] == Float.POSITIVE_INFINITY) {
+
+                    if (count == reached.length) {
+                        reached = Arrays.copyOf(reached, count * 2);
+                    }
+
+                    reached[count++] = neighbor;
+
+                    minX = Math.min(minX, nx);
+                    minY = Math.min(minY, ny);
+                    maxX = Math.max(maxX, nx);
+                    maxY = Math.max(maxY, ny);
+                }
+
+                costs[neighbor] = candidate;
+                directions[neighbor] = (byte) ((direction + 4) & 7);
+                queue.offer(neighbor, candidate);
+            }
+        }
+
+        // copy the bounding box of reached tiles out and reset the reused arrays
+        final int areaWidth = maxX - minX + 1;
+        final float[] areaCosts = new float[areaWidth * (maxY - minY + 1)];
+        final byte[] areaDirections = new byte[areaCosts.length];
+
+        Arrays.fill(areaCosts, Float.POSITIVE_INFINITY);
+        Arrays.fill(areaDirections, (byte) FlowField.NONE);
+
+        for (int i = 0; i < count; i++) {
+
+            final int tile = reached[i];
+            final int index = (tile / width - minY) * areaWidth + (tile % width - minX);
+
+            areaCosts[index] = costs[tile];
+            areaDirections[index] = directions[tile];
+            costs[tile] = Float.POSITIVE_INFINITY;
+        }
+
+        return new ReachableArea.Tiles(new Point2D.Int(source.x, source.y), maxCost, minX, minY, areaWidth, maxY - minY + 1, areaCosts, areaDirections, count);
+    }
+
+    /**
+     * Returns the cost of moving between two neighboring tiles.
+     * @param map       the map to flood
+     * @param entity    entity which is about to move
+     * @param fx        the X coordinate of the source tile
+     * @param fy        the Y coordinate of the source tile
+     * @param tx        the X coordinate of the target tile
+     * @param ty        the Y coordinate of the target tile
+     * @return the cost of the move
+     */
+    private float getMoveCost(final TileMap map, final MovingEntity entity, final int fx, final int fy, final int tx, final int ty) {
+        from.x = fx;
+        from.y = fy;
+        to.x = tx;
+        to.y = ty;
+        return map.getCost(entity, from, to);
+    }
+}
\ No newline at end of file
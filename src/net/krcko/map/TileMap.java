@@ -26,6 +26,7 @@
  */
 package net.krcko.map;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import net.krcko.math.Point2D;
 
@@ -33,11 +34,64 @@ import net.krcko.math.Point2D;
  * A 2-dimensional rectangular-tile based <code>Map</code>.
  * 
  * This class is only the abstract superclass for objects that store 2D map data.
+ * <p>
+ * The map keeps a journal of its changes. Every published change increments
+ * the map version, and the rectangles changed since any recent version can be
+ * retrieved by <code>getChangesSince</code>. Edits made within <code>batchEdit</code>
+ * are published together as a single change, once all of them are applied.
+ * <p>
+ * The map itself does not synchronize edits: the batch state and the changes
+ * recorded by <code>fireTilesChanged</code> must only be touched by one thread
+ * at a time, so edits, batches and listener registrations must be made by a
+ * single thread or under an external lock. Subclasses which allow concurrent
+ * writers, such as <code>CopyOnWriteTileMap</code>, serialize them themselves.
+ * <code>getVersion</code> and <code>getChangesSince</code> may be called by
+ * any thread.
  *
  * @author Aleksandar Ružičić
  */
 public abstract class TileMap extends Map<Point2D.Int> {
 
+    /**
+     * Objects notified when tiles of this map change, or <tt>null</tt> until one is registered.
+     */
+    private ArrayList<TileMapListener> tileMapListeners;
+
+    /**
+     * The default number of changes kept by the journal.
+     */
+    public static final int DEFAULT_JOURNAL_CAPACITY = 64;
+
+    /**
+     * Guards the journal and the version.
+     */
+    private final Object journalLock = new Object();
+
+    /**
+     * Recently published changes, oldest first, or <tt>null</tt> until the first change.
+     */
+    private ArrayDeque<TileMapChange> journal;
+
+    /**
+     * The maximum number of changes kept by the journal.
+     */
+    private int journalCapacity = DEFAULT_JOURNAL_CAPACITY;
+
+    /**
+     * Rectangles changed since the last published change, or <tt>null</tt> until the first change.
+     */
+    private DirtyRegions dirty;
+
+    /**
+     * The number of nested batches currently being edited.
+     */
+    private int batchDepth;
+
+    /**
+     * The number of published changes.
+     */
+    private volatile long version;
+
     /**
      * Returns number of tile columns in the map.
      * @return number of columns
@@ -79,6 +133,270 @@ public abstract class TileMap extends Map<Point2D.Int> {
         return x >= 0 && x < getWidthInTiles() && y >= 0 && y < getHeightInTiles();
     }
 
+    /**
+     * Checks if entity can be moved to specified tile on the map.
+     * <p>
+     * The default implementation delegates to <code>canMoveTo(MovingEntity, Point2D.Int)</code>,
+     * subclasses should override it to avoid allocating a point for each check.
+     * @param entity    the entity to be moved
+     * @param x         the X coordinate of the tile
+     * @param y         the Y coordinate of the tile
+     * @return  <tt>true</tt> if entity can be moved to target location
+     */
+    public boolean canMoveTo(final MovingEntity entity, final int x, final int y) {
+        return canMoveTo(entity, new Point2D.Int(x, y));
+    }
+
+    /**
+     * Registers an object which will be notified when tiles of this map change.
+     * @param listener  the listener to register
+     */
+    public void addTileMapListener(final TileMapListener listener) {
+
+        if (tileMapListeners == null) {
+            tileMapListeners = new ArrayList<>();
+        }
+
+        tileMapListeners.add(listener);
+    }
+
+    /**
+     * Unregisters an object previously registered by <code>addTileMapListener</code>.
+     * @param listener  the listener to unregister
+     */
+    public void removeTileMapListener(final TileMapListener listener) {
+
+        if (tileMapListeners != null) {
+            tileMapListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Notifies registered listeners that tiles within the specified rectangle have changed.
+     * Subclasses which allow editing of the map must call this method after each edit.
+     * Within a batch the rectangle is only recorded, and listeners are notified
+     * once the batch ends.
+     * @param x         the X coordinate of the first changed column
+     * @param y         the Y coordinate of the first changed row
+     * @param width     the number of changed columns
+     * @param height    the number of changed rows
+     */
+    protected void fireTilesChanged(final int x, final int y, final int width, final int height) {
+
+        if (dirty == null) {
+            dirty = new DirtyRegions();
+        }
+
+        dirty.add(x, y, width, height);
+
+        if (batchDepth == 0) {
+            publishChange();
+        }
+    }
+
+    /**
+     * Returns the version of the map, incremented by each published change.
+     * @return the version number
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Applies edits made by specified code as a single change. Listeners are
+     * notified once, after all edits were applied, even if the code throws an
+     * exception. Batches may be nested, in which case the change is published
+     * when the outermost batch ends.
+     * <p>
+     * Batches are not synchronized, like all other edits of the map.
+     * @param edits the code editing the map
+     */
+    public void batchEdit(final Runnable edits) {
+
+        beginBatch();
+
+        try {
+            edits.run();
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if a batch of edits is in progress.
+     * @return <tt>true</tt> if changes are being deferred
+     */
+    protected boolean isBatchEditing() {
+        return batchDepth > 0;
+    }
+
+    /**
+     * Starts a batch of edits, deferring change notifications until the matching <code>endBatch</code>.
+     */
+    protected void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Ends a batch of edits, publishing its changes if it was the outermost one.
+     * @throws IllegalStateException if no batch is in progress
+     */
+    protected void endBatch() throws IllegalStateException {
+
+        if (batchDepth == 0) {
+            throw new IllegalStateException("No batch edit is in progress.");
+        }
+
+        if (batchDepth > 1) {
+            batchDepth--;
+            return;
+        }
+
+        try {
+            commitBatch();
+        } finally {
+            batchDepth = 0;
+        }
+
+        if (dirty != null && !dirty.isEmpty()) {
+            publishChange();
+        }
+    }
+
+    /**
+     * Called when the outermost batch of edits ends, before its change is
+     * published. Subclasses which defer edits themselves apply them here.
+     */
+    protected void commitBatch() {
+    }
+
+    /**
+     * Returns the number of changes kept by the journal.
+     * @return the journal capacity
+     */
+    public int getJournalCapacity() {
+        synchronized (journalLock) {
+            return journalCapacity;
+        }
+    }
+
+    /**
+     * Sets the number of changes kept by the journal, discarding the oldest ones if necessary.
+     * @param capacity  the journal capacity
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public void setJournalCapacity(final int capacity) throws IllegalArgumentException {
+
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Journal capacity must not be negative.");
+        }
+
+        synchronized (journalLock) {
+
+            journalCapacity = capacity;
+
+            while (journal != null && journal.size() > capacity) {
+                journal.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Returns all tiles changed since specified version, coalesced into rectangles.
+     * @param version   the version the caller is up to date with
+     * @return the changes, with the current version and no rectangles if nothing
+     *          has changed, or <tt>null</tt> if the journal no longer reaches back
+     *          to the version and the whole map must be treated as changed
+     * @throws IllegalArgumentException if the version is newer than the map
+     */
+    public TileMapChange getChangesSince(final long version) throws IllegalArgumentException {
+        return getChanges(version, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns all tiles changed after one version up to another, coalesced into rectangles.
+     * @param version   the version the caller is up to date with
+     * @param until     the last version whose changes are returned, limited by the map version
+     * @return the changes, with the last returned version and no rectangles if nothing
+     *          has changed, or <tt>null</tt> if the journal no longer reaches back
+     *          to the version and the whole map must be treated as changed
+     * @throws IllegalArgumentException if the version is newer than the last returned version
+     */
+    protected TileMapChange getChanges(final long version, final long until) throws IllegalArgumentException {
+
+        synchronized (journalLock) {
+
+            final long current = Math.min(this.version, until);
+
+            if (version > current) {
+                throw new IllegalArgumentException("Version " + version + " is newer than the map version " + current + ".");
+            }
+
+            if (version == current) {
+                return new TileMapChange(current, new int[0]);
+            }
+
+            if (journal == null || journal.isEmpty() || journal.peekFirst().getVersion() > version + 1) {
+                return null;
+            }
+
+            final DirtyRegions regions = new DirtyRegions();
+
+            for (TileMapChange change: journal) {
+                if (change.getVersion() > version && change.getVersion() <= current) {
+                    regions.addAll(change);
+                }
+            }
+
+            return new TileMapChange(current, regions.toArray());
+        }
+    }
+
+    /**
+     * Publishes recorded rectangles as a new version, records it in the journal and notifies listeners.
+     */
+    private void publishChange() {
+
+        final TileMapChange change;
+
+        synchronized (journalLock) {
+
+            change = new TileMapChange(version + 1, dirty.toArray());
+            dirty.clear();
+
+            if (journalCapacity > 0) {
+
+                if (journal == null) {
+                    journal = new ArrayDeque<>();
+                }
+
+                if (journal.size() == journalCapacity) {
+                    journal.removeFirst();
+                }
+
+                journal.addLast(change);
+            }
+
+            version = change.getVersion();
+        }
+
+        if (tileMapListeners == null) {
+            return;
+        }
+
+        for (TileMapListener listener: tileMapListeners) {
+
+            if (listener instanceof TileMapChangeListener) {
+                ((TileMapChangeListener) listener).tilesChanged(this, change);
+                continue;
+            }
+
+            for (int i = 0; i < change.getRegionCount(); i++) {
+                listener.tilesChanged(this, change.getX(i), change.getY(i), change.getWidth(i), change.getHeight(i));
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
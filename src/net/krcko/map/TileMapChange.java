@@ -0,0 +1,141 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+/**
+ * A published change of a <code>TileMap</code>: the version it produced and
+ * the rectangles of tiles which might have changed.
+ * <p>
+ * Rectangles are coalesced, so together they cover every changed tile but
+ * may cover some unchanged tiles as well, and may overlap. A change of the
+ * map size is reported as a change of all tiles.
+ *
+ * @author Aleksandar Ružičić
+ */
+public final class TileMapChange {
+
+    /**
+     * The version of the map after the change.
+     */
+    private final long version;
+
+    /**
+     * X, Y, width and height of each changed rectangle.
+     */
+    private final int[] regions;
+
+    /**
+     * Constructs new change.
+     * @param version   the version of the map after the change
+     * @param regions   X, Y, width and height of each changed rectangle
+     */
+    TileMapChange(final long version, final int[] regions) {
+        this.version = version;
+        this.regions = regions;
+    }
+
+    /**
+     * Returns the version of the map after the change.
+     * @return the version number
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the number of changed rectangles.
+     * @return the number of rectangles
+     */
+    public int getRegionCount() {
+        return regions.length / 4;
+    }
+
+    /**
+     * Returns the X coordinate of the first column of a changed rectangle.
+     * @param region    the index of the rectangle
+     * @return the X coordinate
+     */
+    public int getX(final int region) {
+        return regions[4 * region];
+    }
+
+    /**
+     * Returns the Y coordinate of the first row of a changed rectangle.
+     * @param region    the index of the rectangle
+     * @return the Y coordinate
+     */
+    public int getY(final int region) {
+        return regions[4 * region + 1];
+    }
+
+    /**
+     * Returns the number of columns of a changed rectangle.
+     * @param region    the index of the rectangle
+     * @return the width of the rectangle
+     */
+    public int getWidth(final int region) {
+        return regions[4 * region + 2];
+    }
+
+    /**
+     * Returns the number of rows of a changed rectangle.
+     * @param region    the index of the rectangle
+     * @return the height of the rectangle
+     */
+    public int getHeight(final int region) {
+        return regions[4 * region + 3];
+    }
+
+    /**
+     * Returns <tt>true</tt> if specified tile might have changed.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return <tt>true</tt> if the tile is within a changed rectangle
+     */
+    public boolean contains(final int x, final int y) {
+        return intersects(x, y, 1, 1);
+    }
+
+    /**
+     * Returns <tt>true</tt> if any tile of specified rectangle might have changed.
+     * @param x         the X coordinate of the first column
+     * @param y         the Y coordinate of the first row
+     * @param width     the number of columns
+     * @param height    the number of rows
+     * @return <tt>true</tt> if the rectangle intersects a changed rectangle
+     */
+    public boolean intersects(final int x, final int y, final int width, final int height) {
+
+        for (int k = 0; k < regions.length; k += 4) {
+            if (x < regions[k] + regions[k + 2] && regions[k] < x + width && y < regions[k + 1] + regions[k + 3] && regions[k + 1] < y + height) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,177 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import net.krcko.math.Point2D;
+
+/**
+ * Presents a <code>TileMap</code> as an <code>IndexedGraph</code>, so square
+ * grids can be searched by <code>IndexedAStarPathFinder</code>. Node ids are
+ * tile indices in row-major order.
+ * <p>
+ * Move costs are queried using a pair of reused points, so an instance must
+ * not be used by several threads at once.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class TileMapGraph implements IndexedGraph<Point2D.Int> {
+
+    /**
+     * X offsets of neighbor tiles, orthogonal neighbors first.
+     */
+    private static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+
+    /**
+     * Y offsets of neighbor tiles, orthogonal neighbors first.
+     */
+    private static final int[] DY = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    /**
+     * The map presented as a graph.
+     */
+    private final TileMap map;
+
+    /**
+     * The reused source point of cost queries.
+     */
+    private final Point2D.Int source = new Point2D.Int();
+
+    /**
+     * The reused target point of cost queries.
+     */
+    private final Point2D.Int target = new Point2D.Int();
+
+    /**
+     * Constructs new graph view of specified map.
+     * @param map   the map presented as a graph
+     */
+    public TileMapGraph(final TileMap map) {
+        this.map = map;
+    }
+
+    /**
+     * Returns the map presented as a graph.
+     * @return the map
+     */
+    public TileMap getMap() {
+        return map;
+    }
+
+    /**
+     * Adapts a heuristic of tile coordinates to node ids of this graph.
+     * @param heuristic the heuristic to adapt
+     * @return the heuristic of node ids
+     */
+    public IndexedHeuristic adapt(final Heuristic<Point2D.Int> heuristic) {
+
+        final Point2D.Int from = new Point2D.Int();
+        final Point2D.Int to = new Point2D.Int();
+
+        return new IndexedHeuristic() {
+            @Override
+            public float getHeuristicCost(final IndexedGraph<?> graph, final MovingEntity entity, final int node, final int goal) {
+
+                final int width = map.getWidthInTiles();
+
+                from.setX(node % width);
+                from.setY(node / width);
+                to.setX(goal % width);
+                to.setY(goal / width);
+
+                return heuristic.getHeuristicCost(map, entity, from, to);
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNodeCount() {
+        return map.getWidthInTiles() * map.getHeightInTiles();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxDegree() {
+        return DX.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNeighbors(final MovingEntity entity, final int node, final int[] neighbors, final float[] costs) {
+
+        final int width = map.getWidthInTiles();
+        final int x = node % width;
+        final int y = node / width;
+        final int directions = map.canMoveDiagonaly(entity) ? 8 : 4;
+
+        source.setX(x);
+        source.setY(y);
+
+        int count = 0;
+
+        for (int i = 0; i < directions; i++) {
+
+            final int nx = x + DX[i];
+            final int ny = y + DY[i];
+
+            if (!map.isValidLocation(nx, ny) || !map.canMoveTo(entity, nx, ny)) {
+                continue;
+            }
+
+            target.setX(nx);
+            target.setY(ny);
+
+            neighbors[count] = ny * width + nx;
+            costs[count] = map.getCost(entity, source, target);
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNode(final Point2D.Int location) {
+        return map.isValidLocation(location) ? location.y * map.getWidthInTiles() + location.x : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Point2D.Int getLocation(final int node) {
+        return new Point2D.Int(node % map.getWidthInTiles(), node / map.getWidthInTiles());
+    }
+}
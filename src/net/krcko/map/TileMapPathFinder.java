@@ -0,0 +1,130 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.Collection;
+import net.krcko.map.heuristic.Diagonal2D;
+import net.krcko.map.heuristic.Euclidean2D;
+import net.krcko.map.heuristic.Manhattan2D;
+import net.krcko.map.heuristic.NearestTile;
+import net.krcko.math.Point2D;
+
+/**
+ * An <code>AStarPathFinder</code> for tile maps which can return paths in
+ * the compact form.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class TileMapPathFinder extends AStarPathFinder<Point2D.Int> {
+
+    /**
+     * The flood of reachable areas, created when first needed.
+     */
+    private TileFlood flood;
+
+    /**
+     * Constructs new path finder for specified map.
+     * @param map       the map object which will be searched for paths
+     * @param heuristic the object providing search heuristic method
+     */
+    public TileMapPathFinder(final TileMap map, final Heuristic<Point2D.Int> heuristic) {
+        super(map, heuristic);
+    }
+
+    /**
+     * Constructs new path finder for specified map.
+     * @param map       the map object which will be searched for paths
+     * @param heuristic the object providing search heuristic method
+     * @param maxSearchDistance the maximum search distance to accept before giving up
+     */
+    public TileMapPathFinder(final TileMap map, final Heuristic<Point2D.Int> heuristic, final int maxSearchDistance) {
+        super(map, heuristic, maxSearchDistance);
+    }
+
+    /**
+     * Finds path within the map from source point to the target, returning it
+     * in the compact form. The path processor is not applied, as processed
+     * paths may contain steps which are not neighbors.
+     * @param entity    entity which is about to move
+     * @param source    starting point on the map
+     * @param target    ending point on the map
+     * @return  the path, or <tt>null</tt> if no such path can be found
+     */
+    public CompactPath findCompactPath(final MovingEntity entity, final Point2D.Int source, final Point2D.Int target) {
+
+        final MapNode<Point2D.Int> node = search(entity, source, target);
+
+        return node == null ? null : CompactPath.fromNode(node, source);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Targets are indexed by a grid if the heuristic is one of the built-in
+     * 2-dimensional distances, which allows searching among many targets.
+     */
+    @Override
+    protected Heuristic<Point2D.Int> createNearestHeuristic(final Collection<Point2D.Int> targets) {
+
+        final Heuristic<Point2D.Int> heuristic = getHeuristic();
+
+        if (heuristic instanceof Manhattan2D.Int || heuristic instanceof Diagonal2D.Int || heuristic instanceof Euclidean2D.Int) {
+            return new NearestTile(heuristic, targets);
+        }
+
+        return super.createNearestHeuristic(targets);
+    }
+
+    /**
+     * Finds all tiles the entity can reach from the source tile within a cost
+     * budget. Floods of tile maps use a bucket queue and primitive arrays, and
+     * return areas which store their costs in the bounding box of reached tiles.
+     * @param entity    entity which is about to move
+     * @param source    starting tile
+     * @param maxCost   the maximum cost of reached tiles
+     * @return the reachable area, which contains at least the source tile
+     * @throws IllegalArgumentException if the budget is negative or not finite
+     * @throws IndexOutOfBoundsException if the source is out of the map bounds
+     */
+    @Override
+    public ReachableArea<Point2D.Int> reachable(final MovingEntity entity, final Point2D.Int source, final float maxCost) throws IllegalArgumentException, IndexOutOfBoundsException {
+
+        if (!(map instanceof TileMap)) {
+            return super.reachable(entity, source, maxCost);
+        }
+
+        if (!(maxCost >= 0) || maxCost == Float.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException("Maximum cost must be finite and non-negative.");
+        }
+
+        if (flood == null) {
+            flood = new TileFlood();
+        }
+
+        return flood.flood((TileMap) map, entity, source, maxCost);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,594 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.Arrays;
+import net.krcko.math.Point3D;
+
+/**
+ * A multi-layer voxel <code>Map</code>, for levels of several floors
+ * connected by stairs, ladders and similar passages.
+ * <p>
+ * Each layer is a rectangular grid whose passability is stored as one bit per
+ * cell, so a map of tens of millions of cells takes a few megabytes. Within a
+ * layer entities move between neighboring cells, at the cost of <tt>1</tt> for
+ * orthogonal and <tt>sqrt(2)</tt> for diagonal moves; a diagonal move is only
+ * allowed if both cells it passes by are passable. Layers are connected only
+ * by portals, directed edges between two arbitrary cells with their own cost.
+ * For heuristics to stay admissible, the cost of a portal should not be lower
+ * than the distance between its ends.
+ * <p>
+ * Cells are numbered <code>(z * height + y) * width + x</code>, and the map is
+ * an <code>IndexedGraph</code> over these ids, so it can be searched by
+ * <code>IndexedAStarPathFinder</code> without allocating objects.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class VoxelMap extends Map<Point3D.Int> implements IndexedGraph<Point3D.Int> {
+
+    /**
+     * X offsets of neighbor cells, orthogonal neighbors first.
+     */
+    private static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+
+    /**
+     * Y offsets of neighbor cells, orthogonal neighbors first.
+     */
+    private static final int[] DY = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    /**
+     * The cost of a diagonal move.
+     */
+    private static final float DIAGONAL_COST = (float) Math.sqrt(2);
+
+    /**
+     * The number of cell columns.
+     */
+    private final int width;
+
+    /**
+     * The number of cell rows.
+     */
+    private final int height;
+
+    /**
+     * The number of layers.
+     */
+    private final int layers;
+
+    /**
+     * The number of words of a row of cells.
+     */
+    private final int rowWords;
+
+    /**
+     * <tt>true</tt> if diagonal moves are allowed.
+     */
+    private final boolean diagonal;
+
+    /**
+     * Passability bits, one row after another.
+     */
+    private final long[] passable;
+
+    /**
+     * Bits of cells which have outgoing portals, one row after another.
+     */
+    private final long[] portalCells;
+
+    /**
+     * The starting cell of each portal.
+     */
+    private int[] portalFrom = new int[16];
+
+    /**
+     * The ending cell of each portal.
+     */
+    private int[] portalTo = new int[16];
+
+    /**
+     * The cost of each portal.
+     */
+    private float[] portalCost = new float[16];
+
+    /**
+     * The number of portals.
+     */
+    private int portalCount;
+
+    /**
+     * Portals sorted by starting cell, as starting cell in the high and portal
+     * index in the low word, or <tt>null</tt> if they need sorting.
+     */
+    private long[] sortedPortals;
+
+    /**
+     * The largest number of portals leaving a single cell, valid while portals are sorted.
+     */
+    private int maxPortalsPerCell;
+
+    /**
+     * Constructs new map with all cells blocked.
+     * @param width     the number of cell columns
+     * @param height    the number of cell rows
+     * @param layers    the number of layers
+     * @param diagonal  <tt>true</tt> to allow diagonal moves
+     * @throws IllegalArgumentException if the size is negative or too large
+     */
+    public VoxelMap(final int width, final int height, final int layers, final boolean diagonal) throws IllegalArgumentException {
+
+        if (width < 0 || height < 0 || layers < 0 || (long) width * height * layers > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid map size: " + width + "x" + height + "x" + layers + ".");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.layers = layers;
+        this.diagonal = diagonal;
+        this.rowWords = (width + 63) >>> 6;
+        this.passable = new long[rowWords * height * layers];
+        this.portalCells = new long[passable.length];
+    }
+
+    /**
+     * Returns number of cell columns in the map.
+     * @return number of columns
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns number of cell rows in the map.
+     * @return number of rows
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns number of layers of the map.
+     * @return number of layers
+     */
+    public int getLayers() {
+        return layers;
+    }
+
+    /**
+     * Returns <tt>true</tt> if diagonal moves within a layer are allowed.
+     * @return <tt>true</tt> if diagonal moves are allowed
+     */
+    public boolean isDiagonal() {
+        return diagonal;
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the map data.
+     * @return the memory usage in bytes
+     */
+    public long getMemoryUsage() {
+        return 16L * passable.length + 12L * portalFrom.length + (sortedPortals == null ? 0 : 8L * sortedPortals.length);
+    }
+
+    /**
+     * Returns <tt>true</tt> if specified location is within the map bounds.
+     * @param x the X coordinate of the cell
+     * @param y the Y coordinate of the cell
+     * @param z the layer of the cell
+     * @return  <tt>true</tt> if location is within the map bounds
+     */
+    public boolean isValidLocation(final int x, final int y, final int z) {
+        return x >= 0 && x < width && y >= 0 && y < height && z >= 0 && z < layers;
+    }
+
+    /**
+     * Returns <tt>true</tt> if a cell is passable.
+     * @param x the X coordinate of the cell
+     * @param y the Y coordinate of the cell
+     * @param z the layer of the cell
+     * @return <tt>true</tt> if the cell is within the map bounds and passable
+     */
+    public boolean isPassable(final int x, final int y, final int z) {
+        return isValidLocation(x, y, z) && (passable[(z * height + y) * rowWords + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Sets passability of a cell.
+     * @param x         the X coordinate of the cell
+     * @param y         the Y coordinate of the cell
+     * @param z         the layer of the cell
+     * @param value     <tt>true</tt> to make the cell passable
+     * @throws IndexOutOfBoundsException if the cell is out of the map bounds
+     */
+    public void setPassable(final int x, final int y, final int z, final boolean value) throws IndexOutOfBoundsException {
+
+        if (!isValidLocation(x, y, z)) {
+            throw new IndexOutOfBoundsException("Cell with coordinates (" + x + ", " + y + ", " + z + ") is out of the map bounds.");
+        }
+
+        final int word = (z * height + y) * rowWords + (x >>> 6);
+
+        if (value) {
+            passable[word] |= 1L << x;
+        } else {
+            passable[word] &= ~(1L << x);
+        }
+    }
+
+    /**
+     * Sets passability of all cells of a layer.
+     * @param z         the layer
+     * @param value     <tt>true</tt> to make the cells passable
+     * @throws IndexOutOfBoundsException if the layer is out of the map bounds
+     */
+    public void fillLayer(final int z, final boolean value) throws IndexOutOfBoundsException {
+
+        if (z < 0 || z >= layers) {
+            throw new IndexOutOfBoundsException("Layer " + z + " is out of the map bounds.");
+        }
+
+        final int from = z * height * rowWords;
+
+        Arrays.fill(passable, from, from + height * rowWords, 0);
+
+        if (!value) {
+            return;
+        }
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x += 64) {
+                passable[from + y * rowWords + (x >>> 6)] = width - x >= 64 ? -1L : (1L << (width - x)) - 1;
+            }
+        }
+    }
+
+    /**
+     * Adds a portal between two cells.
+     * @param from          the starting cell
+     * @param to            the ending cell
+     * @param cost          the cost of moving trough the portal
+     * @param bidirectional <tt>true</tt> to add the portal in the opposite direction as well
+     * @throws IndexOutOfBoundsException if a cell is out of the map bounds
+     */
+    public void addPortal(final Point3D.Int from, final Point3D.Int to, final float cost, final boolean bidirectional) throws IndexOutOfBoundsException {
+
+        final int a = getNode(from);
+        final int b = getNode(to);
+
+        if (a < 0 || b < 0) {
+            throw new IndexOutOfBoundsException("Portal " + from + " - " + to + " is out of the map bounds.");
+        }
+
+        addPortal(a, b, cost);
+
+        if (bidirectional) {
+            addPortal(b, a, cost);
+        }
+    }
+
+    /**
+     * Removes all portals.
+     */
+    public void clearPortals() {
+        Arrays.fill(portalCells, 0);
+        portalCount = 0;
+        maxPortalsPerCell = 0;
+        sortedPortals = null;
+    }
+
+    /**
+     * Returns the number of portals.
+     * @return the number of portals
+     */
+    public int getPortalCount() {
+        return portalCount;
+    }
+
+    /**
+     * Returns the X coordinate of a cell.
+     * @param node  the cell id
+     * @return the X coordinate
+     */
+    public int getX(final int node) {
+        return node % width;
+    }
+
+    /**
+     * Returns the Y coordinate of a cell.
+     * @param node  the cell id
+     * @return the Y coordinate
+     */
+    public int getY(final int node) {
+        return node / width % height;
+    }
+
+    /**
+     * Returns the layer of a cell.
+     * @param node  the cell id
+     * @return the layer
+     */
+    public int getZ(final int node) {
+        return node / width / height;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Point3D.Int[] getNeighbors(final Point3D.Int location, final MovingEntity entity) {
+
+        final int node = getNode(location);
+
+        if (node < 0) {
+            return new Point3D.Int[0];
+        }
+
+        final int[] neighbors = new int[getMaxDegree()];
+        final int count = getNeighbors(entity, node, neighbors, new float[neighbors.length]);
+        final Point3D.Int[] result = new Point3D.Int[count];
+
+        for (int i = 0; i < count; i++) {
+            result[i] = getLocation(neighbors[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canMoveTo(final MovingEntity entity, final Point3D.Int target) {
+        return isPassable(target.x, target.y, target.z);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalArgumentException if the cells are not connected by a move or a portal
+     */
+    @Override
+    public float getCost(final MovingEntity entity, final Point3D.Int source, final Point3D.Int target) throws IllegalArgumentException {
+
+        final int node = getNode(source);
+        final int goal = getNode(target);
+
+        float cost = Float.POSITIVE_INFINITY;
+
+        if (node >= 0 && goal >= 0 && hasPortals(node)) {
+            for (int i = findPortals(node); i < portalCount && (int) (sortedPortals[i] >>> 32) == node; i++) {
+                if (portalTo[(int) sortedPortals[i]] == goal) {
+                    cost = Math.min(cost, portalCost[(int) sortedPortals[i]]);
+                }
+            }
+        }
+
+        if (source.z == target.z && Math.abs(source.x - target.x) <= 1 && Math.abs(source.y - target.y) <= 1) {
+            cost = Math.min(cost, source.x != target.x && source.y != target.y ? DIAGONAL_COST : 1);
+        }
+
+        if (cost == Float.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException("Cells " + source + " and " + target + " are not connected.");
+        }
+
+        return cost;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNodeCount() {
+        return width * height * layers;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxDegree() {
+
+        sortPortals();
+
+        return (diagonal ? 8 : 4) + maxPortalsPerCell;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNeighbors(final MovingEntity entity, final int node, final int[] neighbors, final float[] costs) {
+
+        final int x = node % width;
+        final int row = node / width;
+        final int y = row % height;
+        final int word = row * rowWords + (x >>> 6);
+
+        int count = 0;
+
+        for (int i = 0; i < 4; i++) {
+
+            final int nx = x + DX[i];
+            final int ny = y + DY[i];
+
+            if (nx >= 0 && nx < width && ny >= 0 && ny < height && isSet(passable, word, x, DX[i], DY[i])) {
+                neighbors[count] = node + DY[i] * width + DX[i];
+                costs[count] = 1;
+                count++;
+            }
+        }
+
+        if (diagonal) {
+            for (int i = 4; i < 8; i++) {
+
+                final int nx = x + DX[i];
+                final int ny = y + DY[i];
+
+                if (nx >= 0 && nx < width && ny >= 0 && ny < height && isSet(passable, word, x, DX[i], DY[i])
+                        && isSet(passable, word, x, DX[i], 0) && isSet(passable, word, x, 0, DY[i])) {
+                    neighbors[count] = node + DY[i] * width + DX[i];
+                    costs[count] = DIAGONAL_COST;
+                    count++;
+                }
+            }
+        }
+
+        if ((portalCells[word] & (1L << x)) != 0) {
+            for (int i = findPortals(node); i < portalCount && (int) (sortedPortals[i] >>> 32) == node; i++) {
+
+                final int portal = (int) sortedPortals[i];
+                final int to = portalTo[portal];
+
+                if ((passable[to / width * rowWords + ((to % width) >>> 6)] & (1L << (to % width))) != 0) {
+                    neighbors[count] = to;
+                    costs[count] = portalCost[portal];
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNode(final Point3D.Int location) {
+        return isValidLocation(location.x, location.y, location.z) ? (location.z * height + location.y) * width + location.x : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Point3D.Int getLocation(final int node) {
+        return new Point3D.Int(getX(node), getY(node), getZ(node));
+    }
+
+    /**
+     * Returns <tt>true</tt> if a bit of a cell near the given one is set, the
+     * offset cell being within the same layer and map bounds.
+     * @param bits  the bit rows
+     * @param word  the word of the given cell
+     * @param x     the X coordinate of the given cell
+     * @param dx    the X offset, between <tt>-1</tt> and <tt>1</tt>
+     * @param dy    the Y offset, between <tt>-1</tt> and <tt>1</tt>
+     * @return <tt>true</tt> if the bit is set
+     */
+    private boolean isSet(final long[] bits, final int word, final int x, final int dx, final int dy) {
+
+        final int nx = x + dx;
+
+        return (bits[word + dy * rowWords + (nx >>> 6) - (x >>> 6)] & (1L << nx)) != 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if portals leave specified cell.
+     * @param node  the cell id
+     * @return <tt>true</tt> if the cell has outgoing portals
+     */
+    private boolean hasPortals(final int node) {
+        return (portalCells[node / width * rowWords + ((node % width) >>> 6)] & (1L << (node % width))) != 0;
+    }
+
+    /**
+     * Adds a directed portal.
+     * @param from  the starting cell id
+     * @param to    the ending cell id
+     * @param cost  the cost of the portal
+     */
+    private void addPortal(final int from, final int to, final float cost) {
+
+        if (portalCount == portalFrom.length) {
+            portalFrom = Arrays.copyOf(portalFrom, portalCount * 2);
+            portalTo = Arrays.copyOf(portalTo, portalCount * 2);
+            portalCost = Arrays.copyOf(portalCost, portalCount * 2);
+        }
+
+        portalFrom[portalCount] = from;
+        portalTo[portalCount] = to;
+        portalCost[portalCount] = cost;
+        portalCount++;
+
+        portalCells[from / width * rowWords + ((from % width) >>> 6)] |= 1L << (from % width);
+        sortedPortals = null;
+    }
+
+    /**
+     * Sorts portals by starting cell, if they are not sorted yet.
+     */
+    private void sortPortals() {
+
+        if (sortedPortals != null) {
+            return;
+        }
+
+        final long[] sorted = new long[portalCount];
+
+        for (int i = 0; i < portalCount; i++) {
+            sorted[i] = ((long) portalFrom[i] << 32) | i;
+        }
+
+        Arrays.sort(sorted);
+
+        maxPortalsPerCell = 0;
+
+        for (int i = 0, run = 0; i < portalCount; i++) {
+            run = i > 0 && (sorted[i] >>> 32) == (sorted[i - 1] >>> 32) ? run + 1 : 1;
+            maxPortalsPerCell = Math.max(maxPortalsPerCell, run);
+        }
+
+        sortedPortals = sorted;
+    }
+
+    /**
+     * Returns the position of the first portal leaving specified cell in the sorted portal list,
+     * sorting portals first if needed.
+     * @param node  the cell id
+     * @return the position in the sorted list
+     */
+    private int findPortals(final int node) {
+
+        sortPortals();
+
+        int low = 0;
+        int high = portalCount;
+
+        while (low < high) {
+
+            final int middle = (low + high) >>> 1;
+
+            if ((sortedPortals[middle] >>> 32) < node) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+}
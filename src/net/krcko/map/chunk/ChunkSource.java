@@ -0,0 +1,64 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.chunk;
+
+import java.io.IOException;
+
+/**
+ * Defines a provider of map chunks for <code>ChunkedTileMap</code>.
+ * <p>
+ * Chunks are square blocks of tiles addressed by chunk coordinates, where
+ * chunk <code>(cx,&nbsp;cy)</code> covers tiles from
+ * <code>(cx&nbsp;*&nbsp;size,&nbsp;cy&nbsp;*&nbsp;size)</code> to
+ * <code>(cx&nbsp;*&nbsp;size&nbsp;+&nbsp;size&nbsp;-&nbsp;1,&nbsp;cy&nbsp;*&nbsp;size&nbsp;+&nbsp;size&nbsp;-&nbsp;1)</code>.
+ * Tile data is exchanged as a row-major array, so the tile at local
+ * coordinates <code>(x,&nbsp;y)</code> is stored at index <code>y * size + x</code>.
+ *
+ * @author Aleksandar Ružičić
+ */
+public interface ChunkSource {
+
+    /**
+     * Loads (or generates) tiles of the specified chunk.
+     * @param chunkX    the X coordinate of the chunk
+     * @param chunkY    the Y coordinate of the chunk
+     * @param chunkSize the number of tile rows and columns in the chunk
+     * @param tiles     the array of <code>chunkSize * chunkSize</code> tiles to fill
+     * @throws IOException if chunk data could not be read
+     */
+    public void loadChunk(final int chunkX, final int chunkY, final int chunkSize, final int[] tiles) throws IOException;
+
+    /**
+     * Stores tiles of the modified chunk which is about to be evicted from memory.
+     * @param chunkX    the X coordinate of the chunk
+     * @param chunkY    the Y coordinate of the chunk
+     * @param chunkSize the number of tile rows and columns in the chunk
+     * @param tiles     the array of <code>chunkSize * chunkSize</code> tiles to store
+     * @throws IOException if chunk data could not be written
+     */
+    public void storeChunk(final int chunkX, final int chunkY, final int chunkSize, final int[] tiles) throws IOException;
+}
\ No newline at end of file
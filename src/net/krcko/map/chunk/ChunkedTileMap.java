@@ -0,0 +1,499 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.chunk;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import net.krcko.map.TileMap;
+import net.krcko.math.Point2D;
+
+/**
+ * A <code>TileMap</code> which divides its tiles into fixed-size square chunks
+ * which are loaded on demand from a <code>ChunkSource</code>.
+ * <p>
+ * Only a limited number of chunks (determined by the memory budget) is kept
+ * in memory, least recently used chunks are evicted first. Modified chunks
+ * are handed back to the chunk source before they are evicted.
+ * <p>
+ * Map bounds are effectively unbounded by default, so the map can represent
+ * worlds far too big to be held in memory. Chunks are loaded only when their
+ * tiles are actually queried, which means that a search touches only the chunks
+ * on its frontier.
+ * <p>
+ * The map is not safe for use by multiple threads, not even for reading:
+ * every tile read updates the least recently used order of loaded chunks and
+ * may load and evict chunks, and the chunk fault counters are per search. All
+ * reads and edits, including searches, must be confined to a single thread,
+ * so the map must not be searched by <code>ParallelAStarPathFinder</code> or
+ * by several path finders at once. Maps which must be searched concurrently
+ * should be copied into a <code>CopyOnWriteTileMap</code> instead.
+ * <p>
+ * This class is only the abstract superclass, subclasses define how tile values
+ * are interpreted by implementing <code>canMoveTo</code> and <code>getCost</code>.
+ *
+ * @author Aleksandar Ružičić
+ */
+public abstract class ChunkedTileMap extends TileMap {
+
+    /**
+     * The default chunk size.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64;
+
+    /**
+     * The source of chunk data.
+     */
+    private final ChunkSource source;
+
+    /**
+     * The number of tile rows and columns in a chunk.
+     */
+    private final int chunkSize;
+
+    /**
+     * The binary logarithm of the chunk size.
+     */
+    private final int chunkShift;
+
+    /**
+     * The maximum number of chunks kept in memory.
+     */
+    private final int maxLoadedChunks;
+
+    /**
+     * Loaded chunks, in least recently used order.
+     */
+    private final LinkedHashMap<Long, Chunk> chunks;
+
+    /**
+     * The most recently accessed chunk.
+     */
+    private Chunk lastChunk;
+
+    /**
+     * The minimal X coordinate within the map bounds.
+     */
+    private int minX = Integer.MIN_VALUE + 1;
+
+    /**
+     * The minimal Y coordinate within the map bounds.
+     */
+    private int minY = Integer.MIN_VALUE + 1;
+
+    /**
+     * The maximal X coordinate within the map bounds.
+     */
+    private int maxX = Integer.MAX_VALUE - 1;
+
+    /**
+     * The maximal Y coordinate within the map bounds.
+     */
+    private int maxY = Integer.MAX_VALUE - 1;
+
+    /**
+     * The total number of chunks loaded from the chunk source.
+     */
+    private long chunkFaults;
+
+    /**
+     * The number of chunks loaded from the chunk source since the last search started.
+     */
+    private long searchChunkFaults;
+
+    /**
+     * The total number of chunks evicted from memory.
+     */
+    private long chunkEvictions;
+
+    /**
+     * Constructs new chunked map with default chunk size.
+     * @param source        the source of chunk data
+     * @param memoryBudget  the maximum number of bytes of tile data to keep in memory
+     */
+    public ChunkedTileMap(final ChunkSource source, final long memoryBudget) {
+        this(source, DEFAULT_CHUNK_SIZE, memoryBudget);
+    }
+
+    /**
+     * Constructs new chunked map.
+     * @param source        the source of chunk data
+     * @param chunkSize     the number of tile rows and columns in a chunk, must be a power of two
+     * @param memoryBudget  the maximum number of bytes of tile data to keep in memory
+     * @throws IllegalArgumentException if chunk size is not a positive power of two
+     */
+    public ChunkedTileMap(final ChunkSource source, final int chunkSize, final long memoryBudget) throws IllegalArgumentException {
+
+        if (chunkSize <= 0 || chunkSize > 4096 || Integer.bitCount(chunkSize) != 1) {
+            throw new IllegalArgumentException("Chunk size must be a power of two between 1 and 4096.");
+        }
+
+        this.source = source;
+        this.chunkSize = chunkSize;
+        this.chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+        this.maxLoadedChunks = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / (4L * chunkSize * chunkSize)));
+        this.chunks = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the source of chunk data.
+     * @return the chunk source
+     */
+    public ChunkSource getChunkSource() {
+        return source;
+    }
+
+    /**
+     * Returns the number of tile rows and columns in a chunk.
+     * @return the chunk size
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the maximum number of chunks kept in memory.
+     * @return the maximum number of loaded chunks
+     */
+    public int getMaxLoadedChunks() {
+        return maxLoadedChunks;
+    }
+
+    /**
+     * Returns the number of chunks currently kept in memory.
+     * @return the number of loaded chunks
+     */
+    public int getLoadedChunks() {
+        return chunks.size();
+    }
+
+    /**
+     * Returns the total number of chunks loaded from the chunk source.
+     * @return the total number of chunk faults
+     */
+    public long getChunkFaults() {
+        return chunkFaults;
+    }
+
+    /**
+     * Returns the number of chunks loaded from the chunk source since the last
+     * search started.
+     * @return the number of chunk faults of the last search
+     */
+    public long getSearchChunkFaults() {
+        return searchChunkFaults;
+    }
+
+    /**
+     * Returns the total number of chunks evicted from memory.
+     * @return the total number of chunk evictions
+     */
+    public long getChunkEvictions() {
+        return chunkEvictions;
+    }
+
+    /**
+     * Restricts the map to the specified (inclusive) bounds.
+     * @param minX  the minimal X coordinate
+     * @param minY  the minimal Y coordinate
+     * @param maxX  the maximal X coordinate
+     * @param maxY  the maximal Y coordinate
+     * @throws IllegalArgumentException if bounds are empty or include <code>Integer.MIN_VALUE</code> or <code>Integer.MAX_VALUE</code>
+     */
+    public void setBounds(final int minX, final int minY, final int maxX, final int maxY) throws IllegalArgumentException {
+
+        if (minX > maxX || minY > maxY) {
+            throw new IllegalArgumentException("Map bounds must not be empty.");
+        }
+
+        if (minX == Integer.MIN_VALUE || minY == Integer.MIN_VALUE || maxX == Integer.MAX_VALUE || maxY == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Map bounds must leave room for neighbor coordinates.");
+        }
+
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Returns the minimal X coordinate within the map bounds.
+     * @return the minimal X coordinate
+     */
+    public int getMinX() {
+        return minX;
+    }
+
+    /**
+     * Returns the minimal Y coordinate within the map bounds.
+     * @return the minimal Y coordinate
+     */
+    public int getMinY() {
+        return minY;
+    }
+
+    /**
+     * Returns the maximal X coordinate within the map bounds.
+     * @return the maximal X coordinate
+     */
+    public int getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Returns the maximal Y coordinate within the map bounds.
+     * @return the maximal Y coordinate
+     */
+    public int getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns <code>Integer.MAX_VALUE</code> if the map is wider than that.
+     */
+    @Override
+    public int getWidthInTiles() {
+        return (int) Math.min(Integer.MAX_VALUE, (long) maxX - minX + 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns <code>Integer.MAX_VALUE</code> if the map is higher than that.
+     */
+    @Override
+    public int getHeightInTiles() {
+        return (int) Math.min(Integer.MAX_VALUE, (long) maxY - minY + 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isValidLocation(final int x, final int y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Resets the per-search chunk fault counter.
+     */
+    @Override
+    public void pathFinderStarted(final Point2D.Int source, final Point2D.Int target) {
+        searchChunkFaults = 0;
+    }
+
+    /**
+     * Returns value of the map tile, loading its chunk if necessary. Like
+     * edits, reads must be made by the thread the map is confined to.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return  the tile value
+     * @throws IndexOutOfBoundsException if the tile is out of the map bounds
+     */
+    public int getTile(final int x, final int y) throws IndexOutOfBoundsException {
+
+        if (!isValidLocation(x, y)) {
+            throw new IndexOutOfBoundsException("Tile with coordinates (" + x + ", " + y + ") is out of the map bounds.");
+        }
+
+        final int mask = chunkSize - 1;
+
+        return getChunk(x >> chunkShift, y >> chunkShift).tiles[((y & mask) << chunkShift) | (x & mask)];
+    }
+
+    /**
+     * Sets value of the map tile, loading its chunk if necessary.
+     * @param x     the X coordinate of the tile
+     * @param y     the Y coordinate of the tile
+     * @param value the tile value
+     * @throws IndexOutOfBoundsException if the tile is out of the map bounds
+     */
+    public void setTile(final int x, final int y, final int value) throws IndexOutOfBoundsException {
+
+        if (!isValidLocation(x, y)) {
+            throw new IndexOutOfBoundsException("Tile with coordinates (" + x + ", " + y + ") is out of the map bounds.");
+        }
+
+        final int mask = chunkSize - 1;
+        final Chunk chunk = getChunk(x >> chunkShift, y >> chunkShift);
+
+        chunk.tiles[((y & mask) << chunkShift) | (x & mask)] = value;
+        chunk.modified = true;
+
+        fireTilesChanged(x, y, 1, 1);
+    }
+
+    /**
+     * Returns <tt>true</tt> if the chunk containing specified tile is loaded.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return <tt>true</tt> if the tile is in memory
+     */
+    public boolean isLoaded(final int x, final int y) {
+        return chunks.containsKey(chunkKey(x >> chunkShift, y >> chunkShift));
+    }
+
+    /**
+     * Stores all modified chunks to the chunk source, keeping them in memory.
+     * @throws IOException if chunk data could not be written
+     */
+    public void flush() throws IOException {
+        for (Chunk chunk: chunks.values()) {
+            if (chunk.modified) {
+                source.storeChunk(chunk.x, chunk.y, chunkSize, chunk.tiles);
+                chunk.modified = false;
+            }
+        }
+    }
+
+    /**
+     * Stores all modified chunks to the chunk source and evicts all chunks from memory.
+     * @throws IOException if chunk data could not be written
+     */
+    public void evictAll() throws IOException {
+        flush();
+        chunkEvictions += chunks.size();
+        chunks.clear();
+        lastChunk = null;
+    }
+
+    /**
+     * Returns the chunk with specified chunk coordinates, loading it if necessary.
+     * @param chunkX    the X coordinate of the chunk
+     * @param chunkY    the Y coordinate of the chunk
+     * @return the loaded chunk
+     */
+    private Chunk getChunk(final int chunkX, final int chunkY) {
+
+        if (lastChunk != null && lastChunk.x == chunkX && lastChunk.y == chunkY) {
+            return lastChunk;
+        }
+
+        final Long key = chunkKey(chunkX, chunkY);
+
+        Chunk chunk = chunks.get(key);
+
+        if (chunk == null) {
+
+            if (chunks.size() >= maxLoadedChunks) {
+                evictEldest();
+            }
+
+            chunk = new Chunk(chunkX, chunkY, new int[chunkSize * chunkSize]);
+
+            try {
+                source.loadChunk(chunkX, chunkY, chunkSize, chunk.tiles);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Unable to load chunk (" + chunkX + ", " + chunkY + ").", ex);
+            }
+
+            chunks.put(key, chunk);
+            chunkFaults++;
+            searchChunkFaults++;
+        }
+
+        lastChunk = chunk;
+
+        return chunk;
+    }
+
+    /**
+     * Evicts the least recently used chunk, storing it first if it was modified.
+     */
+    private void evictEldest() {
+
+        final Iterator<Chunk> iterator = chunks.values().iterator();
+        final Chunk eldest = iterator.next();
+
+        if (eldest.modified) {
+            try {
+                source.storeChunk(eldest.x, eldest.y, chunkSize, eldest.tiles);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Unable to store chunk (" + eldest.x + ", " + eldest.y + ").", ex);
+            }
+        }
+
+        iterator.remove();
+        chunkEvictions++;
+
+        if (lastChunk == eldest) {
+            lastChunk = null;
+        }
+    }
+
+    /**
+     * Returns the key of the chunk with specified chunk coordinates.
+     * @param chunkX    the X coordinate of the chunk
+     * @param chunkY    the Y coordinate of the chunk
+     * @return the chunk key
+     */
+    private static Long chunkKey(final int chunkX, final int chunkY) {
+        return ((long) chunkX << 32) | (chunkY & 0xffffffffL);
+    }
+
+    /**
+     * A block of tiles kept in memory.
+     */
+    private static final class Chunk {
+
+        /**
+         * The X coordinate of this chunk.
+         */
+        final int x;
+
+        /**
+         * The Y coordinate of this chunk.
+         */
+        final int y;
+
+        /**
+         * Tiles of this chunk in row-major order.
+         */
+        final int[] tiles;
+
+        /**
+         * <tt>true</tt> if tiles were modified since the chunk was loaded or stored.
+         */
+        boolean modified;
+
+        /**
+         * Constructs new chunk.
+         * @param x     the X coordinate of the chunk
+         * @param y     the Y coordinate of the chunk
+         * @param tiles tiles of the chunk in row-major order
+         */
+        Chunk(final int x, final int y, final int[] tiles) {
+            this.x = x;
+            this.y = y;
+            this.tiles = tiles;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,636 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.chunk;
+
+import net.krcko.map.MapNode;
+import net.krcko.map.MovingEntity;
+import net.krcko.map.TileMap;
+import net.krcko.map.TileMapChange;
+import net.krcko.map.TileMapListener;
+import net.krcko.math.Point2D;
+
+/**
+ * A <code>TileMap</code> of <code>int</code> tile values which can be searched
+ * while it is being edited, trough immutable snapshots.
+ * <p>
+ * Tiles are stored in fixed-size square chunks. Every published version of
+ * the map is a <code>Snapshot</code> holding its chunk references in blocks of
+ * <code>BLOCK_SIZE</code>, and a write copies only the chunks it touches and
+ * the blocks referencing them, and publishes a new version sharing all other
+ * chunks and blocks with the previous one. Apart from that, each published
+ * write copies only the array of block references, which takes one entry per
+ * <code>BLOCK_SIZE</code> chunks, so editing a single tile of a map of a
+ * million tiles in chunks of 16 by 16 tiles copies 64 block references, one
+ * block of 64 chunk references and one chunk. Taking a snapshot
+ * is a single volatile read, so searches pin a version without locking and
+ * keep reading it while writers go on; versions nobody references are
+ * reclaimed by the garbage collector. Chunks which were never written are
+ * not allocated at all and read as zero.
+ * <p>
+ * Writers and listener registrations are serialized by the map. Reads trough
+ * the map itself always see the latest version, so a search which must see a
+ * single version should search a snapshot instead. Edits made within
+ * <code>batchEdit</code> are published as a single version when the batch
+ * ends, so no snapshot ever contains a part of a batch; the editing thread
+ * itself sees its edits immediately.
+ * <p>
+ * This class is only the abstract superclass, subclasses define how tile values
+ * are interpreted by implementing <code>isPassable</code> and <code>getTileCost</code>,
+ * which are used by both the map and its snapshots.
+ *
+ * @author Aleksandar Ružičić
+ */
+public abstract class CopyOnWriteTileMap extends TileMap {
+
+    /**
+     * The default chunk size.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 16;
+
+    /**
+     * The number of chunk references in a block.
+     */
+    public static final int BLOCK_SIZE = 64;
+
+    /**
+     * The binary logarithm of the block size.
+     */
+    private static final int BLOCK_SHIFT = 6;
+
+    /**
+     * The number of tile rows and columns in a chunk.
+     */
+    private final int chunkSize;
+
+    /**
+     * The binary logarithm of the chunk size.
+     */
+    private final int chunkShift;
+
+    /**
+     * The latest published version.
+     */
+    private volatile Snapshot current;
+
+    /**
+     * The version being written, or <tt>null</tt> between writes.
+     */
+    private Snapshot draft;
+
+    /**
+     * Bits of chunks copied by the version being written, one word per block.
+     * A block with any bit set was copied as well.
+     */
+    private long[] copied;
+
+    /**
+     * Constructs new map with all tiles set to zero.
+     * @param width     the number of tile columns
+     * @param height    the number of tile rows
+     * @param chunkSize the number of tile rows and columns in a chunk, a power of two
+     * @throws IllegalArgumentException if the size is negative or the chunk size is not a power of two
+     */
+    protected CopyOnWriteTileMap(final int width, final int height, final int chunkSize) throws IllegalArgumentException {
+
+        if (chunkSize <= 0 || chunkSize > 4096 || Integer.bitCount(chunkSize) != 1) {
+            throw new IllegalArgumentException("Chunk size must be a power of two between 1 and 4096.");
+        }
+
+        this.chunkSize = chunkSize;
+        this.chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+        this.current = createSnapshot(width, height, 0);
+    }
+
+    /**
+     * Returns <tt>true</tt> if the entity can enter a tile of specified value.
+     * @param entity    the entity to be moved
+     * @param value     the value of the tile
+     * @return <tt>true</tt> if the tile is passable for the entity
+     */
+    protected abstract boolean isPassable(final MovingEntity entity, final int value);
+
+    /**
+     * Returns the cost of moving the entity between two neighboring tiles.
+     * @param entity        the entity which is about to move
+     * @param source        the starting tile
+     * @param sourceValue   the value of the starting tile
+     * @param target        the ending tile
+     * @param targetValue   the value of the ending tile
+     * @return the cost of the move
+     */
+    protected abstract float getTileCost(final MovingEntity entity, final Point2D.Int source, final int sourceValue, final Point2D.Int target, final int targetValue);
+
+    /**
+     * Returns the number of tile rows and columns in a chunk.
+     * @return the chunk size
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the latest published version of the map, which never changes.
+     * Its version number equals the version of the map when it was published.
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Registrations are serialized with writers, which notify listeners while
+     * holding the map lock.
+     */
+    @Override
+    public synchronized void addTileMapListener(final TileMapListener listener) {
+        super.addTileMapListener(listener);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Registrations are serialized with writers, which notify listeners while
+     * holding the map lock.
+     */
+    @Override
+    public synchronized void removeTileMapListener(final TileMapListener listener) {
+        super.removeTileMapListener(listener);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The map is locked for the whole batch, so other writers wait until it is
+     * published, while readers keep reading the previous version.
+     */
+    @Override
+    public synchronized void batchEdit(final Runnable edits) {
+        super.batchEdit(edits);
+    }
+
+    /**
+     * Publishes the version written by the batch.
+     */
+    @Override
+    protected synchronized void commitBatch() {
+
+        if (draft != null) {
+            current = draft;
+            draft = null;
+            copied = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getWidthInTiles() {
+        return view().width;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getHeightInTiles() {
+        return view().height;
+    }
+
+    /**
+     * Returns value of the map tile.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return  the tile value
+     * @throws IndexOutOfBoundsException if the tile is out of the map bounds
+     */
+    public int getTile(final int x, final int y) throws IndexOutOfBoundsException {
+        return view().getTile(x, y);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canMoveTo(final MovingEntity entity, final Point2D.Int target) {
+        return view().canMoveTo(entity, target.x, target.y);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canMoveTo(final MovingEntity entity, final int x, final int y) {
+        return view().canMoveTo(entity, x, y);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getCost(final MovingEntity entity, final Point2D.Int source, final Point2D.Int target) {
+        return view().getCost(entity, source, target);
+    }
+
+    /**
+     * Sets value of the map tile and publishes a new version.
+     * @param x     the X coordinate of the tile
+     * @param y     the Y coordinate of the tile
+     * @param value the tile value
+     * @throws IndexOutOfBoundsException if the tile is out of the map bounds
+     */
+    public void setTile(final int x, final int y, final int value) throws IndexOutOfBoundsException {
+        fill(x, y, 1, 1, value);
+    }
+
+    /**
+     * Sets all tiles of a rectangle to the same value and publishes a new version.
+     * @param x         the X coordinate of the first column
+     * @param y         the Y coordinate of the first row
+     * @param width     the number of columns
+     * @param height    the number of rows
+     * @param value     the tile value
+     * @throws IndexOutOfBoundsException if the rectangle is not within the map bounds
+     */
+    public synchronized void fill(final int x, final int y, final int width, final int height, final int value) throws IndexOutOfBoundsException {
+
+        checkBounds(x, y, width, height);
+
+        boolean changed = false;
+
+        for (int j = y; j < y + height; j++) {
+            for (int i = x; i < x + width; i++) {
+                changed |= write(i, j, value);
+            }
+        }
+
+        if (changed) {
+            publish(x, y, width, height);
+        }
+    }
+
+    /**
+     * Sets values of all tiles of a rectangle and publishes a new version.
+     * <p>
+     * A single bulk write publishes one version for the whole rectangle,
+     * where setting its tiles one by one would publish one version per tile.
+     * @param x         the X coordinate of the first column
+     * @param y         the Y coordinate of the first row
+     * @param width     the number of columns
+     * @param height    the number of rows
+     * @param values    the tile values of the rectangle, in row-major order
+     * @throws IndexOutOfBoundsException if the rectangle is not within the map bounds
+     * @throws IllegalArgumentException if the number of values does not match the rectangle
+     */
+    public synchronized void setTiles(final int x, final int y, final int width, final int height, final int[] values) throws IndexOutOfBoundsException, IllegalArgumentException {
+
+        if ((long) width * height != values.length) {
+            throw new IllegalArgumentException("Expected " + ((long) width * height) + " tile values, got " + values.length + ".");
+        }
+
+        checkBounds(x, y, width, height);
+
+        boolean changed = false;
+
+        for (int j = 0, k = 0; j < height; j++) {
+            for (int i = 0; i < width; i++, k++) {
+                changed |= write(x + i, y + j, values[k]);
+            }
+        }
+
+        if (changed) {
+            publish(x, y, width, height);
+        }
+    }
+
+    /**
+     * Resizes the map, setting all tiles to zero, and publishes a new version.
+     * @param width     the new number of tile columns
+     * @param height    the new number of tile rows
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public synchronized void resize(final int width, final int height) throws IllegalArgumentException {
+        draft = createSnapshot(width, height, getVersion() + 1);
+        copied = new long[draft.blocks.length];
+        publish(0, 0, width, height);
+    }
+
+    /**
+     * Checks that a rectangle is within the map bounds.
+     * @param x         the X coordinate of the first column
+     * @param y         the Y coordinate of the first row
+     * @param width     the number of columns
+     * @param height    the number of rows
+     * @throws IndexOutOfBoundsException if the rectangle is not within the map bounds
+     */
+    private void checkBounds(final int x, final int y, final int width, final int height) throws IndexOutOfBoundsException {
+
+        if (width < 0 || height < 0) {
+            throw new IndexOutOfBoundsException("Rectangle size must not be negative.");
+        }
+
+        if (width == 0 || height == 0) {
+            return;
+        }
+
+        if (!isValidLocation(x, y)) {
+            throw new IndexOutOfBoundsException("Tile with coordinates (" + x + ", " + y + ") is out of the map bounds.");
+        }
+
+        if (!isValidLocation(x + width - 1, y + height - 1)) {
+            throw new IndexOutOfBoundsException("Tile with coordinates (" + (x + width - 1) + ", " + (y + height - 1) + ") is out of the map bounds.");
+        }
+    }
+
+    /**
+     * Returns the version which reads trough the map see: the version being
+     * written for the thread writing it, and the latest published version for
+     * all other threads.
+     * @return the visible version
+     */
+    private Snapshot view() {
+        final Snapshot version = draft;
+        return version != null && Thread.holdsLock(this) ? version : current;
+    }
+
+    /**
+     * Writes a tile value into the version being written, copying its chunk
+     * and the block referencing it first if they are shared.
+     * @param x     the X coordinate of the tile
+     * @param y     the Y coordinate of the tile
+     * @param value the tile value
+     * @return <tt>true</tt> if the tile value has changed
+     */
+    private boolean write(final int x, final int y, final int value) {
+
+        if (draft == null) {
+
+            // writes which change nothing copy nothing
+            if (current.getTile(x, y) == value) {
+                return false;
+            }
+
+            draft = new Snapshot(current.width, current.height, current.columns, current.blocks.clone(), getVersion() + 1);
+            copied = new long[draft.blocks.length];
+        }
+
+        final int chunk = (y >> chunkShift) * draft.columns + (x >> chunkShift);
+        final int block = chunk >>> BLOCK_SHIFT;
+        final int slot = chunk & (BLOCK_SIZE - 1);
+        final int index = ((y & (chunkSize - 1)) << chunkShift) | (x & (chunkSize - 1));
+
+        int[][] chunks = draft.blocks[block];
+
+        if (chunks[slot] == null ? value == 0 : chunks[slot][index] == value) {
+            return false;
+        }
+
+        if (copied[block] == 0) {
+            chunks = chunks.clone();
+            draft.blocks[block] = chunks;
+        }
+
+        if ((copied[block] & (1L << slot)) == 0) {
+            chunks[slot] = chunks[slot] == null ? new int[chunkSize * chunkSize] : chunks[slot].clone();
+            copied[block] |= 1L << slot;
+        }
+
+        chunks[slot][index] = value;
+
+        return true;
+    }
+
+    /**
+     * Publishes the version being written, unless a batch is in progress, and notifies listeners.
+     * @param x         the X coordinate of the first changed column
+     * @param y         the Y coordinate of the first changed row
+     * @param width     the number of changed columns
+     * @param height    the number of changed rows
+     */
+    private void publish(final int x, final int y, final int width, final int height) {
+
+        if (!isBatchEditing()) {
+            commitBatch();
+        }
+
+        fireTilesChanged(x, y, width, height);
+    }
+
+    /**
+     * Creates a version of specified size with all tiles set to zero.
+     * @param width     the number of tile columns
+     * @param height    the number of tile rows
+     * @param version   the version number
+     * @return the snapshot
+     * @throws IllegalArgumentException if the size is negative
+     */
+    private Snapshot createSnapshot(final int width, final int height, final long version) throws IllegalArgumentException {
+
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Map size must not be negative.");
+        }
+
+        final int columns = (width + chunkSize - 1) >> chunkShift;
+        final int rows = (height + chunkSize - 1) >> chunkShift;
+        final int[][][] blocks = new int[(int) (((long) columns * rows + BLOCK_SIZE - 1) >> BLOCK_SHIFT)][][];
+
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = new int[BLOCK_SIZE][];
+        }
+
+        return new Snapshot(width, height, columns, blocks, version);
+    }
+
+    /**
+     * An immutable version of the map. Tile values are interpreted by the map
+     * the snapshot was taken of, and search notifications are passed to it.
+     * <p>
+     * A snapshot never changes, so it never allocates the listener list and
+     * the journal inherited from <code>TileMap</code>, which are only created
+     * once a listener is registered or a change is published.
+     */
+    public final class Snapshot extends TileMap {
+
+        /**
+         * The number of tile columns.
+         */
+        private final int width;
+
+        /**
+         * The number of tile rows.
+         */
+        private final int height;
+
+        /**
+         * The number of chunk columns.
+         */
+        private final int columns;
+
+        /**
+         * Blocks of tile values of each chunk, or <tt>null</tt> for chunks of zeros.
+         */
+        private final int[][][] blocks;
+
+        /**
+         * The version number.
+         */
+        private final long version;
+
+        /**
+         * Constructs new snapshot.
+         * @param width     the number of tile columns
+         * @param height    the number of tile rows
+         * @param columns   the number of chunk columns
+         * @param blocks    blocks of tile values of each chunk
+         * @param version   the version number
+         */
+        private Snapshot(final int width, final int height, final int columns, final int[][][] blocks, final long version) {
+            this.width = width;
+            this.height = height;
+            this.columns = columns;
+            this.blocks = blocks;
+            this.version = version;
+        }
+
+        /**
+         * Returns all tiles changed since specified version up to the version of
+         * the snapshot, as recorded by the journal of the map it was taken of.
+         * @param version   the version the caller is up to date with
+         * @return the changes, with the snapshot version and no rectangles if nothing
+         *          has changed, or <tt>null</tt> if the journal of the map no longer
+         *          reaches back to the version and the whole map must be treated as changed
+         * @throws IllegalArgumentException if the version is newer than the snapshot
+         */
+        @Override
+        public TileMapChange getChangesSince(final long version) throws IllegalArgumentException {
+            return CopyOnWriteTileMap.this.getChanges(version, this.version);
+        }
+
+        /**
+         * Returns the map the snapshot was taken of.
+         * @return the map
+         */
+        public CopyOnWriteTileMap getMap() {
+            return CopyOnWriteTileMap.this;
+        }
+
+        /**
+         * Returns the version number of the snapshot, which is the version of the
+         * map when the snapshot was published.
+         * @return the version number
+         */
+        @Override
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getWidthInTiles() {
+            return width;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getHeightInTiles() {
+            return height;
+        }
+
+        /**
+         * Returns value of the map tile.
+         * @param x the X coordinate of the tile
+         * @param y the Y coordinate of the tile
+         * @return  the tile value
+         * @throws IndexOutOfBoundsException if the tile is out of the map bounds
+         */
+        public int getTile(final int x, final int y) throws IndexOutOfBoundsException {
+
+            if (!isValidLocation(x, y)) {
+                throw new IndexOutOfBoundsException("Tile with coordinates (" + x + ", " + y + ") is out of the map bounds.");
+            }
+
+            final int index = (y >> chunkShift) * columns + (x >> chunkShift);
+            final int[] chunk = blocks[index >>> BLOCK_SHIFT][index & (BLOCK_SIZE - 1)];
+
+            return chunk == null ? 0 : chunk[((y & (chunkSize - 1)) << chunkShift) | (x & (chunkSize - 1))];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected boolean canMoveDiagonaly(final MovingEntity entity) {
+            return CopyOnWriteTileMap.this.canMoveDiagonaly(entity);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean canMoveTo(final MovingEntity entity, final Point2D.Int target) {
+            return isPassable(entity, getTile(target.x, target.y));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean canMoveTo(final MovingEntity entity, final int x, final int y) {
+            return isPassable(entity, getTile(x, y));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public float getCost(final MovingEntity entity, final Point2D.Int source, final Point2D.Int target) {
+            return getTileCost(entity, source, getTile(source.x, source.y), target, getTile(target.x, target.y));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void pathFinderStarted(final Point2D.Int source, final Point2D.Int target) {
+            CopyOnWriteTileMap.this.pathFinderStarted(source, target);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void pathFinderTraversed(final MapNode<Point2D.Int> node) {
+            CopyOnWriteTileMap.this.pathFinderTraversed(node);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,188 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.chunk;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * A <code>ChunkSource</code> which keeps chunks in files on disk, one file
+ * per chunk.
+ * <p>
+ * Each chunk file contains <code>chunkSize * chunkSize</code> big-endian
+ * integers in row-major order. Chunks which have no file yet are either
+ * filled with the default tile value, or requested from the fallback source
+ * (typically a <code>ProceduralChunkSource</code>), so a generated world can
+ * be cached and edited on disk.
+ * <p>
+ * A chunk is stored by writing a temporary file in the chunk directory and
+ * renaming it over the chunk file, so a failed or interrupted store leaves
+ * the previous contents of the chunk intact.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class FileChunkSource implements ChunkSource {
+
+    /**
+     * The directory containing chunk files.
+     */
+    private final File directory;
+
+    /**
+     * The source of chunks which have no file yet, or <tt>null</tt>.
+     */
+    private final ChunkSource fallback;
+
+    /**
+     * The value of tiles in chunks which have no file yet.
+     */
+    private final int defaultTile;
+
+    /**
+     * Constructs new file chunk source which fills missing chunks with the specified tile value.
+     * @param directory     the directory containing chunk files
+     * @param defaultTile   the value of tiles in chunks which have no file yet
+     */
+    public FileChunkSource(final File directory, final int defaultTile) {
+        this.directory = directory;
+        this.fallback = null;
+        this.defaultTile = defaultTile;
+    }
+
+    /**
+     * Constructs new file chunk source which requests missing chunks from the fallback source.
+     * @param directory the directory containing chunk files
+     * @param fallback  the source of chunks which have no file yet
+     */
+    public FileChunkSource(final File directory, final ChunkSource fallback) {
+        this.directory = directory;
+        this.fallback = fallback;
+        this.defaultTile = 0;
+    }
+
+    /**
+     * Returns the directory containing chunk files.
+     * @return the chunk directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the file containing specified chunk.
+     * @param chunkX    the X coordinate of the chunk
+     * @param chunkY    the Y coordinate of the chunk
+     * @return the chunk file
+     */
+    public File getChunkFile(final int chunkX, final int chunkY) {
+        return new File(directory, "chunk_" + chunkX + "_" + chunkY + ".bin");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void loadChunk(final int chunkX, final int chunkY, final int chunkSize, final int[] tiles) throws IOException {
+
+        final File file = getChunkFile(chunkX, chunkY);
+
+        if (!file.isFile()) {
+
+            if (fallback != null) {
+                fallback.loadChunk(chunkX, chunkY, chunkSize, tiles);
+            } else {
+                Arrays.fill(tiles, defaultTile);
+            }
+
+            return;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(tiles.length * 4);
+
+        try (FileInputStream stream = new FileInputStream(file)) {
+
+            final FileChannel channel = stream.getChannel();
+
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Chunk file " + file + " is truncated.");
+                }
+            }
+        }
+
+        buffer.flip();
+        buffer.asIntBuffer().get(tiles);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeChunk(final int chunkX, final int chunkY, final int chunkSize, final int[] tiles) throws IOException {
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create chunk directory " + directory + ".");
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(tiles.length * 4);
+
+        buffer.asIntBuffer().put(tiles);
+
+        final File file = getChunkFile(chunkX, chunkY);
+        final File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+
+        try {
+
+            try (FileOutputStream stream = new FileOutputStream(temporary)) {
+
+                final FileChannel channel = stream.getChannel();
+
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+
+                channel.force(false);
+            }
+
+            try {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+}
\ No newline at end of file
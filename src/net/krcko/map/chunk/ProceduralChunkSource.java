@@ -0,0 +1,142 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.chunk;
+
+import java.util.HashMap;
+
+/**
+ * A <code>ChunkSource</code> which generates chunks procedurally from a seed.
+ * <p>
+ * Generation must be deterministic, so a chunk which was evicted from memory
+ * is generated again with exactly the same tiles.
+ * <p>
+ * <b>Every modified chunk is kept in memory by this source for its whole
+ * lifetime</b>, since it can't be generated again, so memory use grows with
+ * each chunk ever stored and is never released. For worlds which are edited
+ * beyond a small area, use this source as the fallback of a
+ * <code>FileChunkSource</code>, which keeps modified chunks on disk and only
+ * asks this source for chunks which were never stored.
+ * <p>
+ * This class is only the abstract superclass, subclasses implement the actual
+ * tile generation.
+ *
+ * @author Aleksandar Ružičić
+ */
+public abstract class ProceduralChunkSource implements ChunkSource {
+
+    /**
+     * The seed of the generated world.
+     */
+    private final long seed;
+
+    /**
+     * Modified chunks, which can't be generated again.
+     */
+    private final HashMap<Long, int[]> modified = new HashMap<>();
+
+    /**
+     * Constructs new procedural chunk source.
+     * @param seed  the seed of the generated world
+     */
+    public ProceduralChunkSource(final long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the seed of the generated world.
+     * @return the world seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Generates value of the tile with specified world coordinates.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return the tile value
+     */
+    protected abstract int generateTile(final int x, final int y);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void loadChunk(final int chunkX, final int chunkY, final int chunkSize, final int[] tiles) {
+
+        final int[] stored = modified.get(chunkKey(chunkX, chunkY));
+
+        if (stored != null) {
+            System.arraycopy(stored, 0, tiles, 0, tiles.length);
+            return;
+        }
+
+        final int originX = chunkX * chunkSize;
+        final int originY = chunkY * chunkSize;
+
+        for (int y = 0, i = 0; y < chunkSize; y++) {
+            for (int x = 0; x < chunkSize; x++, i++) {
+                tiles[i] = generateTile(originX + x, originY + y);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeChunk(final int chunkX, final int chunkY, final int chunkSize, final int[] tiles) {
+        modified.put(chunkKey(chunkX, chunkY), tiles.clone());
+    }
+
+    /**
+     * Returns a well-mixed pseudo-random hash of the world seed and the
+     * specified tile coordinates, useful for deterministic tile generation.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return the hash value
+     */
+    protected int hash(final int x, final int y) {
+
+        long h = seed ^ ((long) x * 0x9e3779b97f4a7c15L) ^ ((long) y * 0xc2b2ae3d27d4eb4fL);
+
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+
+        return (int) (h ^ (h >>> 33));
+    }
+
+    /**
+     * Returns the key of the chunk with specified chunk coordinates.
+     * @param chunkX    the X coordinate of the chunk
+     * @param chunkY    the Y coordinate of the chunk
+     * @return the chunk key
+     */
+    private static Long chunkKey(final int chunkX, final int chunkY) {
+        return ((long) chunkX << 32) | (chunkY & 0xffffffffL);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,83 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.heuristic;
+
+import net.krcko.map.Heuristic;
+import net.krcko.map.IndexedGraph;
+import net.krcko.map.IndexedHeuristic;
+import net.krcko.map.Map;
+import net.krcko.map.MovingEntity;
+import net.krcko.map.VoxelMap;
+import net.krcko.math.Point3D;
+
+/**
+ * A 3-dimensional Euclidean Distance heuristic implementation, for voxel maps.
+ * 
+ * This class is only the wrapper for internal classes which implement the
+ * heuristic algorithm.
+ *
+ * @author Aleksandar Ružičić
+ */
+public abstract class Euclidean3D {
+
+    /**
+     * Returns the straight-line distance between two cells.
+     * @param dx    the difference of X coordinates
+     * @param dy    the difference of Y coordinates
+     * @param dz    the difference of layers
+     * @return the distance
+     */
+    private static float distance(final int dx, final int dy, final int dz) {
+        return (float) Math.sqrt((double) dx * dx + (double) dy * dy + (double) dz * dz);
+    }
+
+    /**
+     * A 3-dimensional Euclidean Distance heuristic implementation for
+     * Point3D.Int coordinates and <code>VoxelMap</code> cell ids.
+     */
+    public static class Int implements Heuristic<Point3D.Int>, IndexedHeuristic {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public float getHeuristicCost(final Map<Point3D.Int> map, final MovingEntity entity, final Point3D.Int source, final Point3D.Int target) {
+            return distance(source.x - target.x, source.y - target.y, source.z - target.z);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public float getHeuristicCost(final IndexedGraph<?> graph, final MovingEntity entity, final int node, final int target) {
+
+            final VoxelMap map = (VoxelMap) graph;
+
+            return distance(map.getX(node) - map.getX(target), map.getY(node) - map.getY(target), map.getZ(node) - map.getZ(target));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.heuristic;
+
+import net.krcko.map.CsrGraphMap;
+import net.krcko.map.Heuristic;
+import net.krcko.map.IndexedGraph;
+import net.krcko.map.IndexedHeuristic;
+import net.krcko.map.Map;
+import net.krcko.map.MovingEntity;
+
+/**
+ * A straight-line distance heuristic implementation, for <code>CsrGraphMap</code>
+ * nodes with planar coordinates.
+ * <p>
+ * The distance between two nodes is multiplied by the lowest ratio of edge
+ * weight to edge length, so the heuristic stays admissible.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class GraphDistance implements Heuristic<Integer>, IndexedHeuristic {
+
+    /**
+     * The lowest ratio of edge weight to the distance between its nodes.
+     */
+    private final float minCostPerUnit;
+
+    /**
+     * Constructs new heuristic for graphs whose edges weigh at least their length.
+     */
+    public GraphDistance() {
+        this(1);
+    }
+
+    /**
+     * Constructs new heuristic.
+     * @param minCostPerUnit    the lowest ratio of edge weight to the distance between its nodes
+     */
+    public GraphDistance(final float minCostPerUnit) {
+        this.minCostPerUnit = minCostPerUnit;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getHeuristicCost(final Map<Integer> map, final MovingEntity entity, final Integer source, final Integer target) {
+        return distance((CsrGraphMap) map, source, target);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getHeuristicCost(final IndexedGraph<?> graph, final MovingEntity entity, final int node, final int target) {
+        return distance((CsrGraphMap) graph, node, target);
+    }
+
+    /**
+     * Returns the scaled straight-line distance between two nodes.
+     * @param map       the graph of the nodes
+     * @param node      the first node
+     * @param target    the second node
+     * @return the scaled distance
+     */
+    private float distance(final CsrGraphMap map, final int node, final int target) {
+
+        final float dx = map.getX(node) - map.getX(target);
+        final float dy = map.getY(node) - map.getY(target);
+
+        return (float) Math.sqrt(dx * dx + dy * dy) * minCostPerUnit;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.heuristic;
+
+import net.krcko.map.HexMap;
+import net.krcko.map.Heuristic;
+import net.krcko.map.IndexedGraph;
+import net.krcko.map.IndexedHeuristic;
+import net.krcko.map.Map;
+import net.krcko.map.MovingEntity;
+import net.krcko.math.Point2D;
+
+/**
+ * A hexagonal grid distance heuristic implementation, for <code>HexMap</code>
+ * axial coordinates.
+ * <p>
+ * The number of steps between two hexes is multiplied by the cost of the
+ * cheapest tile, so the heuristic stays admissible.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class HexDistance implements Heuristic<Point2D.Int>, IndexedHeuristic {
+
+    /**
+     * The cost of entering the cheapest tile.
+     */
+    private final float minCost;
+
+    /**
+     * Constructs new heuristic for maps whose cheapest tile costs one.
+     */
+    public HexDistance() {
+        this(1);
+    }
+
+    /**
+     * Constructs new heuristic.
+     * @param minCost   the cost of entering the cheapest tile
+     */
+    public HexDistance(final float minCost) {
+        this.minCost = minCost;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getHeuristicCost(final Map<Point2D.Int> map, final MovingEntity entity, final Point2D.Int source, final Point2D.Int target) {
+        return HexMap.distance(source.x, source.y, target.x, target.y) * minCost;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getHeuristicCost(final IndexedGraph<?> graph, final MovingEntity entity, final int node, final int target) {
+
+        final int width = ((HexMap) graph).getWidthInTiles();
+
+        return HexMap.distance(node % width, node / width, target % width, target / width) * minCost;
+    }
+}
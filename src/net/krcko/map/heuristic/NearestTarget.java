@@ -0,0 +1,81 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.heuristic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import net.krcko.map.Heuristic;
+import net.krcko.map.Map;
+import net.krcko.map.MovingEntity;
+
+/**
+ * A heuristic estimating the cost to the nearest of several targets, by
+ * applying another heuristic to every target in turn.
+ * <p>
+ * The target passed to <code>getHeuristicCost</code> is ignored. The heuristic
+ * is admissible if the wrapped one is.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class NearestTarget<T> implements Heuristic<T> {
+
+    /**
+     * The heuristic applied to each target.
+     */
+    private final Heuristic<T> heuristic;
+
+    /**
+     * The targets.
+     */
+    private final List<T> targets;
+
+    /**
+     * Constructs new heuristic.
+     * @param heuristic the heuristic applied to each target
+     * @param targets   the targets
+     */
+    public NearestTarget(final Heuristic<T> heuristic, final Collection<T> targets) {
+        this.heuristic = heuristic;
+        this.targets = new ArrayList<>(targets);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getHeuristicCost(final Map<T> map, final MovingEntity entity, final T source, final T target) {
+
+        float cost = Float.POSITIVE_INFINITY;
+
+        for (T t: targets) {
+            cost = Math.min(cost, heuristic.getHeuristicCost(map, entity, source, t));
+        }
+
+        return cost;
+    }
+}
\ No newline at end of file
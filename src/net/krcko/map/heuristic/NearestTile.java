@@ -0,0 +1,244 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.heuristic;
+
+import java.util.Collection;
+import net.krcko.map.Heuristic;
+import net.krcko.map.Map;
+import net.krcko.map.MovingEntity;
+import net.krcko.math.Point2D;
+
+/**
+ * A heuristic estimating the cost to the nearest of many target tiles, using
+ * a uniform grid index of the targets.
+ * <p>
+ * Cells of the grid are visited in rings around the estimated tile and the
+ * wrapped heuristic is applied to targets of visited cells only. Visiting stops
+ * once the closest tile of the next ring can't beat the best estimate, which
+ * requires the wrapped heuristic to never return less than a known multiple of
+ * the diagonal (Chebyshev) distance; <code>Manhattan2D</code>, <code>Diagonal2D</code>
+ * and <code>Euclidean2D</code> never return less than the distance itself.
+ * <p>
+ * The target passed to <code>getHeuristicCost</code> is ignored.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class NearestTile implements Heuristic<Point2D.Int> {
+
+    /**
+     * The heuristic applied to each target.
+     */
+    private final Heuristic<Point2D.Int> heuristic;
+
+    /**
+     * The lowest ratio of the wrapped heuristic to the diagonal distance.
+     */
+    private final float minCostPerTile;
+
+    /**
+     * The X coordinate of the first column of the grid.
+     */
+    private final int minX;
+
+    /**
+     * The Y coordinate of the first row of the grid.
+     */
+    private final int minY;
+
+    /**
+     * The width and the height of a cell in tiles.
+     */
+    private final int cellSize;
+
+    /**
+     * The number of cell columns.
+     */
+    private final int columns;
+
+    /**
+     * The number of cell rows.
+     */
+    private final int rows;
+
+    /**
+     * The index of the first target of each cell, followed by the number of targets.
+     */
+    private final int[] cellStart;
+
+    /**
+     * The targets, ordered by their cells.
+     */
+    private final Point2D.Int[] targets;
+
+    /**
+     * Constructs new heuristic wrapping a heuristic which is never less than the diagonal distance.
+     * @param heuristic the heuristic applied to each target
+     * @param targets   the target tiles
+     */
+    public NearestTile(final Heuristic<Point2D.Int> heuristic, final Collection<Point2D.Int> targets) {
+        this(heuristic, targets, 1);
+    }
+
+    /**
+     * Constructs new heuristic.
+     * @param heuristic         the heuristic applied to each target
+     * @param targets           the target tiles
+     * @param minCostPerTile    the lowest ratio of the wrapped heuristic to the diagonal distance,
+     *                          zero makes every estimate visit all targets
+     * @throws IllegalArgumentException if the ratio is negative
+     */
+    public NearestTile(final Heuristic<Point2D.Int> heuristic, final Collection<Point2D.Int> targets, final float minCostPerTile) throws IllegalArgumentException {
+
+        if (!(minCostPerTile >= 0)) {
+            throw new IllegalArgumentException("Cost per tile must not be negative.");
+        }
+
+        this.heuristic = heuristic;
+        this.minCostPerTile = minCostPerTile;
+
+        int x0 = Integer.MAX_VALUE;
+        int y0 = Integer.MAX_VALUE;
+        int x1 = Integer.MIN_VALUE;
+        int y1 = Integer.MIN_VALUE;
+
+        for (Point2D.Int target: targets) {
+            x0 = Math.min(x0, target.x);
+            y0 = Math.min(y0, target.y);
+            x1 = Math.max(x1, target.x);
+            y1 = Math.max(y1, target.y);
+        }
+
+        final int count = targets.size();
+
+        if (count == 0) {
+            x0 = y0 = x1 = y1 = 0;
+        }
+
+        // about two targets per cell when they are spread evenly
+        final double area = ((double) x1 - x0 + 1) * ((double) y1 - y0 + 1);
+
+        this.minX = x0;
+        this.minY = y0;
+        this.cellSize = (int) Math.max(1, Math.min(Math.ceil(Math.sqrt(2 * area / Math.max(count, 1))), Integer.MAX_VALUE));
+        this.columns = (int) (((long) x1 - x0) / cellSize + 1);
+        this.rows = (int) (((long) y1 - y0) / cellSize + 1);
+
+        if ((long) columns * rows > Integer.MAX_VALUE - 1) {
+            throw new IllegalArgumentException("Targets are spread too far to be indexed.");
+        }
+
+        // count targets per cell, then place them in cell order
+        cellStart = new int[columns * rows + 1];
+
+        for (Point2D.Int target: targets) {
+            cellStart[cell(target.x, target.y) + 1]++;
+        }
+
+        for (int i = 0; i < columns * rows; i++) {
+            cellStart[i + 1] += cellStart[i];
+        }
+
+        this.targets = new Point2D.Int[count];
+
+        final int[] next = cellStart.clone();
+
+        for (Point2D.Int target: targets) {
+            this.targets[next[cell(target.x, target.y)]++] = new Point2D.Int(target.x, target.y);
+        }
+    }
+
+    /**
+     * Returns the number of targets.
+     * @return the number of targets
+     */
+    public int getTargetCount() {
+        return targets.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getHeuristicCost(final Map<Point2D.Int> map, final MovingEntity entity, final Point2D.Int source, final Point2D.Int target) {
+
+        final int column = floorDiv((long) source.x - minX);
+        final int row = floorDiv((long) source.y - minY);
+
+        // rings which don't touch the grid are skipped
+        final int firstRing = Math.max(Math.max(column - (columns - 1), -column), Math.max(Math.max(row - (rows - 1), -row), 0));
+        final int lastRing = Math.max(Math.max(column, columns - 1 - column), Math.max(row, rows - 1 - row));
+
+        float cost = Float.POSITIVE_INFINITY;
+
+        for (int ring = firstRing; ring <= lastRing; ring++) {
+
+            if (ring > 0 && minCostPerTile * ((float) (ring - 1) * cellSize + 1) >= cost) {
+                break;
+            }
+
+            for (int r = Math.max(row - ring, 0); r <= Math.min(row + ring, rows - 1); r++) {
+
+                final boolean edge = r == row - ring || r == row + ring;
+                final int step = edge ? 1 : 2 * ring;
+
+                for (int c = column - ring; c <= column + ring; c += step) {
+
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+
+                    final int cell = r * columns + c;
+
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        cost = Math.min(cost, heuristic.getHeuristicCost(map, entity, source, targets[i]));
+                    }
+                }
+            }
+        }
+
+        return cost;
+    }
+
+    /**
+     * Returns the cell of a target tile.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return the index of the cell
+     */
+    private int cell(final int x, final int y) {
+        return (int) (((long) y - minY) / cellSize) * columns + (int) (((long) x - minX) / cellSize);
+    }
+
+    /**
+     * Divides an offset by the cell size, rounding towards negative infinity.
+     * @param offset    the offset from the first column or row
+     * @return the cell column or row, which may be outside the grid
+     */
+    private int floorDiv(final long offset) {
+        return (int) (offset >= 0 ? offset / cellSize : -((-offset + cellSize - 1) / cellSize));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,1079 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.multiagent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.krcko.map.MovingEntity;
+import net.krcko.map.Path;
+import net.krcko.map.TileMap;
+import net.krcko.math.Point2D;
+import net.krcko.util.IntPriorityQueue;
+
+/**
+ * Implements Conflict-Based Search, which finds collision-free paths of
+ * several agents on a <code>TileMap</code> with the optimal sum of costs.
+ * <p>
+ * The high-level search explores a tree of constraint sets. Each high-level
+ * node holds one path per agent; when two paths collide, the node is split in
+ * two, each child forbidding the colliding move to one of the agents, and only
+ * that agent is replanned by a constraint-aware space-time A* search.
+ * <p>
+ * Several things keep the search cheap:
+ * <ul>
+ * <li>the exact distance to the target of each agent is computed once, by a
+ * reverse Dijkstra search, and shared by all low-level searches as a perfect
+ * heuristic,</li>
+ * <li>low-level results are cached by agent and constraint set, so identical
+ * searches in different branches of the tree are not repeated,</li>
+ * <li>conflicts are detected incrementally, only between the replanned agent
+ * and the others,</li>
+ * <li>if an executor is set, several high-level nodes are expanded at once and
+ * low-level searches of all their children run in parallel.</li>
+ * </ul>
+ * <p>
+ * Expanding several nodes at once keeps the solution optimal, since a node
+ * without conflicts is accepted only once it is the cheapest open node, but
+ * it may expand some nodes a sequential search would never get to.
+ * <p>
+ * The <code>n</code>-th step of a returned path is the location of the agent at
+ * time <code>n + 1</code>; agents stay at their targets once their paths end.
+ * The solver is intended for small groups of agents, its running time grows
+ * exponentially with the number of conflicts.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class ConflictBasedSearch {
+
+    /**
+     * Distance of unreachable tiles.
+     */
+    private static final float UNREACHABLE = Float.POSITIVE_INFINITY;
+
+    /**
+     * The map object which will be searched for paths.
+     */
+    private TileMap map;
+
+    /**
+     * The cost of waiting in place for one time step.
+     */
+    private float waitCost = 1;
+
+    /**
+     * The maximum number of high-level nodes to expand before giving up.
+     */
+    private int maxExpansions = 100000;
+
+    /**
+     * The executor running low-level searches in parallel, or <tt>null</tt>.
+     */
+    private ExecutorService executor;
+
+    /**
+     * The number of high-level nodes expanded at once if an executor is set.
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of high-level nodes expanded by the last search.
+     */
+    private int expandedNodes;
+
+    /**
+     * The number of low-level searches performed by the last search.
+     */
+    private final AtomicInteger lowLevelSearches = new AtomicInteger();
+
+    /**
+     * The number of low-level searches answered from cache by the last search.
+     */
+    private final AtomicInteger cacheHits = new AtomicInteger();
+
+    /**
+     * Constructs new solver for specified map.
+     * @param map   the map object which will be searched for paths
+     */
+    public ConflictBasedSearch(final TileMap map) {
+        this.map = map;
+    }
+
+    /**
+     * Returns the map object which will be searched for paths.
+     * @return  Map object used for searching
+     */
+    public TileMap getMap() {
+        return map;
+    }
+
+    /**
+     * Sets the map object which will be searched for paths.
+     * @param map   the map object used for searching
+     */
+    public void setMap(final TileMap map) {
+        this.map = map;
+    }
+
+    /**
+     * Returns the cost of waiting in place for one time step.
+     * @return the wait cost
+     */
+    public float getWaitCost() {
+        return waitCost;
+    }
+
+    /**
+     * Sets the cost of waiting in place for one time step.
+     * @param waitCost  the wait cost, must be positive
+     */
+    public void setWaitCost(final float waitCost) {
+        this.waitCost = waitCost;
+    }
+
+    /**
+     * Returns the maximum number of high-level nodes to expand before giving up.
+     * @return the maximum number of expansions
+     */
+    public int getMaxExpansions() {
+        return maxExpansions;
+    }
+
+    /**
+     * Sets the maximum number of high-level nodes to expand before giving up.
+     * @param maxExpansions the maximum number of expansions
+     */
+    public void setMaxExpansions(final int maxExpansions) {
+        this.maxExpansions = maxExpansions;
+    }
+
+    /**
+     * Returns the executor running low-level searches in parallel.
+     * @return the executor, or <tt>null</tt> if searches run on the calling thread
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor running low-level searches in parallel. The map must
+     * support concurrent reads if an executor is set.
+     * @param executor  the executor, or <tt>null</tt> to run searches on the calling thread
+     */
+    public void setExecutor(final ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the number of high-level nodes expanded at once if an executor is set.
+     * @return the number of nodes expanded at once
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of high-level nodes expanded at once if an executor is set.
+     * @param parallelism   the number of nodes expanded at once
+     * @throws IllegalArgumentException if the number is not positive
+     */
+    public void setParallelism(final int parallelism) throws IllegalArgumentException {
+
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("At least one node must be expanded at once.");
+        }
+
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the number of high-level nodes expanded by the last search.
+     * @return the number of expanded nodes
+     */
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * Returns the number of low-level searches performed by the last search.
+     * @return the number of low-level searches
+     */
+    public int getLowLevelSearches() {
+        return lowLevelSearches.get();
+    }
+
+    /**
+     * Returns the number of low-level searches answered from cache by the last search.
+     * @return the number of cache hits
+     */
+    public int getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /**
+     * Finds collision-free paths of several agents with the optimal sum of costs.
+     * @param entities  the agents which are about to move
+     * @param sources   starting points of the agents
+     * @param targets   ending points of the agents
+     * @return paths of the agents, in the order of the entities, or <tt>null</tt> if no solution was found
+     * @throws IllegalArgumentException if the lists differ in size
+     */
+    public List<Path<Point2D.Int>> findPaths(final List<? extends MovingEntity> entities, final List<Point2D.Int> sources, final List<Point2D.Int> targets) throws IllegalArgumentException {
+
+        if (entities.size() != sources.size() || entities.size() != targets.size()) {
+            throw new IllegalArgumentException("Entity, source and target lists must be of the same size.");
+        }
+
+        expandedNodes = 0;
+        lowLevelSearches.set(0);
+        cacheHits.set(0);
+
+        final Problem problem = new Problem(entities, sources, targets);
+
+        if (problem.unsolvable) {
+            return null;
+        }
+
+        final Node root = new Node(null, null, new Plan[problem.agents]);
+
+        for (int i = 0; i < problem.agents; i++) {
+            root.plans[i] = problem.plan(i, new Constraint[0]);
+        }
+
+        root.update(-1);
+
+        final PriorityQueue<Node> open = new PriorityQueue<>();
+
+        open.add(root);
+
+        final int batch = executor == null ? 1 : parallelism;
+        final ArrayList<Node> children = new ArrayList<>(2 * batch);
+
+        while (!open.isEmpty() && expandedNodes < maxExpansions) {
+
+            // only the cheapest open node is known to be an optimal solution
+            if (open.peek().conflicts.isEmpty()) {
+                return problem.toPaths(open.poll().plans);
+            }
+
+            children.clear();
+
+            while (!open.isEmpty() && !open.peek().conflicts.isEmpty() && children.size() < 2 * batch && expandedNodes < maxExpansions) {
+
+                final Node node = open.poll();
+                final Conflict conflict = node.getEarliestConflict();
+
+                children.add(new Node(node, conflict.getConstraint(0, problem.width), node.plans.clone()));
+                children.add(new Node(node, conflict.getConstraint(1, problem.width), node.plans.clone()));
+
+                expandedNodes++;
+            }
+
+            replan(problem, children);
+
+            for (Node child: children) {
+                if (child.plans[child.constraint.agent] != null) {
+                    child.update(child.constraint.agent);
+                    open.add(child);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Replans the constrained agent of each child node, in parallel if an executor is set.
+     * @param problem   the problem being solved
+     * @param children  the child nodes
+     */
+    private void replan(final Problem problem, final List<Node> children) {
+
+        if (executor == null) {
+            for (Node child: children) {
+                child.plans[child.constraint.agent] = problem.plan(child.constraint.agent, child.getConstraints());
+            }
+            return;
+        }
+
+        final ArrayList<Future<Plan>> futures = new ArrayList<>(children.size());
+
+        for (final Node child: children) {
+            futures.add(executor.submit(new Callable<Plan>() {
+                @Override
+                public Plan call() {
+                    return problem.plan(child.constraint.agent, child.getConstraints());
+                }
+            }));
+        }
+
+        try {
+            for (int i = 0; i < children.size(); i++) {
+                children.get(i).plans[children.get(i).constraint.agent] = futures.get(i).get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for low-level search.", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Low-level search failed.", ex.getCause());
+        }
+    }
+
+    /**
+     * The state of a single multi-agent search.
+     */
+    private final class Problem {
+
+        /**
+         * The number of agents.
+         */
+        final int agents;
+
+        /**
+         * The number of tile columns.
+         */
+        final int width;
+
+        /**
+         * The agents which are about to move.
+         */
+        final MovingEntity[] entities;
+
+        /**
+         * Starting tile of each agent.
+         */
+        final int[] sources;
+
+        /**
+         * Target tile of each agent.
+         */
+        final int[] targets;
+
+        /**
+         * Exact distance of each tile to the target, per agent.
+         */
+        final float[][] distances;
+
+        /**
+         * Results of low-level searches, per agent.
+         */
+        final List<ConcurrentHashMap<ConstraintSet, Plan>> cache;
+
+        /**
+         * <tt>true</tt> if some agent can't reach its target at all.
+         */
+        boolean unsolvable;
+
+        /**
+         * Prepares a search, computing distance tables of all agents.
+         * @param entities  the agents which are about to move
+         * @param sources   starting points of the agents
+         * @param targets   ending points of the agents
+         */
+        Problem(final List<? extends MovingEntity> entities, final List<Point2D.Int> sources, final List<Point2D.Int> targets) {
+
+            this.agents = entities.size();
+            this.width = map.getWidthInTiles();
+            this.entities = entities.toArray(new MovingEntity[agents]);
+            this.sources = new int[agents];
+            this.targets = new int[agents];
+            this.distances = new float[agents][];
+            this.cache = new ArrayList<>(agents);
+
+            for (int i = 0; i < agents; i++) {
+
+                final Point2D.Int source = sources.get(i);
+                final Point2D.Int target = targets.get(i);
+
+                if (!map.isValidLocation(source) || !map.isValidLocation(target) || !map.canMoveTo(this.entities[i], target)) {
+                    unsolvable = true;
+                    return;
+                }
+
+                this.sources[i] = source.y * width + source.x;
+                this.targets[i] = target.y * width + target.x;
+                this.distances[i] = distancesTo(this.entities[i], target);
+                this.cache.add(new ConcurrentHashMap<ConstraintSet, Plan>());
+
+                if (distances[i][this.sources[i]] == UNREACHABLE) {
+                    unsolvable = true;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Computes the exact distance of each tile to the target by a reverse Dijkstra search.
+         * @param entity    the agent which is about to move
+         * @param target    ending point on the map
+         * @return distances of all tiles, in row-major order
+         */
+        private float[] distancesTo(final MovingEntity entity, final Point2D.Int target) {
+
+            final float[] distance = new float[width * map.getHeightInTiles()];
+            final IntPriorityQueue queue = new IntPriorityQueue(distance.length);
+
+            Arrays.fill(distance, UNREACHABLE);
+
+            distance[target.y * width + target.x] = 0;
+            queue.offer(target.y * width + target.x, 0);
+
+            while (!queue.isEmpty()) {
+
+                final int tile = queue.poll();
+                final Point2D.Int location = new Point2D.Int(tile % width, tile / width);
+
+                for (Point2D.Int neighbor: map.getNeighbors(location, entity)) {
+
+                    final int index = neighbor.y * width + neighbor.x;
+                    final float cost = distance[tile] + map.getCost(entity, neighbor, location);
+
+                    if (cost < distance[index] && map.canMoveTo(entity, neighbor)) {
+                        distance[index] = cost;
+                        queue.offer(index, cost);
+                    }
+                }
+            }
+
+            return distance;
+        }
+
+        /**
+         * Returns the optimal plan of an agent which satisfies specified constraints.
+         * @param agent         the index of the agent
+         * @param constraints   the constraints of the agent
+         * @return the plan, or <tt>null</tt> if no plan satisfies the constraints
+         */
+        Plan plan(final int agent, final Constraint[] constraints) {
+
+            final ConstraintSet key = new ConstraintSet(constraints);
+            final Plan cached = cache.get(agent).get(key);
+
+            if (cached != null) {
+                cacheHits.incrementAndGet();
+                return cached;
+            }
+
+            lowLevelSearches.incrementAndGet();
+
+            final Plan plan = search(agent, key);
+
+            if (plan != null) {
+                cache.get(agent).putIfAbsent(key, plan);
+            }
+
+            return plan;
+        }
+
+        /**
+         * Runs a space-time A* search of a single agent.
+         * @param agent         the index of the agent
+         * @param constraints   the constraints of the agent
+         * @return the plan, or <tt>null</tt> if no plan satisfies the constraints
+         */
+        private Plan search(final int agent, final ConstraintSet constraints) {
+
+            final MovingEntity entity = entities[agent];
+            final float[] h = distances[agent];
+            final int target = targets[agent];
+            final int horizon = constraints.lastTime + h.length + 1;
+
+            int lastTargetConstraint = -1;
+
+            for (long constraint: constraints.keys) {
+                if (Constraint.isVertex(constraint) && Constraint.tile(constraint) == target) {
+                    lastTargetConstraint = Math.max(lastTargetConstraint, Constraint.time(constraint));
+                }
+            }
+
+            final PriorityQueue<SearchNode> open = new PriorityQueue<>();
+            final HashMap<Long, SearchNode> visited = new HashMap<>();
+            final SearchNode first = new SearchNode(sources[agent], 0, 0, h[sources[agent]], null);
+
+            open.add(first);
+            visited.put(first.key(), first);
+
+            while (!open.isEmpty()) {
+
+                final SearchNode node = open.poll();
+
+                if (node.closed) {
+                    continue;
+                }
+
+                node.closed = true;
+
+                if (node.tile == target && node.t > lastTargetConstraint) {
+                    return new Plan(node);
+                }
+
+                if (node.t >= horizon) {
+                    continue;
+                }
+
+                final Point2D.Int location = new Point2D.Int(node.tile % width, node.tile / width);
+                final Point2D.Int[] neighbors = map.getNeighbors(location, entity);
+
+                for (int i = -1; i < neighbors.length; i++) {
+
+                    final Point2D.Int next = i < 0 ? location : neighbors[i];
+                    final int tile = next.y * width + next.x;
+
+                    if (h[tile] == UNREACHABLE || (i >= 0 && !map.canMoveTo(entity, next))) {
+                        continue;
+                    }
+
+                    if (constraints.contains(Constraint.vertex(tile, node.t + 1)) || constraints.contains(Constraint.edge(node.tile, tile, node.t + 1, width))) {
+                        continue;
+                    }
+
+                    final float cost = node.g + (i < 0 ? waitCost : map.getCost(entity, location, next));
+                    final SearchNode child = new SearchNode(tile, node.t + 1, cost, cost + h[tile], node);
+                    final Long key = child.key();
+                    final SearchNode existing = visited.get(key);
+
+                    if (existing == null || cost < existing.g) {
+
+                        if (existing != null) {
+                            existing.closed = true;
+                        }
+
+                        visited.put(key, child);
+                        open.add(child);
+                    }
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Converts plans into paths.
+         * @param plans the plans of all agents
+         * @return the paths of all agents
+         */
+        List<Path<Point2D.Int>> toPaths(final Plan[] plans) {
+
+            final ArrayList<Path<Point2D.Int>> paths = new ArrayList<>(agents);
+
+            for (Plan plan: plans) {
+
+                final Path<Point2D.Int> path = new Path<>(plan.tiles.length);
+
+                for (int t = 1; t < plan.tiles.length; t++) {
+                    path.append(new Point2D.Int(plan.tiles[t] % width, plan.tiles[t] / width));
+                }
+
+                paths.add(path);
+            }
+
+            return paths;
+        }
+    }
+
+    /**
+     * A node of the high-level constraint tree.
+     */
+    private static final class Node implements Comparable<Node> {
+
+        /**
+         * The parent node, or <tt>null</tt> for the root.
+         */
+        final Node parent;
+
+        /**
+         * The constraint added by this node, or <tt>null</tt> for the root.
+         */
+        final Constraint constraint;
+
+        /**
+         * Plans of all agents.
+         */
+        final Plan[] plans;
+
+        /**
+         * The first conflict of each pair of colliding agents.
+         */
+        List<Conflict> conflicts;
+
+        /**
+         * The sum of costs of all plans.
+         */
+        float cost;
+
+        /**
+         * Constructs new high-level node.
+         * @param parent        the parent node
+         * @param constraint    the constraint added by the node
+         * @param plans         plans of all agents
+         */
+        Node(final Node parent, final Constraint constraint, final Plan[] plans) {
+            this.parent = parent;
+            this.constraint = constraint;
+            this.plans = plans;
+        }
+
+        /**
+         * Returns all constraints of the agent constrained by this node.
+         * @return the constraints of the agent
+         */
+        Constraint[] getConstraints() {
+
+            final ArrayList<Constraint> list = new ArrayList<>();
+
+            for (Node node = this; node.constraint != null; node = node.parent) {
+                if (node.constraint.agent == constraint.agent) {
+                    list.add(node.constraint);
+                }
+            }
+
+            return list.toArray(new Constraint[list.size()]);
+        }
+
+        /**
+         * Updates the cost and conflicts after the plan of an agent has changed.
+         * @param agent the index of the replanned agent, or <tt>-1</tt> to detect all conflicts
+         */
+        void update(final int agent) {
+
+            cost = 0;
+
+            for (Plan plan: plans) {
+                cost += plan.cost;
+            }
+
+            conflicts = new ArrayList<>();
+
+            if (agent < 0) {
+                for (int a = 0; a < plans.length; a++) {
+                    for (int b = a + 1; b < plans.length; b++) {
+                        addConflict(a, b);
+                    }
+                }
+                return;
+            }
+
+            for (Conflict conflict: parent.conflicts) {
+                if (conflict.a != agent && conflict.b != agent) {
+                    conflicts.add(conflict);
+                }
+            }
+
+            for (int other = 0; other < plans.length; other++) {
+                if (other != agent) {
+                    addConflict(Math.min(agent, other), Math.max(agent, other));
+                }
+            }
+        }
+
+        /**
+         * Returns the earliest conflict of this node.
+         * @return the earliest conflict
+         */
+        Conflict getEarliestConflict() {
+
+            Conflict earliest = conflicts.get(0);
+
+            for (Conflict conflict: conflicts) {
+                if (conflict.t < earliest.t) {
+                    earliest = conflict;
+                }
+            }
+
+            return earliest;
+        }
+
+        /**
+         * Detects the first conflict between plans of two agents.
+         * @param a the index of the first agent
+         * @param b the index of the second agent
+         */
+        private void addConflict(final int a, final int b) {
+
+            final Plan pa = plans[a];
+            final Plan pb = plans[b];
+            final int end = Math.max(pa.tiles.length, pb.tiles.length);
+
+            for (int t = 0; t < end; t++) {
+
+                if (pa.at(t) == pb.at(t)) {
+                    conflicts.add(new Conflict(a, b, t, pa.at(t), -1));
+                    return;
+                }
+
+                if (t > 0 && pa.at(t) == pb.at(t - 1) && pa.at(t - 1) == pb.at(t)) {
+                    conflicts.add(new Conflict(a, b, t, pa.at(t - 1), pa.at(t)));
+                    return;
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int compareTo(final Node other) {
+
+            final int result = Float.compare(cost, other.cost);
+
+            return result != 0 ? result : Integer.compare(conflicts.size(), other.conflicts.size());
+        }
+    }
+
+    /**
+     * A collision between plans of two agents.
+     */
+    private static final class Conflict {
+
+        /**
+         * The index of the first agent.
+         */
+        final int a;
+
+        /**
+         * The index of the second agent.
+         */
+        final int b;
+
+        /**
+         * The time step of the collision.
+         */
+        final int t;
+
+        /**
+         * The tile of the collision, or the tile the first agent moves from in a swap.
+         */
+        final int from;
+
+        /**
+         * The tile the first agent moves to in a swap, or <tt>-1</tt> for collisions on a tile.
+         */
+        final int to;
+
+        /**
+         * Constructs new conflict.
+         * @param a     the index of the first agent
+         * @param b     the index of the second agent
+         * @param t     the time step of the collision
+         * @param from  the tile of the collision, or the tile the first agent moves from
+         * @param to    the tile the first agent moves to, or <tt>-1</tt>
+         */
+        Conflict(final int a, final int b, final int t, final int from, final int to) {
+            this.a = a;
+            this.b = b;
+            this.t = t;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Returns the constraint resolving this conflict for one of the agents.
+         * @param which <tt>0</tt> for the first agent, <tt>1</tt> for the second
+         * @param width the number of tile columns
+         * @return the constraint
+         */
+        Constraint getConstraint(final int which, final int width) {
+
+            if (to < 0) {
+                return new Constraint(which == 0 ? a : b, Constraint.vertex(from, t));
+            }
+
+            return which == 0 ? new Constraint(a, Constraint.edge(from, to, t, width)) : new Constraint(b, Constraint.edge(to, from, t, width));
+        }
+    }
+
+    /**
+     * A move forbidden to an agent: occupying a tile at a time step, or moving
+     * between two tiles into a time step.
+     */
+    private static final class Constraint {
+
+        /**
+         * The flag marking edge constraints.
+         */
+        private static final long EDGE = 1L << 63;
+
+        /**
+         * The index of the constrained agent.
+         */
+        final int agent;
+
+        /**
+         * The packed constraint.
+         */
+        final long key;
+
+        /**
+         * Constructs new constraint.
+         * @param agent the index of the constrained agent
+         * @param key   the packed constraint
+         */
+        Constraint(final int agent, final long key) {
+            this.agent = agent;
+            this.key = key;
+        }
+
+        /**
+         * Packs a constraint forbidding a tile at a time step.
+         * @param tile  the forbidden tile
+         * @param t     the time step
+         * @return the packed constraint
+         */
+        static long vertex(final int tile, final int t) {
+            return ((long) t << 32) | tile;
+        }
+
+        /**
+         * Packs a constraint forbidding a move between two neighboring tiles into a time step.
+         * @param from  the tile the move starts at
+         * @param to    the tile the move ends at
+         * @param t     the time step at which the move ends
+         * @param width the number of tile columns
+         * @return the packed constraint
+         */
+        static long edge(final int from, final int to, final int t, final int width) {
+
+            final long direction = (to / width - from / width + 1) * 3 + (to % width - from % width + 1);
+
+            return EDGE | (direction << 59) | ((long) t << 32) | from;
+        }
+
+        /**
+         * Returns <tt>true</tt> if a packed constraint forbids a tile.
+         * @param key   the packed constraint
+         * @return <tt>true</tt> for tile constraints
+         */
+        static boolean isVertex(final long key) {
+            return (key & EDGE) == 0;
+        }
+
+        /**
+         * Returns the tile of a packed tile constraint.
+         * @param key   the packed constraint
+         * @return the forbidden tile
+         */
+        static int tile(final long key) {
+            return (int) key;
+        }
+
+        /**
+         * Returns the time step of a packed constraint.
+         * @param key   the packed constraint
+         * @return the time step
+         */
+        static int time(final long key) {
+            return (int) ((key >>> 32) & 0x7ffffff);
+        }
+    }
+
+    /**
+     * An immutable set of packed constraints of one agent, usable as a cache key.
+     */
+    private static final class ConstraintSet {
+
+        /**
+         * Sorted packed constraints.
+         */
+        final long[] keys;
+
+        /**
+         * The latest time step of any constraint.
+         */
+        final int lastTime;
+
+        /**
+         * Packed constraints, for fast lookup.
+         */
+        private final HashSet<Long> set;
+
+        /**
+         * Constructs new constraint set.
+         * @param constraints   the constraints of one agent
+         */
+        ConstraintSet(final Constraint[] constraints) {
+
+            keys = new long[constraints.length];
+            set = new HashSet<>(constraints.length * 2);
+
+            int last = 0;
+
+            for (int i = 0; i < constraints.length; i++) {
+                keys[i] = constraints[i].key;
+                set.add(keys[i]);
+                last = Math.max(last, Constraint.time(keys[i]));
+            }
+
+            Arrays.sort(keys);
+            lastTime = last;
+        }
+
+        /**
+         * Returns <tt>true</tt> if this set contains a packed constraint.
+         * @param key   the packed constraint
+         * @return <tt>true</tt> if the constraint is in the set
+         */
+        boolean contains(final long key) {
+            return !set.isEmpty() && set.contains(key);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(keys);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof ConstraintSet && Arrays.equals(keys, ((ConstraintSet) other).keys);
+        }
+    }
+
+    /**
+     * A timed plan of a single agent.
+     */
+    private static final class Plan {
+
+        /**
+         * The tile occupied at each time step.
+         */
+        final int[] tiles;
+
+        /**
+         * The cost of the plan.
+         */
+        final float cost;
+
+        /**
+         * Constructs a plan ending at specified search node.
+         * @param last  the last search node of the plan
+         */
+        Plan(final SearchNode last) {
+
+            tiles = new int[last.t + 1];
+            cost = last.g;
+
+            for (SearchNode node = last; node != null; node = node.parent) {
+                tiles[node.t] = node.tile;
+            }
+        }
+
+        /**
+         * Returns the tile occupied at specified time step; agents stay at the
+         * last tile once the plan ends.
+         * @param t the time step
+         * @return the occupied tile
+         */
+        int at(final int t) {
+            return tiles[Math.min(t, tiles.length - 1)];
+        }
+    }
+
+    /**
+     * A node of the space-time low-level search.
+     */
+    private static final class SearchNode implements Comparable<SearchNode> {
+
+        /**
+         * The tile of this node.
+         */
+        final int tile;
+
+        /**
+         * The time step of this node.
+         */
+        final int t;
+
+        /**
+         * The path cost of this node.
+         */
+        final float g;
+
+        /**
+         * The estimated total cost of a path trough this node.
+         */
+        final float f;
+
+        /**
+         * The node which lead to this node.
+         */
+        final SearchNode parent;
+
+        /**
+         * <tt>true</tt> if the node was expanded or superseded by a cheaper one.
+         */
+        boolean closed;
+
+        /**
+         * Constructs new search node.
+         * @param tile      the tile
+         * @param t         the time step
+         * @param g         the path cost
+         * @param f         the estimated total cost
+         * @param parent    the node which lead to this node
+         */
+        SearchNode(final int tile, final int t, final float g, final float f, final SearchNode parent) {
+            this.tile = tile;
+            this.t = t;
+            this.g = g;
+            this.f = f;
+            this.parent = parent;
+        }
+
+        /**
+         * Returns the space-time key of this node.
+         * @return the node key
+         */
+        Long key() {
+            return ((long) t << 32) | tile;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int compareTo(final SearchNode other) {
+
+            final int result = Float.compare(f, other.f);
+
+            return result != 0 ? result : Float.compare(other.g, g);
+        }
+    }
+}
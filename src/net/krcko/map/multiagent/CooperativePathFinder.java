@@ -0,0 +1,509 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.multiagent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import net.krcko.map.AStarPathFinder;
+import net.krcko.map.Heuristic;
+import net.krcko.map.MovingEntity;
+import net.krcko.map.Path;
+import net.krcko.map.PathFinder;
+import net.krcko.map.TileMap;
+import net.krcko.math.Point2D;
+
+/**
+ * Implements cooperative path finding (Windowed Hierarchical Cooperative A*)
+ * on a <code>TileMap</code>.
+ * <p>
+ * Each agent searches the (tile, time) space, where waiting in place is a
+ * valid move, avoiding tiles reserved by other agents in a shared
+ * <code>ReservationTable</code>, and then reserves its own path. Agents planned
+ * later in a batch route around agents planned earlier, so paths planned
+ * together don't collide, neither on tiles nor by swapping places.
+ * <p>
+ * Only the first <code>window</code> time steps are coordinated, the rest of
+ * the path to the target is found by an ordinary <code>AStarPathFinder</code>.
+ * Agents are expected to replan before they leave the coordinated window.
+ * <p>
+ * The <code>n</code>-th step of a returned path is the location of the agent
+ * at time <code>getTime() + n + 1</code>, so a path may repeat a location when
+ * the agent has to wait.
+ * <p>
+ * The path finder is not safe for use by multiple threads: it keeps the ids
+ * of agents and a single <code>AStarPathFinder</code> for the rest of paths,
+ * reused by every search. Agents planned from several threads must either
+ * use a path finder per thread sharing the reservation table, or plan under
+ * an external lock.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class CooperativePathFinder extends PathFinder<Point2D.Int> {
+
+    /**
+     * A heuristic cost provider object.
+     */
+    private Heuristic<Point2D.Int> heuristic;
+
+    /**
+     * The shared reservation table.
+     */
+    private final ReservationTable reservations;
+
+    /**
+     * The number of time steps coordinated by each search.
+     */
+    private int window;
+
+    /**
+     * The cost of waiting in place for one time step.
+     */
+    private float waitCost = 1;
+
+    /**
+     * The path finder of the rest of paths beyond the coordinated window.
+     */
+    private final AStarPathFinder<Point2D.Int> finder;
+
+    /**
+     * Ids of agents in the reservation table.
+     */
+    private final IdentityHashMap<MovingEntity, Integer> agents = new IdentityHashMap<>();
+
+    /**
+     * Constructs new cooperative path finder.
+     * @param map           the map object which will be searched for paths
+     * @param heuristic     the object providing search heuristic method
+     * @param reservations  the reservation table shared by cooperating agents
+     */
+    public CooperativePathFinder(final TileMap map, final Heuristic<Point2D.Int> heuristic, final ReservationTable reservations) {
+        this(map, heuristic, reservations, reservations.getWindow());
+    }
+
+    /**
+     * Constructs new cooperative path finder.
+     * @param map           the map object which will be searched for paths
+     * @param heuristic     the object providing search heuristic method
+     * @param reservations  the reservation table shared by cooperating agents
+     * @param window        the number of time steps coordinated by each search
+     */
+    public CooperativePathFinder(final TileMap map, final Heuristic<Point2D.Int> heuristic, final ReservationTable reservations, final int window) {
+        super(map);
+        this.heuristic = heuristic;
+        this.reservations = reservations;
+        this.finder = new AStarPathFinder<>(map, heuristic);
+        setWindow(window);
+    }
+
+    /**
+     * Returns heuristic provider.
+     * @return  object providing search heuristic method
+     */
+    public Heuristic<Point2D.Int> getHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * Sets heuristic provider.
+     * @param heuristic object providing search heuristic method
+     */
+    public void setHeuristic(final Heuristic<Point2D.Int> heuristic) {
+        this.heuristic = heuristic;
+        finder.setHeuristic(heuristic);
+    }
+
+    /**
+     * Returns the shared reservation table.
+     * @return the reservation table
+     */
+    public ReservationTable getReservations() {
+        return reservations;
+    }
+
+    /**
+     * Returns the number of time steps coordinated by each search.
+     * @return the search window
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Sets the number of time steps coordinated by each search. The window is
+     * limited by the window of the reservation table.
+     * @param window    the search window
+     * @throws IllegalArgumentException if the window is not positive
+     */
+    public final void setWindow(final int window) throws IllegalArgumentException {
+
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive.");
+        }
+
+        this.window = Math.min(window, reservations.getWindow() - 1);
+    }
+
+    /**
+     * Returns the cost of waiting in place for one time step.
+     * @return the wait cost
+     */
+    public float getWaitCost() {
+        return waitCost;
+    }
+
+    /**
+     * Sets the cost of waiting in place for one time step.
+     * @param waitCost  the wait cost
+     */
+    public void setWaitCost(final float waitCost) {
+        this.waitCost = waitCost;
+    }
+
+    /**
+     * Returns the id of specified agent in the reservation table.
+     * @param entity    the agent
+     * @return the agent id
+     */
+    public int getAgentId(final MovingEntity entity) {
+
+        Integer id = agents.get(entity);
+
+        if (id == null) {
+            id = agents.size();
+            agents.put(entity, id);
+        }
+
+        return id;
+    }
+
+    /**
+     * Returns the current time of the reservation table.
+     * @return the current time
+     */
+    public int getTime() {
+        return reservations.getTime();
+    }
+
+    /**
+     * Advances the current time of the reservation table, expiring older reservations.
+     * @param time  the new current time
+     */
+    public void advanceTo(final int time) {
+        reservations.advanceTo(time);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Previous reservations of the entity are released, and the new path is
+     * reserved for the coordinated window. An entity already at the target
+     * reserves the target and gets an empty path.
+     */
+    @Override
+    public Path<Point2D.Int> findPath(final MovingEntity entity, final Point2D.Int source, final Point2D.Int target) {
+
+        final int agent = getAgentId(entity);
+
+        reservations.releaseAll(agent);
+
+        return plan(entity, agent, source, target);
+    }
+
+    /**
+     * Finds paths of several agents in a single pass. Agents are planned in the
+     * specified order, so earlier agents get priority over later ones.
+     * @param entities  the agents which are about to move
+     * @param sources   starting points of the agents
+     * @param targets   ending points of the agents
+     * @return paths of the agents, with <tt>null</tt> for agents which could not find one
+     * @throws IllegalArgumentException if the lists differ in size
+     */
+    public List<Path<Point2D.Int>> findPaths(final List<? extends MovingEntity> entities, final List<Point2D.Int> sources, final List<Point2D.Int> targets) throws IllegalArgumentException {
+
+        if (entities.size() != sources.size() || entities.size() != targets.size()) {
+            throw new IllegalArgumentException("Entity, source and target lists must be of the same size.");
+        }
+
+        final int time = reservations.getTime();
+        final int[] ids = new int[entities.size()];
+
+        // current locations are reserved first, so earlier agents can't swap places with later ones
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = getAgentId(entities.get(i));
+            reservations.releaseAll(ids[i]);
+            reservations.reserve(sources.get(i).x, sources.get(i).y, time, ids[i]);
+        }
+
+        final ArrayList<Path<Point2D.Int>> paths = new ArrayList<>(ids.length);
+
+        for (int i = 0; i < ids.length; i++) {
+            paths.add(plan(entities.get(i), ids[i], sources.get(i), targets.get(i)));
+        }
+
+        return paths;
+    }
+
+    /**
+     * Finds and reserves a path of a single agent.
+     * @param entity    the agent which is about to move
+     * @param agent     the id of the agent
+     * @param source    starting point on the map
+     * @param target    ending point on the map
+     * @return  the path, or <tt>null</tt> if no such path can be found
+     */
+    private Path<Point2D.Int> plan(final MovingEntity entity, final int agent, final Point2D.Int source, final Point2D.Int target) {
+
+        map.pathFinderStarted(source, target);
+
+        final int start = reservations.getTime();
+        final int end = start + window;
+
+        if (!map.canMoveTo(entity, target)) {
+            return null;
+        }
+
+        final Node last = search(entity, agent, source, target, start, end);
+
+        if (last == null) {
+            return null;
+        }
+
+        final Path<Point2D.Int> path = new Path<>(last.t - start);
+
+        for (Node node = last; node.parent != null; node = node.parent) {
+            path.append(new Point2D.Int(node.x, node.y));
+        }
+
+        path.reverse();
+
+        reservations.reserve(source.x, source.y, start, agent);
+
+        for (int i = 0; i < path.getLength(); i++) {
+            reservations.reserve(path.getStep(i).x, path.getStep(i).y, start + i + 1, agent);
+        }
+
+        if (last.x == target.x && last.y == target.y) {
+
+            for (int t = last.t + 1; t <= end; t++) {
+                reservations.reserve(target.x, target.y, t, agent);
+            }
+
+            return path;
+        }
+
+        final Path<Point2D.Int> rest = finder.findPath(entity, new Point2D.Int(last.x, last.y), target);
+
+        if (rest == null) {
+            reservations.releaseAll(agent);
+            return null;
+        }
+
+        for (int i = 0; i < rest.getLength(); i++) {
+            path.append(rest.getStep(i));
+        }
+
+        return path;
+    }
+
+    /**
+     * Searches the (tile, time) space for a path to the target or to the end of the window.
+     * @param entity    the agent which is about to move
+     * @param agent     the id of the agent
+     * @param source    starting point on the map
+     * @param target    ending point on the map
+     * @param start     the starting time
+     * @param end       the last coordinated time
+     * @return the last node of the path, or <tt>null</tt> if no such path can be found
+     */
+    private Node search(final MovingEntity entity, final int agent, final Point2D.Int source, final Point2D.Int target, final int start, final int end) {
+
+        final PriorityQueue<Node> open = new PriorityQueue<>();
+        final HashMap<Long, Node> visited = new HashMap<>();
+        final Node first = new Node(source.x, source.y, start, 0, heuristic.getHeuristicCost(map, entity, source, target), null);
+
+        open.add(first);
+        visited.put(key(first, source), first);
+
+        while (!open.isEmpty()) {
+
+            final Node node = open.poll();
+
+            if (node.closed) {
+                continue;
+            }
+
+            node.closed = true;
+
+            if (node.t == end || (node.x == target.x && node.y == target.y && canStay(agent, target, node.t + 1, end))) {
+                return node;
+            }
+
+            final Point2D.Int location = new Point2D.Int(node.x, node.y);
+            final Point2D.Int[] neighbors = map.getNeighbors(location, entity);
+
+            for (int i = -1; i < neighbors.length; i++) {
+
+                final Point2D.Int next = i < 0 ? location : neighbors[i];
+
+                if (i >= 0 && !map.canMoveTo(entity, next)) {
+                    continue;
+                }
+
+                if (!reservations.isFree(next.x, next.y, node.t + 1, agent)) {
+                    continue;
+                }
+
+                // moving into a tile whose occupant moves into ours would swap places trough each other
+                if (i >= 0) {
+                    final int occupant = reservations.getReservation(next.x, next.y, node.t);
+                    if (occupant != ReservationTable.NONE && occupant != agent && occupant == reservations.getReservation(node.x, node.y, node.t + 1)) {
+                        continue;
+                    }
+                }
+
+                final float cost = node.g + (i < 0 ? waitCost : map.getCost(entity, location, next));
+                final Node child = new Node(next.x, next.y, node.t + 1, cost, cost + heuristic.getHeuristicCost(map, entity, next, target), node);
+                final Long key = key(child, source);
+                final Node existing = visited.get(key);
+
+                if (existing == null || cost < existing.g) {
+
+                    if (existing != null) {
+                        existing.closed = true;
+                    }
+
+                    visited.put(key, child);
+                    open.add(child);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the agent can remain at the target until the end of the window.
+     * @param agent     the id of the agent
+     * @param target    the target tile
+     * @param from      the first time step to check
+     * @param end       the last coordinated time
+     * @return <tt>true</tt> if the target is not reserved by another agent
+     */
+    private boolean canStay(final int agent, final Point2D.Int target, final int from, final int end) {
+
+        for (int t = from; t <= end; t++) {
+            if (!reservations.isFree(target.x, target.y, t, agent)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Packs the space-time coordinates of a node, relative to the source, into a key.
+     * @param node      the search node
+     * @param source    starting point on the map
+     * @return the node key
+     */
+    private static Long key(final Node node, final Point2D.Int source) {
+        return ((long) (node.x - source.x + (1 << 21)) << 42) | ((long) (node.y - source.y + (1 << 21)) << 21) | (node.t & 0x1fffff);
+    }
+
+    /**
+     * A node of the (tile, time) search space.
+     */
+    private static final class Node implements Comparable<Node> {
+
+        /**
+         * The X coordinate of the tile.
+         */
+        final int x;
+
+        /**
+         * The Y coordinate of the tile.
+         */
+        final int y;
+
+        /**
+         * The time step.
+         */
+        final int t;
+
+        /**
+         * The path cost of this node.
+         */
+        final float g;
+
+        /**
+         * The estimated total cost of a path trough this node.
+         */
+        final float f;
+
+        /**
+         * The node which lead to this node.
+         */
+        final Node parent;
+
+        /**
+         * <tt>true</tt> if the node was expanded or superseded by a cheaper one.
+         */
+        boolean closed;
+
+        /**
+         * Constructs new search node.
+         * @param x         the X coordinate of the tile
+         * @param y         the Y coordinate of the tile
+         * @param t         the time step
+         * @param g         the path cost
+         * @param f         the estimated total cost
+         * @param parent    the node which lead to this node
+         */
+        Node(final int x, final int y, final int t, final float g, final float f, final Node parent) {
+            this.x = x;
+            this.y = y;
+            this.t = t;
+            this.g = g;
+            this.f = f;
+            this.parent = parent;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int compareTo(final Node other) {
+
+            final int result = Float.compare(f, other.f);
+
+            return result != 0 ? result : Float.compare(other.g, g);
+        }
+    }
+}
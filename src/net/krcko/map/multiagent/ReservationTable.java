@@ -0,0 +1,507 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.multiagent;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A space-time reservation table, recording which agent occupies which tile
+ * at which time step.
+ * <p>
+ * The table keeps a sliding window of time steps in a ring buffer of slots,
+ * each slot being an open-addressing hash table of packed tile coordinates
+ * and agent ids. Advancing the time simply clears the slots which fell out of
+ * the window, so expiry costs nothing per reservation.
+ * <p>
+ * The table is safe for use by multiple threads; any number of readers can
+ * query it concurrently, while writers get exclusive access.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class ReservationTable {
+
+    /**
+     * The agent id returned for tiles which are not reserved.
+     */
+    public static final int NONE = -1;
+
+    /**
+     * The key of empty hash table entries.
+     */
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    /**
+     * The number of time steps kept by the table.
+     */
+    private final int window;
+
+    /**
+     * Reservations of each time step, indexed by time modulo window.
+     */
+    private final Slot[] slots;
+
+    /**
+     * Guards access to the slots and the current time.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * The first time step kept by the table.
+     */
+    private int time;
+
+    /**
+     * Constructs new reservation table.
+     * @param window    the number of time steps to keep, rounded up to a power of two
+     * @throws IllegalArgumentException if the window is not positive
+     */
+    public ReservationTable(final int window) throws IllegalArgumentException {
+
+        if (window <= 0 || window > 1 << 20) {
+            throw new IllegalArgumentException("Window must be between 1 and 2^20 time steps.");
+        }
+
+        int size = 1;
+
+        while (size < window) {
+            size <<= 1;
+        }
+
+        this.window = size;
+        this.slots = new Slot[size];
+
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * Returns the number of time steps kept by the table.
+     * @return the window size
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Returns the first time step kept by the table.
+     * @return the current time
+     */
+    public int getTime() {
+
+        lock.readLock().lock();
+
+        try {
+            return time;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Advances the current time, discarding reservations of earlier time steps.
+     * @param time  the new current time
+     */
+    public void advanceTo(final int time) {
+
+        lock.writeLock().lock();
+
+        try {
+
+            final int end = (int) Math.min((long) time, (long) this.time + window);
+
+            for (int t = this.time; t < end; t++) {
+                slots[t & (window - 1)].clear();
+            }
+
+            this.time = Math.max(this.time, time);
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if specified time step is within the window of the table.
+     * @param time  the time step to check
+     * @return <tt>true</tt> if reservations of the time step are kept
+     */
+    public boolean isWithinWindow(final int time) {
+
+        lock.readLock().lock();
+
+        try {
+            return time >= this.time && time - this.time < window;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reserves a tile for an agent at specified time step.
+     * @param x         the X coordinate of the tile
+     * @param y         the Y coordinate of the tile
+     * @param time      the time step
+     * @param agent     the id of the agent
+     * @return <tt>true</tt> if the tile is now reserved by the agent, <tt>false</tt>
+     *          if it is reserved by another agent or the time step is outside the window
+     */
+    public boolean reserve(final int x, final int y, final int time, final int agent) {
+
+        lock.writeLock().lock();
+
+        try {
+
+            if (time < this.time || time - this.time >= window) {
+                return false;
+            }
+
+            return slots[time & (window - 1)].put(key(x, y), agent);
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the agent which reserved a tile at specified time step.
+     * @param x     the X coordinate of the tile
+     * @param y     the Y coordinate of the tile
+     * @param time  the time step
+     * @return the id of the agent, or <code>NONE</code>
+     */
+    public int getReservation(final int x, final int y, final int time) {
+
+        lock.readLock().lock();
+
+        try {
+
+            if (time < this.time || time - this.time >= window) {
+                return NONE;
+            }
+
+            return slots[time & (window - 1)].get(key(x, y));
+
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if the tile is free for the agent at specified time step.
+     * @param x     the X coordinate of the tile
+     * @param y     the Y coordinate of the tile
+     * @param time  the time step
+     * @param agent the id of the agent
+     * @return <tt>true</tt> if the tile is not reserved by another agent
+     */
+    public boolean isFree(final int x, final int y, final int time, final int agent) {
+        final int owner = getReservation(x, y, time);
+        return owner == NONE || owner == agent;
+    }
+
+    /**
+     * Releases a reservation of specified agent.
+     * @param x     the X coordinate of the tile
+     * @param y     the Y coordinate of the tile
+     * @param time  the time step
+     * @param agent the id of the agent
+     */
+    public void release(final int x, final int y, final int time, final int agent) {
+
+        lock.writeLock().lock();
+
+        try {
+            if (time >= this.time && time - this.time < window) {
+                slots[time & (window - 1)].remove(key(x, y), agent);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Releases all reservations of specified agent.
+     * @param agent the id of the agent
+     */
+    public void releaseAll(final int agent) {
+
+        lock.writeLock().lock();
+
+        try {
+            for (Slot slot: slots) {
+                slot.removeAll(agent);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all reservations.
+     */
+    public void clear() {
+
+        lock.writeLock().lock();
+
+        try {
+            for (Slot slot: slots) {
+                slot.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the total number of reservations in the table.
+     * @return the number of reservations
+     */
+    public int size() {
+
+        lock.readLock().lock();
+
+        try {
+
+            int size = 0;
+
+            for (Slot slot: slots) {
+                size += slot.size;
+            }
+
+            return size;
+
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Packs tile coordinates into a hash key.
+     * @param x the X coordinate of the tile
+     * @param y the Y coordinate of the tile
+     * @return the packed key
+     */
+    private static long key(final int x, final int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    /**
+     * Reservations of a single time step, stored in an open-addressing hash
+     * table with linear probing.
+     */
+    private static final class Slot {
+
+        /**
+         * Packed tile coordinates, or <code>EMPTY</code>.
+         */
+        long[] keys = newKeys(16);
+
+        /**
+         * Agent ids, parallel to keys.
+         */
+        int[] agents = new int[16];
+
+        /**
+         * The number of reservations.
+         */
+        int size;
+
+        /**
+         * Returns the agent which reserved specified tile.
+         * @param key   the packed tile coordinates
+         * @return the id of the agent, or <code>NONE</code>
+         */
+        int get(final long key) {
+
+            final int mask = keys.length - 1;
+
+            for (int i = hash(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return agents[i];
+                }
+            }
+
+            return NONE;
+        }
+
+        /**
+         * Reserves specified tile.
+         * @param key   the packed tile coordinates
+         * @param agent the id of the agent
+         * @return <tt>false</tt> if the tile is reserved by another agent
+         */
+        boolean put(final long key, final int agent) {
+
+            if (2 * (size + 1) > keys.length) {
+                resize(keys.length * 2);
+            }
+
+            final int mask = keys.length - 1;
+
+            int i = hash(key) & mask;
+
+            for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return agents[i] == agent;
+                }
+            }
+
+            keys[i] = key;
+            agents[i] = agent;
+            size++;
+
+            return true;
+        }
+
+        /**
+         * Removes reservation of specified tile if it belongs to the agent.
+         * @param key   the packed tile coordinates
+         * @param agent the id of the agent
+         */
+        void remove(final long key, final int agent) {
+
+            final int mask = keys.length - 1;
+
+            for (int i = hash(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    if (agents[i] == agent) {
+                        delete(i);
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Removes all reservations of the agent.
+         * @param agent the id of the agent
+         */
+        void removeAll(final int agent) {
+
+            int i = 0;
+
+            while (i < keys.length) {
+                if (keys[i] != EMPTY && agents[i] == agent) {
+                    delete(i);
+                } else {
+                    i++;
+                }
+            }
+        }
+
+        /**
+         * Removes all reservations.
+         */
+        void clear() {
+            if (size > 0) {
+                Arrays.fill(keys, EMPTY);
+                size = 0;
+            }
+        }
+
+        /**
+         * Deletes the entry at specified position, shifting back entries of its probe sequence.
+         * @param position  the position of the entry
+         */
+        private void delete(final int position) {
+
+            final int mask = keys.length - 1;
+
+            int hole = position;
+            int i = (position + 1) & mask;
+
+            for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+
+                final int home = hash(keys[i]) & mask;
+
+                // move the entry into the hole unless its home lies cyclically within (hole, i]
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    agents[hole] = agents[i];
+                    hole = i;
+                }
+            }
+
+            keys[hole] = EMPTY;
+            size--;
+        }
+
+        /**
+         * Rehashes all entries into tables of specified capacity.
+         * @param capacity  the new capacity, a power of two
+         */
+        private void resize(final int capacity) {
+
+            final long[] oldKeys = keys;
+            final int[] oldAgents = agents;
+
+            keys = newKeys(capacity);
+            agents = new int[capacity];
+
+            final int mask = capacity - 1;
+
+            for (int j = 0; j < oldKeys.length; j++) {
+
+                if (oldKeys[j] == EMPTY) {
+                    continue;
+                }
+
+                int i = hash(oldKeys[j]) & mask;
+
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+
+                keys[i] = oldKeys[j];
+                agents[i] = oldAgents[j];
+            }
+        }
+
+        /**
+         * Allocates an empty key array.
+         * @param capacity  the capacity of the array
+         * @return the key array
+         */
+        private static long[] newKeys(final int capacity) {
+            final long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+
+        /**
+         * Returns well-mixed hash of the packed tile coordinates.
+         * @param key   the packed tile coordinates
+         * @return the hash value
+         */
+        private static int hash(final long key) {
+            final long h = key * 0x9e3779b97f4a7c15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
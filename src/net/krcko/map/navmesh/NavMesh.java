@@ -0,0 +1,625 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.navmesh;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import net.krcko.map.IndexedGraph;
+import net.krcko.map.Map;
+import net.krcko.map.MovingEntity;
+import net.krcko.math.Point2D;
+
+/**
+ * A navigation mesh: a <code>Map</code> whose nodes are convex polygons
+ * covering the walkable area.
+ * <p>
+ * Polygons sharing an edge are neighbors, and the shared edge is the portal
+ * between them. The cost of moving between neighbors is the distance from the
+ * centroid of one polygon to the middle of the portal and on to the centroid
+ * of the other. All data is kept in flat arrays: vertex coordinates, polygon
+ * vertex lists with a parallel list of the neighbor across each edge, and
+ * precomputed edge costs.
+ * <p>
+ * Points are located using a uniform grid of cells, each listing the polygons
+ * whose bounding boxes overlap it, so a lookup tests only a few polygons.
+ * <p>
+ * As a generic <code>Map</code>, each location stands for the polygon which
+ * contains it. As an <code>IndexedGraph</code>, node ids are polygon indices
+ * and the location of a node is the centroid of its polygon.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class NavMesh extends Map<Point2D.Float> implements IndexedGraph<Point2D.Float> {
+
+    /**
+     * X coordinates of vertices.
+     */
+    private final float[] vertexX;
+
+    /**
+     * Y coordinates of vertices.
+     */
+    private final float[] vertexY;
+
+    /**
+     * The position of the first vertex of each polygon in the vertex lists, plus the total length.
+     */
+    private final int[] polygonStart;
+
+    /**
+     * Vertex indices of all polygons, in counter-clockwise order.
+     */
+    private final int[] polygonVertices;
+
+    /**
+     * The polygon across the edge starting at each polygon vertex, or <tt>-1</tt> for walls.
+     */
+    private final int[] edgeNeighbors;
+
+    /**
+     * The cost of moving across the edge starting at each polygon vertex.
+     */
+    private final float[] edgeCosts;
+
+    /**
+     * X coordinates of polygon centroids.
+     */
+    private final float[] centroidX;
+
+    /**
+     * Y coordinates of polygon centroids.
+     */
+    private final float[] centroidY;
+
+    /**
+     * The largest number of vertices of a polygon.
+     */
+    private final int maxDegree;
+
+    /**
+     * The left edge of the lookup grid.
+     */
+    private float gridX;
+
+    /**
+     * The top edge of the lookup grid.
+     */
+    private float gridY;
+
+    /**
+     * The size of a lookup grid cell.
+     */
+    private float cellSize;
+
+    /**
+     * The number of lookup grid columns.
+     */
+    private int gridColumns;
+
+    /**
+     * The number of lookup grid rows.
+     */
+    private int gridRows;
+
+    /**
+     * The position of the first polygon of each cell in the cell lists, plus the total length.
+     */
+    private int[] cellStart;
+
+    /**
+     * Polygon indices of all cells.
+     */
+    private int[] cellPolygons;
+
+    /**
+     * Constructs new navigation mesh.
+     * @param vertices  vertex coordinates, as <code>x, y</code> pairs
+     * @param polygons  vertex indices of each convex polygon, in either winding order
+     * @throws IllegalArgumentException if a polygon is not convex, refers to missing
+     *          vertices or an edge is shared by more than two polygons
+     */
+    public NavMesh(final float[] vertices, final int[][] polygons) throws IllegalArgumentException {
+
+        final int vertexCount = vertices.length / 2;
+
+        vertexX = new float[vertexCount];
+        vertexY = new float[vertexCount];
+
+        for (int i = 0; i < vertexCount; i++) {
+            vertexX[i] = vertices[2 * i];
+            vertexY[i] = vertices[2 * i + 1];
+        }
+
+        polygonStart = new int[polygons.length + 1];
+
+        int degree = 0;
+
+        for (int p = 0; p < polygons.length; p++) {
+            polygonStart[p + 1] = polygonStart[p] + polygons[p].length;
+            degree = Math.max(degree, polygons[p].length);
+        }
+
+        maxDegree = degree;
+        polygonVertices = new int[polygonStart[polygons.length]];
+        edgeNeighbors = new int[polygonVertices.length];
+        edgeCosts = new float[polygonVertices.length];
+        centroidX = new float[polygons.length];
+        centroidY = new float[polygons.length];
+
+        for (int p = 0; p < polygons.length; p++) {
+            addPolygon(p, polygons[p]);
+        }
+
+        connectPolygons();
+        buildGrid();
+    }
+
+    /**
+     * Returns the number of polygons.
+     * @return the number of polygons
+     */
+    public int getPolygonCount() {
+        return centroidX.length;
+    }
+
+    /**
+     * Returns the number of vertices.
+     * @return the number of vertices
+     */
+    public int getVertexCount() {
+        return vertexX.length;
+    }
+
+    /**
+     * Returns the number of vertices of a polygon.
+     * @param polygon   the polygon index
+     * @return the number of vertices
+     */
+    public int getPolygonSize(final int polygon) {
+        return polygonStart[polygon + 1] - polygonStart[polygon];
+    }
+
+    /**
+     * Returns a vertex of a polygon.
+     * @param polygon   the polygon index
+     * @param index     the index of the vertex within the polygon, in counter-clockwise order
+     * @return the vertex index
+     */
+    public int getPolygonVertex(final int polygon, final int index) {
+        return polygonVertices[polygonStart[polygon] + index];
+    }
+
+    /**
+     * Returns the X coordinate of a vertex.
+     * @param vertex    the vertex index
+     * @return the X coordinate
+     */
+    public float getVertexX(final int vertex) {
+        return vertexX[vertex];
+    }
+
+    /**
+     * Returns the Y coordinate of a vertex.
+     * @param vertex    the vertex index
+     * @return the Y coordinate
+     */
+    public float getVertexY(final int vertex) {
+        return vertexY[vertex];
+    }
+
+    /**
+     * Returns the index of the edge of a polygon which leads to a neighbor.
+     * @param polygon   the polygon index
+     * @param neighbor  the index of the neighboring polygon
+     * @return the index of the vertex starting the shared edge within the polygon, or <tt>-1</tt>
+     */
+    public int getPortal(final int polygon, final int neighbor) {
+
+        for (int i = polygonStart[polygon]; i < polygonStart[polygon + 1]; i++) {
+            if (edgeNeighbors[i] == neighbor) {
+                return i - polygonStart[polygon];
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the polygon containing a point.
+     * @param x the X coordinate of the point
+     * @param y the Y coordinate of the point
+     * @return the polygon index, or <tt>-1</tt> if the point is outside the mesh
+     */
+    public int findPolygon(final float x, final float y) {
+
+        final int column = (int) Math.floor((x - gridX) / cellSize);
+        final int row = (int) Math.floor((y - gridY) / cellSize);
+
+        if (column < 0 || column >= gridColumns || row < 0 || row >= gridRows) {
+            return -1;
+        }
+
+        final int cell = row * gridColumns + column;
+
+        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+            if (contains(cellPolygons[i], x, y)) {
+                return cellPolygons[i];
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns <tt>true</tt> if a polygon contains a point, including its boundary.
+     * @param polygon   the polygon index
+     * @param x         the X coordinate of the point
+     * @param y         the Y coordinate of the point
+     * @return <tt>true</tt> if the point is inside the polygon
+     */
+    public boolean contains(final int polygon, final float x, final float y) {
+
+        final int start = polygonStart[polygon];
+        final int end = polygonStart[polygon + 1];
+
+        for (int i = start; i < end; i++) {
+
+            final int a = polygonVertices[i];
+            final int b = polygonVertices[i + 1 < end ? i + 1 : start];
+
+            if (cross(vertexX[a], vertexY[a], vertexX[b], vertexY[b], x, y) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Point2D.Float[] getNeighbors(final Point2D.Float location, final MovingEntity entity) {
+
+        final int polygon = findPolygon(location.x, location.y);
+
+        if (polygon < 0) {
+            return new Point2D.Float[0];
+        }
+
+        final int[] neighbors = new int[maxDegree];
+        final int count = getNeighbors(entity, polygon, neighbors, new float[maxDegree]);
+        final Point2D.Float[] result = new Point2D.Float[count];
+
+        for (int i = 0; i < count; i++) {
+            result[i] = getLocation(neighbors[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canMoveTo(final MovingEntity entity, final Point2D.Float target) {
+        return findPolygon(target.x, target.y) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getCost(final MovingEntity entity, final Point2D.Float source, final Point2D.Float target) {
+        return (float) source.distance(target);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNodeCount() {
+        return centroidX.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxDegree() {
+        return maxDegree;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNeighbors(final MovingEntity entity, final int node, final int[] neighbors, final float[] costs) {
+
+        int count = 0;
+
+        for (int i = polygonStart[node]; i < polygonStart[node + 1]; i++) {
+            if (edgeNeighbors[i] >= 0) {
+                neighbors[count] = edgeNeighbors[i];
+                costs[count] = edgeCosts[i];
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNode(final Point2D.Float location) {
+        return findPolygon(location.x, location.y);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Point2D.Float getLocation(final int node) {
+        return new Point2D.Float(centroidX[node], centroidY[node]);
+    }
+
+    /**
+     * Returns the distance between the centroids of two polygons, which never
+     * exceeds the cost of moving between them.
+     * @param a the first polygon
+     * @param b the second polygon
+     * @return the distance between the centroids
+     */
+    public float getCentroidDistance(final int a, final int b) {
+
+        final float dx = centroidX[a] - centroidX[b];
+        final float dy = centroidY[a] - centroidY[b];
+
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Stores a polygon in counter-clockwise order and computes its centroid.
+     * @param polygon   the polygon index
+     * @param vertices  vertex indices of the polygon
+     * @throws IllegalArgumentException if the polygon is not convex or refers to missing vertices
+     */
+    private void addPolygon(final int polygon, final int[] vertices) throws IllegalArgumentException {
+
+        final int n = vertices.length;
+
+        if (n < 3) {
+            throw new IllegalArgumentException("Polygon " + polygon + " has less than three vertices.");
+        }
+
+        double area = 0;
+        double cx = 0;
+        double cy = 0;
+
+        for (int i = 0; i < n; i++) {
+
+            if (vertices[i] < 0 || vertices[i] >= vertexX.length) {
+                throw new IllegalArgumentException("Polygon " + polygon + " refers to missing vertex " + vertices[i] + ".");
+            }
+
+            final int a = vertices[i];
+            final int b = vertices[(i + 1) % n];
+            final double term = (double) vertexX[a] * vertexY[b] - (double) vertexX[b] * vertexY[a];
+
+            area += term;
+            cx += (vertexX[a] + vertexX[b]) * term;
+            cy += (vertexY[a] + vertexY[b]) * term;
+        }
+
+        if (area == 0) {
+            throw new IllegalArgumentException("Polygon " + polygon + " is degenerate.");
+        }
+
+        centroidX[polygon] = (float) (cx / (3 * area));
+        centroidY[polygon] = (float) (cy / (3 * area));
+
+        final int start = polygonStart[polygon];
+
+        for (int i = 0; i < n; i++) {
+            polygonVertices[start + i] = area > 0 ? vertices[i] : vertices[n - 1 - i];
+        }
+
+        for (int i = 0; i < n; i++) {
+
+            final int a = polygonVertices[start + i];
+            final int b = polygonVertices[start + (i + 1) % n];
+            final int c = polygonVertices[start + (i + 2) % n];
+
+            if (cross(vertexX[a], vertexY[a], vertexX[b], vertexY[b], vertexX[c], vertexY[c]) < 0) {
+                throw new IllegalArgumentException("Polygon " + polygon + " is not convex.");
+            }
+        }
+    }
+
+    /**
+     * Finds the neighbor across each polygon edge and computes the cost of crossing it.
+     * @throws IllegalArgumentException if an edge is shared by more than two polygons
+     */
+    private void connectPolygons() throws IllegalArgumentException {
+
+        final HashMap<Long, Integer> edges = new HashMap<>(polygonVertices.length * 2);
+
+        Arrays.fill(edgeNeighbors, -1);
+
+        for (int p = 0; p < centroidX.length; p++) {
+
+            final int start = polygonStart[p];
+            final int end = polygonStart[p + 1];
+
+            for (int i = start; i < end; i++) {
+
+                final int a = polygonVertices[i];
+                final int b = polygonVertices[i + 1 < end ? i + 1 : start];
+                final Long key = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+                final Integer other = edges.put(key, i);
+
+                if (other == null) {
+                    continue;
+                }
+
+                if (other < 0 || edgeNeighbors[other] >= 0) {
+                    throw new IllegalArgumentException("Edge (" + a + ", " + b + ") is shared by more than two polygons.");
+                }
+
+                final int q = findPolygonOfEdge(other);
+                final float mx = (vertexX[a] + vertexX[b]) / 2;
+                final float my = (vertexY[a] + vertexY[b]) / 2;
+                final float cost = distance(centroidX[p], centroidY[p], mx, my) + distance(mx, my, centroidX[q], centroidY[q]);
+
+                edgeNeighbors[i] = q;
+                edgeNeighbors[other] = p;
+                edgeCosts[i] = cost;
+                edgeCosts[other] = cost;
+            }
+        }
+    }
+
+    /**
+     * Returns the polygon owning an entry of the polygon vertex lists.
+     * @param position  the position in the vertex lists
+     * @return the polygon index
+     */
+    private int findPolygonOfEdge(final int position) {
+
+        final int index = Arrays.binarySearch(polygonStart, position);
+
+        // polygons are never empty, so starting positions are distinct
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Builds the point lookup grid, sized to hold about one polygon per cell.
+     */
+    private void buildGrid() {
+
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+
+        for (int vertex: polygonVertices) {
+            minX = Math.min(minX, vertexX[vertex]);
+            minY = Math.min(minY, vertexY[vertex]);
+            maxX = Math.max(maxX, vertexX[vertex]);
+            maxY = Math.max(maxY, vertexY[vertex]);
+        }
+
+        final int polygons = centroidX.length;
+
+        if (polygons == 0) {
+            cellSize = 1;
+            cellStart = new int[1];
+            cellPolygons = new int[0];
+            return;
+        }
+
+        final float extent = Math.max(Math.max(maxX - minX, maxY - minY), Float.MIN_NORMAL);
+
+        gridX = minX;
+        gridY = minY;
+        cellSize = (float) Math.max(Math.sqrt((double) (maxX - minX) * (maxY - minY) / polygons), extent / 1024);
+        gridColumns = (int) ((maxX - minX) / cellSize) + 1;
+        gridRows = (int) ((maxY - minY) / cellSize) + 1;
+        cellStart = new int[gridColumns * gridRows + 1];
+
+        // count polygons of each cell, then fill the lists
+        for (int pass = 0; pass < 2; pass++) {
+
+            final int[] fill = pass == 0 ? null : Arrays.copyOf(cellStart, cellStart.length - 1);
+
+            for (int p = 0; p < polygons; p++) {
+
+                float x0 = Float.POSITIVE_INFINITY;
+                float y0 = Float.POSITIVE_INFINITY;
+                float x1 = Float.NEGATIVE_INFINITY;
+                float y1 = Float.NEGATIVE_INFINITY;
+
+                for (int i = polygonStart[p]; i < polygonStart[p + 1]; i++) {
+                    x0 = Math.min(x0, vertexX[polygonVertices[i]]);
+                    y0 = Math.min(y0, vertexY[polygonVertices[i]]);
+                    x1 = Math.max(x1, vertexX[polygonVertices[i]]);
+                    y1 = Math.max(y1, vertexY[polygonVertices[i]]);
+                }
+
+                final int c1 = Math.min((int) ((x1 - gridX) / cellSize), gridColumns - 1);
+                final int r1 = Math.min((int) ((y1 - gridY) / cellSize), gridRows - 1);
+
+                for (int r = (int) ((y0 - gridY) / cellSize); r <= r1; r++) {
+                    for (int c = (int) ((x0 - gridX) / cellSize); c <= c1; c++) {
+                        if (fill == null) {
+                            cellStart[r * gridColumns + c + 1]++;
+                        } else {
+                            cellPolygons[fill[r * gridColumns + c]++] = p;
+                        }
+                    }
+                }
+            }
+
+            if (pass == 0) {
+
+                for (int i = 1; i < cellStart.length; i++) {
+                    cellStart[i] += cellStart[i - 1];
+                }
+
+                cellPolygons = new int[cellStart[cellStart.length - 1]];
+            }
+        }
+    }
+
+    /**
+     * Returns twice the signed area of a triangle, positive if the vertices are in counter-clockwise order.
+     * @param ax    the X coordinate of the first vertex
+     * @param ay    the Y coordinate of the first vertex
+     * @param bx    the X coordinate of the second vertex
+     * @param by    the Y coordinate of the second vertex
+     * @param cx    the X coordinate of the third vertex
+     * @param cy    the Y coordinate of the third vertex
+     * @return twice the signed area
+     */
+    static float cross(final float ax, final float ay, final float bx, final float by, final float cx, final float cy) {
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+    }
+
+    /**
+     * Returns the distance between two points.
+     * @param ax    the X coordinate of the first point
+     * @param ay    the Y coordinate of the first point
+     * @param bx    the X coordinate of the second point
+     * @param by    the Y coordinate of the second point
+     * @return the distance
+     */
+    private static float distance(final float ax, final float ay, final float bx, final float by) {
+        return (float) Math.sqrt((ax - bx) * (ax - bx) + (ay - by) * (ay - by));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,338 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.navmesh;
+
+import net.krcko.map.IndexedAStarPathFinder;
+import net.krcko.map.IndexedGraph;
+import net.krcko.map.IndexedHeuristic;
+import net.krcko.map.Map;
+import net.krcko.map.MovingEntity;
+import net.krcko.map.Path;
+import net.krcko.map.PathFinder;
+import net.krcko.math.Point2D;
+
+/**
+ * Finds straight paths across a <code>NavMesh</code>.
+ * <p>
+ * The A* algorithm first finds a corridor of polygons between the polygons
+ * containing the source and the target. The Simple Stupid Funnel algorithm
+ * then walks the portals of the corridor, keeping a funnel of the left and the
+ * right portal endpoints and emitting a waypoint whenever one side crosses the
+ * other, so the resulting path only turns at polygon vertices.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class NavMeshPathFinder extends PathFinder<Point2D.Float> {
+
+    /**
+     * The distance between polygon centroids, used as the search heuristic.
+     */
+    private static final IndexedHeuristic CENTROID_DISTANCE = new IndexedHeuristic() {
+
+        @Override
+        public float getHeuristicCost(final IndexedGraph<?> graph, final MovingEntity entity, final int node, final int target) {
+            return ((NavMesh) graph).getCentroidDistance(node, target);
+        }
+    };
+
+    /**
+     * The navigation mesh to search.
+     */
+    private NavMesh mesh;
+
+    /**
+     * The engine searching the polygon graph.
+     */
+    private final IndexedAStarPathFinder<Point2D.Float> engine;
+
+    /**
+     * X coordinates of the left portal endpoints.
+     */
+    private float[] leftX = new float[16];
+
+    /**
+     * Y coordinates of the left portal endpoints.
+     */
+    private float[] leftY = new float[16];
+
+    /**
+     * X coordinates of the right portal endpoints.
+     */
+    private float[] rightX = new float[16];
+
+    /**
+     * Y coordinates of the right portal endpoints.
+     */
+    private float[] rightY = new float[16];
+
+    /**
+     * Constructs new path finder for specified mesh.
+     * @param mesh  the navigation mesh to search
+     */
+    public NavMeshPathFinder(final NavMesh mesh) {
+        super(mesh);
+        this.mesh = mesh;
+        this.engine = new IndexedAStarPathFinder<>(mesh, mesh, CENTROID_DISTANCE);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalArgumentException if the map is not a <code>NavMesh</code>
+     */
+    @Override
+    public void setMap(final Map<Point2D.Float> map) throws IllegalArgumentException {
+
+        if (!(map instanceof NavMesh)) {
+            throw new IllegalArgumentException("Map must be a navigation mesh.");
+        }
+
+        super.setMap(map);
+        mesh = (NavMesh) map;
+        engine.setMap(mesh, mesh);
+    }
+
+    /**
+     * Returns the maximum number of polygons expanded by a search.
+     * @return the maximum number of expanded polygons
+     */
+    public int getMaxExpansions() {
+        return engine.getMaxExpansions();
+    }
+
+    /**
+     * Sets the maximum number of polygons expanded by a search.
+     * @param maxExpansions the maximum number of expanded polygons
+     */
+    public void setMaxExpansions(final int maxExpansions) {
+        engine.setMaxExpansions(maxExpansions);
+    }
+
+    /**
+     * Returns the number of polygons expanded by the last search.
+     * @return the number of expanded polygons
+     */
+    public int getExpandedNodes() {
+        return engine.getExpandedNodes();
+    }
+
+    /**
+     * Finds a straight path between two points of the mesh.
+     * @param entity    entity which is about to move
+     * @param source    starting point
+     * @param target    ending point
+     * @return the turning points of the path and the target, without the source,
+     *          or <tt>null</tt> if no path can be found
+     */
+    @Override
+    public Path<Point2D.Float> findPath(final MovingEntity entity, final Point2D.Float source, final Point2D.Float target) {
+
+        map.pathFinderStarted(source, target);
+
+        final int[] corridor = findCorridor(entity, source, target);
+
+        if (corridor == null) {
+            return null;
+        }
+
+        return processPath(entity, source, straighten(source, target, corridor));
+    }
+
+    /**
+     * Finds a corridor of polygons between two points of the mesh.
+     * @param entity    entity which is about to move
+     * @param source    starting point
+     * @param target    ending point
+     * @return the polygons of the corridor, from the one containing the source
+     *          to the one containing the target, or <tt>null</tt> if no path can be found
+     */
+    public int[] findCorridor(final MovingEntity entity, final Point2D.Float source, final Point2D.Float target) {
+
+        final int start = mesh.findPolygon(source.x, source.y);
+        final int end = mesh.findPolygon(target.x, target.y);
+
+        if (start < 0 || end < 0) {
+            return null;
+        }
+
+        if (start == end) {
+            return new int[] {start};
+        }
+
+        final int[] nodes = engine.findPath(entity, start, end);
+
+        if (nodes == null) {
+            return null;
+        }
+
+        final int[] corridor = new int[nodes.length + 1];
+
+        corridor[0] = start;
+        System.arraycopy(nodes, 0, corridor, 1, nodes.length);
+
+        return corridor;
+    }
+
+    /**
+     * Turns a corridor of polygons into the shortest path trough it, using the
+     * Simple Stupid Funnel algorithm.
+     * @param source    starting point, inside the first polygon
+     * @param target    ending point, inside the last polygon
+     * @param corridor  the polygons of the corridor, each adjacent to the next
+     * @return the turning points of the path and the target, without the source
+     * @throws IllegalArgumentException if two polygons of the corridor are not adjacent
+     */
+    public Path<Point2D.Float> straighten(final Point2D.Float source, final Point2D.Float target, final int[] corridor) throws IllegalArgumentException {
+
+        final int count = loadPortals(source, target, corridor);
+        final Path<Point2D.Float> path = new Path<>();
+
+        float apexX = source.x;
+        float apexY = source.y;
+        float funnelLeftX = source.x;
+        float funnelLeftY = source.y;
+        float funnelRightX = source.x;
+        float funnelRightY = source.y;
+        int leftIndex = 0;
+        int rightIndex = 0;
+
+        for (int i = 1; i < count; i++) {
+
+            // tighten the right side of the funnel, unless it would cross the left side
+            if (NavMesh.cross(apexX, apexY, funnelRightX, funnelRightY, rightX[i], rightY[i]) >= 0) {
+
+                if ((apexX == funnelRightX && apexY == funnelRightY) || NavMesh.cross(apexX, apexY, funnelLeftX, funnelLeftY, rightX[i], rightY[i]) < 0) {
+                    funnelRightX = rightX[i];
+                    funnelRightY = rightY[i];
+                    rightIndex = i;
+                } else {
+
+                    // the left side becomes the new apex
+                    if (apexX != funnelLeftX || apexY != funnelLeftY) {
+                        apexX = funnelLeftX;
+                        apexY = funnelLeftY;
+                        path.append(new Point2D.Float(apexX, apexY));
+                    }
+
+                    funnelRightX = apexX;
+                    funnelRightY = apexY;
+                    rightIndex = leftIndex;
+                    i = leftIndex;
+
+                    continue;
+                }
+            }
+
+            // tighten the left side of the funnel, unless it would cross the right side
+            if (NavMesh.cross(apexX, apexY, funnelLeftX, funnelLeftY, leftX[i], leftY[i]) <= 0) {
+
+                if ((apexX == funnelLeftX && apexY == funnelLeftY) || NavMesh.cross(apexX, apexY, funnelRightX, funnelRightY, leftX[i], leftY[i]) > 0) {
+                    funnelLeftX = leftX[i];
+                    funnelLeftY = leftY[i];
+                    leftIndex = i;
+                } else {
+
+                    // the right side becomes the new apex
+                    if (apexX != funnelRightX || apexY != funnelRightY) {
+                        apexX = funnelRightX;
+                        apexY = funnelRightY;
+                        path.append(new Point2D.Float(apexX, apexY));
+                    }
+
+                    funnelLeftX = apexX;
+                    funnelLeftY = apexY;
+                    leftIndex = rightIndex;
+                    i = rightIndex;
+                }
+            }
+        }
+
+        final Point2D.Float last = path.getLength() == 0 ? null : path.getStep(path.getLength() - 1);
+
+        if (last == null || last.x != target.x || last.y != target.y) {
+            path.append(new Point2D.Float(target.x, target.y));
+        }
+
+        return path;
+    }
+
+    /**
+     * Loads the portals of a corridor, with the source and the target as degenerate first and last portals.
+     * @param source    starting point
+     * @param target    ending point
+     * @param corridor  the polygons of the corridor
+     * @return the number of portals
+     * @throws IllegalArgumentException if two polygons of the corridor are not adjacent
+     */
+    private int loadPortals(final Point2D.Float source, final Point2D.Float target, final int[] corridor) throws IllegalArgumentException {
+
+        final int count = corridor.length + 1;
+
+        if (leftX.length < count) {
+            leftX = new float[count];
+            leftY = new float[count];
+            rightX = new float[count];
+            rightY = new float[count];
+        }
+
+        setPortal(0, source.x, source.y, source.x, source.y);
+
+        for (int i = 1; i < corridor.length; i++) {
+
+            final int polygon = corridor[i - 1];
+            final int edge = mesh.getPortal(polygon, corridor[i]);
+
+            if (edge < 0) {
+                throw new IllegalArgumentException("Polygons " + polygon + " and " + corridor[i] + " are not adjacent.");
+            }
+
+            // polygons are counter-clockwise, so leaving trough an edge its end vertex is on the left
+            final int right = mesh.getPolygonVertex(polygon, edge);
+            final int left = mesh.getPolygonVertex(polygon, (edge + 1) % mesh.getPolygonSize(polygon));
+
+            setPortal(i, mesh.getVertexX(left), mesh.getVertexY(left), mesh.getVertexX(right), mesh.getVertexY(right));
+        }
+
+        setPortal(count - 1, target.x, target.y, target.x, target.y);
+
+        return count;
+    }
+
+    /**
+     * Stores endpoints of a portal.
+     * @param index     the index of the portal
+     * @param lx        the X coordinate of the left endpoint
+     * @param ly        the Y coordinate of the left endpoint
+     * @param rx        the X coordinate of the right endpoint
+     * @param ry        the Y coordinate of the right endpoint
+     */
+    private void setPortal(final int index, final float lx, final float ly, final float rx, final float ry) {
+        leftX[index] = lx;
+        leftY[index] = ly;
+        rightX[index] = rx;
+        rightY[index] = ry;
+    }
+}
\ No newline at end of file
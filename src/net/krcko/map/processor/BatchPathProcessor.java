@@ -0,0 +1,167 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.processor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import net.krcko.map.Map;
+import net.krcko.map.MovingEntity;
+import net.krcko.map.Path;
+import net.krcko.map.PathProcessor;
+
+/**
+ * Applies a <code>PathProcessor</code> to many paths at once, splitting them
+ * into batches processed in parallel by an executor.
+ * <p>
+ * The processor and the map must support concurrent use when an executor is set.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class BatchPathProcessor<T> {
+
+    /**
+     * The processor applied to each path.
+     */
+    private final PathProcessor<T> processor;
+
+    /**
+     * The executor processing batches, or <tt>null</tt>.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The number of paths processed by a single task.
+     */
+    private int batchSize = 256;
+
+    /**
+     * Constructs new batch processor.
+     * @param processor the processor applied to each path
+     * @param executor  the executor processing batches, or <tt>null</tt> to process paths on the calling thread
+     */
+    public BatchPathProcessor(final PathProcessor<T> processor, final ExecutorService executor) {
+        this.processor = processor;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the number of paths processed by a single task.
+     * @return the batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of paths processed by a single task.
+     * @param batchSize the batch size
+     * @throws IllegalArgumentException if the batch size is not positive
+     */
+    public void setBatchSize(final int batchSize) throws IllegalArgumentException {
+
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Processes all paths.
+     * @param map       the map the paths were found on
+     * @param entities  the entity of each path
+     * @param sources   the starting point of each path
+     * @param paths     the paths to process, <tt>null</tt> elements are left as they are
+     * @return the processed paths, in the order of the input paths
+     * @throws IllegalArgumentException if the lists differ in size
+     */
+    public List<Path<T>> process(final Map<T> map, final List<? extends MovingEntity> entities, final List<T> sources, final List<Path<T>> paths) throws IllegalArgumentException {
+
+        if (entities.size() != paths.size() || sources.size() != paths.size()) {
+            throw new IllegalArgumentException("Entity, source and path lists must be of the same size.");
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final Path<T>[] results = new Path[paths.size()];
+
+        if (executor == null || paths.size() <= batchSize) {
+            processRange(map, entities, sources, paths, results, 0, results.length);
+            return Arrays.asList(results);
+        }
+
+        final ArrayList<Future<?>> futures = new ArrayList<>();
+
+        for (int from = 0; from < results.length; from += batchSize) {
+
+            final int start = from;
+            final int end = Math.min(from + batchSize, results.length);
+
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    processRange(map, entities, sources, paths, results, start, end);
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (Future<?> future: futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for path processing.", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Path processing failed.", ex.getCause());
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Processes a range of paths.
+     * @param map       the map the paths were found on
+     * @param entities  the entity of each path
+     * @param sources   the starting point of each path
+     * @param paths     the paths to process
+     * @param results   receives the processed paths
+     * @param from      the index of the first path
+     * @param to        the index past the last path
+     */
+    private void processRange(final Map<T> map, final List<? extends MovingEntity> entities, final List<T> sources, final List<Path<T>> paths, final Path<T>[] results, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            final Path<T> path = paths.get(i);
+            results[i] = path == null ? null : processor.process(map, entities.get(i), sources.get(i), path);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import net.krcko.map.Map;
+import net.krcko.map.MovingEntity;
+import net.krcko.map.Path;
+import net.krcko.map.PathProcessor;
+
+/**
+ * A <code>PathProcessor</code> which applies several processors in order.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class PathProcessorChain<T> implements PathProcessor<T> {
+
+    /**
+     * The processors of the chain, in order of application.
+     */
+    private final ArrayList<PathProcessor<T>> processors = new ArrayList<>();
+
+    /**
+     * Appends a processor to the end of the chain.
+     * @param processor the processor to append
+     * @return this chain
+     */
+    public PathProcessorChain<T> add(final PathProcessor<T> processor) {
+        processors.add(processor);
+        return this;
+    }
+
+    /**
+     * Returns the processors of the chain.
+     * @return unmodifiable list of processors, in order of application
+     */
+    public List<PathProcessor<T>> getProcessors() {
+        return Collections.unmodifiableList(processors);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Path<T> process(final Map<T> map, final MovingEntity entity, final T source, final Path<T> path) {
+
+        Path<T> result = path;
+
+        for (PathProcessor<T> processor: processors) {
+            result = processor.process(map, entity, source, result);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.processor;
+
+import net.krcko.map.Map;
+import net.krcko.map.MovingEntity;
+import net.krcko.map.PassabilityBitboard;
+import net.krcko.map.Path;
+import net.krcko.map.PathProcessor;
+import net.krcko.map.TileMap;
+import net.krcko.math.Point2D;
+
+/**
+ * Shortens paths on a <code>TileMap</code> by greedy string pulling: each
+ * waypoint is connected directly to the farthest following step which is in
+ * line of sight, and the steps in between are dropped.
+ * <p>
+ * Every step is tested for line of sight once, against the last kept
+ * waypoint, so the number of raycasts is linear in the length of the path.
+ * Raycasts use a <code>PassabilityBitboard</code> if one is given, testing
+ * straight segments 64 tiles at a time, and the map itself otherwise. Lines
+ * are traced conservatively, so a segment never cuts a blocked corner.
+ * <p>
+ * Tile costs are not taken into account: a pulled path may cross expensive
+ * tiles the original path went around.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class StringPullingProcessor implements PathProcessor<Point2D.Int> {
+
+    /**
+     * The bitboard used for raycasts, or <tt>null</tt> to query the map.
+     */
+    private final PassabilityBitboard bitboard;
+
+    /**
+     * Constructs new processor which casts rays trough the map being processed.
+     */
+    public StringPullingProcessor() {
+        this(null);
+    }
+
+    /**
+     * Constructs new processor which casts rays trough specified bitboard.
+     * @param bitboard  the bitboard of the map being processed, or <tt>null</tt> to query the map
+     */
+    public StringPullingProcessor(final PassabilityBitboard bitboard) {
+        this.bitboard = bitboard;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Path<Point2D.Int> process(final Map<Point2D.Int> map, final MovingEntity entity, final Point2D.Int source, final Path<Point2D.Int> path) {
+
+        final int length = path.getLength();
+
+        if (length < 2 || (bitboard == null && !(map instanceof TileMap))) {
+            return path;
+        }
+
+        final Path<Point2D.Int> pulled = new Path<>();
+
+        Point2D.Int anchor = source;
+
+        for (int i = 0; i < length; i++) {
+
+            final Point2D.Int step = path.getStep(i);
+
+            if (hasLineOfSight(map, entity, anchor, step)) {
+                continue;
+            }
+
+            // the previous step was visible, or is the anchor itself for steps adjacent to it
+            final Point2D.Int waypoint = i > 0 && !path.getStep(i - 1).equals(anchor) ? path.getStep(i - 1) : step;
+
+            pulled.append(waypoint);
+            anchor = waypoint;
+
+            // keep corner-cutting steps of the original path as they are
+            if (!anchor.equals(step) && !hasLineOfSight(map, entity, anchor, step)) {
+                pulled.append(step);
+                anchor = step;
+            }
+        }
+
+        if (!anchor.equals(path.getStep(length - 1))) {
+            pulled.append(path.getStep(length - 1));
+        }
+
+        return pulled;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the straight line between two tiles crosses only passable tiles.
+     * @param map       the map being processed
+     * @param entity    the entity which is about to move
+     * @param from      the first tile
+     * @param to        the second tile
+     * @return <tt>true</tt> if there is a line of sight between the tiles
+     */
+    private boolean hasLineOfSight(final Map<Point2D.Int> map, final MovingEntity entity, final Point2D.Int from, final Point2D.Int to) {
+
+        if (bitboard != null) {
+            return bitboard.hasLineOfSight(from.x, from.y, to.x, to.y);
+        }
+
+        final TileMap tiles = (TileMap) map;
+        final int dx = Math.abs(to.x - from.x);
+        final int dy = Math.abs(to.y - from.y);
+        final int sx = to.x > from.x ? 1 : -1;
+        final int sy = to.y > from.y ? 1 : -1;
+
+        int x = from.x;
+        int y = from.y;
+        long error = (long) dx - dy;
+
+        for (int n = dx + dy; n > 0; n--) {
+
+            if (error > 0) {
+                x += sx;
+                error -= 2L * dy;
+            } else if (error < 0) {
+                y += sy;
+                error += 2L * dx;
+            } else {
+
+                if (!isPassable(tiles, entity, x + sx, y) || !isPassable(tiles, entity, x, y + sy)) {
+                    return false;
+                }
+
+                x += sx;
+                y += sy;
+                error += 2L * dx - 2L * dy;
+                n--;
+            }
+
+            if (!isPassable(tiles, entity, x, y)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the entity can be moved to specified tile.
+     * @param map       the map being processed
+     * @param entity    the entity which is about to move
+     * @param x         the X coordinate of the tile
+     * @param y         the Y coordinate of the tile
+     * @return <tt>true</tt> if the tile is within the map and passable
+     */
+    private static boolean isPassable(final TileMap map, final MovingEntity entity, final int x, final int y) {
+        return map.isValidLocation(x, y) && map.canMoveTo(entity, x, y);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.processor;
+
+import net.krcko.map.Map;
+import net.krcko.map.MovingEntity;
+import net.krcko.map.Path;
+import net.krcko.map.PathProcessor;
+import net.krcko.math.Point2D;
+
+/**
+ * Removes steps which lie on a straight line between their neighboring steps,
+ * keeping only the points where the path changes direction.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class WaypointPruningProcessor implements PathProcessor<Point2D.Int> {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Path<Point2D.Int> process(final Map<Point2D.Int> map, final MovingEntity entity, final Point2D.Int source, final Path<Point2D.Int> path) {
+
+        final int length = path.getLength();
+
+        if (length < 2) {
+            return path;
+        }
+
+        final Path<Point2D.Int> pruned = new Path<>(length);
+
+        Point2D.Int previous = source;
+
+        for (int i = 0; i < length - 1; i++) {
+
+            final Point2D.Int step = path.getStep(i);
+            final Point2D.Int next = path.getStep(i + 1);
+            final long ax = step.x - previous.x;
+            final long ay = step.y - previous.y;
+            final long bx = next.x - step.x;
+            final long by = next.y - step.y;
+
+            if (ax * by != ay * bx || ax * bx + ay * by <= 0) {
+                pruned.append(step);
+                previous = step;
+            }
+        }
+
+        pruned.append(path.getStep(length - 1));
+
+        return pruned;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.service;
+
+import java.io.IOException;
+import net.krcko.map.CompactPath;
+
+/**
+ * Defines an object which is notified when a request sent by <code>PathClient</code>
+ * completes.
+ * <p>
+ * Callbacks are called by the thread reading responses, as soon as the
+ * response is read, so they must return quickly and must not throw.
+ *
+ * @author Aleksandar Ružičić
+ */
+public interface PathCallback {
+
+    /**
+     * Called when the response to the request was read.
+     * @param paths the found paths, with <tt>null</tt> for queries without a path
+     */
+    public void completed(final CompactPath[] paths);
+
+    /**
+     * Called when the request failed or the server rejected it.
+     * @param error the error
+     */
+    public void failed(final IOException error);
+}
\ No newline at end of file
@@ -0,0 +1,471 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.service;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.krcko.map.CompactPath;
+import net.krcko.map.PathCodec;
+import net.krcko.math.Point2D;
+
+/**
+ * A client of <code>PathServer</code>.
+ * <p>
+ * Requests are written by the calling threads and responses are read by a
+ * background thread, which completes the future of the matching request, so
+ * any number of requests can be in flight on a single connection, and calls
+ * its <code>PathCallback</code> if one was given. The client is safe for use
+ * by multiple threads.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class PathClient implements Closeable {
+
+    /**
+     * The connection to the server.
+     */
+    private final SocketChannel channel;
+
+    /**
+     * The thread reading responses.
+     */
+    private final Thread reader;
+
+    /**
+     * Requests waiting for their responses, by request id.
+     */
+    private final ConcurrentHashMap<Integer, Batch> pending = new ConcurrentHashMap<>();
+
+    /**
+     * The id of the next request.
+     */
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * Guards writing of requests.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * The error which ended the connection, or <tt>null</tt>.
+     */
+    private volatile IOException failure;
+
+    /**
+     * Connects to a server.
+     * @param address   the address of the server
+     * @throws IOException if the connection cannot be established
+     */
+    public PathClient(final InetSocketAddress address) throws IOException {
+
+        channel = SocketChannel.open(address);
+        channel.socket().setTcpNoDelay(true);
+
+        reader = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                readResponses();
+            }
+        }, "path-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Sends a batch of queries without waiting for the response.
+     * @param mapId     the id of the map to search
+     * @param queries   four coordinates of each query: source X and Y, then target X and Y
+     * @return the future of the found paths, with <tt>null</tt> for queries without a path
+     * @throws IOException if the request cannot be sent
+     * @throws IllegalArgumentException if the number of coordinates is not a multiple of four or too large
+     */
+    public Future<CompactPath[]> submit(final int mapId, final int[] queries) throws IOException, IllegalArgumentException {
+        return submit(mapId, queries, null);
+    }
+
+    /**
+     * Sends a batch of queries without waiting for the response, and calls the
+     * callback once the request completes. The callback is not called if the
+     * request can't be sent.
+     * @param mapId     the id of the map to search
+     * @param queries   four coordinates of each query: source X and Y, then target X and Y
+     * @param callback  the object notified when the request completes, or <tt>null</tt>
+     * @return the future of the found paths, with <tt>null</tt> for queries without a path
+     * @throws IOException if the request cannot be sent
+     * @throws IllegalArgumentException if the number of coordinates is not a multiple of four or too large
+     */
+    public Future<CompactPath[]> submit(final int mapId, final int[] queries, final PathCallback callback) throws IOException, IllegalArgumentException {
+
+        if (queries.length % 4 != 0 || queries.length / 4 > PathProtocol.MAX_QUERIES) {
+            throw new IllegalArgumentException("Queries must consist of four coordinates each, and there can be at most " + PathProtocol.MAX_QUERIES + " of them.");
+        }
+
+        final int id = nextId.getAndIncrement();
+        final Batch batch = new Batch(callback);
+        final int size = PathProtocol.REQUEST_HEADER_SIZE + 4 * queries.length;
+        final ByteBuffer request = ByteBuffer.allocate(PathProtocol.LENGTH_SIZE + size);
+
+        request.putInt(size).putInt(id).putInt(mapId).putInt(queries.length / 4);
+
+        for (int coordinate: queries) {
+            request.putInt(coordinate);
+        }
+
+        request.flip();
+        pending.put(id, batch);
+
+        try {
+
+            synchronized (writeLock) {
+
+                if (failure != null) {
+                    throw failure;
+                }
+
+                while (request.hasRemaining()) {
+                    channel.write(request);
+                }
+            }
+
+        } catch (IOException e) {
+            pending.remove(id);
+            throw e;
+        }
+
+        return batch;
+    }
+
+    /**
+     * Finds paths of a batch of queries, waiting for the response.
+     * @param mapId     the id of the map to search
+     * @param sources   starting points
+     * @param targets   ending points, one for each starting point
+     * @return the found paths, with <tt>null</tt> for queries without a path
+     * @throws IOException if the request fails or the server rejects it
+     * @throws IllegalArgumentException if the lists differ in length
+     */
+    public CompactPath[] findPaths(final int mapId, final Point2D.Int[] sources, final Point2D.Int[] targets) throws IOException, IllegalArgumentException {
+
+        if (sources.length != targets.length) {
+            throw new IllegalArgumentException("Each query must have a source and a target.");
+        }
+
+        final int[] queries = new int[4 * sources.length];
+
+        for (int i = 0; i < sources.length; i++) {
+            queries[4 * i] = sources[i].x;
+            queries[4 * i + 1] = sources[i].y;
+            queries[4 * i + 2] = targets[i].x;
+            queries[4 * i + 3] = targets[i].y;
+        }
+
+        try {
+            return submit(mapId, queries).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the response.", e);
+        } catch (ExecutionException e) {
+            throw (IOException) e.getCause();
+        }
+    }
+
+    /**
+     * Returns the number of requests waiting for their responses.
+     * @return the number of pending requests
+     */
+    public int getPendingRequests() {
+        return pending.size();
+    }
+
+    /**
+     * Closes the connection, failing all pending requests.
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+
+        channel.close();
+
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads responses until the connection is closed.
+     */
+    private void readResponses() {
+
+        final ByteBuffer header = ByteBuffer.allocate(PathProtocol.LENGTH_SIZE);
+
+        ByteBuffer payload = ByteBuffer.allocate(64 << 10);
+
+        try {
+
+            while (true) {
+
+                header.clear();
+                readFully(header);
+
+                final int length = header.getInt(0);
+
+                if (length < PathProtocol.RESPONSE_HEADER_SIZE || length > PathProtocol.MAX_FRAME_SIZE) {
+                    throw new IOException("Invalid response length: " + length + ".");
+                }
+
+                if (payload.capacity() < length) {
+                    payload = ByteBuffer.allocate(length);
+                }
+
+                payload.clear();
+                payload.limit(length);
+                readFully(payload);
+                payload.flip();
+
+                complete(payload);
+            }
+
+        } catch (IOException | RuntimeException e) {
+
+            final IOException error = e instanceof IOException ? (IOException) e : new IOException("Invalid response.", e);
+
+            synchronized (writeLock) {
+                failure = error;
+            }
+
+            for (Integer id: pending.keySet()) {
+
+                final Batch batch = pending.remove(id);
+
+                if (batch != null) {
+                    batch.fail(error);
+                }
+            }
+
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // already failing
+            }
+        }
+    }
+
+    /**
+     * Reads until the buffer is full.
+     * @param buffer    the buffer to fill
+     * @throws IOException if the connection fails or ends
+     */
+    private void readFully(final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Connection closed by the server.");
+            }
+        }
+    }
+
+    /**
+     * Completes the request a response belongs to.
+     * @param response  the response payload
+     * @throws IOException if the response belongs to no pending request or is invalid
+     */
+    private void complete(final ByteBuffer response) throws IOException {
+
+        final int id = response.getInt();
+        final byte status = response.get();
+        // an invalid response fails the request together with all other pending ones
+        final Batch batch = pending.get(id);
+
+        if (batch == null) {
+            throw new IOException("Response to unknown request " + id + ".");
+        }
+
+        if (status != PathProtocol.STATUS_OK) {
+            pending.remove(id);
+            batch.fail(new IOException("Request failed: " + PathProtocol.describe(status) + "."));
+            return;
+        }
+
+        final int count = response.getInt();
+
+        // each result takes at least a byte
+        if (count < 0 || count > response.remaining()) {
+            throw new IOException("Invalid number of results: " + count + ".");
+        }
+
+        final CompactPath[] paths = new CompactPath[count];
+
+        int steps = PathProtocol.MAX_RESPONSE_STEPS;
+
+        for (int i = 0; i < paths.length; i++) {
+            if (response.get() != 0) {
+                paths[i] = PathCodec.decode(response, steps);
+                steps -= paths[i].getLength();
+            }
+        }
+
+        pending.remove(id);
+        batch.succeed(paths);
+    }
+
+    /**
+     * The future result of a request.
+     */
+    private static final class Batch implements Future<CompactPath[]> {
+
+        /**
+         * Released once the request is done.
+         */
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        /**
+         * The object notified when the request completes, or <tt>null</tt>.
+         */
+        private final PathCallback callback;
+
+        /**
+         * The found paths.
+         */
+        private volatile CompactPath[] paths;
+
+        /**
+         * The error of the request, or <tt>null</tt>.
+         */
+        private volatile IOException error;
+
+        /**
+         * Constructs new request.
+         * @param callback  the object notified when the request completes, or <tt>null</tt>
+         */
+        Batch(final PathCallback callback) {
+            this.callback = callback;
+        }
+
+        /**
+         * Completes the request successfully.
+         * @param paths the found paths
+         */
+        void succeed(final CompactPath[] paths) {
+
+            this.paths = paths;
+            done.countDown();
+
+            if (callback != null) {
+                callback.completed(paths);
+            }
+        }
+
+        /**
+         * Completes the request with an error.
+         * @param error the error
+         */
+        void fail(final IOException error) {
+
+            this.error = error;
+            done.countDown();
+
+            if (callback != null) {
+                callback.failed(error);
+            }
+        }
+
+        /**
+         * Requests cannot be cancelled once sent.
+         * @param mayInterruptIfRunning ignored
+         * @return <tt>false</tt>
+         */
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public CompactPath[] get() throws InterruptedException, ExecutionException {
+            done.await();
+            return result();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public CompactPath[] get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+
+            if (!done.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+
+            return result();
+        }
+
+        /**
+         * Returns the result of a completed request.
+         * @return the found paths
+         * @throws ExecutionException if the request failed
+         */
+        private CompactPath[] result() throws ExecutionException {
+
+            if (error != null) {
+                throw new ExecutionException(error);
+            }
+
+            return paths;
+        }
+    }
+}
\ No newline at end of file
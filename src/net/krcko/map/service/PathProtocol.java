@@ -0,0 +1,139 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.service;
+
+/**
+ * Constants of the binary protocol spoken by <code>PathServer</code> and
+ * <code>PathClient</code>.
+ * <p>
+ * All messages are frames of a big-endian <code>int</code> length followed by
+ * that many bytes of payload. A client may send any number of request frames
+ * without waiting for responses, and the server answers each of them with one
+ * response frame carrying the same request id, possibly out of order.
+ * <p>
+ * A request consists of the request id, the map id and the number of queries,
+ * all <code>int</code>s, followed by four <code>int</code>s of each query: the
+ * X and Y coordinates of the source and of the target.
+ * <p>
+ * A response consists of the request id, a status byte and, if the status is
+ * <code>STATUS_OK</code>, the number of results followed by each result: a byte
+ * which is <tt>1</tt> if a path was found, followed by the path encoded by
+ * <code>PathCodec</code>, or <tt>0</tt> if no path was found.
+ *
+ * @author Aleksandar Ružičić
+ */
+public final class PathProtocol {
+
+    /**
+     * The status of a request which was served.
+     */
+    public static final byte STATUS_OK = 0;
+
+    /**
+     * The status of a request for a map the server does not have.
+     */
+    public static final byte STATUS_UNKNOWN_MAP = 1;
+
+    /**
+     * The status of a request which could not be parsed.
+     */
+    public static final byte STATUS_MALFORMED = 2;
+
+    /**
+     * The status of a request whose processing failed on the server.
+     */
+    public static final byte STATUS_FAILED = 3;
+
+    /**
+     * The status of a request whose results don't fit into a single response frame.
+     */
+    public static final byte STATUS_TOO_LARGE = 4;
+
+    /**
+     * The size of the frame length prefix, in bytes.
+     */
+    public static final int LENGTH_SIZE = 4;
+
+    /**
+     * The size of the request header, in bytes.
+     */
+    public static final int REQUEST_HEADER_SIZE = 12;
+
+    /**
+     * The size of a single query, in bytes.
+     */
+    public static final int QUERY_SIZE = 16;
+
+    /**
+     * The size of the response header, without the number of results, in bytes.
+     */
+    public static final int RESPONSE_HEADER_SIZE = 5;
+
+    /**
+     * The largest accepted frame payload, in bytes.
+     */
+    public static final int MAX_FRAME_SIZE = 16 << 20;
+
+    /**
+     * The largest number of queries of a single request.
+     */
+    public static final int MAX_QUERIES = (MAX_FRAME_SIZE - REQUEST_HEADER_SIZE) / QUERY_SIZE;
+
+    /**
+     * The largest total number of path steps of a single response.
+     */
+    public static final int MAX_RESPONSE_STEPS = 1 << 26;
+
+    /**
+     * Prevents instantiation.
+     */
+    private PathProtocol() {
+    }
+
+    /**
+     * Returns a description of a response status.
+     * @param status    the status byte
+     * @return the description
+     */
+    public static String describe(final byte status) {
+
+        switch (status) {
+            case STATUS_OK:
+                return "ok";
+            case STATUS_UNKNOWN_MAP:
+                return "unknown map";
+            case STATUS_MALFORMED:
+                return "malformed request";
+            case STATUS_FAILED:
+                return "processing failed";
+            case STATUS_TOO_LARGE:
+                return "response too large";
+            default:
+                return "unknown status " + status;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,821 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.service;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.krcko.map.CompactPath;
+import net.krcko.map.GridMap;
+import net.krcko.map.IndexedAStarPathFinder;
+import net.krcko.map.Path;
+import net.krcko.map.PathCodec;
+import net.krcko.map.TileMapGraph;
+import net.krcko.map.heuristic.Diagonal2D;
+import net.krcko.map.heuristic.Manhattan2D;
+import net.krcko.math.Point2D;
+
+/**
+ * A path finding service, serving queries of several processes over a local
+ * socket, using the binary protocol described by <code>PathProtocol</code>.
+ * <p>
+ * A single thread accepts connections and reads and writes all of them trough
+ * a non-blocking selector. Each complete request frame is handed to a pool of
+ * workers, each having its own search engine for every map, and the encoded
+ * response is queued on the connection and written as soon as the socket
+ * accepts it, so clients can pipeline requests. A connection stops being read
+ * while <code>MAX_QUEUED_RESPONSES</code> of its requests are being served or
+ * waiting to be written, so a client which never reads its responses can't
+ * make the server hold an unbounded amount of them. A connection which fails
+ * in any way is closed without affecting other connections.
+ * <p>
+ * A request whose results would exceed the maximum response size, which is
+ * <code>PathProtocol.MAX_FRAME_SIZE</code> by default, is answered with
+ * <code>PathProtocol.STATUS_TOO_LARGE</code> instead, so it fails alone rather
+ * than making the client reject the frame and every request pending with it.
+ * <p>
+ * Maps must not be edited while they are served.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class PathServer implements Closeable {
+
+    /**
+     * The initial size of connection input buffers.
+     */
+    private static final int INPUT_BUFFER_SIZE = 64 << 10;
+
+    /**
+     * The largest number of queued responses written by a single call.
+     */
+    private static final int MAX_GATHER = 64;
+
+    /**
+     * The largest number of requests of a connection which are served or
+     * whose responses wait to be written, before the connection stops being read.
+     */
+    public static final int MAX_QUEUED_RESPONSES = 64;
+
+    /**
+     * The largest payload of a response carrying results, in bytes.
+     */
+    private volatile int maxResponseSize = PathProtocol.MAX_FRAME_SIZE;
+
+    /**
+     * Served maps, by id.
+     */
+    private final ConcurrentHashMap<Integer, GridMap> maps = new ConcurrentHashMap<>();
+
+    /**
+     * The workers serving requests.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Incremented whenever a map stops being served, so workers drop their engines of it.
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * Search engines of the current worker thread.
+     */
+    private final ThreadLocal<Engines> engines = new ThreadLocal<Engines>() {
+
+        @Override
+        protected Engines initialValue() {
+            return new Engines();
+        }
+    };
+
+    /**
+     * Connections which have new responses to write.
+     */
+    private final ConcurrentLinkedQueue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The selector of all channels, or <tt>null</tt> before the server is started.
+     */
+    private Selector selector;
+
+    /**
+     * The channel accepting connections.
+     */
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * The thread running the selector.
+     */
+    private Thread thread;
+
+    /**
+     * <tt>true</tt> while the server is running.
+     */
+    private volatile boolean running;
+
+    /**
+     * Constructs new server.
+     * @param workers   the number of worker threads
+     */
+    public PathServer(final int workers) {
+        executor = Executors.newFixedThreadPool(workers);
+    }
+
+    /**
+     * Returns the largest payload of a response carrying results.
+     * @return the maximum response size, in bytes
+     */
+    public int getMaxResponseSize() {
+        return maxResponseSize;
+    }
+
+    /**
+     * Sets the largest payload of a response carrying results. Requests whose
+     * results don't fit are answered with <code>PathProtocol.STATUS_TOO_LARGE</code>.
+     * @param maxResponseSize   the maximum response size, in bytes
+     * @throws IllegalArgumentException if the size can't hold an empty response or exceeds the maximum frame size
+     */
+    public void setMaxResponseSize(final int maxResponseSize) throws IllegalArgumentException {
+
+        if (maxResponseSize < PathProtocol.RESPONSE_HEADER_SIZE + 4 || maxResponseSize > PathProtocol.MAX_FRAME_SIZE) {
+            throw new IllegalArgumentException("Maximum response size must be between " + (PathProtocol.RESPONSE_HEADER_SIZE + 4) + " and " + PathProtocol.MAX_FRAME_SIZE + " bytes.");
+        }
+
+        this.maxResponseSize = maxResponseSize;
+    }
+
+    /**
+     * Starts serving a map.
+     * @param id    the id of the map used by requests
+     * @param map   the map to serve
+     */
+    public void addMap(final int id, final GridMap map) {
+
+        if (maps.put(id, map) != null) {
+            generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stops serving a map. Each worker releases its engine of the map when it
+     * serves its next request.
+     * @param id    the id of the map
+     * @return the map which was served, or <tt>null</tt>
+     */
+    public GridMap removeMap(final int id) {
+
+        final GridMap map = maps.remove(id);
+
+        if (map != null) {
+            generation.incrementAndGet();
+        }
+
+        return map;
+    }
+
+    /**
+     * Starts accepting connections.
+     * @param address   the local address to listen on, port <tt>0</tt> picks a free port
+     * @throws IOException if the address cannot be bound
+     * @throws IllegalStateException if the server was already started
+     */
+    public synchronized void start(final InetSocketAddress address) throws IOException, IllegalStateException {
+
+        if (selector != null) {
+            throw new IllegalStateException("Server was already started.");
+        }
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                serve();
+            }
+        }, "path-server");
+        thread.start();
+    }
+
+    /**
+     * Returns the address the server listens on.
+     * @return the local address
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if the server was not started
+     */
+    public InetSocketAddress getLocalAddress() throws IOException, IllegalStateException {
+
+        if (serverChannel == null) {
+            throw new IllegalStateException("Server was not started.");
+        }
+
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    /**
+     * Stops the server, closing all connections.
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public synchronized void close() throws IOException {
+
+        running = false;
+        executor.shutdown();
+
+        if (selector == null) {
+            return;
+        }
+
+        selector.wakeup();
+
+        try {
+            thread.join();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (SelectionKey key: selector.keys()) {
+            key.channel().close();
+        }
+
+        selector.close();
+    }
+
+    /**
+     * Runs a server for maps in the Moving AI Lab format, numbered from zero in
+     * the order of the arguments.
+     * @param args  the port followed by map files
+     * @throws IOException if a map cannot be read or the port cannot be bound
+     */
+    public static void main(final String[] args) throws IOException {
+
+        if (args.length < 2) {
+            System.err.println("Usage: PathServer <port> <map file>...");
+            return;
+        }
+
+        final PathServer server = new PathServer(Runtime.getRuntime().availableProcessors());
+
+        for (int i = 1; i < args.length; i++) {
+            server.addMap(i - 1, GridMap.load(new File(args[i]), true));
+        }
+
+        server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0])));
+
+        System.out.println("Serving " + (args.length - 1) + " maps on " + server.getLocalAddress());
+    }
+
+    /**
+     * Runs the selector loop until the server is closed.
+     */
+    private void serve() {
+
+        while (running) {
+
+            try {
+                selector.select();
+            } catch (IOException e) {
+                running = false;
+                break;
+            }
+
+            Connection connection;
+
+            while ((connection = pendingWrites.poll()) != null) {
+                if (connection.key.isValid()) {
+                    flush(connection);
+                }
+            }
+
+            final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+            while (keys.hasNext()) {
+
+                final SelectionKey key = keys.next();
+
+                keys.remove();
+
+                if (!key.isValid()) {
+                    continue;
+                }
+
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+
+                connection = (Connection) key.attachment();
+
+                if (key.isReadable()) {
+                    read(connection);
+                }
+
+                if (key.isValid() && key.isWritable()) {
+                    flush(connection);
+                }
+            }
+        }
+    }
+
+    /**
+     * Accepts a pending connection.
+     */
+    private void accept() {
+
+        try {
+
+            final SocketChannel channel = serverChannel.accept();
+
+            if (channel == null) {
+                return;
+            }
+
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+
+            final SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+
+            key.attach(new Connection(channel, key));
+
+        } catch (IOException | RuntimeException e) {
+            // the client went away before it was accepted
+        }
+    }
+
+    /**
+     * Reads available data of a connection, handing complete frames to the workers.
+     * @param connection    the connection to read
+     */
+    private void read(final Connection connection) {
+
+        try {
+
+            if (connection.channel.read(connection.input) < 0) {
+                connection.close();
+                return;
+            }
+
+            process(connection);
+
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Hands complete frames received by a connection to the workers, until
+     * too many of its responses are queued.
+     * @param connection    the connection whose input to process
+     */
+    private void process(final Connection connection) {
+
+        final ByteBuffer input = connection.input;
+
+        input.flip();
+
+        connection.paused = false;
+
+        while (input.remaining() >= PathProtocol.LENGTH_SIZE) {
+
+            if (connection.queued >= MAX_QUEUED_RESPONSES) {
+                connection.paused = true;
+                break;
+            }
+
+            final int length = input.getInt(input.position());
+
+            if (length < 0 || length > PathProtocol.MAX_FRAME_SIZE) {
+                connection.close();
+                return;
+            }
+
+            if (input.remaining() < PathProtocol.LENGTH_SIZE + length) {
+
+                if (input.capacity() < PathProtocol.LENGTH_SIZE + length) {
+                    final ByteBuffer larger = ByteBuffer.allocate(PathProtocol.LENGTH_SIZE + length);
+                    larger.put(input);
+                    connection.input = larger;
+                    updateInterest(connection);
+                    return;
+                }
+
+                break;
+            }
+
+            final ByteBuffer request = ByteBuffer.allocate(length);
+
+            input.position(input.position() + PathProtocol.LENGTH_SIZE);
+
+            final int limit = input.limit();
+
+            input.limit(input.position() + length);
+            request.put(input);
+            input.limit(limit);
+            request.flip();
+
+            connection.queued++;
+            submit(connection, request);
+        }
+
+        input.compact();
+        updateInterest(connection);
+    }
+
+    /**
+     * Selects the operations of a connection the selector waits for.
+     * @param connection    the connection
+     */
+    private void updateInterest(final Connection connection) {
+        connection.key.interestOps((connection.paused ? 0 : SelectionKey.OP_READ) | (connection.output.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+    }
+
+    /**
+     * Hands a request to the workers, which queue the response on the connection.
+     * @param connection    the connection the request came from
+     * @param request       the request payload
+     */
+    private void submit(final Connection connection, final ByteBuffer request) {
+
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+                final ByteBuffer response = respond(request);
+
+                connection.output.add(response);
+                pendingWrites.add(connection);
+                selector.wakeup();
+            }
+        });
+    }
+
+    /**
+     * Writes queued responses of a connection, until the socket stops accepting data.
+     * @param connection    the connection to write
+     */
+    private void flush(final Connection connection) {
+
+        try {
+
+            final ByteBuffer[] buffers = connection.gather;
+
+            while (!connection.output.isEmpty()) {
+
+                int count = 0;
+
+                for (ByteBuffer buffer: connection.output) {
+
+                    buffers[count++] = buffer;
+
+                    if (count == buffers.length) {
+                        break;
+                    }
+                }
+
+                connection.channel.write(buffers, 0, count);
+
+                int written = 0;
+
+                while (written < count && !buffers[written].hasRemaining()) {
+                    connection.output.poll();
+                    connection.queued--;
+                    written++;
+                }
+
+                if (written < count) {
+                    break;
+                }
+            }
+
+            // frames received while the connection was paused may be waiting already
+            if (connection.paused && connection.queued < MAX_QUEUED_RESPONSES) {
+                process(connection);
+            } else {
+                updateInterest(connection);
+            }
+
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Serves a request.
+     * @param request   the request payload
+     * @return the response frame, ready to be written
+     */
+    private ByteBuffer respond(final ByteBuffer request) {
+
+        final int id = request.remaining() >= 4 ? request.getInt() : -1;
+
+        if (request.remaining() < PathProtocol.REQUEST_HEADER_SIZE - 4) {
+            return status(id, PathProtocol.STATUS_MALFORMED);
+        }
+
+        final int mapId = request.getInt();
+        final GridMap map = maps.get(mapId);
+        final int count = request.getInt();
+
+        if (count < 0 || count > PathProtocol.MAX_QUERIES || request.remaining() != count * PathProtocol.QUERY_SIZE) {
+            return status(id, PathProtocol.STATUS_MALFORMED);
+        }
+
+        if (map == null) {
+            return status(id, PathProtocol.STATUS_UNKNOWN_MAP);
+        }
+
+        try {
+
+            final Engine engine = getEngine(mapId, map);
+            final CompactPath[] paths = new CompactPath[count];
+
+            final int limit = maxResponseSize;
+
+            int size = PathProtocol.RESPONSE_HEADER_SIZE + 4 + count;
+            long steps = 0;
+
+            for (int i = 0; i < count; i++) {
+
+                paths[i] = engine.findPath(request.getInt(), request.getInt(), request.getInt(), request.getInt());
+
+                if (paths[i] != null) {
+                    size += PathCodec.getEncodedSize(paths[i]);
+                    steps += paths[i].getLength();
+                }
+
+                // clients reject larger frames, failing every request pending on the connection
+                if (size > limit || steps > PathProtocol.MAX_RESPONSE_STEPS) {
+                    return status(id, PathProtocol.STATUS_TOO_LARGE);
+                }
+            }
+
+            final ByteBuffer response = ByteBuffer.allocate(PathProtocol.LENGTH_SIZE + size);
+
+            response.putInt(size).putInt(id).put(PathProtocol.STATUS_OK).putInt(count);
+
+            for (CompactPath path: paths) {
+                if (path == null) {
+                    response.put((byte) 0);
+                } else {
+                    response.put((byte) 1);
+                    PathCodec.encode(path, response);
+                }
+            }
+
+            response.flip();
+
+            return response;
+
+        } catch (RuntimeException e) {
+            return status(id, PathProtocol.STATUS_FAILED);
+        }
+    }
+
+    /**
+     * Returns the search engine of the current worker for a map, first dropping
+     * engines of maps which stopped being served since the worker last looked.
+     * @param id    the id of the map
+     * @param map   the map to search
+     * @return the engine
+     */
+    private Engine getEngine(final int id, final GridMap map) {
+
+        final Engines local = engines.get();
+        final int current = generation.get();
+
+        if (local.generation != current) {
+
+            final Iterator<Map.Entry<Integer, Engine>> iterator = local.byId.entrySet().iterator();
+
+            while (iterator.hasNext()) {
+
+                final Map.Entry<Integer, Engine> entry = iterator.next();
+
+                if (maps.get(entry.getKey()) != entry.getValue().map) {
+                    iterator.remove();
+                }
+            }
+
+            local.generation = current;
+        }
+
+        Engine engine = local.byId.get(id);
+
+        if (engine == null || engine.map != map) {
+            engine = new Engine(map);
+            local.byId.put(id, engine);
+        }
+
+        return engine;
+    }
+
+    /**
+     * Creates a response frame without results.
+     * @param id        the request id
+     * @param status    the status of the response
+     * @return the response frame
+     */
+    private static ByteBuffer status(final int id, final byte status) {
+
+        final ByteBuffer response = ByteBuffer.allocate(PathProtocol.LENGTH_SIZE + PathProtocol.RESPONSE_HEADER_SIZE);
+
+        response.putInt(PathProtocol.RESPONSE_HEADER_SIZE).putInt(id).put(status);
+        response.flip();
+
+        return response;
+    }
+
+    /**
+     * Search engines of a single worker, by map id.
+     */
+    private static final class Engines {
+
+        /**
+         * The engines, by map id.
+         */
+        final HashMap<Integer, Engine> byId = new HashMap<>();
+
+        /**
+         * The generation of served maps the engines were last checked against.
+         */
+        int generation;
+    }
+
+    /**
+     * A search engine of a single worker for a single map.
+     */
+    private static final class Engine {
+
+        /**
+         * The searched map.
+         */
+        final GridMap map;
+
+        /**
+         * The map presented as a graph.
+         */
+        final TileMapGraph graph;
+
+        /**
+         * The path finder.
+         */
+        final IndexedAStarPathFinder<Point2D.Int> finder;
+
+        /**
+         * Constructs new engine.
+         * @param map   the map to search
+         */
+        Engine(final GridMap map) {
+            this.map = map;
+            this.graph = new TileMapGraph(map);
+            this.finder = new IndexedAStarPathFinder<>(map, graph, graph.adapt(map.isDiagonal() ? new Diagonal2D.Int() : new Manhattan2D.Int()));
+        }
+
+        /**
+         * Finds path between two tiles.
+         * @param sx    the X coordinate of the source
+         * @param sy    the Y coordinate of the source
+         * @param tx    the X coordinate of the target
+         * @param ty    the Y coordinate of the target
+         * @return the path, or <tt>null</tt> if no path can be found
+         */
+        CompactPath findPath(final int sx, final int sy, final int tx, final int ty) {
+
+            if (!map.canMoveTo(null, sx, sy) || !map.canMoveTo(null, tx, ty)) {
+                return null;
+            }
+
+            final Point2D.Int source = new Point2D.Int(sx, sy);
+
+            if (sx == tx && sy == ty) {
+                return new CompactPath(source, new Path<Point2D.Int>());
+            }
+
+            final int[] nodes = finder.findPath(null, graph.getNode(source), graph.getNode(new Point2D.Int(tx, ty)));
+
+            if (nodes == null) {
+                return null;
+            }
+
+            final Path<Point2D.Int> path = new Path<>(nodes.length);
+
+            for (int node: nodes) {
+                path.append(graph.getLocation(node));
+            }
+
+            return new CompactPath(source, path);
+        }
+    }
+
+    /**
+     * State of a single client connection.
+     */
+    private static final class Connection {
+
+        /**
+         * The channel of the connection.
+         */
+        final SocketChannel channel;
+
+        /**
+         * The selection key of the channel.
+         */
+        final SelectionKey key;
+
+        /**
+         * Received bytes not yet handed to workers, in write mode.
+         */
+        ByteBuffer input = ByteBuffer.allocate(INPUT_BUFFER_SIZE);
+
+        /**
+         * Responses waiting to be written.
+         */
+        final ConcurrentLinkedQueue<ByteBuffer> output = new ConcurrentLinkedQueue<>();
+
+        /**
+         * The array of buffers passed to gathering writes.
+         */
+        final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+
+        /**
+         * The number of requests being served or whose responses wait to be written.
+         */
+        int queued;
+
+        /**
+         * <tt>true</tt> while the connection is not read because too many responses are queued.
+         */
+        boolean paused;
+
+        /**
+         * Constructs new connection.
+         * @param channel   the channel of the connection
+         * @param key       the selection key of the channel
+         */
+        Connection(final SocketChannel channel, final SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        /**
+         * Closes the connection, discarding pending responses.
+         */
+        void close() {
+
+            key.cancel();
+            output.clear();
+
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // nothing left to release
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,514 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.math;
+
+import java.io.Serializable;
+
+/**
+ * The <code>Point3D</code> class defines a point representing a location
+ * in {@code (x,y,z)} coordinate space.
+ * <p>
+ * This class is only the abstract superclass for all objects that
+ * store a 3D coordinate.
+ * The actual storage representation of the coordinates is left to
+ * the subclass.
+ *
+ * @see Point2D
+ * @author Aleksandar Ružičić
+ */
+public abstract class Point3D implements Cloneable {
+
+    /**
+     * Returns the X coordinate of this <code>Point3D</code> in <code>double</code> precision.
+     * @return the X coordinate of this point
+     */
+    public abstract double getX();
+
+    /**
+     * Returns the Y coordinate of this <code>Point3D</code> in <code>double</code> precision.
+     * @return the Y coordinate of this point
+     */
+    public abstract double getY();
+
+    /**
+     * Returns the Z coordinate of this <code>Point3D</code> in <code>double</code> precision.
+     * @return the Z coordinate of this point
+     */
+    public abstract double getZ();
+
+    /**
+     * Sets the X coordinate of this <code>Point3D</code> in <code>double</code> precision.
+     * @param x the X coordinate of this point
+     */
+    public abstract void setX(final double x);
+
+    /**
+     * Sets the Y coordinate of this <code>Point3D</code> in <code>double</code> precision.
+     * @param y the Y coordinate of this point
+     */
+    public abstract void setY(final double y);
+
+    /**
+     * Sets the Z coordinate of this <code>Point3D</code> in <code>double</code> precision.
+     * @param z the Z coordinate of this point
+     */
+    public abstract void setZ(final double z);
+
+    /**
+     * Sets the location of this <code>Point3D</code> to the specified coordinates.
+     * @param x the new X coordinate of this point
+     * @param y the new Y coordinate of this point
+     * @param z the new Z coordinate of this point
+     */
+    public void setLocation(final double x, final double y, final double z) {
+        setX(x);
+        setY(y);
+        setZ(z);
+    }
+
+    /**
+     * Returns the distance from this <code>Point3D</code> to a specified point.
+     * @param point the point to measure the distance to
+     * @return the distance between the points
+     */
+    public double distance(final Point3D point) {
+
+        final double dX = getX() - point.getX();
+        final double dY = getY() - point.getY();
+        final double dZ = getZ() - point.getZ();
+
+        return Math.sqrt(dX * dX + dY * dY + dZ * dZ);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object clone() {
+        try {
+            return super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+
+        long bits = java.lang.Double.doubleToLongBits(getX());
+
+        bits = bits * 31 + java.lang.Double.doubleToLongBits(getY());
+        bits = bits * 31 + java.lang.Double.doubleToLongBits(getZ());
+
+        return (int) (bits ^ (bits >>> 32));
+    }
+
+    /**
+     * Determines whether or not two points are equal. Two instances of
+     * <code>Point3D</code> are equal if the values of their X, Y and Z
+     * coordinates are the same.
+     * @param obj   an object to be compared with this <code>Point3D</code>
+     * @return <tt>true</tt> if the object is a <code>Point3D</code> at the same location
+     */
+    @Override
+    public boolean equals(final Object obj) {
+
+        if (!(obj instanceof Point3D)) {
+            return false;
+        }
+
+        final Point3D point = (Point3D) obj;
+
+        return getX() == point.getX() && getY() == point.getY() && getZ() == point.getZ();
+    }
+
+    /**
+     * Implements <code>Point3D</code> with <code>int</code> precision.
+     *
+     * @author Aleksandar Ružičić
+     */
+    public static class Int extends Point3D implements Serializable {
+
+        /**
+         * The X coordinate of this <code>Point3D</code>.
+         * @serial
+         */
+        public int x;
+
+        /**
+         * The Y coordinate of this <code>Point3D</code>.
+         * @serial
+         */
+        public int y;
+
+        /**
+         * The Z coordinate of this <code>Point3D</code>.
+         * @serial
+         */
+        public int z;
+
+        /**
+         * Constructs new <code>Point3D.Int</code> and initializes it to the
+         * <code>(0,&nbsp;0,&nbsp;0)</code> coordinates.
+         */
+        public Int() {
+            this(0, 0, 0);
+        }
+
+        /**
+         * Constructs new <code>Point3D.Int</code> and initializes it to the
+         * specified coordinates.
+         * @param x     the X coordinate
+         * @param y     the Y coordinate
+         * @param z     the Z coordinate
+         */
+        public Int(final int x, final int y, final int z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setX(final double x) {
+            this.x = (int) x;
+        }
+
+        /**
+         * Sets the X coordinate of this <code>Point3D</code> in <code>int</code> precision.
+         * @param x the X coordinate of this point
+         */
+        public void setX(final int x) {
+            this.x = x;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setY(final double y) {
+            this.y = (int) y;
+        }
+
+        /**
+         * Sets the Y coordinate of this <code>Point3D</code> in <code>int</code> precision.
+         * @param y the Y coordinate of this point
+         */
+        public void setY(final int y) {
+            this.y = y;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setZ(final double z) {
+            this.z = (int) z;
+        }
+
+        /**
+         * Sets the Z coordinate of this <code>Point3D</code> in <code>int</code> precision.
+         * @param z the Z coordinate of this point
+         */
+        public void setZ(final int z) {
+            this.z = z;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getX() {
+            return x;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getY() {
+            return y;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getZ() {
+            return z;
+        }
+
+        /**
+         * Returns a <code>String</code> that represents the value
+         * of this <code>Point3D</code>.
+         * @return a string representation of this <code>Point3D</code>.
+         */
+        @Override
+        public String toString() {
+            return "Point3D.Int[" + x + ", " + y + ", " + z + "]";
+        }
+    }
+
+    /**
+     * Implements <code>Point3D</code> with <code>float</code> precision.
+     *
+     * @author Aleksandar Ružičić
+     */
+    public static class Float extends Point3D implements Serializable {
+
+        /**
+         * The X coordinate of this <code>Point3D</code>.
+         * @serial
+         */
+        public float x;
+
+        /**
+         * The Y coordinate of this <code>Point3D</code>.
+         * @serial
+         */
+        public float y;
+
+        /**
+         * The Z coordinate of this <code>Point3D</code>.
+         * @serial
+         */
+        public float z;
+
+        /**
+         * Constructs new <code>Point3D.Float</code> and initializes it to the
+         * <code>(0,&nbsp;0,&nbsp;0)</code> coordinates.
+         */
+        public Float() {
+            this(0.0f, 0.0f, 0.0f);
+        }
+
+        /**
+         * Constructs new <code>Point3D.Float</code> and initializes it to the
+         * specified coordinates.
+         * @param x     the X coordinate
+         * @param y     the Y coordinate
+         * @param z     the Z coordinate
+         */
+        public Float(final float x, final float y, final float z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setX(final double x) {
+            this.x = (float) x;
+        }
+
+        /**
+         * Sets the X coordinate of this <code>Point3D</code> in <code>float</code> precision.
+         * @param x the X coordinate of this point
+         */
+        public void setX(final float x) {
+            this.x = x;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setY(final double y) {
+            this.y = (float) y;
+        }
+
+        /**
+         * Sets the Y coordinate of this <code>Point3D</code> in <code>float</code> precision.
+         * @param y the Y coordinate of this point
+         */
+        public void setY(final float y) {
+            this.y = y;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setZ(final double z) {
+            this.z = (float) z;
+        }
+
+        /**
+         * Sets the Z coordinate of this <code>Point3D</code> in <code>float</code> precision.
+         * @param z the Z coordinate of this point
+         */
+        public void setZ(final float z) {
+            this.z = z;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getX() {
+            return x;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getY() {
+            return y;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getZ() {
+            return z;
+        }
+
+        /**
+         * Returns a <code>String</code> that represents the value
+         * of this <code>Point3D</code>.
+         * @return a string representation of this <code>Point3D</code>.
+         */
+        @Override
+        public String toString() {
+            return "Point3D.Float[" + x + ", " + y + ", " + z + "]";
+        }
+    }
+
+    /**
+     * Implements <code>Point3D</code> with <code>double</code> precision.
+     *
+     * @author Aleksandar Ružičić
+     */
+    public static class Double extends Point3D implements Serializable {
+
+        /**
+         * The X coordinate of this <code>Point3D</code>.
+         * @serial
+         */
+        public double x;
+
+        /**
+         * The Y coordinate of this <code>Point3D</code>.
+         * @serial
+         */
+        public double y;
+
+        /**
+         * The Z coordinate of this <code>Point3D</code>.
+         * @serial
+         */
+        public double z;
+
+        /**
+         * Constructs new <code>Point3D.Double</code> and initializes it to the
+         * <code>(0,&nbsp;0,&nbsp;0)</code> coordinates.
+         */
+        public Double() {
+            this(0.0, 0.0, 0.0);
+        }
+
+        /**
+         * Constructs new <code>Point3D.Double</code> and initializes it to the
+         * specified coordinates.
+         * @param x     the X coordinate
+         * @param y     the Y coordinate
+         * @param z     the Z coordinate
+         */
+        public Double(final double x, final double y, final double z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setX(final double x) {
+            this.x = x;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setY(final double y) {
+            this.y = y;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setZ(final double z) {
+            this.z = z;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getX() {
+            return x;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getY() {
+            return y;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getZ() {
+            return z;
+        }
+
+        /**
+         * Returns a <code>String</code> that represents the value
+         * of this <code>Point3D</code>.
+         * @return a string representation of this <code>Point3D</code>.
+         */
+        @Override
+        public String toString() {
+            return "Point3D.Double[" + x + ", " + y + ", " + z + "]";
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,280 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.util;
+
+import java.util.Arrays;
+
+/**
+ * A bucket queue of <code>int</code> ids ordered by non-negative <code>float</code>
+ * keys, the monotone queue of Dial's algorithm.
+ * <p>
+ * Keys are grouped into buckets of fixed width, ids of each bucket are kept in
+ * an intrusive doubly linked list, so every operation takes constant time.
+ * Ids of the same bucket are polled in no particular order and ids can't be
+ * offered with keys below the bucket being polled; they are moved into it
+ * instead. A shortest path search using this queue is exact without revisits
+ * when the bucket width does not exceed the cheapest move, with wider buckets
+ * it corrects costs by polling ids again.
+ * <p>
+ * Ids must be in range <code>[0,&nbsp;capacity)</code>, keys are clamped to
+ * the last bucket.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class IntBucketQueue {
+
+    /**
+     * The first id of each bucket, or <tt>-1</tt>.
+     */
+    private int[] heads;
+
+    /**
+     * The next id in the bucket of each id, or <tt>-1</tt>.
+     */
+    private final int[] next;
+
+    /**
+     * The previous id in the bucket of each id, or <tt>-1</tt>.
+     */
+    private final int[] previous;
+
+    /**
+     * The bucket of each id, or <tt>-1</tt> if the id is not in the queue.
+     */
+    private final int[] buckets;
+
+    /**
+     * The width of a bucket.
+     */
+    private float width;
+
+    /**
+     * The number of buckets in use.
+     */
+    private int count;
+
+    /**
+     * The lowest bucket which might not be empty.
+     */
+    private int current;
+
+    /**
+     * The number of ids in the queue.
+     */
+    private int size;
+
+    /**
+     * Constructs new empty queue.
+     * @param capacity      the number of distinct ids
+     * @param bucketWidth   the range of keys of a single bucket
+     * @param bucketCount   the number of buckets
+     * @throws IllegalArgumentException if the width or the count is not positive
+     */
+    public IntBucketQueue(final int capacity, final float bucketWidth, final int bucketCount) throws IllegalArgumentException {
+        next = new int[capacity];
+        previous = new int[capacity];
+        buckets = new int[capacity];
+        heads = new int[0];
+        Arrays.fill(buckets, -1);
+        reset(bucketWidth, bucketCount);
+    }
+
+    /**
+     * Empties the queue and changes its buckets.
+     * @param bucketWidth   the range of keys of a single bucket
+     * @param bucketCount   the number of buckets
+     * @throws IllegalArgumentException if the width or the count is not positive
+     */
+    public void reset(final float bucketWidth, final int bucketCount) throws IllegalArgumentException {
+
+        if (!(bucketWidth > 0) || bucketWidth == Float.POSITIVE_INFINITY || bucketCount <= 0) {
+            throw new IllegalArgumentException("Bucket width and count must be positive.");
+        }
+
+        clear();
+
+        if (heads.length < bucketCount) {
+            heads = new int[bucketCount];
+        }
+
+        Arrays.fill(heads, 0, bucketCount, -1);
+
+        width = bucketWidth;
+        count = bucketCount;
+        current = 0;
+    }
+
+    /**
+     * Returns the number of distinct ids.
+     * @return the capacity of the queue
+     */
+    public int getCapacity() {
+        return buckets.length;
+    }
+
+    /**
+     * Returns the range of keys of a single bucket.
+     * @return the bucket width
+     */
+    public float getBucketWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of buckets.
+     * @return the bucket count
+     */
+    public int getBucketCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of ids in the queue.
+     * @return the size of the queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the queue is empty.
+     * @return <tt>true</tt> if there are no ids in the queue
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if specified id is in the queue.
+     * @param id    the id to check
+     * @return <tt>true</tt> if the id is in the queue
+     */
+    public boolean contains(final int id) {
+        return buckets[id] >= 0;
+    }
+
+    /**
+     * Adds an id to the queue, or moves it to the bucket of its new key if it is already in the queue.
+     * @param id    the id to add
+     * @param key   the key of the id
+     */
+    public void offer(final int id, final float key) {
+
+        final int bucket = Math.max(current, (int) Math.min(key / width, count - 1));
+
+        if (buckets[id] == bucket) {
+            return;
+        }
+
+        if (buckets[id] >= 0) {
+            unlink(id);
+        }
+
+        buckets[id] = bucket;
+        previous[id] = -1;
+        next[id] = heads[bucket];
+
+        if (heads[bucket] >= 0) {
+            previous[heads[bucket]] = id;
+        }
+
+        heads[bucket] = id;
+        size++;
+    }
+
+    /**
+     * Removes an id of the lowest non-empty bucket from the queue.
+     * @return the removed id
+     * @throws IllegalStateException if the queue is empty
+     */
+    public int poll() throws IllegalStateException {
+
+        if (size == 0) {
+            throw new IllegalStateException("Queue is empty.");
+        }
+
+        while (heads[current] < 0) {
+            current++;
+        }
+
+        final int id = heads[current];
+
+        unlink(id);
+
+        return id;
+    }
+
+    /**
+     * Removes an id from the queue.
+     * @param id    the id to remove
+     * @return <tt>true</tt> if the id was in the queue
+     */
+    public boolean remove(final int id) {
+
+        if (buckets[id] < 0) {
+            return false;
+        }
+
+        unlink(id);
+
+        return true;
+    }
+
+    /**
+     * Removes all ids from the queue. The buckets are polled from the first one again.
+     */
+    public void clear() {
+
+        for (int bucket = current; size > 0 && bucket < count; bucket++) {
+            while (heads[bucket] >= 0) {
+                unlink(heads[bucket]);
+            }
+        }
+
+        current = 0;
+    }
+
+    /**
+     * Removes an id which is in the queue from its bucket.
+     * @param id    the id to remove
+     */
+    private void unlink(final int id) {
+
+        if (previous[id] >= 0) {
+            next[previous[id]] = next[id];
+        } else {
+            heads[buckets[id]] = next[id];
+        }
+
+        if (next[id] >= 0) {
+            previous[next[id]] = previous[id];
+        }
+
+        buckets[id] = -1;
+        size--;
+    }
+}
\ No newline at end of file
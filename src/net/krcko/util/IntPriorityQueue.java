@@ -0,0 +1,298 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.util;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of <code>int</code> ids ordered by <code>float</code> keys.
+ * <p>
+ * Ids must be in range <code>[0,&nbsp;capacity)</code>, which allows the queue
+ * to track the position of every id and to support decreasing the key of an id
+ * already in the queue, without allocating any objects.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class IntPriorityQueue {
+
+    /**
+     * Ids in heap order.
+     */
+    private int[] heap;
+
+    /**
+     * Keys, parallel to the heap.
+     */
+    private float[] keys;
+
+    /**
+     * The position of each id in the heap, or <tt>-1</tt>.
+     */
+    private int[] positions;
+
+    /**
+     * The number of ids in the queue.
+     */
+    private int size;
+
+    /**
+     * Constructs new empty queue.
+     * @param capacity  the number of distinct ids
+     */
+    public IntPriorityQueue(final int capacity) {
+        heap = new int[Math.min(capacity, 16)];
+        keys = new float[heap.length];
+        positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Returns the number of distinct ids.
+     * @return the capacity of the queue
+     */
+    public int getCapacity() {
+        return positions.length;
+    }
+
+    /**
+     * Returns the number of ids in the queue.
+     * @return the size of the queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the queue is empty.
+     * @return <tt>true</tt> if there are no ids in the queue
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if specified id is in the queue.
+     * @param id    the id to check
+     * @return <tt>true</tt> if the id is in the queue
+     */
+    public boolean contains(final int id) {
+        return positions[id] >= 0;
+    }
+
+    /**
+     * Adds an id to the queue, or changes its key if it is already in the queue.
+     * @param id    the id to add
+     * @param key   the key of the id
+     */
+    public void offer(final int id, final float key) {
+
+        int position = positions[id];
+
+        if (position < 0) {
+
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, Math.max(16, size * 2));
+                keys = Arrays.copyOf(keys, heap.length);
+            }
+
+            position = size++;
+            heap[position] = id;
+            keys[position] = key;
+            positions[id] = position;
+            siftUp(position);
+
+        } else if (key < keys[position]) {
+            keys[position] = key;
+            siftUp(position);
+        } else if (key > keys[position]) {
+            keys[position] = key;
+            siftDown(position);
+        }
+    }
+
+    /**
+     * Returns the id with the lowest key, without removing it.
+     * @return the id with the lowest key
+     * @throws IllegalStateException if the queue is empty
+     */
+    public int peek() throws IllegalStateException {
+
+        if (size == 0) {
+            throw new IllegalStateException("Queue is empty.");
+        }
+
+        return heap[0];
+    }
+
+    /**
+     * Returns the lowest key in the queue.
+     * @return the lowest key, or <code>Float.POSITIVE_INFINITY</code> if the queue is empty
+     */
+    public float peekKey() {
+        return size == 0 ? Float.POSITIVE_INFINITY : keys[0];
+    }
+
+    /**
+     * Returns the key of specified id.
+     * @param id    the id which is in the queue
+     * @return the key of the id
+     */
+    public float getKey(final int id) {
+        return keys[positions[id]];
+    }
+
+    /**
+     * Removes and returns the id with the lowest key.
+     * @return the id with the lowest key
+     * @throws IllegalStateException if the queue is empty
+     */
+    public int poll() throws IllegalStateException {
+
+        final int id = peek();
+
+        removeAt(0);
+
+        return id;
+    }
+
+    /**
+     * Removes specified id from the queue.
+     * @param id    the id to remove
+     * @return <tt>true</tt> if the id was in the queue
+     */
+    public boolean remove(final int id) {
+
+        final int position = positions[id];
+
+        if (position < 0) {
+            return false;
+        }
+
+        removeAt(position);
+
+        return true;
+    }
+
+    /**
+     * Removes all ids from the queue.
+     */
+    public void clear() {
+
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+
+        size = 0;
+    }
+
+    /**
+     * Removes the id at specified heap position.
+     * @param position  the heap position
+     */
+    private void removeAt(final int position) {
+
+        positions[heap[position]] = -1;
+        size--;
+
+        if (position == size) {
+            return;
+        }
+
+        heap[position] = heap[size];
+        keys[position] = keys[size];
+        positions[heap[position]] = position;
+
+        final int id = heap[position];
+
+        siftUp(position);
+        siftDown(positions[id]);
+    }
+
+    /**
+     * Moves the entry at specified position up until the heap order is restored.
+     * @param position  the heap position
+     */
+    private void siftUp(int position) {
+
+        final int id = heap[position];
+        final float key = keys[position];
+
+        while (position > 0) {
+
+            final int parent = (position - 1) >>> 1;
+
+            if (keys[parent] <= key) {
+                break;
+            }
+
+            heap[position] = heap[parent];
+            keys[position] = keys[parent];
+            positions[heap[position]] = position;
+            position = parent;
+        }
+
+        heap[position] = id;
+        keys[position] = key;
+        positions[id] = position;
+    }
+
+    /**
+     * Moves the entry at specified position down until the heap order is restored.
+     * @param position  the heap position
+     */
+    private void siftDown(int position) {
+
+        final int id = heap[position];
+        final float key = keys[position];
+
+        while (true) {
+
+            int child = 2 * position + 1;
+
+            if (child >= size) {
+                break;
+            }
+
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+
+            if (keys[child] >= key) {
+                break;
+            }
+
+            heap[position] = heap[child];
+            keys[position] = keys[child];
+            positions[heap[position]] = position;
+            position = child;
+        }
+
+        heap[position] = id;
+        keys[position] = key;
+        positions[id] = position;
+    }
+}
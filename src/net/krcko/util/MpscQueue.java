@@ -0,0 +1,148 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.util;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * An unbounded lock-free queue for many producers and a single consumer.
+ * <p>
+ * Producers append a new node by atomically swapping the tail and then
+ * linking the previous tail to it, so <code>offer</code> never blocks nor
+ * retries. Only one thread at a time may call <code>poll</code>,
+ * <code>peek</code> and <code>isEmpty</code>. An element becomes visible to the
+ * consumer once its producer has linked it, which may briefly lag behind the
+ * elements offered by other producers.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class MpscQueue<E> {
+
+    /**
+     * Links the previous tail node to the new one.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Node, Node> NEXT = AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+    /**
+     * The last node appended by producers.
+     */
+    private final AtomicReference<Node<E>> tail;
+
+    /**
+     * The node preceding the first element, owned by the consumer.
+     */
+    private Node<E> head;
+
+    /**
+     * Constructs new empty queue.
+     */
+    public MpscQueue() {
+        head = new Node<>(null);
+        tail = new AtomicReference<>(head);
+    }
+
+    /**
+     * Appends an element to the queue. Can be called by any thread.
+     * @param element   the element to append
+     * @throws NullPointerException if the element is <tt>null</tt>
+     */
+    @SuppressWarnings("unchecked")
+    public void offer(final E element) throws NullPointerException {
+
+        if (element == null) {
+            throw new NullPointerException("Queue does not accept null elements.");
+        }
+
+        final Node<E> node = new Node<>(element);
+        final Node<E> previous = tail.getAndSet(node);
+
+        NEXT.lazySet(previous, node);
+    }
+
+    /**
+     * Removes the first element of the queue. Must only be called by the consumer.
+     * @return the first element, or <tt>null</tt> if the queue is empty
+     */
+    public E poll() {
+
+        final Node<E> next = head.next;
+
+        if (next == null) {
+            return null;
+        }
+
+        final E element = next.element;
+
+        next.element = null;
+        head = next;
+
+        return element;
+    }
+
+    /**
+     * Returns the first element of the queue without removing it. Must only be called by the consumer.
+     * @return the first element, or <tt>null</tt> if the queue is empty
+     */
+    public E peek() {
+        final Node<E> next = head.next;
+        return next == null ? null : next.element;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the consumer would find no element. Must only be called by the consumer.
+     * @return <tt>true</tt> if the queue is empty
+     */
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+
+    /**
+     * A node of the linked list of elements.
+     */
+    private static final class Node<E> {
+
+        /**
+         * The element, or <tt>null</tt> once consumed.
+         */
+        E element;
+
+        /**
+         * The next node, or <tt>null</tt> if not linked yet.
+         */
+        volatile Node<E> next;
+
+        /**
+         * Constructs new unlinked node.
+         * @param element   the element of the node
+         */
+        Node(final E element) {
+            this.element = element;
+        }
+    }
+}
\ No newline at end of file
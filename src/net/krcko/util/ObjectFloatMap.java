@@ -0,0 +1,252 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map of object keys to primitive <code>float</code> values, stored in
+ * an open-addressing table with linear probing.
+ * <p>
+ * Values are kept unboxed in a parallel array and there are no entry objects,
+ * so the map takes two array slots per key. Keys must not be <tt>null</tt>
+ * and must not change their hash code while in the map.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class ObjectFloatMap<K> {
+
+    /**
+     * Keys, or <tt>null</tt> for empty entries.
+     */
+    private Object[] keys;
+
+    /**
+     * Values, parallel to keys.
+     */
+    private float[] values;
+
+    /**
+     * The number of keys in the map.
+     */
+    private int size;
+
+    /**
+     * Constructs new empty map.
+     */
+    public ObjectFloatMap() {
+        this(4);
+    }
+
+    /**
+     * Constructs new empty map.
+     * @param expectedSize  the number of keys the map should hold without growing
+     */
+    public ObjectFloatMap(final int expectedSize) {
+
+        int capacity = 4;
+
+        while (capacity < 2 * expectedSize && capacity < 1 << 30) {
+            capacity <<= 1;
+        }
+
+        keys = new Object[capacity];
+        values = new float[capacity];
+    }
+
+    /**
+     * Returns the number of keys in the map.
+     * @return the size of the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the map is empty.
+     * @return <tt>true</tt> if there are no keys in the map
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the map contains a key.
+     * @param key   the key to check
+     * @return <tt>true</tt> if the key is in the map
+     */
+    public boolean containsKey(final K key) {
+        return keys[find(key)] != null;
+    }
+
+    /**
+     * Returns the value of a key.
+     * @param key           the key to look up
+     * @param defaultValue  the value to return if the key is not in the map
+     * @return the value of the key, or the default value
+     */
+    public float get(final K key, final float defaultValue) {
+        final int i = find(key);
+        return keys[i] != null ? values[i] : defaultValue;
+    }
+
+    /**
+     * Sets the value of a key.
+     * @param key   the key, not <tt>null</tt>
+     * @param value the value
+     */
+    public void put(final K key, final float value) {
+
+        int i = find(key);
+
+        if (keys[i] == null) {
+
+            if (2 * (size + 1) > keys.length) {
+                resize(keys.length * 2);
+                i = find(key);
+            }
+
+            keys[i] = key;
+            size++;
+        }
+
+        values[i] = value;
+    }
+
+    /**
+     * Removes a key from the map.
+     * @param key   the key to remove
+     * @return <tt>true</tt> if the key was in the map
+     */
+    public boolean remove(final K key) {
+
+        final int position = find(key);
+
+        if (keys[position] == null) {
+            return false;
+        }
+
+        final int mask = keys.length - 1;
+
+        int hole = position;
+
+        for (int i = (position + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+
+            final int home = hash(keys[i]) & mask;
+
+            // move the entry into the hole unless its home lies cyclically within (hole, i]
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+
+        keys[hole] = null;
+        size--;
+
+        return true;
+    }
+
+    /**
+     * Removes all keys from the map, keeping its capacity.
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, null);
+            size = 0;
+        }
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the tables of the map,
+     * not counting the keys themselves.
+     * @return the memory usage
+     */
+    public long getMemoryUsage() {
+        return 8L * keys.length;
+    }
+
+    /**
+     * Returns the position of a key, or of the empty entry where it would be inserted.
+     * @param key   the key to find
+     * @return the position in the table
+     */
+    private int find(final Object key) {
+
+        final int mask = keys.length - 1;
+
+        int i = hash(key) & mask;
+
+        while (keys[i] != null && !keys[i].equals(key)) {
+            i = (i + 1) & mask;
+        }
+
+        return i;
+    }
+
+    /**
+     * Rehashes all entries into tables of specified capacity.
+     * @param capacity  the new capacity, a power of two
+     */
+    private void resize(final int capacity) {
+
+        final Object[] oldKeys = keys;
+        final float[] oldValues = values;
+
+        keys = new Object[capacity];
+        values = new float[capacity];
+
+        final int mask = capacity - 1;
+
+        for (int j = 0; j < oldKeys.length; j++) {
+
+            if (oldKeys[j] == null) {
+                continue;
+            }
+
+            int i = hash(oldKeys[j]) & mask;
+
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    /**
+     * Returns well-mixed hash of a key.
+     * @param key   the key
+     * @return the hash value
+     */
+    private static int hash(final Object key) {
+        final int h = key.hashCode() * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
\ No newline at end of file
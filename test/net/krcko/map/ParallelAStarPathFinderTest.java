@@ -0,0 +1,118 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import net.krcko.map.heuristic.Manhattan2D;
+import net.krcko.math.Point2D;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Tests of <code>ParallelAStarPathFinder</code>.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class ParallelAStarPathFinderTest {
+
+    /**
+     * The number of workers of the tested path finders.
+     */
+    private static final int WORKERS = 4;
+
+    /**
+     * The executor running workers of the tested path finders.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Creates the executor.
+     */
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(WORKERS - 1);
+    }
+
+    /**
+     * Shuts the executor down.
+     */
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Checks that the path on an open map is found and is the shortest one.
+     */
+    @Test(timeout = 10000)
+    public void findsShortestPath() {
+
+        final GridMap map = new GridMap(64, 64, false);
+        final ParallelAStarPathFinder<Point2D.Int> finder = new ParallelAStarPathFinder<>(map, new Manhattan2D.Int(), executor, WORKERS);
+        final Path<Point2D.Int> path = finder.findPath(null, new Point2D.Int(0, 0), new Point2D.Int(63, 63));
+
+        assertNotNull(path);
+        assertEquals(126, path.getLength());
+    }
+
+    /**
+     * Checks that an exception thrown on an executor worker ends the search
+     * and reaches the caller, instead of leaving the other workers waiting.
+     */
+    @Test(timeout = 10000, expected = IllegalArgumentException.class)
+    public void rethrowsWorkerFailure() {
+
+        final Thread caller = Thread.currentThread();
+        final Heuristic<Point2D.Int> heuristic = new Heuristic<Point2D.Int>() {
+
+            /**
+             * The heuristic which is used on the calling thread.
+             */
+            private final Manhattan2D.Int manhattan = new Manhattan2D.Int();
+
+            @Override
+            public float getHeuristicCost(final Map<Point2D.Int> map, final MovingEntity entity, final Point2D.Int source, final Point2D.Int target) {
+
+                if (Thread.currentThread() != caller) {
+                    throw new IllegalArgumentException("Heuristic failed on a worker thread.");
+                }
+
+                return manhattan.getHeuristicCost(map, entity, source, target);
+            }
+        };
+
+        final GridMap map = new GridMap(64, 64, false);
+        final ParallelAStarPathFinder<Point2D.Int> finder = new ParallelAStarPathFinder<>(map, heuristic, executor, WORKERS);
+
+        finder.findPath(null, new Point2D.Int(0, 0), new Point2D.Int(63, 63));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,122 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * 
+ * For more information, please refer to <http://unlicense.org/>
+ */
+package net.krcko.map.service;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import net.krcko.map.CompactPath;
+import net.krcko.map.GridMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of <code>PathServer</code> together with <code>PathClient</code>.
+ *
+ * @author Aleksandar Ružičić
+ */
+public class PathServerTest {
+
+    /**
+     * The maximum response size of the tested server.
+     */
+    private static final int MAX_RESPONSE_SIZE = 256;
+
+    /**
+     * The tested server.
+     */
+    private PathServer server;
+
+    /**
+     * The client connected to the tested server.
+     */
+    private PathClient client;
+
+    /**
+     * Starts the server with a small maximum response size and connects the client.
+     * @throws IOException if the server can't be started
+     */
+    @Before
+    public void setUp() throws IOException {
+
+        server = new PathServer(2);
+        server.setMaxResponseSize(MAX_RESPONSE_SIZE);
+        server.addMap(0, new GridMap(32, 32, false));
+        server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+        client = new PathClient(server.getLocalAddress());
+    }
+
+    /**
+     * Closes the client and the server.
+     * @throws IOException if an I/O error occurs
+     */
+    @After
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    /**
+     * Checks that a batch whose results exceed the maximum response size fails
+     * alone, while requests pipelined with it on the same connection are served.
+     * @throws Exception if the connection fails
+     */
+    @Test(timeout = 10000)
+    public void rejectsResponseOverCap() throws Exception {
+
+        final int[] large = new int[4 * MAX_RESPONSE_SIZE];
+
+        for (int i = 0; i < large.length; i += 4) {
+            large[i + 2] = 31;
+            large[i + 3] = 31;
+        }
+
+        final Future<CompactPath[]> before = client.submit(0, new int[] {0, 0, 31, 31});
+        final Future<CompactPath[]> rejected = client.submit(0, large);
+        final Future<CompactPath[]> after = client.submit(0, new int[] {31, 0, 0, 31});
+
+        try {
+            rejected.get();
+            fail("Response over the cap was sent.");
+        } catch (ExecutionException e) {
+            assertEquals("Request failed: " + PathProtocol.describe(PathProtocol.STATUS_TOO_LARGE) + ".", e.getCause().getMessage());
+        }
+
+        assertNotNull(before.get()[0]);
+        assertNotNull(after.get()[0]);
+        assertEquals(62, after.get()[0].getLength());
+        assertEquals(0, client.getPendingRequests());
+    }
+}
\ No newline at end of file